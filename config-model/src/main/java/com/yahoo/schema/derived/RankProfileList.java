@@ -15,6 +15,7 @@ import com.yahoo.schema.Schema;
 import com.yahoo.vespa.config.search.core.OnnxModelsConfig;
 import com.yahoo.vespa.config.search.core.RankingConstantsConfig;
 import com.yahoo.vespa.config.search.core.RankingExpressionsConfig;
+import com.yahoo.vespa.model.utils.ParallelTask;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -23,9 +24,8 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
 
 /**
  * The derived rank profiles of a schema
@@ -111,26 +111,16 @@ public class RankProfileList extends Derived implements RankProfilesConfig.Produ
                                                             AttributeFields attributeFields,
                                                             ModelContext.Properties deployProperties,
                                                             ExecutorService executor) {
-        Map<String, Future<RawRankProfile>> futureRawRankProfiles = new LinkedHashMap<>();
+        List<Callable<RawRankProfile>> tasks = new ArrayList<>();
         for (RankProfile profile : profiles) {
-            futureRawRankProfiles.put(profile.name(), executor.submit(() -> new RawRankProfile(profile, largeRankingExpressions, queryProfiles, importedModels,
-                                                                                               attributeFields, deployProperties)));
-        }
-        try {
-            Map<String,  RawRankProfile> rawRankProfiles = new LinkedHashMap<>();
-            for (Future<RawRankProfile> rawFuture : futureRawRankProfiles.values()) {
-                RawRankProfile rawRank = rawFuture.get();
-                rawRankProfiles.put(rawRank.getName(), rawRank);
-            }
-            return rawRankProfiles;
-        } catch (InterruptedException e) {
-            throw new IllegalStateException(e);
-        }
-        catch (ExecutionException e) {
-            if (e.getCause() instanceof IllegalArgumentException iArg) throw iArg;
-            if (e.getCause() instanceof IllegalStateException iState) throw iState;
-            throw new IllegalStateException(e);
+            tasks.add(() -> new RawRankProfile(profile, largeRankingExpressions, queryProfiles, importedModels,
+                                               attributeFields, deployProperties));
         }
+        // Waiting threads help run the tasks, as this may itself be running on the executor
+        Map<String,  RawRankProfile> rawRankProfiles = new LinkedHashMap<>();
+        for (RawRankProfile rawRank : ParallelTask.runAll(executor, tasks))
+            rawRankProfiles.put(rawRank.getName(), rawRank);
+        return rawRankProfiles;
     }
 
     private static FileDistributedConstants deriveFileDistributedConstants(Schema schema,
@@ -56,10 +56,12 @@ import com.yahoo.vespa.model.ml.OnnxModelInfo;
 import com.yahoo.vespa.model.routing.Routing;
 import com.yahoo.vespa.model.search.DocumentDatabase;
 import com.yahoo.vespa.model.search.SearchCluster;
+import com.yahoo.vespa.model.utils.ParallelTask;
 import com.yahoo.vespa.model.utils.internal.ReflectionUtil;
 import org.xml.sax.SAXException;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -70,8 +72,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -162,22 +163,35 @@ public final class VespaModel extends AbstractConfigProducerRoot implements Mode
         VespaModelBuilder builder = new VespaDomBuilder();
         root = builder.getRoot(VespaModel.ROOT_CONFIGID, deployState, this);
 
+        Instant start = Instant.now();
         createGlobalRankProfiles(deployState);
         rankProfileList = new RankProfileList(null, // null search -> global
                                               new LargeRankingExpressions(deployState.getFileRegistry()),
                                               AttributeFields.empty,
                                               deployState);
+        start = logDuration("Converted ML models to global rank profiles", start, deployState);
 
         HostSystem hostSystem = root.hostSystem();
         if (complete) { // create a completed, frozen model
             root.useFeatureFlags(deployState.getProperties().featureFlags());
-            configModelRepo.readConfigModels(deployState, this, builder, root, new VespaConfigModelRegistry(configModelRegistry));
+            try {
+                configModelRepo.readConfigModels(deployState, this, builder, root, new VespaConfigModelRegistry(configModelRegistry));
+            }
+            catch (RuntimeException e) {
+                awaitDerivedSchemaConfigs(e);
+                throw e;
+            }
+            start = logDuration("Built config models", start, deployState);
+            awaitDerivedSchemaConfigs(null);
+            start = logDuration("Derived schema configs", start, deployState);
             setupRouting(deployState);
             getAdmin().addPerHostServices(hostSystem.getHosts(), deployState);
             freezeModelTopology();
             root.prepare(configModelRepo);
             configModelRepo.prepareConfigModels(deployState);
+            start = logDuration("Prepared config models", start, deployState);
             validateWrapExceptions();
+            logDuration("Validated model", start, deployState);
             hostSystem.dumpPortAllocations();
             propagateRestartOnDeploy();
         }
@@ -187,6 +201,35 @@ public final class VespaModel extends AbstractConfigProducerRoot implements Mode
         this.allocatedHosts = AllocatedHosts.withHosts(hostSystem.getHostSpecs());
     }
 
+    /**
+     * Waits for the schema configs which are derived in parallel with building the rest of the model,
+     * such that any failure is reported in the same order as if they were derived sequentially:
+     * A failure deriving a schema is thrown in preference to the given failure happening later
+     * in building the model, which is added to it as suppressed.
+     *
+     * This includes clusters which are not yet added to a config model because building failed.
+     */
+    private void awaitDerivedSchemaConfigs(RuntimeException laterFailure) {
+        try {
+            for (ConfigProducer producer : id2producer.values()) {
+                if (producer instanceof SearchCluster cluster)
+                    cluster.awaitDerivedConfigs();
+            }
+        }
+        catch (RuntimeException e) {
+            if (laterFailure != null)
+                e.addSuppressed(laterFailure);
+            throw e;
+        }
+    }
+
+    /** Logs the time spent in a model building phase to the deploy log, and returns the end time of the phase */
+    private static Instant logDuration(String phase, Instant start, DeployState deployState) {
+        Instant now = Instant.now();
+        deployState.getDeployLogger().log(Level.FINE, () -> phase + " in " + Duration.between(start, now).toMillis() + " ms");
+        return now;
+    }
+
     @Override
     public Map<String, Set<String>> documentTypesByCluster() {
         return getContentClusters().entrySet().stream()
@@ -258,7 +301,7 @@ public final class VespaModel extends AbstractConfigProducerRoot implements Mode
         DeployLogger deployLogger = deployState.getDeployLogger();
         RankProfileRegistry rankProfileRegistry = deployState.rankProfileRegistry();
         QueryProfiles queryProfiles = deployState.getQueryProfiles();
-        List <Future<ConvertedModel>> futureModels = new ArrayList<>();
+        List<Callable<ConvertedModel>> conversions = new ArrayList<>();
         if ( ! importedModels.isEmpty()) { // models/ directory is available
             for (ImportedMlModel model : importedModels) {
                 // Due to automatic naming not guaranteeing unique names, there must be a 1-1 between OnnxModels and global RankProfiles.
@@ -266,12 +309,12 @@ public final class VespaModel extends AbstractConfigProducerRoot implements Mode
                                                       deployLogger, rankProfileRegistry);
                 addOnnxModelInfoFromSource(model, profile);
                 rankProfileRegistry.add(profile);
-                futureModels.add(deployState.getExecutor().submit(() -> {
+                conversions.add(() -> {
                     ConvertedModel convertedModel = ConvertedModel.fromSource(applicationPackage, new ModelName(model.name()),
                                                                               model.name(), profile, queryProfiles.getRegistry(), model);
                     convertedModel.expressions().values().forEach(f -> profile.addFunction(f, false));
                     return convertedModel;
-                }));
+                });
             }
         }
         else { // generated and stored model information may be available instead
@@ -284,20 +327,15 @@ public final class VespaModel extends AbstractConfigProducerRoot implements Mode
                                                       deployLogger, rankProfileRegistry);
                 addOnnxModelInfoFromStore(modelName, profile);
                 rankProfileRegistry.add(profile);
-                futureModels.add(deployState.getExecutor().submit(() -> {
+                conversions.add(() -> {
                     ConvertedModel convertedModel = ConvertedModel.fromStore(applicationPackage, new ModelName(modelName), modelName, profile);
                     convertedModel.expressions().values().forEach(f -> profile.addFunction(f, false));
                     return convertedModel;
-                }));
-            }
-        }
-        for (var futureConvertedModel : futureModels) {
-            try {
-                futureConvertedModel.get();
-            } catch (ExecutionException | InterruptedException e) {
-                throw new RuntimeException(e);
+                });
             }
         }
+        // Waiting threads help run the conversions, as the executor may be busy deriving other models
+        ParallelTask.runAll(deployState.getExecutor(), conversions);
         new Processing().processRankProfiles(deployLogger, rankProfileRegistry, queryProfiles, true, false);
     }
 
@@ -31,6 +31,7 @@ import com.yahoo.config.provision.Zone;
 import com.yahoo.vespa.config.VespaVersion;
 import com.yahoo.vespa.model.application.validation.Validation;
 import com.yahoo.vespa.model.application.validation.Validator;
+import com.yahoo.vespa.model.ml.CachingMlModelImporter;
 import com.yahoo.yolean.Exceptions;
 import org.xml.sax.SAXException;
 
@@ -43,6 +44,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 /**
  * Factory for creating {@link VespaModel} instances.
@@ -52,6 +54,10 @@ import java.util.logging.Logger;
 public class VespaModelFactory implements ModelFactory {
 
     private static final Logger log = Logger.getLogger(VespaModelFactory.class.getName());
+
+    /** The estimated size of imported models to keep for reuse by later deployments, for each model type */
+    private static final long maxCachedModelBytesPerImporter = 256 * 1024 * 1024;
+
     private final ConfigModelRegistry configModelRegistry;
     private final Collection<MlModelImporter> modelImporters;
     private final Zone zone;
@@ -72,12 +78,13 @@ public class VespaModelFactory implements ModelFactory {
             }
         }
         this.configModelRegistry = new MapConfigModelRegistry(modelBuilders);
-        this.modelImporters = List.of(
-                new VespaImporter(),
-                new OnnxImporter(),
-                new TensorFlowImporter(),
-                new XGBoostImporter(),
-                new LightGBMImporter());
+        this.modelImporters = Stream.<MlModelImporter>of(new VespaImporter(),
+                                                         new OnnxImporter(),
+                                                         new TensorFlowImporter(),
+                                                         new XGBoostImporter(),
+                                                         new LightGBMImporter())
+                                    .<MlModelImporter>map(importer -> new CachingMlModelImporter(importer, maxCachedModelBytesPerImporter))
+                                    .toList();
         this.zone = zone;
         this.additionalValidators = List.copyOf(additionalValidators.allComponents());
 
@@ -0,0 +1,178 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.model.ml;
+
+import ai.vespa.rankingexpression.importer.configmodelview.ImportedMlFunction;
+import ai.vespa.rankingexpression.importer.configmodelview.ImportedMlModel;
+import ai.vespa.rankingexpression.importer.configmodelview.MlModelImporter;
+import com.yahoo.io.HexDump;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.text.Utf8;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * An importer which reuses models it has imported before, when the content of the model file or directory,
+ * and of any files it references, is unchanged. Importing large models is a large part of building a model, and the importers are kept
+ * across deployments, so this makes deploying changes to other parts of an application much faster.
+ *
+ * The models returned are views of the cached models, which are shared by all applications importing
+ * the same content. The views only expose the {@link ImportedMlModel} accessors, which return either
+ * copies or immutable values, so applications cannot modify a cached model.
+ *
+ * @author bratseth
+ */
+public class CachingMlModelImporter implements MlModelImporter {
+
+    private final MlModelImporter importer;
+    private final long maxBytes;
+
+    /** Imported models by name and content hash, in access order, guarded by this */
+    private final Map<Key, CachedModel> models = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** The sum of the estimated sizes of the models in this, guarded by this */
+    private long bytes = 0;
+
+    /** Creates an importer delegating to the given one, which remembers models up to the given estimated total size */
+    public CachingMlModelImporter(MlModelImporter importer, long maxBytes) {
+        this.importer = importer;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public boolean canImport(String modelPath) { return importer.canImport(modelPath); }
+
+    @Override
+    public ImportedMlModel importModel(String modelName, File modelPath) {
+        Key key = new Key(modelName, contentHash(contentRoot(modelPath)));
+        CachedModel model = get(key);
+        if (model == null) { // Import without holding the lock, as models are imported in parallel
+            ImportedMlModel imported = importer.importModel(modelName, modelPath);
+            model = new CachedModel(imported, estimatedBytes(imported));
+            put(key, model);
+        }
+        return new ModelView(model.model(), modelPath.toString());
+    }
+
+    private synchronized CachedModel get(Key key) { return models.get(key); }
+
+    private synchronized void put(Key key, CachedModel model) {
+        if (model.bytes() > maxBytes) return;
+        CachedModel replaced = models.put(key, model);
+        if (replaced != null)
+            bytes -= replaced.bytes();
+        bytes += model.bytes();
+        for (var i = models.values().iterator(); bytes > maxBytes; ) {
+            bytes -= i.next().bytes();
+            i.remove();
+        }
+    }
+
+    /** Returns the estimated size of the models in this */
+    synchronized long bytes() { return bytes; }
+
+    /** Returns the estimated heap size of the constants and functions of the given model */
+    static long estimatedBytes(ImportedMlModel model) {
+        long bytes = 0;
+        for (Tensor constant : model.smallConstantTensors().values())
+            bytes += constant.size() * Double.BYTES;
+        for (Tensor constant : model.largeConstantTensors().values())
+            bytes += constant.size() * Double.BYTES;
+        for (String function : model.functions().values())
+            bytes += function.length() * 2L;
+        for (ImportedMlFunction output : model.outputExpressions())
+            bytes += output.expression().length() * 2L;
+        return bytes;
+    }
+
+    /**
+     * Returns the file or directory holding all the content of the given model.
+     * Vespa models may reference expression and constant files relative to the directory containing them,
+     * so for those this is the directory.
+     */
+    static File contentRoot(File modelPath) {
+        if (modelPath.isFile() && modelPath.getName().endsWith(".model"))
+            return modelPath.getAbsoluteFile().getParentFile();
+        return modelPath;
+    }
+
+    /** Returns a hash of the names and content of the given file, or all files below the given directory */
+    static String contentHash(File modelPath) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            addToDigest(modelPath, digest);
+            return HexDump.toHexString(digest.digest());
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed reading " + modelPath, e);
+        }
+    }
+
+    private static void addToDigest(File path, MessageDigest digest) throws IOException {
+        digest.update(Utf8.toBytes(path.getName()));
+        if (path.isDirectory()) {
+            File[] children = path.listFiles();
+            if (children == null) return;
+            Arrays.sort(children, Comparator.comparing(File::getName));
+            for (File child : children)
+                addToDigest(child, digest);
+        }
+        else if (path.isFile()) {
+            byte[] buffer = new byte[65536];
+            try (InputStream in = new FileInputStream(path)) {
+                for (int read; (read = in.read(buffer)) != -1; )
+                    digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    private record Key(String name, String contentHash) { }
+
+    private record CachedModel(ImportedMlModel model, long bytes) { }
+
+    /** A view of a cached model with the source of an application importing it */
+    private static class ModelView implements ImportedMlModel {
+
+        private final ImportedMlModel model;
+        private final String source;
+
+        ModelView(ImportedMlModel model, String source) {
+            this.model = model;
+            this.source = source;
+        }
+
+        @Override public String name() { return model.name(); }
+        @Override public String source() { return source; }
+        @Override public ModelType modelType() { return model.modelType(); }
+        @Override public Optional<String> inputTypeSpec(String input) { return model.inputTypeSpec(input); }
+        @SuppressWarnings("removal")
+        @Override public Map<String, String> smallConstants() { return model.smallConstants(); }
+        @SuppressWarnings("removal")
+        @Override public Map<String, String> largeConstants() { return model.largeConstants(); }
+        @Override public Map<String, Tensor> smallConstantTensors() { return model.smallConstantTensors(); }
+        @Override public Map<String, Tensor> largeConstantTensors() { return model.largeConstantTensors(); }
+        @Override public Map<String, String> functions() { return model.functions(); }
+        @Override public List<ImportedMlFunction> outputExpressions() { return model.outputExpressions(); }
+        @Override public boolean isNative() { return model.isNative(); }
+        @Override public ImportedMlModel asNative() { return new ModelView(model.asNative(), source); }
+
+        @Override
+        public String toString() { return "imported model '" + name() + "' from " + source; }
+
+    }
+
+}
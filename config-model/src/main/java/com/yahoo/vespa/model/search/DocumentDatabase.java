@@ -17,6 +17,8 @@ import com.yahoo.vespa.config.search.core.RankingExpressionsConfig;
 import com.yahoo.vespa.config.search.summary.JuniperrcConfig;
 import com.yahoo.vespa.configdefinition.IlscriptsConfig;
 
+import java.util.function.Supplier;
+
 /**
  * Represents a document database and the backend configuration needed for this database.
  *
@@ -37,9 +39,17 @@ public class DocumentDatabase extends AnyConfigProducer implements
         SchemaInfoConfig.Producer {
 
     private final String schemaName;
-    private final DerivedConfiguration derivedCfg;
+    private final Supplier<DerivedConfiguration> derivedCfg;
 
     public DocumentDatabase(TreeConfigProducer<AnyConfigProducer> parent, String schemaName, DerivedConfiguration derivedCfg) {
+        this(parent, schemaName, () -> derivedCfg);
+    }
+
+    /**
+     * Creates a document database whose derived configuration is supplied when needed,
+     * such that it may be derived concurrently with building the rest of the model.
+     */
+    public DocumentDatabase(TreeConfigProducer<AnyConfigProducer> parent, String schemaName, Supplier<DerivedConfiguration> derivedCfg) {
         super(parent, schemaName);
         this.schemaName = schemaName;
         this.derivedCfg = derivedCfg;
@@ -54,43 +64,43 @@ public class DocumentDatabase extends AnyConfigProducer implements
     }
 
     public DerivedConfiguration getDerivedConfiguration() {
-        return derivedCfg;
+        return derivedCfg.get();
     }
 
     @Override
-    public void getConfig(IndexInfoConfig.Builder builder) { derivedCfg.getIndexInfo().getConfig(builder); }
+    public void getConfig(IndexInfoConfig.Builder builder) { getDerivedConfiguration().getIndexInfo().getConfig(builder); }
 
     @Override
-    public void getConfig(IlscriptsConfig.Builder builder) { derivedCfg.getIndexingScript().getConfig(builder); }
+    public void getConfig(IlscriptsConfig.Builder builder) { getDerivedConfiguration().getIndexingScript().getConfig(builder); }
 
     @Override
-    public void getConfig(AttributesConfig.Builder builder) { derivedCfg.getConfig(builder); }
+    public void getConfig(AttributesConfig.Builder builder) { getDerivedConfiguration().getConfig(builder); }
 
     @Override
-    public void getConfig(RankProfilesConfig.Builder builder) { derivedCfg.getRankProfileList().getConfig(builder); }
+    public void getConfig(RankProfilesConfig.Builder builder) { getDerivedConfiguration().getRankProfileList().getConfig(builder); }
 
     @Override
-    public void getConfig(RankingExpressionsConfig.Builder builder) { derivedCfg.getRankProfileList().getConfig(builder); }
+    public void getConfig(RankingExpressionsConfig.Builder builder) { getDerivedConfiguration().getRankProfileList().getConfig(builder); }
 
     @Override
-    public void getConfig(RankingConstantsConfig.Builder builder) { derivedCfg.getRankProfileList().getConfig(builder); }
+    public void getConfig(RankingConstantsConfig.Builder builder) { getDerivedConfiguration().getRankProfileList().getConfig(builder); }
 
     @Override
-    public void getConfig(OnnxModelsConfig.Builder builder) { derivedCfg.getRankProfileList().getConfig(builder); }
+    public void getConfig(OnnxModelsConfig.Builder builder) { getDerivedConfiguration().getRankProfileList().getConfig(builder); }
 
     @Override
-    public void getConfig(IndexschemaConfig.Builder builder) { derivedCfg.getIndexSchema().getConfig(builder); }
+    public void getConfig(IndexschemaConfig.Builder builder) { getDerivedConfiguration().getIndexSchema().getConfig(builder); }
 
     @Override
-    public void getConfig(JuniperrcConfig.Builder builder) { derivedCfg.getJuniperrc().getConfig(builder); }
+    public void getConfig(JuniperrcConfig.Builder builder) { getDerivedConfiguration().getJuniperrc().getConfig(builder); }
 
     @Override
-    public void getConfig(SummaryConfig.Builder builder) { derivedCfg.getSummaries().getConfig(builder); }
+    public void getConfig(SummaryConfig.Builder builder) { getDerivedConfiguration().getSummaries().getConfig(builder); }
 
     @Override
-    public void getConfig(ImportedFieldsConfig.Builder builder) { derivedCfg.getImportedFields().getConfig(builder); }
+    public void getConfig(ImportedFieldsConfig.Builder builder) { getDerivedConfiguration().getImportedFields().getConfig(builder); }
 
     @Override
-    public void getConfig(SchemaInfoConfig.Builder builder) { derivedCfg.getSchemaInfo().getConfig(builder); }
+    public void getConfig(SchemaInfoConfig.Builder builder) { getDerivedConfiguration().getSchemaInfo().getConfig(builder); }
 
 }
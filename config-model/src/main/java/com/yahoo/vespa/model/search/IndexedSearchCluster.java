@@ -21,6 +21,7 @@ import com.yahoo.vespa.config.search.core.ProtonConfig;
 import com.yahoo.vespa.configdefinition.IlscriptsConfig;
 import com.yahoo.vespa.model.content.DispatchTuning;
 import com.yahoo.vespa.model.content.SearchCoverage;
+import com.yahoo.vespa.model.utils.ParallelTask;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -137,12 +138,18 @@ public class IndexedSearchCluster extends SearchCluster
     public void deriveFromSchemas(DeployState deployState) {
         for (SchemaInfo spec : schemas().values()) {
             if (spec.fullSchema() instanceof DocumentOnlySchema) continue;
-            DocumentDatabase db = new DocumentDatabase(this, spec.fullSchema().getName(),
-                                                       new DerivedConfiguration(spec.fullSchema(), deployState));
+            var derived = ParallelTask.start(deployState.getExecutor(),
+                                             () -> new DerivedConfiguration(spec.fullSchema(), deployState));
+            DocumentDatabase db = new DocumentDatabase(this, spec.fullSchema().getName(), derived);
             documentDbs.add(db);
         }
     }
 
+    @Override
+    public void awaitDerivedConfigs() {
+        documentDbs.forEach(DocumentDatabase::getDerivedConfiguration);
+    }
+
     @Override
     public List<DocumentDatabase> getDocumentDbs() {
         return documentDbs;
@@ -55,6 +55,12 @@ public abstract class SearchCluster extends TreeConfigProducer<AnyConfigProducer
      */
     public abstract void deriveFromSchemas(DeployState deployState);
 
+    /**
+     * Waits for any schema configs still being derived on the deploy executor by {@link #deriveFromSchemas},
+     * and throws the exception of the first which failed, if any.
+     */
+    public void awaitDerivedConfigs() { }
+
     /** Returns the document databases contained in this cluster */
     public abstract List<DocumentDatabase> getDocumentDbs();
 
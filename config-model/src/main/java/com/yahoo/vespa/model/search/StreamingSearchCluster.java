@@ -19,8 +19,10 @@ import com.yahoo.vespa.config.search.core.RankingExpressionsConfig;
 import com.yahoo.vespa.config.search.vsm.VsmfieldsConfig;
 import com.yahoo.vespa.config.search.vsm.VsmsummaryConfig;
 import com.yahoo.vespa.configdefinition.IlscriptsConfig;
+import com.yahoo.vespa.model.utils.ParallelTask;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * A search cluster of type streaming.
@@ -41,7 +43,7 @@ public class StreamingSearchCluster extends SearchCluster implements
     private final String storageRouteSpec;
     private final AttributesProducer attributesConfig;
     private final String docTypeName;
-    private DerivedConfiguration derivedConfig = null;
+    private Supplier<DerivedConfiguration> derivedConfig = () -> null;
 
     public StreamingSearchCluster(TreeConfigProducer<AnyConfigProducer> parent,
                                   String clusterName,
@@ -63,7 +65,7 @@ public class StreamingSearchCluster extends SearchCluster implements
 
     public String getDocTypeName() { return docTypeName; }
 
-    public DerivedConfiguration derived() { return derivedConfig; }
+    public DerivedConfiguration derived() { return derivedConfig.get(); }
 
     @Override
     public int getRowBits() { return 0; }
@@ -71,7 +73,7 @@ public class StreamingSearchCluster extends SearchCluster implements
     @Override
     public void getConfig(DocumentdbInfoConfig.Builder builder) {
         DocumentdbInfoConfig.Documentdb.Builder docDb = new DocumentdbInfoConfig.Documentdb.Builder();
-        docDb.name(derivedConfig.getSchema().getName());
+        docDb.name(derived().getSchema().getName());
         builder.documentdb(docDb);
     }
 
@@ -84,9 +86,13 @@ public class StreamingSearchCluster extends SearchCluster implements
         if ( ! schema.getName().equals(docTypeName))
             throw new IllegalArgumentException("Document type name '" + docTypeName +
                                                "' must be the same as the schema name '" + schema.getName() + "'");
-        this.derivedConfig = new DerivedConfiguration(schema, deployState);
+        this.derivedConfig = ParallelTask.start(deployState.getExecutor(),
+                                                () -> new DerivedConfiguration(schema, deployState));
     }
 
+    @Override
+    public void awaitDerivedConfigs() { derived(); }
+
     @Override
     public List<DocumentDatabase> getDocumentDbs() {
         if (derived() == null) {
@@ -101,53 +107,53 @@ public class StreamingSearchCluster extends SearchCluster implements
 
     @Override
     public void getConfig(IndexInfoConfig.Builder builder) {
-        derivedConfig.getIndexInfo().getConfig(builder);
+        derived().getIndexInfo().getConfig(builder);
     }
 
     @Override
     public void getConfig(SchemaInfoConfig.Builder builder) {
-        derivedConfig.getSchemaInfo().getConfig(builder);
+        derived().getSchemaInfo().getConfig(builder);
     }
 
     @Override
     public void getConfig(IlscriptsConfig.Builder builder) {
-        derivedConfig.getIndexingScript().getConfig(builder);
+        derived().getIndexingScript().getConfig(builder);
     }
 
     public void getConfig(AttributesConfig.Builder builder) {
-        derivedConfig.getConfig(builder);
+        derived().getConfig(builder);
     }
 
     @Override
     public void getConfig(RankProfilesConfig.Builder builder) {
-        derivedConfig.getRankProfileList().getConfig(builder);
+        derived().getRankProfileList().getConfig(builder);
     }
 
     @Override
-    public void getConfig(RankingConstantsConfig.Builder builder) { derivedConfig.getRankProfileList().getConfig(builder); }
+    public void getConfig(RankingConstantsConfig.Builder builder) { derived().getRankProfileList().getConfig(builder); }
 
     @Override
-    public void getConfig(RankingExpressionsConfig.Builder builder) { derivedConfig.getRankProfileList().getConfig(builder); }
+    public void getConfig(RankingExpressionsConfig.Builder builder) { derived().getRankProfileList().getConfig(builder); }
 
     @Override
-    public void getConfig(OnnxModelsConfig.Builder builder) { derivedConfig.getRankProfileList().getConfig(builder); }
+    public void getConfig(OnnxModelsConfig.Builder builder) { derived().getRankProfileList().getConfig(builder); }
 
     @Override
     public void getConfig(VsmsummaryConfig.Builder builder) {
-        if (derivedConfig.getVsmSummary() != null)
-            derivedConfig.getVsmSummary().getConfig(builder);
+        if (derived().getVsmSummary() != null)
+            derived().getVsmSummary().getConfig(builder);
     }
     
     @Override
     public void getConfig(VsmfieldsConfig.Builder builder) {
-        if (derivedConfig.getVsmFields() != null)
-            derivedConfig.getVsmFields().getConfig(builder);
+        if (derived().getVsmFields() != null)
+            derived().getVsmFields().getConfig(builder);
     }
     
     @Override
     public void getConfig(SummaryConfig.Builder builder) {
-        if (derivedConfig.getSummaries() != null)
-            derivedConfig.getSummaries().getConfig(builder);
+        if (derived().getSummaries() != null)
+            derived().getSummaries().getConfig(builder);
     }
 
     private class AttributesProducer extends AnyConfigProducer implements AttributesConfig.Producer {
@@ -158,7 +164,7 @@ public class StreamingSearchCluster extends SearchCluster implements
 
         @Override
         public void getConfig(AttributesConfig.Builder builder) {
-            derivedConfig.getConfig(builder, AttributeFields.FieldSet.FAST_ACCESS);
+            derived().getConfig(builder, AttributeFields.FieldSet.FAST_ACCESS);
         }
     }
 
@@ -0,0 +1,74 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.model.utils;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * A task which is started on an executor when created, and whose result is available through {@link #get}.
+ * A thread waiting for a task which has not yet been started by the executor runs it itself, so tasks may
+ * start and wait for other tasks on the same bounded executor without risk of deadlock.
+ *
+ * Exceptions thrown by the task are rethrown unwrapped by {@link #get}, if unchecked.
+ *
+ * @author bratseth
+ */
+public class ParallelTask<T> implements Supplier<T> {
+
+    private final FutureTask<T> task;
+    private volatile Thread runner = null;
+
+    private ParallelTask(Callable<T> callable) {
+        this.task = new FutureTask<>(() -> {
+            runner = Thread.currentThread();
+            return callable.call();
+        });
+    }
+
+    /** Returns the result of this task, waiting for it to complete, or running it in this thread if not yet started */
+    @Override
+    public T get() {
+        task.run(); // no-op if already started
+        try {
+            return task.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + task, e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Starts the given task on the given executor. If the executor runs the task in the calling thread,
+     * any exception is thrown from this.
+     */
+    public static <T> ParallelTask<T> start(ExecutorService executor, Callable<T> callable) {
+        ParallelTask<T> task = new ParallelTask<>(callable);
+        try {
+            executor.execute(task.task);
+        }
+        catch (RejectedExecutionException e) {
+            return task; // Run when requested instead
+        }
+        if (task.runner == Thread.currentThread()) // run by the executor in this thread: fail fast, as without an executor
+            task.get();
+        return task;
+    }
+
+    /** Runs the given tasks on the given executor and returns their results, in the order of the tasks */
+    public static <T> List<T> runAll(ExecutorService executor, List<? extends Callable<T>> callables) {
+        List<ParallelTask<T>> tasks = callables.stream().map(callable -> start(executor, callable)).toList();
+        return tasks.stream().map(ParallelTask::get).toList();
+    }
+
+}
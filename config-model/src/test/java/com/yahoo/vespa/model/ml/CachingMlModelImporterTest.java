@@ -0,0 +1,148 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.model.ml;
+
+import ai.vespa.rankingexpression.importer.ImportedModel;
+import ai.vespa.rankingexpression.importer.configmodelview.ImportedMlModel;
+import ai.vespa.rankingexpression.importer.configmodelview.ImportedMlModels;
+import ai.vespa.rankingexpression.importer.configmodelview.MlModelImporter;
+import com.yahoo.concurrent.InThreadExecutorService;
+import com.yahoo.tensor.Tensor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * @author bratseth
+ */
+public class CachingMlModelImporterTest {
+
+    @TempDir
+    public File tempDir;
+
+    @Test
+    void models_with_unchanged_content_are_reused() throws IOException {
+        CountingImporter counter = new CountingImporter();
+        CachingMlModelImporter importer = new CachingMlModelImporter(counter, 2 * Double.BYTES);
+
+        File first = write("session1/models/example.model", "1");
+        File second = write("session2/models/example.model", "1");
+        ImportedMlModel model = importer.importModel("example", first);
+        assertEquals(first.toString(), model.source());
+        assertEquals(1, counter.imports);
+
+        ImportedMlModel reused = importer.importModel("example", second);
+        assertEquals(1, counter.imports);
+        assertEquals(second.toString(), reused.source());
+        assertEquals(second.toString(), reused.asNative().source());
+        assertEquals(model.smallConstantTensors(), reused.smallConstantTensors());
+
+        File changed = write("session3/models/example.model", "2");
+        assertNotEquals(model.smallConstantTensors(), importer.importModel("example", changed).smallConstantTensors());
+        assertEquals(2, counter.imports);
+
+        importer.importModel("other", first);
+        assertEquals(3, counter.imports);
+        importer.importModel("example", first); // evicted as least recently used
+        assertEquals(4, counter.imports);
+        assertEquals(2 * Double.BYTES, importer.bytes());
+    }
+
+    @Test
+    void models_larger_than_the_cache_are_not_kept() throws IOException {
+        CountingImporter counter = new CountingImporter();
+        CachingMlModelImporter importer = new CachingMlModelImporter(counter, 2 * Double.BYTES);
+
+        File large = write("session1/models/large.model", "tensor(x[3]):[1, 2, 3]");
+        importer.importModel("large", large);
+        importer.importModel("large", large);
+        assertEquals(2, counter.imports);
+        assertEquals(0, importer.bytes());
+    }
+
+    @Test
+    void applications_importing_the_same_model_share_it() throws IOException {
+        CountingImporter counter = new CountingImporter();
+        List<MlModelImporter> importers = List.of(new CachingMlModelImporter(counter, 1024));
+
+        write("app1/models/example.model", "1");
+        write("app2/models/example.model", "1");
+        ImportedMlModels app1 = new ImportedMlModels(new File(tempDir, "app1/models"), new InThreadExecutorService(), importers);
+        ImportedMlModels app2 = new ImportedMlModels(new File(tempDir, "app2/models"), new InThreadExecutorService(), importers);
+        assertEquals(1, counter.imports);
+
+        ImportedMlModel model1 = app1.all().iterator().next();
+        ImportedMlModel model2 = app2.all().iterator().next();
+        assertEquals(new File(tempDir, "app1/models/example.model").toString(), model1.source());
+        assertEquals(new File(tempDir, "app2/models/example.model").toString(), model2.source());
+        assertEquals(model1.smallConstantTensors(), model2.smallConstantTensors());
+        assertFalse(model1 instanceof ImportedModel, "The cached model is not handed out for modification");
+    }
+
+    @Test
+    void vespa_models_are_imported_again_when_a_referenced_file_changes() throws IOException {
+        CountingImporter counter = new CountingImporter();
+        CachingMlModelImporter importer = new CachingMlModelImporter(counter, 1024);
+
+        File model = write("session1/models/example.model", "1");
+        write("session1/models/test.expression", "1 + 2");
+        importer.importModel("example", model);
+        importer.importModel("example", model);
+        assertEquals(1, counter.imports);
+
+        write("session1/models/test.expression", "3 + 4");
+        importer.importModel("example", model);
+        assertEquals(2, counter.imports);
+    }
+
+    @Test
+    void content_hash_includes_all_files_in_directory() throws IOException {
+        write("a/model/x", "1");
+        write("b/model/x", "1");
+        write("c/model/x", "1");
+        write("c/model/y", "2");
+        assertEquals(CachingMlModelImporter.contentHash(new File(tempDir, "a/model")),
+                     CachingMlModelImporter.contentHash(new File(tempDir, "b/model")));
+        assertNotEquals(CachingMlModelImporter.contentHash(new File(tempDir, "a/model")),
+                        CachingMlModelImporter.contentHash(new File(tempDir, "c/model")));
+    }
+
+    private File write(String path, String content) throws IOException {
+        File file = new File(tempDir, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+
+    /** Imports a model with a single constant having the content of the model file as value */
+    private static class CountingImporter implements MlModelImporter {
+
+        int imports = 0;
+
+        @Override
+        public boolean canImport(String modelPath) { return modelPath.endsWith(".model"); }
+
+        @Override
+        public ImportedMlModel importModel(String modelName, File modelPath) {
+            imports++;
+            try {
+                ImportedModel model = new ImportedModel(modelName, modelPath.toString(), ImportedMlModel.ModelType.VESPA);
+                model.smallConstant("foo", Tensor.from(Files.readString(modelPath.toPath())));
+                return model;
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+    }
+
+}
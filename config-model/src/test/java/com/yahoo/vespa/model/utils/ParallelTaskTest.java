@@ -0,0 +1,75 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.model.utils;
+
+import com.yahoo.concurrent.InThreadExecutorService;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author bratseth
+ */
+public class ParallelTaskTest {
+
+    @Test
+    void results_are_returned_in_task_order() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Callable<Integer>> tasks = List.of(() -> 1, () -> 2, () -> 3, () -> 4, () -> 5);
+            assertEquals(List.of(1, 2, 3, 4, 5), ParallelTask.runAll(executor, tasks));
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void nested_tasks_on_a_single_thread_do_not_deadlock() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ParallelTask<Integer> outer = ParallelTask.start(executor, () -> {
+                List<Callable<Integer>> inner = List.of(() -> 1, () -> 2);
+                return ParallelTask.runAll(executor, inner).stream().mapToInt(Integer::intValue).sum();
+            });
+            assertEquals(3, (int) outer.get());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void unchecked_exceptions_are_rethrown_unwrapped() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ParallelTask<Object> task = ParallelTask.start(executor, () -> { throw new IllegalArgumentException("Invalid"); });
+            assertEquals("Invalid", assertThrows(IllegalArgumentException.class, task::get).getMessage());
+
+            ParallelTask<Object> checked = ParallelTask.start(executor, () -> { throw new Exception("Checked"); });
+            assertEquals("Checked", assertThrows(IllegalStateException.class, checked::get).getCause().getMessage());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void tasks_run_in_calling_thread_fail_when_started() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> ParallelTask.start(new InThreadExecutorService(), () -> { throw new IllegalArgumentException(); }));
+    }
+
+    @Test
+    void tasks_are_run_by_caller_when_rejected() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        assertEquals("done", ParallelTask.start(executor, () -> "done").get());
+    }
+
+}
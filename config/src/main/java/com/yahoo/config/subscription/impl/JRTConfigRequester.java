@@ -166,6 +166,12 @@ public class JRTConfigRequester implements RequestWaiter {
     }
 
     private void handleFailedRequest(JRTClientConfigRequest jrtReq, JRTConfigSubscription<ConfigInstance> sub, Connection connection) {
+        if (jrtReq.errorCode() == ErrorCode.ILLEGAL_PAYLOAD_DELTA) {
+            // Not a problem with the connection: Request the full payload right away
+            log.log(FINE, () -> "Could not apply payload delta: " + jrtReq.errorMessage() + ", requesting full payload");
+            scheduleNextRequest(jrtReq, sub, 0, calculateSuccessTimeout());
+            return;
+        }
         logFailingRequest(jrtReq, connection);
 
         connectionPool.switchConnection(connection);
@@ -28,6 +28,7 @@ public final class ErrorCode {
     public static final int ILLEGAL_CLIENT_HOSTNAME = UNKNOWN_CONFIG + 110;
     public static final int ILLEGAL_DEF_CHECKSUM = UNKNOWN_CONFIG + 111;
     public static final int ILLEGAL_CONFIG_CHECKSUM = UNKNOWN_CONFIG + 112;
+    public static final int ILLEGAL_PAYLOAD_DELTA = UNKNOWN_CONFIG + 113;
 
     // hasUpdatedConfig() is true, but generation says the config is older than previous config.
     public static final int OUTDATED_CONFIG = UNKNOWN_CONFIG + 150;
@@ -58,6 +59,7 @@ public final class ErrorCode {
             case ILLEGAL_SUB_FLAG:           return "ILLEGAL_SUBSCRIBE_FLAG";
             case ILLEGAL_NAME_SPACE:         return "ILLEGAL_NAME_SPACE";
             case ILLEGAL_CLIENT_HOSTNAME:    return "ILLEGAL_CLIENT_HOSTNAME";
+            case ILLEGAL_PAYLOAD_DELTA:      return "ILLEGAL_PAYLOAD_DELTA";
             case OUTDATED_CONFIG:            return "OUTDATED_CONFIG";
             case INTERNAL_ERROR:             return "INTERNAL_ERROR";
             case APPLICATION_NOT_LOADED:     return "APPLICATION_NOT_LOADED";
@@ -3,6 +3,7 @@ package com.yahoo.vespa.config.protocol;
 
 import com.yahoo.config.ConfigInstance;
 import com.yahoo.config.subscription.impl.ConfigSubscription;
+import com.yahoo.config.subscription.impl.GenericJRTConfigSubscription;
 import com.yahoo.config.subscription.impl.JRTConfigSubscription;
 import com.yahoo.jrt.Request;
 import com.yahoo.jrt.StringValue;
@@ -11,6 +12,7 @@ import com.yahoo.slime.Slime;
 import com.yahoo.text.Utf8;
 import com.yahoo.text.Utf8Array;
 import com.yahoo.vespa.config.ConfigKey;
+import com.yahoo.vespa.config.ErrorCode;
 import com.yahoo.vespa.config.JRTMethods;
 import com.yahoo.vespa.config.PayloadChecksum;
 import com.yahoo.vespa.config.PayloadChecksums;
@@ -41,6 +43,15 @@ public class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
     protected final Request request;
     private final SlimeResponseData responseData;
 
+    /** Whether the client keeps its current payload, such that it can accept payload deltas */
+    private final boolean payloadDeltas;
+
+    /** The payload the client has, which payload deltas in the response apply to, or null if none */
+    private final Payload currentPayload;
+
+    /** The payload of the response, resolved when first requested */
+    private Payload newPayload = null;
+
     protected JRTClientConfigRequestV3(ConfigKey<?> key,
                                        String hostname,
                                        DefContent defSchema,
@@ -50,6 +61,20 @@ public class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
                                        Trace trace,
                                        CompressionType compressionType,
                                        Optional<VespaVersion> vespaVersion) {
+        this(key, hostname, defSchema, payloadChecksums, generation, timeout, trace, compressionType, vespaVersion, false, null);
+    }
+
+    protected JRTClientConfigRequestV3(ConfigKey<?> key,
+                                       String hostname,
+                                       DefContent defSchema,
+                                       PayloadChecksums payloadChecksums,
+                                       long generation,
+                                       long timeout,
+                                       Trace trace,
+                                       CompressionType compressionType,
+                                       Optional<VespaVersion> vespaVersion,
+                                       boolean payloadDeltas,
+                                       Payload currentPayload) {
         Slime data = SlimeRequestData.encodeRequest(key,
                                                     hostname,
                                                     defSchema,
@@ -59,13 +84,21 @@ public class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
                                                     trace,
                                                     getProtocolVersion(),
                                                     compressionType,
-                                                    vespaVersion);
+                                                    vespaVersion,
+                                                    acceptsPayloadDelta(payloadDeltas, currentPayload, payloadChecksums));
         Request jrtReq = new Request(getJRTMethodName());
         jrtReq.parameters().add(new StringValue(encodeAsUtf8String(data)));
 
         this.requestData = new SlimeRequestData(jrtReq, data);
         this.responseData = new SlimeResponseData(jrtReq);
         this.request = jrtReq;
+        this.payloadDeltas = payloadDeltas;
+        this.currentPayload = payloadDeltas ? currentPayload : null;
+    }
+
+    private static boolean acceptsPayloadDelta(boolean payloadDeltas, Payload currentPayload, PayloadChecksums payloadChecksums) {
+        PayloadChecksum xxhash64 = payloadChecksums.getForType(XXHASH64);
+        return payloadDeltas && currentPayload != null && xxhash64 != null && ! xxhash64.isEmpty();
     }
 
     protected static String encodeAsUtf8String(Slime data) {
@@ -88,9 +121,28 @@ public class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
 
     @Override
     public Payload getNewPayload() {
+        if (newPayload == null)
+            newPayload = readNewPayload();
+        return newPayload;
+    }
+
+    private Payload readNewPayload() {
         CompressionInfo compressionInfo = getResponseData().getCompressionInfo();
         Utf8Array payload = new Utf8Array(request.returnValues().get(1).asData());
-        return Payload.from(payload, compressionInfo);
+        Optional<PayloadChecksum> deltaBase = getResponseData().getPayloadDeltaBase();
+        if (deltaBase.isEmpty()) return Payload.from(payload, compressionInfo);
+
+        if (currentPayload == null || ! deltaBase.get().equals(getRequestConfigChecksums().getForType(XXHASH64)))
+            throw new IllegalArgumentException("Got a payload delta from " + deltaBase.get() + " for " + getConfigKey() +
+                                               ", which is not the current payload");
+        PayloadChecksum expected = getNewChecksums().getForType(XXHASH64);
+        if (deltaBase.get().equals(expected)) return currentPayload; // Unchanged
+
+        Payload result = PayloadDelta.apply(currentPayload, Payload.from(payload, compressionInfo));
+        if ( ! PayloadChecksum.fromPayload(result, XXHASH64).equals(expected))
+            throw new IllegalArgumentException("Applying payload delta for " + getConfigKey() +
+                                               " did not give a payload with the expected checksum " + expected);
+        return result.withCompression(requestData.getCompressionType());
     }
 
     @Override
@@ -108,7 +160,17 @@ public class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
                 timeout,
                 Trace.createNew(),
                 requestData.getCompressionType(),
-                requestData.getVespaVersion());
+                requestData.getVespaVersion(),
+                payloadDeltas,
+                payloadAfterResponse());
+    }
+
+    /** Returns the payload the client has after this response, if it keeps it to accept payload deltas */
+    private Payload payloadAfterResponse() {
+        if ( ! payloadDeltas) return null;
+        if (isError()) return errorCode() == ErrorCode.ILLEGAL_PAYLOAD_DELTA ? null : currentPayload; // Get the full payload after a bad delta
+        if (newConfigChecksums().equals(getRequestConfigChecksums())) return currentPayload;
+        return getNewPayload();
     }
 
     public static <T extends ConfigInstance> JRTClientConfigRequest createFromSub(JRTConfigSubscription<T> sub,
@@ -116,15 +178,20 @@ public class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
                                                                                   CompressionType compressionType,
                                                                                   Optional<VespaVersion> vespaVersion) {
         ConfigSubscription.ConfigState<T> configState = sub.getConfigState();
-        return createWithParams(sub.getKey(),
-                                sub.getDefContent(),
-                                ConfigUtils.getCanonicalHostName(),
-                                configState.getChecksums(),
-                                configState.getGeneration(),
-                                sub.timingValues().getSubscribeTimeout(),
-                                trace,
-                                compressionType,
-                                vespaVersion);
+        // Only the generic subscription keeps the payload, which payload deltas apply to
+        boolean payloadDeltas = sub instanceof GenericJRTConfigSubscription;
+        RawConfig rawConfig = payloadDeltas ? ((GenericJRTConfigSubscription) sub).getRawConfig() : null;
+        return new JRTClientConfigRequestV3(sub.getKey(),
+                                            ConfigUtils.getCanonicalHostName(),
+                                            sub.getDefContent(),
+                                            configState.getChecksums(),
+                                            configState.getGeneration(),
+                                            sub.timingValues().getSubscribeTimeout(),
+                                            trace,
+                                            compressionType,
+                                            vespaVersion,
+                                            payloadDeltas,
+                                            rawConfig != null ? rawConfig.getPayload() : null);
     }
 
     public static JRTClientConfigRequest createFromRaw(RawConfig config,
@@ -290,6 +357,13 @@ public class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
         } else if (!checkReturnTypes(request)) {
             log.warning("Invalid return types for config response: " + errorMessage());
             return false;
+        } else if (getResponseData().getPayloadDeltaBase().isPresent()) {
+            try {
+                getNewPayload();
+            } catch (RuntimeException e) {
+                request.setError(ErrorCode.ILLEGAL_PAYLOAD_DELTA, e.getMessage());
+                return false;
+            }
         }
         return true;
     }
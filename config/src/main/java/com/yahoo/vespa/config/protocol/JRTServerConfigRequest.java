@@ -1,6 +1,7 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.config.protocol;
 
+import com.yahoo.vespa.config.PayloadChecksum;
 import com.yahoo.vespa.config.PayloadChecksums;
 import com.yahoo.vespa.config.GetConfigRequest;
 
@@ -39,6 +40,22 @@ public interface JRTServerConfigRequest extends JRTConfigRequest, GetConfigReque
      */
     void addOkResponse(Payload payload, long generation, boolean applyOnRestart, PayloadChecksums payloadChecksums);
 
+    /**
+     * Signal that the request was handled, with a payload which is a {@link PayloadDelta} from the payload
+     * the client has. Must only be used when {@link #acceptsPayloadDelta()} is true.
+     *
+     * @param delta the delta from the payload the client has to the config payload the client should receive.
+     * @param deltaBase the xxhash64 checksum of the payload the delta applies to.
+     * @param generation The config generation of the resulting payload.
+     * @param applyOnRestart true if this config should only be applied on the next restart,
+     *                       false if it should be applied right away
+     * @param payloadChecksums checksums of the resulting payload.
+     */
+    void addOkDeltaResponse(Payload delta, PayloadChecksum deltaBase, long generation, boolean applyOnRestart, PayloadChecksums payloadChecksums);
+
+    /** Returns whether the client accepts a {@link PayloadDelta} from the payload with the checksums in the request */
+    boolean acceptsPayloadDelta();
+
     /**
      * Returns the md5 of the config definition in the request.
      *
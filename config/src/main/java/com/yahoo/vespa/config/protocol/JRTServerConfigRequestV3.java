@@ -10,6 +10,7 @@ import com.yahoo.jrt.Value;
 import com.yahoo.text.Utf8Array;
 import com.yahoo.vespa.config.ConfigKey;
 import com.yahoo.vespa.config.ErrorCode;
+import com.yahoo.vespa.config.PayloadChecksum;
 import com.yahoo.vespa.config.PayloadChecksums;
 
 import java.io.ByteArrayOutputStream;
@@ -25,7 +26,8 @@ import static com.yahoo.vespa.config.PayloadChecksum.Type.XXHASH64;
  * The V3 config protocol implemented on the server side. The V3 protocol uses 2 fields:
  *
  * * A metadata field containing json data describing config generation, md5 and compression info
- * * A data field containing compressed or uncompressed json config payload
+ * * A data field containing compressed or uncompressed json config payload, or a {@link PayloadDelta}
+ *   from the payload the client has, if the client accepts that
  *
  * The implementation of addOkResponse is optimized for doing as little copying of payload data as possible, ensuring
  * that we get a lower memory footprint.
@@ -71,6 +73,15 @@ public class JRTServerConfigRequestV3 implements JRTServerConfigRequest {
 
     @Override
     public void addOkResponse(Payload payload, long generation, boolean applyOnRestart, PayloadChecksums checksums) {
+        addOkResponse(payload, Optional.empty(), generation, applyOnRestart, checksums);
+    }
+
+    @Override
+    public void addOkDeltaResponse(Payload delta, PayloadChecksum deltaBase, long generation, boolean applyOnRestart, PayloadChecksums checksums) {
+        addOkResponse(delta, Optional.of(deltaBase), generation, applyOnRestart, checksums);
+    }
+
+    private void addOkResponse(Payload payload, Optional<PayloadChecksum> deltaBase, long generation, boolean applyOnRestart, PayloadChecksums checksums) {
         this.applyOnRestart = applyOnRestart;
         Payload responsePayload = payload.withCompression(getCompressionType());
         if (responsePayload == null)
@@ -88,6 +99,8 @@ public class JRTServerConfigRequestV3 implements JRTServerConfigRequest {
             jsonGenerator.writeObjectFieldStart(SlimeResponseData.RESPONSE_COMPRESSION_INFO);
             responsePayload.getCompressionInfo().serialize(jsonGenerator);
             jsonGenerator.writeEndObject();
+            if (deltaBase.isPresent())
+                setResponseField(jsonGenerator, SlimeResponseData.RESPONSE_PAYLOAD_DELTA_BASE, deltaBase.get().asString());
 
             jsonGenerator.writeEndObject();
             jsonGenerator.close();
@@ -97,6 +110,9 @@ public class JRTServerConfigRequestV3 implements JRTServerConfigRequest {
         addPayload(responsePayload, outputStream);
     }
 
+    @Override
+    public boolean acceptsPayloadDelta() { return requestData.getAcceptPayloadDelta(); }
+
     @Override
     public long getProtocolVersion() {
         return 3;
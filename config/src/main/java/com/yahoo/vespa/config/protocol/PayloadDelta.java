@@ -0,0 +1,254 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.protocol;
+
+import com.yahoo.slime.ArrayTraverser;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.JsonDecoder;
+import com.yahoo.slime.JsonFormat;
+import com.yahoo.slime.ObjectTraverser;
+import com.yahoo.slime.Slime;
+import com.yahoo.slime.SlimeUtils;
+import com.yahoo.slime.Type;
+import com.yahoo.text.Utf8Array;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A patch which transforms one config payload into another. This is sent instead of the full payload
+ * to clients which already have a previous version of a large config, where only a small part has changed.
+ *
+ * A patch of an object has these optional fields:
+ * <ul>
+ *     <li>set: an object containing the fields which are new or have a new value</li>
+ *     <li>remove: an array of the names of the fields which are removed</li>
+ *     <li>patch: an object containing patches of the object and array fields where only part of the value has changed</li>
+ *     <li>order: an array of all field names, present when the fields are not in the order of the previous value,
+ *                with new fields last</li>
+ * </ul>
+ * A patch of an array has the length of the new array in the "length" field, and "set" and "patch" fields
+ * keyed by array index. Patches only apply to objects and arrays of the same type in both payloads.
+ *
+ * @author hmusum
+ */
+public class PayloadDelta {
+
+    static final String SET = "set";
+    static final String REMOVE = "remove";
+    static final String PATCH = "patch";
+    static final String ORDER = "order";
+    static final String LENGTH = "length";
+
+    private PayloadDelta() { }
+
+    /** Returns the delta which transforms the first payload into the second, or empty if it cannot be created */
+    public static Optional<Payload> between(Payload from, Payload to) {
+        Slime fromSlime = toSlime(from);
+        Slime toSlime = toSlime(to);
+        if (fromSlime.get().type() != Type.OBJECT || toSlime.get().type() != Type.OBJECT) return Optional.empty();
+        return Optional.of(toPayload(diff(fromSlime.get(), toSlime.get())));
+    }
+
+    /**
+     * Returns the uncompressed payload resulting from applying the given delta to the given payload.
+     *
+     * @throws IllegalArgumentException if the delta does not apply to the given payload
+     */
+    public static Payload apply(Payload base, Payload delta) {
+        Slime baseSlime = toSlime(base);
+        Slime deltaSlime = toSlime(delta);
+        if (baseSlime.get().type() != Type.OBJECT || deltaSlime.get().type() != Type.OBJECT)
+            throw new IllegalArgumentException("Payload delta can only be applied to an object");
+        return toPayload(apply(baseSlime.get(), deltaSlime.get()));
+    }
+
+    /** Returns the patch which transforms the given object into the other given object */
+    static Slime diff(Inspector from, Inspector to) {
+        Slime patch = new Slime();
+        diffObjects(from, to, patch.setObject());
+        return patch;
+    }
+
+    /** Returns the result of applying the given patch to the given object */
+    static Slime apply(Inspector base, Inspector patch) {
+        Slime result = new Slime();
+        applyToObject(base, patch, result.setObject());
+        return result;
+    }
+
+    private static void diffObjects(Inspector from, Inspector to, Cursor patch) {
+        Changes changes = new Changes(patch);
+        List<String> unchangedOrder = new ArrayList<>();
+        from.traverse((ObjectTraverser) (name, value) -> {
+            if (to.field(name).valid())
+                unchangedOrder.add(name);
+            else
+                changes.remove(name);
+        });
+        List<String> order = new ArrayList<>();
+        List<String> added = new ArrayList<>();
+        to.traverse((ObjectTraverser) (name, value) -> {
+            order.add(name);
+            Inspector previous = from.field(name);
+            if ( ! previous.valid()) {
+                added.add(name);
+                changes.set(name, value);
+            }
+            else {
+                changes.diff(name, previous, value);
+            }
+        });
+        unchangedOrder.addAll(added);
+        if ( ! unchangedOrder.equals(order)) {
+            Cursor orderArray = patch.setArray(ORDER);
+            order.forEach(orderArray::addString);
+        }
+    }
+
+    private static void diffArrays(Inspector from, Inspector to, Cursor patch) {
+        patch.setLong(LENGTH, to.entries());
+        Changes changes = new Changes(patch);
+        for (int i = 0; i < to.entries(); i++) {
+            if (i < from.entries())
+                changes.diff(String.valueOf(i), from.entry(i), to.entry(i));
+            else
+                changes.set(String.valueOf(i), to.entry(i));
+        }
+    }
+
+    private static void applyToObject(Inspector base, Inspector patch, Cursor result) {
+        Inspector set = patch.field(SET);
+        Inspector patches = patch.field(PATCH);
+        if (patch.field(ORDER).valid()) {
+            patch.field(ORDER).traverse((ArrayTraverser) (i, name) -> applyToField(base, set, patches, name.asString(), result));
+        }
+        else {
+            Set<String> removed = new HashSet<>();
+            patch.field(REMOVE).traverse((ArrayTraverser) (i, name) -> removed.add(name.asString()));
+            base.traverse((ObjectTraverser) (name, value) -> {
+                if ( ! removed.contains(name))
+                    applyToField(base, set, patches, name, result);
+            });
+            set.traverse((ObjectTraverser) (name, value) -> {
+                if ( ! base.field(name).valid())
+                    SlimeUtils.setObjectEntry(value, name, result);
+            });
+        }
+    }
+
+    private static void applyToField(Inspector base, Inspector set, Inspector patches, String name, Cursor result) {
+        if (set.field(name).valid())
+            SlimeUtils.setObjectEntry(set.field(name), name, result);
+        else if (patches.field(name).valid())
+            applyTo(base.field(name), patches.field(name), base.field(name).type() == Type.ARRAY ? result.setArray(name)
+                                                                                                  : result.setObject(name));
+        else if (base.field(name).valid())
+            SlimeUtils.setObjectEntry(base.field(name), name, result);
+        else
+            throw new IllegalArgumentException("Payload delta refers to field '" + name + "' which is not present");
+    }
+
+    private static void applyToArray(Inspector base, Inspector patch, Cursor result) {
+        Inspector set = patch.field(SET);
+        Inspector patches = patch.field(PATCH);
+        long length = patch.field(LENGTH).asLong();
+        for (int i = 0; i < length; i++) {
+            String index = String.valueOf(i);
+            if (set.field(index).valid())
+                addEntry(set.field(index), result);
+            else if (patches.field(index).valid())
+                applyTo(base.entry(i), patches.field(index), base.entry(i).type() == Type.ARRAY ? result.addArray()
+                                                                                                 : result.addObject());
+            else if (i < base.entries())
+                addEntry(base.entry(i), result);
+            else
+                throw new IllegalArgumentException("Payload delta refers to array entry " + i + " which is not present");
+        }
+    }
+
+    private static void applyTo(Inspector base, Inspector patch, Cursor result) {
+        switch (base.type()) {
+            case OBJECT -> applyToObject(base, patch, result);
+            case ARRAY -> applyToArray(base, patch, result);
+            default -> throw new IllegalArgumentException("Payload delta patches a value of type " + base.type());
+        }
+    }
+
+    private static void addEntry(Inspector value, Cursor array) {
+        switch (value.type()) {
+            case NIX -> array.addNix();
+            case BOOL -> array.addBool(value.asBool());
+            case LONG -> array.addLong(value.asLong());
+            case DOUBLE -> array.addDouble(value.asDouble());
+            case STRING -> array.addString(value.asString());
+            case DATA -> array.addData(value.asData());
+            case ARRAY -> SlimeUtils.copyArray(value, array.addArray());
+            case OBJECT -> SlimeUtils.copyObject(value, array.addObject());
+        }
+    }
+
+    private static Slime toSlime(Payload payload) {
+        return new JsonDecoder().decode(new Slime(), payload.withCompression(CompressionType.UNCOMPRESSED).getData().wrap());
+    }
+
+    /** Returns the given slime as an uncompressed payload, in the same json format as config payloads */
+    private static Payload toPayload(Slime slime) {
+        ByteArrayOutputStream out = new NoCopyByteArrayOutputStream();
+        try {
+            new JsonFormat(true).encode(out, slime);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Payload.from(new Utf8Array(out.toByteArray(), 0, out.size()),
+                            CompressionInfo.create(CompressionType.UNCOMPRESSED, out.size()));
+    }
+
+    /** The changes in an object or array patch, where the fields holding them are created when needed */
+    private static class Changes {
+
+        private final Cursor patch;
+        private Cursor set = null;
+        private Cursor remove = null;
+        private Cursor patches = null;
+
+        Changes(Cursor patch) {
+            this.patch = patch;
+        }
+
+        void set(String name, Inspector value) {
+            if (set == null) set = patch.setObject(SET);
+            SlimeUtils.setObjectEntry(value, name, set);
+        }
+
+        void remove(String name) {
+            if (remove == null) remove = patch.setArray(REMOVE);
+            remove.addString(name);
+        }
+
+        void diff(String name, Inspector previous, Inspector value) {
+            if (previous.equalTo(value)) return;
+
+            if (previous.type() == Type.OBJECT && value.type() == Type.OBJECT)
+                diffObjects(previous, value, patches().setObject(name));
+            else if (previous.type() == Type.ARRAY && value.type() == Type.ARRAY)
+                diffArrays(previous, value, patches().setObject(name));
+            else
+                set(name, value);
+        }
+
+        private Cursor patches() {
+            if (patches == null) patches = patch.setObject(PATCH);
+            return patches;
+        }
+
+    }
+
+}
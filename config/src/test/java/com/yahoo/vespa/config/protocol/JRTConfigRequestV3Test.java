@@ -90,6 +90,39 @@ public class JRTConfigRequestV3Test {
         assertEquals("{}", clientReq.getNewPayload().withCompression(CompressionType.UNCOMPRESSED).getData().toString());
     }
 
+    @Test
+    public void payload_delta_response_is_applied() {
+        Payload current = createPayload("bar");
+        Payload payload = createPayload("baz");
+        JRTClientConfigRequest clientReq = createReqAcceptingDeltas(current);
+        JRTServerConfigRequest serverReq = createReq(clientReq.getRequest());
+        assertTrue(serverReq.acceptsPayloadDelta());
+        assertFalse(this.serverReq.acceptsPayloadDelta());
+
+        serverReq.addOkDeltaResponse(PayloadDelta.between(current, payload).get(),
+                                     PayloadChecksums.fromPayload(current).getForType(XXHASH64),
+                                     4L, false, PayloadChecksums.fromPayload(payload));
+        assertTrue(clientReq.validateResponse());
+        assertTrue(clientReq.hasUpdatedConfig());
+        assertEquals(payload.getData().toString(), clientReq.getNewPayload().withCompression(CompressionType.UNCOMPRESSED).getData().toString());
+        assertTrue(createReq(clientReq.nextRequest(6).getRequest()).acceptsPayloadDelta());
+    }
+
+    @Test
+    public void payload_delta_giving_wrong_checksum_is_rejected() {
+        Payload current = createPayload("bar");
+        JRTClientConfigRequest clientReq = createReqAcceptingDeltas(current);
+        JRTServerConfigRequest serverReq = createReq(clientReq.getRequest());
+
+        serverReq.addOkDeltaResponse(PayloadDelta.between(current, createPayload("baz")).get(),
+                                     PayloadChecksums.fromPayload(current).getForType(XXHASH64),
+                                     4L, false, PayloadChecksums.fromPayload(createPayload("other")));
+        assertFalse(clientReq.validateResponse());
+        assertEquals(ErrorCode.ILLEGAL_PAYLOAD_DELTA, clientReq.errorCode());
+        // Next request asks for the full payload
+        assertFalse(createReq(clientReq.nextRequest(6).getRequest()).acceptsPayloadDelta());
+    }
+
     @Test
     public void delay_mechanisms_function() {
         assertFalse(serverReq.isDelayedResponse());
@@ -297,6 +330,20 @@ public class JRTConfigRequestV3Test {
         return createReq(defName, defNamespace, hostname, configId, PayloadChecksums.fromPayload(payload), currentGeneration, timeout, trace);
     }
 
+    private JRTClientConfigRequest createReqAcceptingDeltas(Payload currentPayload) {
+        return new JRTClientConfigRequestV3(ConfigKey.createFull(defName, configId, defNamespace),
+                                            hostname,
+                                            DefContent.fromList(List.of(configDefinition)),
+                                            PayloadChecksums.fromPayload(currentPayload),
+                                            currentGeneration,
+                                            timeout,
+                                            Trace.createNew(),
+                                            CompressionType.LZ4,
+                                            vespaVersion,
+                                            true,
+                                            currentPayload);
+    }
+
     private void request_is_parsed_base() {
         System.out.println(serverReq.toString());
         assertThat(serverReq.getConfigKey().getName(), is(defName));
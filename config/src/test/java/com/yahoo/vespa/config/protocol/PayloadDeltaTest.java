@@ -0,0 +1,97 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.protocol;
+
+import com.yahoo.vespa.config.ConfigPayload;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author hmusum
+ */
+public class PayloadDeltaTest {
+
+    @Test
+    public void unchanged_payload_gives_empty_delta() {
+        Payload payload = payload("{'a':1,'b':{'c':[1,2,3]}}");
+        assertDelta("{}", payload, payload);
+    }
+
+    @Test
+    public void changed_added_and_removed_fields() {
+        assertDelta("{'remove':['b'],'set':{'a':2,'d':'new'}}",
+                    payload("{'a':1,'b':true,'c':'same'}"),
+                    payload("{'a':2,'c':'same','d':'new'}"));
+    }
+
+    @Test
+    public void nested_objects_and_arrays_are_patched() {
+        assertDelta("{'patch':{'o':{'set':{'y':3}},'list':{'length':4,'set':{'1':'B','3':'d'}}}}",
+                    payload("{'o':{'x':1,'y':2},'list':['a','b','c'],'s':'s'}"),
+                    payload("{'o':{'x':1,'y':3},'list':['a','B','c','d'],'s':'s'}"));
+    }
+
+    @Test
+    public void arrays_may_shrink() {
+        assertDelta("{'patch':{'list':{'length':1,'patch':{'0':{'set':{'v':2}}}}}}",
+                    payload("{'list':[{'v':1},{'v':2}]}"),
+                    payload("{'list':[{'v':2}]}"));
+    }
+
+    @Test
+    public void field_order_is_preserved() {
+        assertDelta("{'set':{'b':3},'order':['b','a']}",
+                    payload("{'a':1,'b':2}"),
+                    payload("{'b':3,'a':1}"));
+        assertDelta("{'remove':['a'],'set':{'c':{'x':[]}},'order':['c','b']}",
+                    payload("{'a':1,'b':2}"),
+                    payload("{'c':{'x':[]},'b':2}"));
+    }
+
+    @Test
+    public void values_changing_type_are_replaced() {
+        assertDelta("{'set':{'a':[1],'b':{'x':1},'c':'string'}}",
+                    payload("{'a':{'x':1},'b':[1],'c':{}}"),
+                    payload("{'a':[1],'b':{'x':1},'c':'string'}"));
+    }
+
+    @Test
+    public void delta_is_applied_to_compressed_payload() {
+        Payload from = payload("{'a':'" + "x".repeat(1000) + "','b':1}");
+        Payload to = payload("{'a':'" + "x".repeat(1000) + "','b':2}");
+        Payload delta = PayloadDelta.between(from.withCompression(CompressionType.LZ4), to).get();
+        assertEquals(to, PayloadDelta.apply(from.withCompression(CompressionType.LZ4), delta));
+    }
+
+    @Test
+    public void delta_which_does_not_apply_is_rejected() {
+        Payload delta = PayloadDelta.between(payload("{'a':{'x':1}}"), payload("{'a':{'x':2}}")).get();
+        try {
+            PayloadDelta.apply(payload("{'a':1}"), delta);
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Payload delta patches a value of type LONG", e.getMessage());
+        }
+    }
+
+    @Test
+    public void delta_requires_object_payloads() {
+        assertTrue(PayloadDelta.between(payload("[1]"), payload("{}")).isEmpty());
+    }
+
+    private static void assertDelta(String expectedDelta, Payload from, Payload to) {
+        Payload delta = PayloadDelta.between(from, to).get();
+        assertEquals(expectedDelta.replace('\'', '"'), delta.getData().toString());
+        Payload result = PayloadDelta.apply(from, delta);
+        assertEquals(to.getData().toString(), result.getData().toString());
+        assertEquals(to, result);
+    }
+
+    private static Payload payload(String json) {
+        return Payload.from(ConfigPayload.fromString(json.replace('\'', '"')));
+    }
+
+}
@@ -17,6 +17,7 @@ import java.util.logging.Logger;
 
 /**
  * A {@link DeployLogger} which stores messages in a {@link Slime} tree, and holds a tenant and application name.
+ * This is thread safe, as parts of the model may be built concurrently.
  * 
  * @author Ulf Lilleengen
  */
@@ -51,7 +52,7 @@ public class DeployHandlerLogger implements DeployLogger {
 
     @Override
     @SuppressWarnings("deprecation")
-    public void logApplicationPackage(Level level, String message) {
+    public synchronized void logApplicationPackage(Level level, String message) {
         if (level.intValue() <= LogLevel.DEBUG.intValue() && !verbose)
             return;
 
@@ -61,7 +62,7 @@ public class DeployHandlerLogger implements DeployLogger {
         log.log(Level.FINE, () -> prefix + message);
     }
 
-    private Cursor logJson(Level level, String message) {
+    private synchronized Cursor logJson(Level level, String message) {
         Cursor entry = logroot.addObject();
         entry.setLong("time", System.currentTimeMillis());
         entry.setString("level", level.getName());
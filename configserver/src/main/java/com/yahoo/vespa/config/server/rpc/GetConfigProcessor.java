@@ -9,6 +9,7 @@ import com.yahoo.jrt.Request;
 import com.yahoo.net.HostName;
 import com.yahoo.vespa.config.ConfigPayload;
 import com.yahoo.vespa.config.ErrorCode;
+import com.yahoo.vespa.config.PayloadChecksum;
 import com.yahoo.vespa.config.PayloadChecksums;
 import com.yahoo.vespa.config.UnknownConfigIdException;
 import com.yahoo.vespa.config.protocol.ConfigResponse;
@@ -27,6 +28,7 @@ import java.util.logging.Logger;
 
 import static com.yahoo.vespa.config.ErrorCode.APPLICATION_NOT_LOADED;
 import static com.yahoo.vespa.config.ErrorCode.UNKNOWN_VESPA_VERSION;
+import static com.yahoo.vespa.config.PayloadChecksum.Type.XXHASH64;
 import static com.yahoo.vespa.config.protocol.SlimeConfigResponse.fromConfigPayload;
 
 /**
@@ -136,7 +138,7 @@ class GetConfigProcessor implements Runnable {
             }
 
             // debugLog(trace, "config response before encoding:" + config.toString());
-            request.addOkResponse(request.payloadFromResponse(config), config.getGeneration(), config.applyOnRestart(), config.getPayloadChecksums());
+            addOkResponse(config);
             debugLog(trace, "return response: " + request.getShortDescription());
             respond(request);
         } else {
@@ -170,6 +172,20 @@ class GetConfigProcessor implements Runnable {
         return vespaVersion.map(Version::toFullString).orElse("LATEST");
     }
 
+    /** Adds the given config to the response, as a delta if the client accepts it and we know the config it has */
+    private void addOkResponse(ConfigResponse config) {
+        Payload payload = request.payloadFromResponse(config);
+        if (request.acceptsPayloadDelta()) {
+            PayloadChecksum from = request.getRequestConfigChecksums().getForType(XXHASH64);
+            Optional<Payload> delta = rpcServer.payloadDeltas().delta(from, config.getPayloadChecksums().getForType(XXHASH64), payload);
+            if (delta.isPresent()) {
+                request.addOkDeltaResponse(delta.get(), from, config.getGeneration(), config.applyOnRestart(), config.getPayloadChecksums());
+                return;
+            }
+        }
+        request.addOkResponse(payload, config.getGeneration(), config.applyOnRestart(), config.getPayloadChecksums());
+    }
+
     private void returnEmpty(JRTServerConfigRequest request) {
         log.log(Level.FINE, () -> "Returning empty sentinel config for request from " + request.getClientHostName());
         var emptyPayload = ConfigPayload.fromInstance(new SentinelConfig.Builder().build());
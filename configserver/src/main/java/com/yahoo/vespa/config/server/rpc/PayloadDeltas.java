@@ -0,0 +1,137 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.server.rpc;
+
+import com.yahoo.vespa.config.PayloadChecksum;
+import com.yahoo.vespa.config.protocol.CompressionType;
+import com.yahoo.vespa.config.protocol.Payload;
+import com.yahoo.vespa.config.protocol.PayloadDelta;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps recently sent large config payloads, by their xxhash64 checksum, such that clients presenting
+ * the checksum of one of those can be sent a {@link PayloadDelta} instead of the full new payload.
+ * Deltas are created once for each pair of payloads and then reused for all clients.
+ * The payloads and deltas kept are together bounded by a number of bytes, and the deltas of a payload
+ * are removed with it.
+ *
+ * @author hmusum
+ */
+class PayloadDeltas {
+
+    private static final Logger log = Logger.getLogger(PayloadDeltas.class.getName());
+
+    /** The uncompressed size of the smallest payloads which are worth sending deltas of */
+    static final int minPayloadSize = 64 * 1024;
+
+    /** The delta of a payload to itself */
+    private static final Payload unchanged = Payload.from("{}");
+
+    private final long maxBytes;
+
+    /** Payloads by checksum, in access order, guarded by this */
+    private final LinkedHashMap<PayloadChecksum, Payload> payloads = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Deltas between the payloads kept, or empty if it is better to send the full payload, guarded by this */
+    private final Map<Transition, Optional<Payload>> deltas = new HashMap<>();
+
+    /** The total size of the payloads and deltas kept, guarded by this */
+    private long bytes = 0;
+
+    /** Creates this, keeping payloads and deltas with a total size up to the given number of bytes, or none if this is 0 */
+    PayloadDeltas(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the delta from the payload with the given checksum to the given payload,
+     * or empty if the full payload should be sent.
+     *
+     * @param from the xxhash64 checksum of the payload the client has
+     * @param to the xxhash64 checksum of the given payload
+     * @param payload the payload the client should get
+     */
+    Optional<Payload> delta(PayloadChecksum from, PayloadChecksum to, Payload payload) {
+        if (maxBytes == 0 || from == null || from.isEmpty() || to == null || to.isEmpty()) return Optional.empty();
+        if (uncompressedSize(payload) < minPayloadSize) return Optional.empty();
+
+        if (from.equals(to)) return Optional.of(unchanged);
+        Transition transition = new Transition(from, to);
+        Payload base;
+        synchronized (this) {
+            if ( ! payloads.containsKey(to)) {
+                payloads.put(to, payload);
+                bytes += size(payload);
+                evict();
+            }
+            base = payloads.get(from);
+            if (base == null) return Optional.empty();
+            Optional<Payload> delta = deltas.get(transition);
+            if (delta != null) return delta;
+        }
+
+        // Created without holding the lock, so concurrent requests for the same delta may both create it
+        Optional<Payload> delta = createDelta(base, payload);
+        synchronized (this) {
+            if ( ! payloads.containsKey(from) || ! payloads.containsKey(to)) return delta; // evicted meanwhile
+            Optional<Payload> existing = deltas.putIfAbsent(transition, delta);
+            if (existing != null) return existing;
+            bytes += size(delta);
+            evict();
+        }
+        return delta;
+    }
+
+    /** Returns the total size of the payloads and deltas kept by this */
+    synchronized long bytes() { return bytes; }
+
+    /** Removes the least recently used payloads, and the deltas from and to them, until this is within its size bound */
+    private void evict() {
+        for (Iterator<Map.Entry<PayloadChecksum, Payload>> i = payloads.entrySet().iterator(); bytes > maxBytes && i.hasNext(); ) {
+            Map.Entry<PayloadChecksum, Payload> evicted = i.next();
+            bytes -= size(evicted.getValue());
+            i.remove();
+            for (Iterator<Map.Entry<Transition, Optional<Payload>>> j = deltas.entrySet().iterator(); j.hasNext(); ) {
+                Map.Entry<Transition, Optional<Payload>> delta = j.next();
+                if ( ! delta.getKey().involves(evicted.getKey())) continue;
+                bytes -= size(delta.getValue());
+                j.remove();
+            }
+        }
+    }
+
+    private static Optional<Payload> createDelta(Payload base, Payload payload) {
+        try {
+            // Only worth it if the delta is much smaller than the payload
+            return PayloadDelta.between(base, payload)
+                               .filter(delta -> delta.getData().getByteLength() * 2 < uncompressedSize(payload));
+        }
+        catch (RuntimeException e) {
+            log.log(Level.WARNING, "Failed creating payload delta, will send full payload", e);
+            return Optional.empty();
+        }
+    }
+
+    private static long size(Payload payload) { return payload.getData().getByteLength(); }
+
+    private static long size(Optional<Payload> delta) { return delta.map(PayloadDeltas::size).orElse(0L); }
+
+    private static long uncompressedSize(Payload payload) {
+        return payload.getCompressionInfo().getCompressionType() == CompressionType.UNCOMPRESSED
+               ? payload.getData().getByteLength()
+               : payload.getCompressionInfo().getUncompressedSize();
+    }
+
+    private record Transition(PayloadChecksum from, PayloadChecksum to) {
+
+        boolean involves(PayloadChecksum checksum) { return from.equals(checksum) || to.equals(checksum); }
+
+    }
+
+}
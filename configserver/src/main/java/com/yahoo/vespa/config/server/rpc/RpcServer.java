@@ -90,6 +90,7 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
     private final boolean useRequestVersion;
     private final boolean hostedVespa;
     private final boolean canReturnEmptySentinelConfig;
+    private final PayloadDeltas payloadDeltas;
 
     private static final Logger log = Logger.getLogger(RpcServer.class.getName());
 
@@ -142,6 +143,7 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
         this.useRequestVersion = config.useVespaVersionInRequest();
         this.hostedVespa = config.hostedVespa();
         this.canReturnEmptySentinelConfig = config.canReturnEmptySentinelConfig();
+        this.payloadDeltas = new PayloadDeltas(config.maxPayloadDeltaCacheBytes());
         this.fileServer = fileServer;
         this.rpcAuthorizer = rpcAuthorizer;
         downloader = fileServer.downloader();
@@ -437,6 +439,8 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
      * not part of an application asks for sentinel config */
     public boolean canReturnEmptySentinelConfig() { return canReturnEmptySentinelConfig; }
     
+    PayloadDeltas payloadDeltas() { return payloadDeltas; }
+
     MetricUpdaterFactory metricUpdaterFactory() {
         return metricUpdaterFactory;
     }
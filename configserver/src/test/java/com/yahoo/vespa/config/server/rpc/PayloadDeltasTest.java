@@ -0,0 +1,112 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.server.rpc;
+
+import com.yahoo.vespa.config.ConfigPayload;
+import com.yahoo.vespa.config.PayloadChecksum;
+import com.yahoo.vespa.config.protocol.CompressionType;
+import com.yahoo.vespa.config.protocol.Payload;
+import com.yahoo.vespa.config.protocol.PayloadDelta;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static com.yahoo.vespa.config.PayloadChecksum.Type.XXHASH64;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author hmusum
+ */
+public class PayloadDeltasTest {
+
+    private final Payload first = payload(1);
+    private final Payload second = payload(2);
+
+    @Test
+    public void delta_is_created_from_known_payload() {
+        PayloadDeltas deltas = new PayloadDeltas(1 << 20);
+        assertTrue(deltas.delta(checksum(second), checksum(first), first).isEmpty()); // second is not known
+
+        Optional<Payload> delta = deltas.delta(checksum(first), checksum(second), second);
+        assertTrue(delta.isPresent());
+        assertEquals(second, PayloadDelta.apply(first, delta.get()));
+        assertSame(delta.get(), deltas.delta(checksum(first), checksum(second), second).get());
+
+        assertEquals("{}", deltas.delta(checksum(second), checksum(second), second).get().getData().toString());
+    }
+
+    @Test
+    public void delta_is_created_from_compressed_payload() {
+        PayloadDeltas deltas = new PayloadDeltas(1 << 20);
+        deltas.delta(checksum(second), checksum(first), first.withCompression(CompressionType.LZ4));
+        Optional<Payload> delta = deltas.delta(checksum(first), checksum(second), second.withCompression(CompressionType.LZ4));
+        assertEquals(second, PayloadDelta.apply(first, delta.get()));
+    }
+
+    @Test
+    public void no_delta_for_small_payloads() {
+        PayloadDeltas deltas = new PayloadDeltas(1 << 20);
+        Payload small = Payload.from(ConfigPayload.fromString("{\"a\":1}"));
+        Payload other = Payload.from(ConfigPayload.fromString("{\"a\":2}"));
+        deltas.delta(checksum(other), checksum(small), small);
+        assertTrue(deltas.delta(checksum(small), checksum(other), other).isEmpty());
+    }
+
+    @Test
+    public void least_recently_used_payloads_are_evicted() {
+        PayloadDeltas deltas = new PayloadDeltas(first.getData().getByteLength() + second.getData().getByteLength());
+        Payload third = payload(3);
+        deltas.delta(checksum(third), checksum(first), first);
+        deltas.delta(checksum(third), checksum(second), second);
+        deltas.delta(checksum(second), checksum(third), third); // evicts first
+
+        assertTrue(deltas.delta(checksum(first), checksum(third), third).isEmpty());
+        assertTrue(deltas.delta(checksum(second), checksum(third), third).isPresent());
+    }
+
+    @Test
+    public void deltas_are_counted_and_removed_with_their_payloads() {
+        PayloadDeltas deltas = new PayloadDeltas(1 << 20);
+        Payload third = payload(3);
+        deltas.delta(checksum(second), checksum(first), first);
+        Payload delta = deltas.delta(checksum(first), checksum(second), second).get();
+        long payloadBytes = size(first) + size(second);
+        assertEquals(payloadBytes + size(delta), deltas.bytes());
+
+        // Too small for the delta in addition to the two payloads: The least recently used payload,
+        // which is second as first was just used as the base, is evicted with the delta
+        PayloadDeltas small = new PayloadDeltas(payloadBytes + size(delta) - 1);
+        small.delta(checksum(second), checksum(first), first);
+        assertEquals(delta, small.delta(checksum(first), checksum(second), second).get());
+        assertEquals(size(first), small.bytes());
+
+        // Evicting the payload a delta is to also removes the delta
+        PayloadDeltas two = new PayloadDeltas(payloadBytes + size(delta));
+        two.delta(checksum(second), checksum(first), first);
+        two.delta(checksum(first), checksum(second), second);
+        two.delta(checksum(first), checksum(third), third); // evicts second, which is used less recently than first
+        assertEquals(size(first) + size(third) + size(two.delta(checksum(first), checksum(third), third).get()), two.bytes());
+    }
+
+    @Test
+    public void disabled_when_no_payloads_are_kept() {
+        PayloadDeltas deltas = new PayloadDeltas(0);
+        deltas.delta(checksum(second), checksum(first), first);
+        assertTrue(deltas.delta(checksum(first), checksum(second), second).isEmpty());
+    }
+
+    private static long size(Payload payload) {
+        return payload.getData().getByteLength();
+    }
+
+    private static PayloadChecksum checksum(Payload payload) {
+        return PayloadChecksum.fromPayload(payload, XXHASH64);
+    }
+
+    /** Returns a payload larger than the minimum size for deltas, differing only in the given value */
+    private static Payload payload(int value) {
+        return Payload.from(ConfigPayload.fromString("{\"value\":" + value + ",\"text\":\"" + "x".repeat(PayloadDeltas.minPayloadSize) + "\"}"));
+    }
+
+}
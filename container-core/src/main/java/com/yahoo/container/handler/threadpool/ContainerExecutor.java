@@ -0,0 +1,32 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.handler.threadpool;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * An executor service running the tasks of a {@link ContainerThreadPool}, which exposes its state for metrics
+ * and for detecting when no threads have been available for too long.
+ *
+ * @author bjorncs
+ */
+interface ContainerExecutor extends ExecutorService {
+
+    /** Returns the current number of threads */
+    int poolSize();
+
+    /** Returns the max number of tasks which may be running at the same time */
+    int maximumPoolSize();
+
+    /** Returns the number of tasks currently running */
+    int activeCount();
+
+    /** Returns the number of tasks waiting to be run */
+    int queueSize();
+
+    /** Returns the max number of tasks which may wait to be run, or 0 if tasks are only accepted when a thread is available */
+    int queueCapacity();
+
+    /** Returns the last time a task was assigned to a thread, in epoch milliseconds */
+    long lastThreadAssignmentTimeMillis();
+
+}
@@ -45,22 +45,45 @@ public class ContainerThreadpoolImpl extends AbstractComponent implements AutoCl
         int maxThreads = maxThreads(config, cpus);
         int minThreads = minThreads(config, maxThreads, cpus);
         int queueSize = queueSize(config, maxThreads);
-        log.info(String.format("Threadpool '%s': min=%d, max=%d, queue=%d", name, minThreads, maxThreads, queueSize));
+        log.info(String.format("Threadpool '%s': min=%d, max=%d, queue=%d, executor=%s",
+                               name, minThreads, maxThreads, queueSize, config.executor()));
 
         ThreadPoolMetric threadPoolMetric = new ThreadPoolMetric(metric, name);
+        ContainerExecutor executor = switch (config.executor()) {
+            case THREAD_POOL -> createThreadPoolExecutor(config, minThreads, maxThreads, queueSize, threadPoolMetric);
+            case WORK_STEALING -> createWorkStealingExecutor(config, minThreads, maxThreads, queueSize, threadPoolMetric);
+            case VIRTUAL_THREADS -> VirtualThreadExecutor.create(name, maxThreads, queueSize, threadPoolMetric)
+                    .orElseGet(() -> {
+                        log.warning(String.format("Threadpool '%s': Virtual threads are not supported by this JVM, " +
+                                                  "using a work stealing thread pool", name));
+                        return createWorkStealingExecutor(config, minThreads, maxThreads, queueSize, threadPoolMetric);
+                    });
+        };
+        threadpool = new ExecutorServiceWrapper(
+                executor, threadPoolMetric, processTerminator, config.maxThreadExecutionTimeSeconds() * 1000L,
+                config.workQueueWaitTimeSampleInterval(), name);
+    }
+
+    private static ContainerExecutor createThreadPoolExecutor(ContainerThreadpoolConfig config, int minThreads, int maxThreads,
+                                                              int queueSize, ThreadPoolMetric threadPoolMetric) {
         WorkerCompletionTimingThreadPoolExecutor executor =
                 new WorkerCompletionTimingThreadPoolExecutor(minThreads, maxThreads,
                         (long) config.keepAliveTime() * 1000, TimeUnit.MILLISECONDS,
                         createQueue(queueSize),
-                        ThreadFactoryFactory.getThreadFactory(name),
+                        ThreadFactoryFactory.getThreadFactory(config.name()),
                         threadPoolMetric);
         // Pre-start needed, if not all threads will be created by the fist N tasks and hence they might also
         // get the dreaded thread locals initialized even if they will never run.
         // That counters what we want to achieve with the Q that will prefer thread locality.
         executor.prestartAllCoreThreads();
-        threadpool = new ExecutorServiceWrapper(
-                executor, threadPoolMetric, processTerminator, config.maxThreadExecutionTimeSeconds() * 1000L,
-                name);
+        return executor;
+    }
+
+    private static ContainerExecutor createWorkStealingExecutor(ContainerThreadpoolConfig config, int minThreads, int maxThreads,
+                                                                int queueSize, ThreadPoolMetric threadPoolMetric) {
+        return new WorkStealingThreadPoolExecutor(minThreads, maxThreads, queueSize,
+                                                  Math.max(1, (long) (config.keepAliveTime() * 1000)), TimeUnit.MILLISECONDS,
+                                                  config.name(), threadPoolMetric);
     }
 
     @Override public Executor executor() { return threadpool; }
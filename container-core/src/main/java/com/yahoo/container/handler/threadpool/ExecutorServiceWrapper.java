@@ -7,6 +7,7 @@ import com.yahoo.container.protect.ProcessTerminator;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -20,28 +21,31 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 class ExecutorServiceWrapper extends ForwardingExecutorService {
 
-    private final WorkerCompletionTimingThreadPoolExecutor wrapped;
+    private final ContainerExecutor wrapped;
     private final ThreadPoolMetric metric;
     private final ProcessTerminator processTerminator;
     private final long maxThreadExecutionTimeMillis;
+    private final int waitTimeSampleInterval;
     private final int queueCapacity;
     private final Thread metricReporter;
     private final boolean threadPoolIsOnlyQ;
     private final AtomicBoolean closed = new AtomicBoolean(false);
 
-    ExecutorServiceWrapper(WorkerCompletionTimingThreadPoolExecutor wrapped,
+    ExecutorServiceWrapper(ContainerExecutor wrapped,
                            ThreadPoolMetric metric,
                            ProcessTerminator processTerminator,
                            long maxThreadExecutionTimeMillis,
+                           int waitTimeSampleInterval,
                            String name) {
         this.wrapped = wrapped;
         this.metric = metric;
         this.processTerminator = processTerminator;
         this.maxThreadExecutionTimeMillis = maxThreadExecutionTimeMillis;
-        int maxQueueCapacity = wrapped.getQueue().remainingCapacity() + wrapped.getQueue().size();
+        this.waitTimeSampleInterval = waitTimeSampleInterval;
+        int maxQueueCapacity = wrapped.queueCapacity();
         this.threadPoolIsOnlyQ = (maxQueueCapacity == 0);
         this.queueCapacity = threadPoolIsOnlyQ
-                ? wrapped.getMaximumPoolSize()
+                ? wrapped.maximumPoolSize()
                 : maxQueueCapacity;
         reportMetrics();
         metricReporter = new Thread(this::reportMetricsRegularly);
@@ -50,11 +54,11 @@ class ExecutorServiceWrapper extends ForwardingExecutorService {
     }
 
     private void reportMetrics() {
-        int activeThreads = wrapped.getActiveCount();
-        metric.reportThreadPoolSize(wrapped.getPoolSize());
-        metric.reportMaxAllowedThreadPoolSize(wrapped.getMaximumPoolSize());
+        int activeThreads = wrapped.activeCount();
+        metric.reportThreadPoolSize(wrapped.poolSize());
+        metric.reportMaxAllowedThreadPoolSize(wrapped.maximumPoolSize());
         metric.reportActiveThreads(activeThreads);
-        int queueSize = threadPoolIsOnlyQ ? activeThreads : wrapped.getQueue().size();
+        int queueSize = threadPoolIsOnlyQ ? activeThreads : wrapped.queueSize();
         metric.reportWorkQueueSize(queueSize);
         metric.reportWorkQueueCapacity(queueCapacity);
     }
@@ -90,7 +94,7 @@ class ExecutorServiceWrapper extends ForwardingExecutorService {
     }
 
     /**
-     * Tracks all instances of {@link RejectedExecutionException}.
+     * Tracks all instances of {@link RejectedExecutionException}, and the time a sample of the tasks wait before they start running.
      * {@link ContainerThreadPool} returns an executor, so external uses will not
      * have access to the methods declared by {@link ExecutorService}.
      * ({@link Executor#execute(Runnable)} is declared by {@link Executor}.)
@@ -98,10 +102,10 @@ class ExecutorServiceWrapper extends ForwardingExecutorService {
     @Override
     public void execute(Runnable command) {
         try {
-            super.execute(command);
+            super.execute(isWaitTimeSample() ? new WaitTimeMeasuringTask(command) : command);
         } catch (RejectedExecutionException e) {
             metric.reportRejectRequest();
-            long timeSinceLastReturnedThreadMillis = System.currentTimeMillis() - wrapped.lastThreadAssignmentTimeMillis;
+            long timeSinceLastReturnedThreadMillis = System.currentTimeMillis() - wrapped.lastThreadAssignmentTimeMillis();
             if (timeSinceLastReturnedThreadMillis > maxThreadExecutionTimeMillis)
                 processTerminator.logAndDie("No worker threads have been available for " +
                         timeSinceLastReturnedThreadMillis + " ms. Shutting down.", true);
@@ -109,8 +113,29 @@ class ExecutorServiceWrapper extends ForwardingExecutorService {
         }
     }
 
+    private boolean isWaitTimeSample() {
+        return waitTimeSampleInterval > 0 && ThreadLocalRandom.current().nextInt(waitTimeSampleInterval) == 0;
+    }
+
     @Override
     protected ExecutorService delegate() { return wrapped; }
 
+    private class WaitTimeMeasuringTask implements Runnable {
+
+        private final Runnable task;
+        private final long submittedNanos = System.nanoTime();
+
+        WaitTimeMeasuringTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            metric.reportWorkQueueWaitTime((System.nanoTime() - submittedNanos) / 1_000_000.0);
+            task.run();
+        }
+
+    }
+
 }
 
@@ -50,6 +50,10 @@ class ThreadPoolMetric {
         metric.set(ContainerMetrics.JDISC_THREAD_POOL_WORK_QUEUE_SIZE.baseName(), size, defaultContext);
     }
 
+    void reportWorkQueueWaitTime(double millis) {
+        metric.set(ContainerMetrics.JDISC_THREAD_POOL_WORK_QUEUE_WAIT_TIME.baseName(), millis, defaultContext);
+    }
+
     void reportUnhandledException(Throwable t) {
         Metric.Context ctx = metric.createContext(Map.of(
                 THREAD_POOL_NAME_DIMENSION, threadPoolName,
@@ -0,0 +1,147 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.handler.threadpool;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An executor which runs each task on a new virtual thread, limiting the number of tasks running
+ * concurrently to max threads. Tasks beyond that wait, in submission order, for a running task to complete,
+ * and tasks are rejected when more than the queue capacity are waiting.
+ *
+ * @author bjorncs
+ */
+class VirtualThreadExecutor extends AbstractExecutorService implements ContainerExecutor {
+
+    private volatile long lastThreadAssignmentTimeMillis = System.currentTimeMillis();
+    private final AtomicInteger activeCount = new AtomicInteger(0);
+
+    /** The number of accepted tasks which have not completed */
+    private final AtomicInteger pendingCount = new AtomicInteger(0);
+
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private volatile boolean shutdown = false;
+
+    private final ThreadFactory threadFactory;
+    private final Semaphore permits;
+    private final int maxThreads;
+    private final int queueCapacity;
+    private final ThreadPoolMetric metric;
+
+    private VirtualThreadExecutor(ThreadFactory threadFactory, int maxThreads, int queueCapacity, ThreadPoolMetric metric) {
+        this.threadFactory = threadFactory;
+        this.permits = new Semaphore(maxThreads, true);
+        this.maxThreads = maxThreads;
+        this.queueCapacity = queueCapacity;
+        this.metric = metric;
+    }
+
+    /** Returns a new virtual thread executor, or empty if virtual threads are not supported by this JVM */
+    static Optional<ContainerExecutor> create(String name, int maxThreads, int queueCapacity, ThreadPoolMetric metric) {
+        return virtualThreadFactory(name + "-virtual-thread-")
+                .map(threadFactory -> new VirtualThreadExecutor(threadFactory, maxThreads, queueCapacity, metric));
+    }
+
+    /** Looked up reflectively, as virtual threads are not available in all the JDKs we compile for */
+    private static Optional<ThreadFactory> virtualThreadFactory(String namePrefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+            return Optional.of((ThreadFactory) builderClass.getMethod("factory").invoke(builder));
+        }
+        catch (ReflectiveOperationException e) { // not present, or a preview feature which is not enabled
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        int pending = pendingCount.incrementAndGet();
+        if (shutdown) {
+            taskCompleted();
+            throw new RejectedExecutionException("Executor is shut down");
+        }
+        if (pending > maxThreads + queueCapacity) {
+            taskCompleted();
+            throw new RejectedExecutionException("All " + maxThreads + " threads are busy and the queue of " +
+                                                 queueCapacity + " tasks is full");
+        }
+        threadFactory.newThread(() -> run(task)).start();
+    }
+
+    private void run(Runnable task) {
+        threads.add(Thread.currentThread());
+        try {
+            permits.acquire();
+            try {
+                lastThreadAssignmentTimeMillis = System.currentTimeMillis();
+                activeCount.incrementAndGet();
+                task.run();
+            }
+            catch (Throwable t) {
+                metric.reportUnhandledException(t);
+                throw t;
+            }
+            finally {
+                activeCount.decrementAndGet();
+                permits.release();
+            }
+        }
+        catch (InterruptedException e) {
+            // Shut down before the task got to run
+        }
+        finally {
+            threads.remove(Thread.currentThread());
+            taskCompleted();
+        }
+    }
+
+    private void taskCompleted() {
+        if (pendingCount.decrementAndGet() == 0 && shutdown)
+            terminated.countDown();
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        if (pendingCount.get() == 0)
+            terminated.countDown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        threads.forEach(Thread::interrupt);
+        return List.of(); // every accepted task already has its own thread
+    }
+
+    @Override
+    public boolean isShutdown() { return shutdown; }
+
+    @Override
+    public boolean isTerminated() { return terminated.getCount() == 0; }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    @Override public int poolSize() { return threads.size(); }
+    @Override public int maximumPoolSize() { return maxThreads; }
+    @Override public int activeCount() { return activeCount.get(); }
+    @Override public int queueSize() { return Math.max(0, pendingCount.get() - activeCount()); }
+    @Override public int queueCapacity() { return queueCapacity; }
+    @Override public long lastThreadAssignmentTimeMillis() { return lastThreadAssignmentTimeMillis; }
+
+}
@@ -0,0 +1,106 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.handler.threadpool;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread pool where each worker thread has its own task deque, and idle workers steal tasks from the others,
+ * such that submitting and taking tasks does not contend on a single queue lock.
+ * Tasks are run in submission order by each worker.
+ *
+ * Like {@link WorkerCompletionTimingThreadPoolExecutor}, this rejects tasks when there are more than
+ * max threads plus queue capacity tasks which are running or waiting to run.
+ *
+ * @author bjorncs
+ */
+class WorkStealingThreadPoolExecutor extends ForkJoinPool implements ContainerExecutor {
+
+    private volatile long lastThreadAssignmentTimeMillis = System.currentTimeMillis();
+    private final AtomicLong startedCount = new AtomicLong(0);
+    private final AtomicLong completedCount = new AtomicLong(0);
+
+    /** The number of accepted tasks which have not completed */
+    private final AtomicInteger pendingCount = new AtomicInteger(0);
+
+    private final int maxThreads;
+    private final int queueCapacity;
+    private final ThreadPoolMetric metric;
+
+    WorkStealingThreadPoolExecutor(int minThreads,
+                                   int maxThreads,
+                                   int queueCapacity,
+                                   long keepAliveTime,
+                                   TimeUnit unit,
+                                   String name,
+                                   ThreadPoolMetric metric) {
+        // Threads blocked waiting for other tasks are not compensated for, as the pool must not exceed maxThreads
+        super(maxThreads, new WorkerThreadFactory(name), null, true,
+              minThreads, maxThreads, 1, pool -> true, keepAliveTime, unit);
+        this.maxThreads = maxThreads;
+        this.queueCapacity = queueCapacity;
+        this.metric = metric;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (pendingCount.incrementAndGet() > maxThreads + queueCapacity) {
+            pendingCount.decrementAndGet();
+            throw new RejectedExecutionException("All " + maxThreads + " threads are busy and the queue of " +
+                                                 queueCapacity + " tasks is full");
+        }
+        try {
+            super.execute(() -> run(task));
+        }
+        catch (RuntimeException e) {
+            pendingCount.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void run(Runnable task) {
+        lastThreadAssignmentTimeMillis = System.currentTimeMillis();
+        startedCount.incrementAndGet();
+        try {
+            task.run();
+        }
+        catch (Throwable t) {
+            metric.reportUnhandledException(t);
+            throw t;
+        }
+        finally {
+            completedCount.incrementAndGet();
+            pendingCount.decrementAndGet();
+        }
+    }
+
+    @Override public int poolSize() { return getPoolSize(); }
+    @Override public int maximumPoolSize() { return maxThreads; }
+    @Override public int activeCount() { return (int)(startedCount.get() - completedCount.get()); }
+    @Override public int queueSize() { return Math.max(0, pendingCount.get() - activeCount()); }
+    @Override public int queueCapacity() { return queueCapacity; }
+    @Override public long lastThreadAssignmentTimeMillis() { return lastThreadAssignmentTimeMillis; }
+
+    private static class WorkerThreadFactory implements ForkJoinWorkerThreadFactory {
+
+        private final String namePrefix;
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        WorkerThreadFactory(String name) {
+            this.namePrefix = name + "-thread-";
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = new ForkJoinWorkerThread(pool) { };
+            thread.setName(namePrefix + threadNumber.getAndIncrement());
+            return thread;
+        }
+
+    }
+
+}
@@ -1,7 +1,9 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.container.logging;
 
+import ai.vespa.metrics.ContainerMetrics;
 import com.yahoo.container.core.AccessLogConfig;
+import com.yahoo.jdisc.Metric;
 
 /**
  * @author Bjorn Borud
@@ -10,10 +12,11 @@ class AccessLogHandler {
 
     private final LogFileHandler<RequestLogEntry> logFileHandler;
 
-    AccessLogHandler(AccessLogConfig.FileHandler config, LogWriter<RequestLogEntry> logWriter) {
+    AccessLogHandler(AccessLogConfig.FileHandler config, LogWriter<RequestLogEntry> logWriter, Metric metric) {
         logFileHandler = new LogFileHandler<>(
                 toCompression(config), config.bufferSize(), config.pattern(), config.rotation(),
-                config.symlink(), queueSize(config), "request-logger", logWriter);
+                config.symlink(), queueSize(config), config.dropWhenQueueFull(), "request-logger", logWriter,
+                new QueueMetric(metric));
     }
 
     private static int queueSize(AccessLogConfig.FileHandler config) {
@@ -39,4 +42,23 @@ class AccessLogHandler {
         logFileHandler.close();
         logFileHandler.shutdown();
     }
+
+    private static class QueueMetric implements LogFileHandler.QueueMetric {
+
+        private final Metric metric;
+
+        QueueMetric(Metric metric) { this.metric = metric; }
+
+        @Override
+        public void queueSize(int size) {
+            metric.set(ContainerMetrics.JDISC_ACCESS_LOG_QUEUE_SIZE.baseName(), size, null);
+        }
+
+        @Override
+        public void entryDropped() {
+            metric.add(ContainerMetrics.JDISC_ACCESS_LOG_DROPPED_ENTRIES.baseName(), 1, null);
+        }
+
+    }
+
 }
@@ -20,13 +20,13 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.GZIPOutputStream;
@@ -42,72 +42,103 @@ class LogFileHandler <LOGTYPE> {
     enum Compression {NONE, GZIP, ZSTD}
 
     private final static Logger logger = Logger.getLogger(LogFileHandler.class.getName());
-    private final BlockingQueue<Operation<LOGTYPE>> logQueue;
-    final LogThread<LOGTYPE> logThread;
 
-    @FunctionalInterface private interface Pollable<T> { Operation<T> poll() throws InterruptedException; }
+    /** The max number of entries written by the log thread before it checks for other operations */
+    private final static int maxBatchSize = 1024;
+
+    /** How long a publishing thread waits before it retries when the queue is full */
+    private final static long fullQueueBackoffNanos = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final LogRingBuffer<LOGTYPE> entries;
+    private final BlockingQueue<Operation> operations = new LinkedBlockingQueue<>();
+    private final boolean dropWhenQueueFull;
+    private final QueueMetric metric;
+    final LogThread<LOGTYPE> logThread;
 
     LogFileHandler(Compression compression, int bufferSize, String filePattern, String rotationTimes, String symlinkName,
                    int queueSize, String threadName, LogWriter<LOGTYPE> logWriter) {
-        this(compression, bufferSize, filePattern, calcTimesMinutes(rotationTimes), symlinkName, queueSize, threadName, logWriter);
+        this(compression, bufferSize, filePattern, rotationTimes, symlinkName, queueSize, false, threadName, logWriter, QueueMetric.none);
     }
 
     LogFileHandler(Compression compression, int bufferSize, String filePattern, long[] rotationTimes, String symlinkName,
                    int queueSize, String threadName, LogWriter<LOGTYPE> logWriter) {
-        this.logQueue = new LinkedBlockingQueue<>(queueSize);
-        this.logThread = new LogThread<>(logWriter, filePattern, compression, bufferSize, rotationTimes, symlinkName, threadName, this::poll);
-        this.logThread.start();
+        this(compression, bufferSize, filePattern, rotationTimes, symlinkName, queueSize, false, threadName, logWriter, QueueMetric.none);
     }
 
-    private Operation<LOGTYPE> poll() throws InterruptedException {
-        return logQueue.poll(100, TimeUnit.MILLISECONDS);
+    LogFileHandler(Compression compression, int bufferSize, String filePattern, String rotationTimes, String symlinkName,
+                   int queueSize, boolean dropWhenQueueFull, String threadName, LogWriter<LOGTYPE> logWriter, QueueMetric metric) {
+        this(compression, bufferSize, filePattern, calcTimesMinutes(rotationTimes), symlinkName, queueSize, dropWhenQueueFull, threadName, logWriter, metric);
+    }
+
+    /**
+     * Creates a log file handler.
+     *
+     * @param queueSize the max number of entries waiting to be written, rounded up to a power of two
+     * @param dropWhenQueueFull whether to drop entries published when the queue is full, rather than
+     *                          to block the publishing thread until there is room
+     * @param metric receives metrics on the queued and dropped entries
+     */
+    LogFileHandler(Compression compression, int bufferSize, String filePattern, long[] rotationTimes, String symlinkName,
+                   int queueSize, boolean dropWhenQueueFull, String threadName, LogWriter<LOGTYPE> logWriter, QueueMetric metric) {
+        this.entries = new LogRingBuffer<>(queueSize);
+        this.dropWhenQueueFull = dropWhenQueueFull;
+        this.metric = metric;
+        this.logThread = new LogThread<>(logWriter, filePattern, compression, bufferSize, rotationTimes, symlinkName, threadName,
+                                         entries, operations, metric);
+        this.logThread.start();
     }
 
     /**
      * Sends logrecord to file, first rotating file if needed.
+     * Entries are queued without locking, and written in batches by the log thread.
      *
      * @param r logrecord to publish
      */
     public void publish(LOGTYPE r) {
-        addOperation(new Operation<>(r));
+        int queued;
+        while ((queued = entries.offer(r)) < 0) {
+            if (dropWhenQueueFull) {
+                metric.entryDropped();
+                return;
+            }
+            LockSupport.unpark(logThread);
+            LockSupport.parkNanos(this, fullQueueBackoffNanos);
+        }
+        if (queued > entries.capacity() / 2) // Don't wait for the log thread to wake up by itself
+            LockSupport.unpark(logThread);
     }
 
     void publishAndWait(LOGTYPE r) {
-        addOperationAndWait(new Operation<>(r));
+        publish(r);
+        addOperationAndWait(new Operation(Operation.Type.write));
     }
 
     public void flush() {
-        addOperationAndWait(new Operation<>(Operation.Type.flush));
+        addOperationAndWait(new Operation(Operation.Type.flush));
     }
 
     /**
      * Force file rotation now, independent of schedule.
      */
     void rotateNow() {
-        addOperationAndWait(new Operation<>(Operation.Type.rotate));
+        addOperationAndWait(new Operation(Operation.Type.rotate));
     }
 
     public void close() {
-        addOperationAndWait(new Operation<>(Operation.Type.close));
+        addOperationAndWait(new Operation(Operation.Type.close));
     }
 
-    private void addOperation(Operation<LOGTYPE> op) {
+    private void addOperationAndWait(Operation op) {
         try {
-            logQueue.put(op);
-        } catch (InterruptedException e) {
-        }
-    }
-
-    private void addOperationAndWait(Operation<LOGTYPE> op) {
-        try {
-            logQueue.put(op);
+            operations.put(op);
+            LockSupport.unpark(logThread);
             op.countDownLatch.await();
         } catch (InterruptedException e) {
         }
     }
 
     /**
-     * Flushes all queued messages, interrupts the log thread in this and
+     * Writes all queued entries, interrupts the log thread in this and
      * waits for it to end before returning
      */
     void shutdown() {
@@ -120,6 +151,19 @@ class LogFileHandler <LOGTYPE> {
         }
     }
 
+    /** Receives metrics about the entries waiting to be written by a log file handler */
+    interface QueueMetric {
+
+        QueueMetric none = new QueueMetric() { };
+
+        /** Called regularly by the log thread with the number of entries waiting to be written */
+        default void queueSize(int size) { }
+
+        /** Called by the publishing thread when an entry is dropped because the queue is full */
+        default void entryDropped() { }
+
+    }
+
     /**
      * Calculate rotation times array, given times in minutes, as "0 60 ..."
      */
@@ -183,7 +227,9 @@ class LogFileHandler <LOGTYPE> {
      * Handle logging and file operations
      */
     static class LogThread<LOGTYPE> extends Thread {
-        private final Pollable<LOGTYPE> operationProvider;
+        private final LogRingBuffer<LOGTYPE> entries;
+        private final BlockingQueue<Operation> operations;
+        private final QueueMetric metric;
         long lastFlush = 0;
         private PageCacheFriendlyFileOutputStream fileOutput = null;
         private long nextRotationTime = 0;
@@ -205,7 +251,9 @@ class LogFileHandler <LOGTYPE> {
                   long[] rotationTimes,
                   String symlinkName,
                   String threadName,
-                  Pollable<LOGTYPE> operationProvider) {
+                  LogRingBuffer<LOGTYPE> entries,
+                  BlockingQueue<Operation> operations,
+                  QueueMetric metric) {
             super(threadName);
             setDaemon(true);
             this.logWriter = logWriter;
@@ -214,7 +262,9 @@ class LogFileHandler <LOGTYPE> {
             this.bufferSize = bufferSize;
             this.rotationTimes = rotationTimes;
             this.symlinkName = (symlinkName != null && !symlinkName.isBlank()) ? symlinkName : null;
-            this.operationProvider = operationProvider;
+            this.entries = entries;
+            this.operations = operations;
+            this.metric = metric;
         }
 
         private static ExecutorService createCompressionTaskExecutor() {
@@ -230,7 +280,8 @@ class LogFileHandler <LOGTYPE> {
         public void run() {
             try {
                 handleLogOperations();
-            } catch (InterruptedException e) {
+                Thread.interrupted(); // Clear the interrupt, which would otherwise close the file channel on the next write
+                entries.drainAll(this::internalPublish); // Write what was queued before shutdown
             } catch (Exception e) {
                 Process.logAndDie("Failed storing log records", e);
             }
@@ -238,10 +289,11 @@ class LogFileHandler <LOGTYPE> {
             internalFlush();
         }
 
-        private void handleLogOperations() throws InterruptedException {
+        private void handleLogOperations() {
             while (!isInterrupted()) {
-                Operation<LOGTYPE> r = operationProvider.poll();
+                Operation r = operations.poll();
                 if (r != null) {
+                    entries.drainAll(this::internalPublish); // Entries published before this operation must be written first
                     if (r.type == Operation.Type.flush) {
                         internalFlush();
                     } else if (r.type == Operation.Type.close) {
@@ -249,13 +301,15 @@ class LogFileHandler <LOGTYPE> {
                     } else if (r.type == Operation.Type.rotate) {
                         internalRotateNow();
                         lastFlush = System.nanoTime();
-                    } else if (r.type == Operation.Type.log) {
-                        internalPublish(r.log.get());
-                        flushIfOld(3, TimeUnit.SECONDS);
                     }
                     r.countDownLatch.countDown();
+                } else if (entries.drain(this::internalPublish, maxBatchSize) > 0) {
+                    metric.queueSize(entries.size());
+                    flushIfOld(3, TimeUnit.SECONDS);
                 } else {
+                    metric.queueSize(0);
                     flushIfOld(100, TimeUnit.MILLISECONDS);
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
                 }
             }
         }
@@ -479,25 +533,16 @@ class LogFileHandler <LOGTYPE> {
 
     }
 
-    private static class Operation<LOGTYPE> {
-        enum Type {log, flush, close, rotate}
+    private static class Operation {
+        /** The type of this, where write only waits for the entries published before it to be written */
+        enum Type {write, flush, close, rotate}
 
         final Type type;
 
-        final Optional<LOGTYPE> log;
         final CountDownLatch countDownLatch = new CountDownLatch(1);
 
         Operation(Type type) {
-            this(type, Optional.empty());
-        }
-
-        Operation(LOGTYPE log) {
-            this(Type.log, Optional.of(log));
-        }
-
-        private Operation(Type type, Optional<LOGTYPE> log) {
             this.type = type;
-            this.log = log;
         }
     }
 
@@ -0,0 +1,93 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, lock-free queue of log entries with many producers and a single consumer.
+ * Producers claim a slot by advancing the tail, and then publish the entry in it.
+ * The consumer takes entries in claim order, and stops at the first slot which is claimed but not yet published.
+ *
+ * @author bjorncs
+ */
+class LogRingBuffer<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+
+    /** The next position to claim by producers */
+    private final AtomicLong tail = new AtomicLong(0);
+
+    /** The next position to take by the consumer. Only written by the consumer */
+    private final AtomicLong head = new AtomicLong(0);
+
+    /** Creates a buffer with room for at least the given number of entries */
+    LogRingBuffer(int minCapacity) {
+        if (minCapacity < 1) throw new IllegalArgumentException("Capacity must be positive, but was " + minCapacity);
+        int capacity = Integer.highestOneBit(minCapacity);
+        if (capacity < minCapacity) capacity <<= 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Adds an entry to this, if there is room.
+     *
+     * @return the number of entries in this after adding this entry, or -1 if it was not added because this is full
+     */
+    int offer(T entry) {
+        while (true) {
+            long position = tail.get();
+            long size = position - head.get();
+            if (size >= slots.length()) return -1;
+            if (tail.compareAndSet(position, position + 1)) {
+                slots.lazySet((int) position & mask, entry);
+                return (int) size + 1;
+            }
+        }
+    }
+
+    /**
+     * Passes up to the given number of entries to the given consumer, in the order they were added.
+     * Must only be called by the single consumer thread.
+     *
+     * @return the number of entries passed
+     */
+    int drain(Consumer<T> consumer, int maxEntries) {
+        long position = head.get();
+        int drained = 0;
+        while (drained < maxEntries) {
+            int index = (int) position & mask;
+            T entry = slots.get(index);
+            if (entry == null) break; // empty, or the producer of the next slot has not yet published
+            slots.lazySet(index, null);
+            head.lazySet(++position);
+            drained++;
+            consumer.accept(entry);
+        }
+        return drained;
+    }
+
+    /**
+     * Passes all entries added before this is called to the given consumer, waiting for those
+     * which are claimed by producers but not yet published.
+     * Must only be called by the single consumer thread.
+     */
+    void drainAll(Consumer<T> consumer) {
+        long end = tail.get();
+        while (head.get() < end) {
+            if (drain(consumer, (int) Math.min(Integer.MAX_VALUE, end - head.get())) == 0)
+                Thread.onSpinWait(); // a producer is between claiming and publishing
+        }
+    }
+
+    /** Returns the number of entries claimed but not yet taken */
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    int capacity() { return slots.length(); }
+
+}
@@ -2,14 +2,17 @@
 package com.yahoo.metrics.simple.jdisc;
 
 import java.io.PrintStream;
+import java.util.Optional;
 import java.util.logging.Logger;
 
+import ai.vespa.metrics.ContainerMetrics;
 import com.yahoo.container.jdisc.MetricConsumerFactory;
 import com.yahoo.container.jdisc.state.MetricSnapshot;
 import com.yahoo.container.jdisc.state.SnapshotProvider;
 import com.yahoo.jdisc.application.MetricConsumer;
 import com.yahoo.metrics.simple.Bucket;
 import com.yahoo.metrics.simple.MetricReceiver;
+import com.yahoo.metrics.simple.MetricSettings;
 
 /**
  * A factory for all the JDisc API classes.
@@ -25,6 +28,9 @@ public class JdiscMetricsFactory implements MetricConsumerFactory, SnapshotProvi
     public JdiscMetricsFactory(MetricReceiver receiver) {
         this.metricReceiver = receiver;
         this.metricInstance = new SimpleMetricConsumer(receiver);
+        // Reported through the jdisc Metric API by the thread pools, which have no receiver to declare it with
+        receiver.declareGauge(ContainerMetrics.JDISC_THREAD_POOL_WORK_QUEUE_WAIT_TIME.baseName(), Optional.empty(),
+                              new MetricSettings.Builder().histogram(true).build());
     }
 
     @Override
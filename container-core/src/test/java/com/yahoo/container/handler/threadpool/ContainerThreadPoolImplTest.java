@@ -10,11 +10,17 @@ import com.yahoo.jdisc.Metric;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 /**
@@ -116,6 +122,75 @@ public class ContainerThreadPoolImplTest {
         assertEquals(CPUS * 4 * 100, executor.getQueue().remainingCapacity());
     }
 
+    @Test
+    void testWorkStealingExecutor() throws InterruptedException {
+        assertExecutorLimitsConcurrencyAndQueue(ContainerThreadpoolConfig.Executor.Enum.WORK_STEALING);
+    }
+
+    @Test
+    void testVirtualThreadExecutor() throws InterruptedException {
+        assertExecutorLimitsConcurrencyAndQueue(ContainerThreadpoolConfig.Executor.Enum.VIRTUAL_THREADS);
+    }
+
+    @Test
+    void testWorkQueueWaitTimeIsNotMeasuredWhenDisabled() throws InterruptedException {
+        MetricMock metrics = new MetricMock();
+        ContainerThreadpoolConfig config = new ContainerThreadpoolConfig(new ContainerThreadpoolConfig.Builder()
+                .maxThreads(2)
+                .queueSize(10)
+                .workQueueWaitTimeSampleInterval(0));
+        ContainerThreadPool threadPool = new ContainerThreadpoolImpl(config, metrics, new MockProcessTerminator(), CPUS);
+        CountDownLatch completed = new CountDownLatch(10);
+        for (int i = 0; i < 10; i++)
+            threadPool.executor().execute(completed::countDown);
+        assertTrue(completed.await(60, TimeUnit.SECONDS));
+        assertNull(metrics.innvocations().get(ContainerMetrics.JDISC_THREAD_POOL_WORK_QUEUE_WAIT_TIME.baseName()));
+        threadPool.close();
+    }
+
+    private void assertExecutorLimitsConcurrencyAndQueue(ContainerThreadpoolConfig.Executor.Enum executorType) throws InterruptedException {
+        MetricMock metrics = new MetricMock();
+        ContainerThreadpoolConfig config = new ContainerThreadpoolConfig(new ContainerThreadpoolConfig.Builder()
+                .maxThreads(2)
+                .minThreads(2)
+                .queueSize(3)
+                .workQueueWaitTimeSampleInterval(1)
+                .executor(executorType));
+        ContainerThreadPool threadPool = new ContainerThreadpoolImpl(config, metrics, new MockProcessTerminator(), CPUS);
+        Executor executor = threadPool.executor();
+        assertEquals(2L, metrics.innvocations().get(ContainerMetrics.JDISC_THREAD_POOL_MAX_ALLOWED_SIZE.baseName()).val);
+        assertEquals(3L, metrics.innvocations().get(ContainerMetrics.JDISC_THREAD_POOL_WORK_QUEUE_CAPACITY.baseName()).val);
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(5);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Runnable task = () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            running.decrementAndGet();
+            completed.countDown();
+        };
+        for (int i = 0; i < 5; i++)
+            executor.execute(task);
+        assertRejected(threadPool, task);
+        assertEquals(1L, metrics.innvocations().get(ContainerMetrics.JDISC_THREAD_POOL_REJECTED_TASKS.baseName()).val);
+        while (running.get() < 2)
+            Thread.sleep(1);
+
+        release.countDown();
+        assertTrue(completed.await(60, TimeUnit.SECONDS));
+        assertEquals(2, maxRunning.get());
+        assertNotNull(metrics.innvocations().get(ContainerMetrics.JDISC_THREAD_POOL_WORK_QUEUE_WAIT_TIME.baseName()));
+
+        threadPool.close();
+        assertRejected(threadPool, task);
+    }
+
     private class FlipIt implements Runnable {
         public final Receiver<Boolean> didItRun = new Receiver<>();
 
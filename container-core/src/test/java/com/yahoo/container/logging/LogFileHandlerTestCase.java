@@ -17,7 +17,11 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.logging.Formatter;
 import java.util.logging.Level;
@@ -206,6 +210,71 @@ public class LogFileHandlerTestCase {
         h.shutdown();
     }
 
+    @Test
+    @Timeout(300_000)
+    void writes_all_entries_published_concurrently() throws IOException, InterruptedException {
+        File root = newFolder(temporaryFolder, "concurrentlogging");
+        LogFileHandler<String> h = new LogFileHandler<>(
+                Compression.NONE, BUFFER_SIZE, root.getAbsolutePath() + "/logfilehandlertest.%Y%m%d%H%M%S%s", new long[]{0}, null, 64, "thread-name", new StringLogWriter());
+        int threads = 8;
+        int entriesPerThread = 10000;
+        List<Thread> publishers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String prefix = "thread-" + t + "-";
+            publishers.add(new Thread(() -> {
+                for (int i = 0; i < entriesPerThread; i++)
+                    h.publish(prefix + i);
+            }));
+        }
+        publishers.forEach(Thread::start);
+        for (Thread publisher : publishers)
+            publisher.join();
+        h.flush();
+
+        List<String> lines = Files.readAllLines(Paths.get(h.getFileName()));
+        assertEquals(threads * entriesPerThread, lines.size());
+        for (int t = 0; t < threads; t++) { // Entries from each thread are written in the order they were published
+            String prefix = "thread-" + t + "-";
+            List<String> fromThread = lines.stream().filter(line -> line.startsWith(prefix)).toList();
+            for (int i = 0; i < entriesPerThread; i++)
+                assertEquals(prefix + i, fromThread.get(i));
+        }
+        h.shutdown();
+    }
+
+    @Test
+    @Timeout(300_000)
+    void drops_entries_when_queue_is_full_if_configured() throws IOException, InterruptedException {
+        File root = newFolder(temporaryFolder, "dropentries");
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        LogWriter<String> blockingWriter = (record, outputStream) -> {
+            writing.countDown();
+            try {
+                proceed.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            new StringLogWriter().write(record, outputStream);
+        };
+        AtomicInteger dropped = new AtomicInteger();
+        LogFileHandler<String> h = new LogFileHandler<>(
+                Compression.NONE, BUFFER_SIZE, root.getAbsolutePath() + "/logfilehandlertest.%Y%m%d%H%M%S%s", new long[]{0}, null,
+                4, true, "thread-name", blockingWriter, new LogFileHandler.QueueMetric() {
+                    @Override public void entryDropped() { dropped.incrementAndGet(); }
+                });
+        h.publish("first");
+        writing.await(); // The log thread is now busy writing the first entry
+        for (int i = 0; i < 7; i++)
+            h.publish("entry-" + i);
+        assertEquals(3, dropped.get());
+
+        proceed.countDown();
+        h.flush();
+        assertEquals(List.of("first", "entry-0", "entry-1", "entry-2", "entry-3"), Files.readAllLines(Paths.get(h.getFileName())));
+        h.shutdown();
+    }
+
     static class StringLogWriter implements LogWriter<String> {
 
         @Override
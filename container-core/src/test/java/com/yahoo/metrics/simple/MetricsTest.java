@@ -8,6 +8,7 @@ import java.util.Collection;
 import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
 
+import ai.vespa.metrics.ContainerMetrics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -57,4 +58,10 @@ public class MetricsTest extends UnitTestSetup {
         assertTrue(r.getMetricDefinition(metricName).isHistogram());
     }
 
+    @Test
+    final void threadPoolWaitTimeHasHistogram() {
+        MetricSettings settings = metricManager.get().getMetricDefinition(ContainerMetrics.JDISC_THREAD_POOL_WORK_QUEUE_WAIT_TIME.baseName());
+        assertTrue(settings.isHistogram());
+    }
+
 }
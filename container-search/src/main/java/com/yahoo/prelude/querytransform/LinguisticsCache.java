@@ -0,0 +1,69 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.querytransform;
+
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.jdisc.Metric;
+import com.yahoo.language.CachingLinguistics;
+import com.yahoo.language.Linguistics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The query time cache of a linguistics component used by a searcher,
+ * which reports the cache hits and misses since the last report as metrics.
+ * <p>
+ * Each searcher has its own cache of a fixed size, unless the linguistics it is given is already a
+ * {@link CachingLinguistics}, which is then used as-is, and may be shared between searchers.
+ *
+ * @author bratseth
+ */
+class LinguisticsCache {
+
+    /** The max number of entries cached by each searcher */
+    static final int maxEntries = 10000;
+
+    private static final String HITS = ContainerMetrics.LINGUISTICS_CACHE_HITS.baseName();
+    private static final String MISSES = ContainerMetrics.LINGUISTICS_CACHE_MISSES.baseName();
+
+    private final CachingLinguistics linguistics;
+    private final Linguistics.Component component;
+    private final Metric metric;
+    private final Metric.Context context;
+
+    private final AtomicLong reportedHits = new AtomicLong();
+    private final AtomicLong reportedMisses = new AtomicLong();
+
+    /**
+     * Creates a cache of the given component of a linguistics instance
+     *
+     * @param linguistics the linguistics to cache results of, used as-is if it is already caching
+     * @param component the component whose cache to report metrics for
+     * @param metric the metric to report to, or null to not report metrics
+     */
+    LinguisticsCache(Linguistics linguistics, Linguistics.Component component, Metric metric) {
+        this.linguistics = linguistics instanceof CachingLinguistics caching ? caching
+                                                                             : new CachingLinguistics(linguistics, maxEntries);
+        this.component = component;
+        this.metric = metric;
+        this.context = metric == null ? null : metric.createContext(Map.of("component", component.name().toLowerCase()));
+    }
+
+    /** Returns the caching linguistics to use */
+    Linguistics linguistics() { return linguistics; }
+
+    /** Reports the lookups in this cache since the last call to this as metrics */
+    void reportMetrics() {
+        if (metric == null) return;
+        var stats = linguistics.cacheStats(component);
+        add(HITS, stats.hitCount(), reportedHits);
+        add(MISSES, stats.missCount(), reportedMisses);
+    }
+
+    private void add(String name, long count, AtomicLong reported) {
+        long previous = reported.getAndAccumulate(count, Math::max);
+        if (count > previous)
+            metric.add(name, count - previous, context);
+    }
+
+}
@@ -6,6 +6,7 @@ import java.util.*;
 import com.yahoo.component.annotation.Inject;
 import com.yahoo.component.chain.dependencies.After;
 import com.yahoo.component.chain.dependencies.Provides;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.prelude.Index;
 import com.yahoo.prelude.IndexFacts;
 import com.yahoo.prelude.IndexFacts.Session;
@@ -31,11 +32,17 @@ import static com.yahoo.prelude.querytransform.StemmingSearcher.STEMMING;
 public class NormalizingSearcher extends Searcher {
 
     public static final String ACCENT_REMOVAL = "AccentRemoval";
+    private final LinguisticsCache cache;
     private final Linguistics linguistics;
 
-    @Inject
     public NormalizingSearcher(Linguistics linguistics) {
-        this.linguistics = linguistics;
+        this(linguistics, null);
+    }
+
+    @Inject
+    public NormalizingSearcher(Linguistics linguistics, Metric metric) {
+        this.cache = new LinguisticsCache(linguistics, Linguistics.Component.TRANSFORMER, metric);
+        this.linguistics = cache.linguistics();
     }
 
     protected boolean handles(String command) {
@@ -49,6 +56,7 @@ public class NormalizingSearcher extends Searcher {
     @Override
     public Result search(Query query, Execution execution) {
         normalize(query, execution.context().getIndexFacts().newSession(query));
+        cache.reportMetrics();
         return execution.search(query);
     }
 
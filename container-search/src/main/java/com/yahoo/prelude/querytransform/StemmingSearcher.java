@@ -5,6 +5,7 @@ import com.yahoo.component.annotation.Inject;
 import com.yahoo.component.ComponentId;
 import com.yahoo.component.chain.dependencies.After;
 import com.yahoo.component.chain.dependencies.Provides;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.language.Language;
 import com.yahoo.language.Linguistics;
 import com.yahoo.language.process.StemMode;
@@ -66,16 +67,23 @@ public class StemmingSearcher extends Searcher {
 
     public static final String STEMMING = "Stemming";
     public static final CompoundName DISABLE = CompoundName.from("nostemming");
+    private final LinguisticsCache cache;
     private final Linguistics linguistics;
 
     public StemmingSearcher(Linguistics linguistics) {
-        this.linguistics = linguistics;
+        this.cache = new LinguisticsCache(linguistics, Linguistics.Component.STEMMER, null);
+        this.linguistics = cache.linguistics();
     }
 
-    @Inject
     public StemmingSearcher(ComponentId id, Linguistics linguistics) {
+        this(id, linguistics, null);
+    }
+
+    @Inject
+    public StemmingSearcher(ComponentId id, Linguistics linguistics, Metric metric) {
         super(id);
-        this.linguistics = linguistics;
+        this.cache = new LinguisticsCache(linguistics, Linguistics.Component.STEMMER, metric);
+        this.linguistics = cache.linguistics();
     }
 
     @Override
@@ -102,6 +110,7 @@ public class StemmingSearcher extends Searcher {
                 }
             }
         }
+        cache.reportMetrics();
         return execution.search(query);
     }
 
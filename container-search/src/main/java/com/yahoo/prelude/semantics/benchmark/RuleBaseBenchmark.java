@@ -8,6 +8,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
 
 import com.yahoo.language.simple.SimpleLinguistics;
 import com.yahoo.search.Query;
@@ -35,6 +37,57 @@ public class RuleBaseBenchmark {
         while((line=reader.readLine())!=null){
             queries.add(line);
         }
+        long elapsed = run(ruleBase, queries, iterations);
+        System.out.print("BENCHMARK: rulebase=" + ruleBaseFile +
+                "\n           fsa=" + fsaFile +
+                "\n           queries=" + queryFile +
+                "\n           iterations=" + iterations +
+                "\n           elapsed=" + elapsed + "ms" +
+                "\n           queries/s=" + queriesPerSecond(queries.size() * (long)iterations, elapsed) + "\n");
+    }
+
+    /**
+     * Benchmarks a generated rule base of the given size, where each rule rewrites a term or a phrase,
+     * and some use a named condition, over generated queries of terms from the same vocabulary.
+     */
+    public void benchmarkGenerated(int ruleCount, int queryCount, int iterations) throws IOException, ParseException {
+        Random random = new Random(0);
+        int vocabularySize = ruleCount * 4;
+        StringBuilder rules = new StringBuilder();
+        rules.append("[brand] :- ");
+        for (int i = 0; i < 100; i++)
+            rules.append(i == 0 ? "" : ",").append("brand").append(i);
+        rules.append(";\n");
+        for (int i = 0; i < ruleCount; i++) {
+            switch (i % 3) {
+                case 0 -> rules.append("term").append(random.nextInt(vocabularySize)).append(" -> replaced").append(i).append(";\n");
+                case 1 -> rules.append("term").append(random.nextInt(vocabularySize))
+                               .append(" term").append(random.nextInt(vocabularySize)).append(" +> added").append(i).append(";\n");
+                case 2 -> rules.append("[brand] term").append(random.nextInt(vocabularySize)).append(" +> brand:[brand];\n");
+            }
+        }
+        RuleBase ruleBase = RuleBase.createFromString("generated", rules.toString(), null, new SimpleLinguistics());
+
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < queryCount; i++) {
+            StringBuilder query = new StringBuilder();
+            for (int j = 0; j < 3 + random.nextInt(5); j++)
+                query.append(j == 0 ? "" : "+").append(random.nextInt(10) == 0 ? "brand" + random.nextInt(100)
+                                                                                : "term" + random.nextInt(vocabularySize));
+            queries.add(query.toString());
+        }
+
+        run(ruleBase, queries, 1); // warmup
+        long elapsed = run(ruleBase, queries, iterations);
+        System.out.print("BENCHMARK: rules=" + ruleCount +
+                "\n           queries=" + queryCount +
+                "\n           iterations=" + iterations +
+                "\n           elapsed=" + elapsed + "ms" +
+                "\n           queries/s=" + queriesPerSecond(queryCount * (long)iterations, elapsed) + "\n");
+    }
+
+    /** Analyzes all the queries the given number of times and returns the elapsed time in milliseconds */
+    private long run(RuleBase ruleBase, List<String> queries, int iterations) {
         Date start = new Date();
         for (int i=0; i<iterations; i++){
             for (Iterator<String> iter = queries.iterator(); iter.hasNext(); ){
@@ -44,23 +97,26 @@ public class RuleBaseBenchmark {
             }
         }
         Date end = new Date();
-        long elapsed = end.getTime() - start.getTime();
-        System.out.print("BENCHMARK: rulebase=" + ruleBaseFile +
-                "\n           fsa=" + fsaFile +
-                "\n           queries=" + queryFile +
-                "\n           iterations=" + iterations +
-                "\n           elapsed=" + elapsed + "ms\n");
+        return end.getTime() - start.getTime();
+    }
+
+    private long queriesPerSecond(long queries, long elapsedMillis) {
+        return queries * 1000 / Math.max(1, elapsedMillis);
     }
 
 
     public static void main(String[] args) {
-        if(args.length<3){
+        if(args.length<3 || (args[0].equals("generate") && args.length<4)){
             System.out.println("USAGE: RuleBaseBenchmark ruleBaseFile queryFile iterations");
+            System.out.println("       RuleBaseBenchmark generate ruleCount queryCount iterations");
             System.exit(1);
         }
 
         try {
-            new RuleBaseBenchmark().benchmark(args[0],args[1],Integer.parseInt(args[2]));
+            if (args[0].equals("generate"))
+                new RuleBaseBenchmark().benchmarkGenerated(Integer.parseInt(args[1]),Integer.parseInt(args[2]),Integer.parseInt(args[3]));
+            else
+                new RuleBaseBenchmark().benchmark(args[0],args[1],Integer.parseInt(args[2]));
         }
         catch (Exception e) {
             System.out.println("ERROR: " + collectMessage(e));
@@ -7,11 +7,13 @@ import com.yahoo.prelude.semantics.RuleBase;
 import com.yahoo.prelude.semantics.RuleBaseException;
 import com.yahoo.prelude.semantics.rule.ProductionRule;
 
-import java.util.ListIterator;
+import java.util.BitSet;
+import java.util.List;
 
 /**
  * Evaluates the rules of a rule base. This method is thread safe on analyze calls, but
- * not on modification calls.
+ * not on modification calls. Only the rules which may match the terms of a query are
+ * evaluated for it, as given by a RuleIndex.
  *
  * @author bratseth
  */
@@ -19,10 +21,26 @@ public class RuleEngine {
 
     private final RuleBase rules;
 
+    /** The index of the rules by the terms they require, or null if not built yet */
+    private volatile RuleIndex index = null;
+
     public RuleEngine(RuleBase rules) {
         this.rules=rules;
     }
 
+    /** Prepares this for evaluation. Call when all rules are added and their references are made. */
+    public void initialize() {
+        index = new RuleIndex(rules.rules());
+    }
+
+    /** Returns the rule index, which is rebuilt if rules have been added since it was built */
+    private RuleIndex index() {
+        RuleIndex index = this.index;
+        if (index == null || index.ruleCount() != rules.rules().size())
+            this.index = index = new RuleIndex(rules.rules());
+        return index;
+    }
+
     /**
      * Evaluates a rule base over a query
      *
@@ -32,18 +50,19 @@ public class RuleEngine {
      *         If there is an error, this query is destroyed (unusable)
      */
     public String evaluate(Query query, int traceLevel) {
-        // TODO: This is O(query size*rule base size). We'll eventually need to create indices
-        //       on rules to look up rule candidates per term to make it O(query size) instead
-        //       Probably create indices on the first term like Prolog implementations use to
-
         boolean matchedAnything = false;
         Evaluation evaluation = new Evaluation(query, rules, traceLevel);
         if (traceLevel >= 2)
             evaluation.trace(2,"Evaluating query '" + evaluation.getQuery().getModel().getQueryTree().getRoot() + "':");
-        for (ListIterator<ProductionRule> i = rules.ruleIterator(); i.hasNext(); ) {
+        List<ProductionRule> ruleList = rules.rules();
+        RuleIndex index = index();
+        BitSet candidates = index.candidates(evaluation.items());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
             evaluation.reset();
-            ProductionRule rule = i.next();
+            ProductionRule rule = ruleList.get(i);
             boolean matched = matchRuleAtAllStartPoints(evaluation,rule);
+            if (matched) // the query has changed, so later rules may have become candidates
+                candidates = index.candidates(evaluation.items());
             matchedAnything |= matched;
         }
 
@@ -0,0 +1,151 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.semantics.engine;
+
+import com.yahoo.prelude.semantics.rule.AndCondition;
+import com.yahoo.prelude.semantics.rule.ChoiceCondition;
+import com.yahoo.prelude.semantics.rule.ComparisonCondition;
+import com.yahoo.prelude.semantics.rule.CompositeCondition;
+import com.yahoo.prelude.semantics.rule.CompositeItemCondition;
+import com.yahoo.prelude.semantics.rule.Condition;
+import com.yahoo.prelude.semantics.rule.ConditionReference;
+import com.yahoo.prelude.semantics.rule.NamedCondition;
+import com.yahoo.prelude.semantics.rule.ProductionRule;
+import com.yahoo.prelude.semantics.rule.SequenceCondition;
+import com.yahoo.prelude.semantics.rule.SuperCondition;
+import com.yahoo.prelude.semantics.rule.TermCondition;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An index from terms to the rules which can only match queries containing one of those terms,
+ * used to avoid evaluating rules which cannot match a query.
+ * <p>
+ * The terms of a rule are found from its condition: A term condition requires its term,
+ * a sequence requires the terms of any of its conditions (we pick the most selective one),
+ * and a choice requires the terms of any of its alternatives. Rules where this cannot be determined,
+ * e.g. because they use negation, ellipsis, name spaces or automata matches, are always evaluated.
+ * <p>
+ * Terms are stored as processed by the linguistics of the term condition, and the query terms are
+ * processed the same way, exactly as when the conditions are matched.
+ * <p>
+ * Instances are immutable and thread safe.
+ *
+ * @author bratseth
+ */
+class RuleIndex {
+
+    /** The number of rules in the indexed rule list */
+    private final int ruleCount;
+
+    /** The rules which must always be evaluated */
+    private final BitSet unconditionalRules;
+
+    /** The indexes of the rules which require each term, in increasing order, by the linguistics processing the term */
+    private final Map<RuleBaseLinguistics, Map<String, int[]>> rulesByTerm;
+
+    RuleIndex(List<ProductionRule> rules) {
+        ruleCount = rules.size();
+        unconditionalRules = new BitSet(rules.size());
+        Map<RuleBaseLinguistics, Map<String, List<Integer>>> index = new IdentityHashMap<>();
+        for (int i = 0; i < rules.size(); i++) {
+            Condition condition = rules.get(i).getCondition();
+            Set<Term> terms = condition == null ? null : requiredTerms(condition, new HashSet<>());
+            if (terms == null) {
+                unconditionalRules.set(i);
+                continue;
+            }
+            for (Term term : terms)
+                index.computeIfAbsent(term.linguistics(), __ -> new HashMap<>())
+                     .computeIfAbsent(term.term(), __ -> new ArrayList<>())
+                     .add(i);
+        }
+
+        rulesByTerm = new IdentityHashMap<>();
+        for (var termsByLinguistics : index.entrySet()) {
+            Map<String, int[]> rulesByTermOfLinguistics = new HashMap<>();
+            for (var rulesOfTerm : termsByLinguistics.getValue().entrySet())
+                rulesByTermOfLinguistics.put(rulesOfTerm.getKey(),
+                                             rulesOfTerm.getValue().stream().mapToInt(Integer::intValue).distinct().toArray());
+            rulesByTerm.put(termsByLinguistics.getKey(), rulesByTermOfLinguistics);
+        }
+    }
+
+    /** Returns the number of rules in the rule list this indexes */
+    int ruleCount() { return ruleCount; }
+
+    /** Returns the indexes of the rules which may match a query having the given items */
+    BitSet candidates(List<FlattenedItem> items) {
+        BitSet candidates = (BitSet) unconditionalRules.clone();
+        for (var rulesByTermOfLinguistics : rulesByTerm.entrySet()) {
+            RuleBaseLinguistics linguistics = rulesByTermOfLinguistics.getKey();
+            for (FlattenedItem item : items) {
+                int[] rules = rulesByTermOfLinguistics.getValue().get(linguistics.process(item.getItem().stringValue()));
+                if (rules == null) continue;
+                for (int rule : rules)
+                    candidates.set(rule);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns a set of terms of which at least one must be present in the query for this condition to match,
+     * or null if there is no such set.
+     */
+    private static Set<Term> requiredTerms(Condition condition, Set<NamedCondition> visitedConditions) {
+        if (condition.getNameSpace() != null) return null; // matches something else than the query terms
+
+        if (condition instanceof TermCondition termCondition)
+            return Set.of(new Term(termCondition.linguistics(), termCondition.term()));
+
+        if (condition instanceof SequenceCondition || condition instanceof AndCondition ||
+            condition instanceof ComparisonCondition || condition instanceof CompositeItemCondition) {
+            // All subconditions must match, so the terms of any one of them are required
+            Set<Term> mostSelective = null;
+            for (Condition subCondition : ((CompositeCondition) condition).conditions()) {
+                Set<Term> terms = requiredTerms(subCondition, visitedConditions);
+                if (terms != null && (mostSelective == null || terms.size() < mostSelective.size()))
+                    mostSelective = terms;
+            }
+            return mostSelective;
+        }
+
+        if (condition instanceof ChoiceCondition choice) {
+            // Any subcondition may match, so one of the terms of each of them is required
+            Set<Term> terms = new HashSet<>();
+            for (Condition subCondition : choice.conditions()) {
+                Set<Term> subConditionTerms = requiredTerms(subCondition, visitedConditions);
+                if (subConditionTerms == null) return null;
+                terms.addAll(subConditionTerms);
+            }
+            return terms.isEmpty() ? null : terms;
+        }
+
+        if (condition instanceof ConditionReference reference) {
+            NamedCondition namedCondition = reference.getNamedCondition();
+            if (namedCondition == null) return null; // an automata match, or not initialized
+            if ( ! visitedConditions.add(namedCondition)) return null; // recursive
+            try {
+                return requiredTerms(namedCondition.getCondition(), visitedConditions);
+            }
+            finally {
+                visitedConditions.remove(namedCondition);
+            }
+        }
+
+        if (condition instanceof SuperCondition superCondition && superCondition.getCondition() != null)
+            return requiredTerms(superCondition.getCondition(), visitedConditions);
+
+        return null; // negation, ellipsis, literals: Not determined by the query terms
+    }
+
+    private record Term(RuleBaseLinguistics linguistics, String term) {}
+
+}
@@ -5,28 +5,101 @@ import com.google.common.collect.ImmutableMap;
 import com.yahoo.processing.request.CompoundName;
 import com.yahoo.search.query.profile.DimensionBinding;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A map which may return different values depending on the values given in a context
  * supplied with the key on all operations.
  * <p>
  * Dimensional maps are immutable and created through a DimensionalMap.Builder
+ * <p>
+ * Lookups are done in a flat map containing the values of all keys for the set of variant bindings
+ * matched by the context. These are created on first use of each such set, up to a limit on the total number
+ * of values flattened, such that a lookup is normally a single hash lookup.
  *
  * @author bratseth
  */
 public class DimensionalMap<VALUE> {
 
+    /** The default max number of values, summed over all flat maps, to create in a map */
+    static final int defaultMaxFlattenedValues = 100_000;
+
     private final Map<CompoundName, DimensionalValue<VALUE>> values;
 
-    private DimensionalMap(Map<CompoundName, DimensionalValue<VALUE>> values) {
+    /** The dimensions any value in this depends on */
+    private final String[] dimensions;
+
+    /**
+     * The bindings which are matched by each value of each dimension, by dimension index:
+     * Those having that value, and those not binding the dimension.
+     */
+    private final List<Map<String, BitSet>> bindingsMatchingValue;
+
+    /** The bindings which are matched when a dimension has no value, or a value no binding has, by dimension index */
+    private final List<BitSet> bindingsNotBinding;
+
+    /** The values of all keys for sets of matched bindings, as indexes into the bindings of this */
+    private final Map<BitSet, Map<CompoundName, VALUE>> flattened = new ConcurrentHashMap<>();
+
+    private final int maxFlattenedValues;
+
+    /** The number of values in, or reserved for, the flat maps of this */
+    private final AtomicInteger flattenedValues = new AtomicInteger();
+
+    /** The last flat map used, to avoid computing the matched bindings in the common case of repeated lookups in the same context */
+    private volatile Flattened<VALUE> lastFlattened = null;
+
+    private DimensionalMap(Map<CompoundName, DimensionalValue<VALUE>> values, int maxFlattenedValues) {
         this.values = ImmutableMap.copyOf(values);
+        this.maxFlattenedValues = maxFlattenedValues;
+
+        Set<Binding> bindingSet = new HashSet<>();
+        for (DimensionalValue<VALUE> value : values.values())
+            value.addBindingsTo(bindingSet);
+        List<Binding> bindings = new ArrayList<>(bindingSet);
+        Set<String> dimensions = new TreeSet<>();
+        for (Binding binding : bindings)
+            dimensions.addAll(Arrays.asList(binding.dimensions()));
+        this.dimensions = dimensions.toArray(new String[0]);
+
+        this.bindingsMatchingValue = new ArrayList<>(this.dimensions.length);
+        this.bindingsNotBinding = new ArrayList<>(this.dimensions.length);
+        for (String dimension : this.dimensions) {
+            BitSet notBinding = new BitSet(bindings.size());
+            Map<String, BitSet> matchingValue = new HashMap<>();
+            for (int i = 0; i < bindings.size(); i++) {
+                String value = valueOf(dimension, bindings.get(i));
+                if (value == null)
+                    notBinding.set(i);
+                else
+                    matchingValue.computeIfAbsent(value, __ -> new BitSet(bindings.size())).set(i);
+            }
+            for (BitSet matching : matchingValue.values())
+                matching.or(notBinding);
+            bindingsMatchingValue.add(matchingValue);
+            bindingsNotBinding.add(notBinding);
+        }
     }
 
     /** Returns the value for this key matching a context, or null if none */
     public VALUE get(CompoundName key, Map<String, String> context) {
+        if (context == null)
+            context = Map.of();
+        Map<CompoundName, VALUE> flatValues = flatValues(context);
+        if (flatValues != null)
+            return flatValues.get(key);
+
         DimensionalValue<VALUE> variants = values.get(key);
         if (variants == null) return null;
         return variants.get(context);
@@ -42,6 +115,91 @@ public class DimensionalMap<VALUE> {
         return values.isEmpty();
     }
 
+    /** Returns the number of flat maps created in this */
+    int flattenedSize() { return flattened.size(); }
+
+    /** Returns the values of all keys in the given context, or null if too many values are already flattened */
+    private Map<CompoundName, VALUE> flatValues(Map<String, String> context) {
+        Flattened<VALUE> last = lastFlattened;
+        if (last != null && last.matches(dimensions, context))
+            return last.values;
+
+        BitSet matchedBindings = matchedBindings(context);
+        Map<CompoundName, VALUE> flatValues = flattened.get(matchedBindings);
+        if (flatValues == null) {
+            if (flattenedValues.addAndGet(values.size()) > maxFlattenedValues) {
+                flattenedValues.addAndGet(-values.size());
+                return null;
+            }
+            Map<CompoundName, VALUE> created = flatten(context);
+            flatValues = flattened.putIfAbsent(matchedBindings, created);
+            if (flatValues == null)
+                flatValues = created;
+            else // flattened concurrently by another thread
+                flattenedValues.addAndGet(-values.size());
+        }
+        lastFlattened = new Flattened<>(dimensionValues(context), flatValues);
+        return flatValues;
+    }
+
+    /** Returns the bindings of this which are matched by the given context */
+    private BitSet matchedBindings(Map<String, String> context) {
+        BitSet matched = null;
+        for (int i = 0; i < dimensions.length; i++) {
+            String value = context.get(dimensions[i]);
+            BitSet matchedByValue = value == null ? null : bindingsMatchingValue.get(i).get(value);
+            if (matchedByValue == null)
+                matchedByValue = bindingsNotBinding.get(i);
+            if (matched == null)
+                matched = (BitSet)matchedByValue.clone();
+            else
+                matched.and(matchedByValue);
+        }
+        return matched == null ? new BitSet() : matched;
+    }
+
+    private Map<CompoundName, VALUE> flatten(Map<String, String> context) {
+        Map<CompoundName, VALUE> flatValues = new HashMap<>();
+        for (Map.Entry<CompoundName, DimensionalValue<VALUE>> entry : values.entrySet()) {
+            VALUE value = entry.getValue().get(context);
+            if (value != null)
+                flatValues.put(entry.getKey(), value);
+        }
+        return flatValues; // never modified after this
+    }
+
+    private String[] dimensionValues(Map<String, String> context) {
+        String[] values = new String[dimensions.length];
+        for (int i = 0; i < dimensions.length; i++)
+            values[i] = context.get(dimensions[i]);
+        return values;
+    }
+
+    private static String valueOf(String dimension, Binding binding) {
+        for (int i = 0; i < binding.dimensions().length; i++) {
+            if (binding.dimensions()[i].equals(dimension))
+                return binding.dimensionValues()[i];
+        }
+        return null;
+    }
+
+    /**
+     * A flat map and the values of the dimensions of the context it was last looked up for.
+     * Bindings never have null values, so a dimension which is null in the context matches the same
+     * bindings whether the context contains it or not, just as when matching the bindings of a DimensionalValue.
+     */
+    private record Flattened<VALUE>(String[] dimensionValues, Map<CompoundName, VALUE> values) {
+
+        /** Returns whether the given context has the dimension values of this */
+        boolean matches(String[] dimensions, Map<String, String> context) {
+            for (int i = 0; i < dimensions.length; i++) {
+                if ( ! Objects.equals(dimensionValues[i], context.get(dimensions[i]))) return false;
+            }
+            return true;
+        }
+
+    }
+
     public static class Builder<VALUE> {
 
         private final Map<CompoundName, DimensionalValue.Builder<VALUE>> entries = new HashMap<>();
@@ -52,11 +210,15 @@ public class DimensionalMap<VALUE> {
         }
 
         public DimensionalMap<VALUE> build() {
+            return build(defaultMaxFlattenedValues);
+        }
+
+        DimensionalMap<VALUE> build(int maxFlattenedValues) {
             Map<CompoundName, DimensionalValue<VALUE>> map = new HashMap<>();
             for (Map.Entry<CompoundName, DimensionalValue.Builder<VALUE>> entry : entries.entrySet()) {
                 map.put(entry.getKey(), entry.getValue().build(entries));
             }
-            return new DimensionalMap<>(map);
+            return new DimensionalMap<>(map, maxFlattenedValues);
         }
 
     }
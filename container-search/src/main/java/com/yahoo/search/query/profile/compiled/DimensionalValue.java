@@ -57,6 +57,11 @@ public class DimensionalValue<VALUE> {
 
     public boolean isEmpty() { return indexedVariants.isEmpty(); }
 
+    /** Adds the bindings of the variants of this value to the given set */
+    void addBindingsTo(Set<Binding> bindings) {
+        bindings.addAll(indexedVariants.keySet());
+    }
+
     @Override
     public String toString() {
         return indexedVariants.toString();
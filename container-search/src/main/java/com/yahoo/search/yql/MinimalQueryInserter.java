@@ -1,8 +1,10 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.yql;
 
+import ai.vespa.metrics.ContainerMetrics;
 import com.yahoo.api.annotations.Beta;
 import com.yahoo.component.annotation.Inject;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.language.Linguistics;
 import com.yahoo.language.simple.SimpleLinguistics;
 import com.yahoo.processing.IllegalInputException;
@@ -43,14 +45,23 @@ public class MinimalQueryInserter extends Searcher {
 
     private static final CompoundName MAX_HITS = CompoundName.from("maxHits");
     private static final CompoundName MAX_OFFSET = CompoundName.from("maxOffset");
+    private static final String PROGRAM_CACHE_HITS = ContainerMetrics.YQL_PROGRAM_CACHE_HITS.baseName();
+    private static final String PROGRAM_CACHE_MISSES = ContainerMetrics.YQL_PROGRAM_CACHE_MISSES.baseName();
     private static final Logger log = Logger.getLogger(MinimalQueryInserter.class.getName());
 
+    private final Metric metric;
+
     @Inject
-    public MinimalQueryInserter(Linguistics linguistics) {
+    public MinimalQueryInserter(Linguistics linguistics, Metric metric) {
+        this.metric = metric;
         // Warmup is needed to avoid a large 400ms init cost during first execution of yql code.
         warmup(linguistics);
     }
 
+    public MinimalQueryInserter(Linguistics linguistics) {
+        this(linguistics, null);
+    }
+
     public MinimalQueryInserter() {
         this(new SimpleLinguistics());
     }
@@ -61,7 +72,7 @@ public class MinimalQueryInserter extends Searcher {
 
     private static boolean warmup(Linguistics linguistics) {
         Query query = new Query("search/?yql=select%20*%20from%20sources%20where%20title%20contains%20'xyz'");
-        Result result = insertQuery(query, new ParserEnvironment().setLinguistics(linguistics));
+        Result result = insertQuery(query, new ParserEnvironment().setLinguistics(linguistics), null);
         if (result != null) {
             log.warning("Warmup code trigger an error. Error = " + result);
             return false;
@@ -77,7 +88,7 @@ public class MinimalQueryInserter extends Searcher {
     public Result search(Query query, Execution execution) {
         try {
             if (query.properties().get(YQL) == null) return execution.search(query);
-            Result result = insertQuery(query, ParserEnvironment.fromExecutionContext(execution.context()));
+            Result result = insertQuery(query, ParserEnvironment.fromExecutionContext(execution.context()), metric);
             return (result == null) ? execution.search(query) : result;
         }
         catch (IllegalArgumentException e) {
@@ -85,7 +96,7 @@ public class MinimalQueryInserter extends Searcher {
         }
     }
 
-    private static Result insertQuery(Query query, ParserEnvironment env) {
+    private static Result insertQuery(Query query, ParserEnvironment env, Metric metric) {
         YqlParser parser = (YqlParser) ParserFactory.newInstance(Query.Type.YQL, env);
         parser.setQueryParser(false);
         parser.setUserQuery(query);
@@ -93,6 +104,8 @@ public class MinimalQueryInserter extends Searcher {
         try {
             Parsable parsable = Parsable.fromQueryModel(query.getModel()).setQuery(query.properties().getString(YQL));
             newTree = parser.parse(parsable);
+            if (metric != null)
+                metric.add(parser.programWasCached() ? PROGRAM_CACHE_HITS : PROGRAM_CACHE_MISSES, 1, null);
         } catch (RuntimeException e) {
             return new Result(query, ErrorMessage.createInvalidQueryParameter("Could not create query from YQL: " +
                                                                               Exceptions.toMessageString(e),
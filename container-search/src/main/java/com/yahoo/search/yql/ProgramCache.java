@@ -0,0 +1,50 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.yql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.antlr.v4.runtime.RecognitionException;
+
+import java.io.IOException;
+
+/**
+ * A bounded cache of parsed YQL programs, keyed on the program text.
+ * <p>
+ * Parsed programs are never modified, so they can be shared between queries.
+ * Parameters such as userInput(@name) are references in the parsed program which are resolved
+ * from the query properties when it is converted to a query tree, so queries which only differ
+ * in parameter values share the same cached program.
+ * <p>
+ * This is thread safe.
+ *
+ * @author bratseth
+ */
+class ProgramCache {
+
+    /** Programs longer than this are not cached, to bound the memory used */
+    static final int maxProgramLength = 8 * 1024;
+
+    private final Cache<String, OperatorNode<StatementOperator>> programs;
+
+    ProgramCache(int maxSize) {
+        this.programs = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    /** Returns the parsed form of the given program, from this cache if present */
+    Lookup get(String program) throws IOException, RecognitionException {
+        OperatorNode<StatementOperator> parsed = programs.getIfPresent(program);
+        if (parsed != null) return new Lookup(parsed, true);
+
+        parsed = new ProgramParser().parse("query", program); // failures are not cached
+        if (program.length() <= maxProgramLength)
+            programs.put(program, parsed);
+        return new Lookup(parsed, false);
+    }
+
+    /** Returns the number of programs currently cached */
+    int size() { return (int)programs.size(); }
+
+    /** A parsed program, and whether it was found in the cache */
+    record Lookup(OperatorNode<StatementOperator> program, boolean cached) {}
+
+}
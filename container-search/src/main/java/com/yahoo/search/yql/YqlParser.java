@@ -200,6 +200,9 @@ public class YqlParser implements Parser {
     public static final String MAX_EDIT_DISTANCE = "maxEditDistance";
     public static final String PREFIX_LENGTH = "prefixLength";
 
+    /** Parsed YQL programs shared by all parser instances */
+    private static final ProgramCache programCache = new ProgramCache(1000);
+
 
     private final IndexFacts indexFacts;
     private final List<ConnectedItem> connectedItems = new ArrayList<>();
@@ -219,6 +222,7 @@ public class YqlParser implements Parser {
     private IndexNameExpander indexNameExpander = new IndexNameExpander();
     private Set<String> docTypes;
     private Sorting sorting;
+    private boolean programWasCached;
     private boolean queryParser = true;
     private final Deque<OperatorNode<?>> annotationStack = new ArrayDeque<>();
     private final ParserEnvironment environment;
@@ -271,6 +275,7 @@ public class YqlParser implements Parser {
         currentlyParsing = query;
         docTypes = null;
         sorting = null;
+        programWasCached = false;
         // queryParser set prior to calling this
         return buildTree(parseYqlProgram());
     }
@@ -879,7 +884,9 @@ public class YqlParser implements Parser {
     private OperatorNode<?> parseYqlProgram() {
         OperatorNode<?> ast;
         try {
-            ast = new ProgramParser().parse("query", currentlyParsing.getQuery());
+            ProgramCache.Lookup lookup = programCache.get(currentlyParsing.getQuery());
+            ast = lookup.program();
+            programWasCached = lookup.cached();
         } catch (Exception e) {
             throw new IllegalInputException(e);
         }
@@ -1677,6 +1684,13 @@ public class YqlParser implements Parser {
     @Beta
     public List<VespaGroupingStep> getGroupingSteps() { return groupingSteps; }
 
+    /** Returns whether the YQL program of the latest parsed query was found already parsed in the program cache */
+    @Beta
+    public boolean programWasCached() { return programWasCached; }
+
+    /** Returns the cache of parsed programs shared by all parsers */
+    static ProgramCache programCache() { return programCache; }
+
     /**
      * Give the offset expected from the latest parsed query if anything is
      * explicitly specified.
@@ -209,7 +209,7 @@ public class StreamingSearcher extends VespaBackEndSearcher {
 
         VisitorStatistics stats = visitor.getStatistics();
         result.setTotalHitCount(visitor.getTotalHitCount());
-        result.setCoverage(new Coverage(stats.getDocumentsVisited(), stats.getDocumentsVisited(), 1, 1));
+        result.setCoverage(createCoverage(stats.getDocumentsVisited(), visitor.getCoverage()));
         query.trace(visitor.getStatistics().toString(), false, 2);
         query.getContext(true).setProperty(STREAMING_STATISTICS, stats);
 
@@ -272,6 +272,19 @@ public class StreamingSearcher extends VespaBackEndSearcher {
         return result;
     }
 
+    /**
+     * Returns the coverage of a result having visited the given number of documents,
+     * when visiting covered the given percentage of the buckets to visit.
+     */
+    private static Coverage createCoverage(long documentsVisited, double bucketCoverage) {
+        if (bucketCoverage >= 100) return new Coverage(documentsVisited, documentsVisited, 1, 1);
+
+        // Visiting terminated early: Estimate the number of documents from the part which was visited
+        long estimatedDocuments = bucketCoverage > 0 ? Math.round(documentsVisited * 100 / bucketCoverage) : documentsVisited;
+        return new Coverage(documentsVisited, Math.max(documentsVisited, estimatedDocuments), 1, 1)
+                       .setDegradedReason(Coverage.DEGRADED_BY_MATCH_PHASE);
+    }
+
     private FastHit buildSummaryHit(Query query, SearchResult.Hit hit) {
         FastHit fastHit = new FastHit();
         fastHit.setQuery(query);
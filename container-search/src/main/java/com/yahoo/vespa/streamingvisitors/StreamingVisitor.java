@@ -4,6 +4,7 @@ package com.yahoo.vespa.streamingvisitors;
 import com.yahoo.document.fieldset.AllFields;
 import com.yahoo.document.select.parser.ParseException;
 import com.yahoo.documentapi.AckToken;
+import com.yahoo.documentapi.ProgressToken;
 import com.yahoo.documentapi.VisitorControlHandler;
 import com.yahoo.documentapi.VisitorDataHandler;
 import com.yahoo.documentapi.VisitorParameters;
@@ -30,6 +31,7 @@ import com.yahoo.vespa.objects.BufferSerializer;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -45,6 +47,11 @@ import java.util.logging.Level;
  * groupings. The resulting data can be fetched when the query has
  * completed.
  *
+ * Hits are merged as they arrive, and only the hits and summaries which may be
+ * returned are kept. If the query sets streaming.mincoverage to a percentage
+ * below 100, visiting terminates once all the hits to return are collected and
+ * that percentage of the buckets to visit has been visited.
+ *
  * @author Ulf Carlin
  */
 class StreamingVisitor extends VisitorDataHandler implements Visitor {
@@ -56,6 +63,7 @@ class StreamingVisitor extends VisitorDataHandler implements Visitor {
     private static final CompoundName streamingTotimestamp = CompoundName.from("streaming.totimestamp");
     private static final CompoundName streamingPriority = CompoundName.from("streaming.priority");
     private static final CompoundName streamingMaxbucketspervisitor = CompoundName.from("streaming.maxbucketspervisitor");
+    private static final CompoundName streamingMincoverage = CompoundName.from("streaming.mincoverage");
 
     protected static final int MAX_BUCKETS_PER_VISITOR = 1024;
 
@@ -64,9 +72,14 @@ class StreamingVisitor extends VisitorDataHandler implements Visitor {
     private List<SearchResult.Hit> hits = new ArrayList<>();
     private int totalHitCount = 0;
 
+    /** Summaries of the hits in the hits list, guarded by this */
     private final Map<String, DocumentSummary.Summary> summaryMap = new HashMap<>();
     private final Map<Integer, Grouping> groupingMap = new ConcurrentHashMap<>();
     private Query query = null;
+
+    /** The percentage of the buckets which must be visited before terminating early, or 100 to never terminate early */
+    private final double minCoverage;
+    private volatile boolean terminatedEarly = false;
     private final VisitorSessionFactory visitorSessionFactory;
     private final int traceLevelOverride;
     private Trace sessionTrace;
@@ -82,6 +95,7 @@ class StreamingVisitor extends VisitorDataHandler implements Visitor {
         this.query = query;
         this.visitorSessionFactory = visitorSessionFactory;
         this.traceLevelOverride = traceLevelOverride;
+        this.minCoverage = query.properties().getDouble(streamingMincoverage, 100.0);
         setVisitorParameters(searchCluster, route, documentType);
     }
 
@@ -274,8 +288,12 @@ class StreamingVisitor extends VisitorDataHandler implements Visitor {
             query.trace(sessionTrace.toString(), false, 9);
         }
 
-        if (params.getControlHandler().getResult().code == VisitorControlHandler.CompletionCode.SUCCESS) {
+        VisitorControlHandler.CompletionCode code = params.getControlHandler().getResult().code;
+        if (code == VisitorControlHandler.CompletionCode.SUCCESS) {
             log.log(Level.FINE, () -> "StreamingVisitor completed successfully for " + query + " with selection " + params.getDocumentSelection());
+        } else if (code == VisitorControlHandler.CompletionCode.ABORTED && terminatedEarly) {
+            log.log(Level.FINE, () -> "StreamingVisitor terminated early at " + getCoverage() + "% coverage for " + query +
+                                      " with selection " + params.getDocumentSelection());
         } else {
             throw new IllegalArgumentException("Query failed: " +
                                                params.getControlHandler().getResult().code + ": " +
@@ -307,6 +325,7 @@ class StreamingVisitor extends VisitorDataHandler implements Visitor {
     public void onQueryResult(SearchResult sr, DocumentSummary summary) {
         handleSearchResult(sr);
         handleSummary(summary);
+        terminateIfSufficient();
     }
 
     private void handleSearchResult(SearchResult result) {
@@ -355,14 +374,36 @@ class StreamingVisitor extends VisitorDataHandler implements Visitor {
         int summaryCount = ds.getSummaryCount();
         log.log(Level.FINE, () -> "Got DocumentSummary with " + summaryCount + " summaries for query with selection " +
                                   params.getDocumentSelection());
-        synchronized (summaryMap) {
+        synchronized (this) {
+            // Hits which are not among the best now will never be, so their summaries are not needed
+            Set<String> hitIds = new HashSet<>(hits.size() * 2);
+            for (SearchResult.Hit hit : hits)
+                hitIds.add(hit.getDocId());
+            summaryMap.keySet().retainAll(hitIds);
             for (int i = 0; i < summaryCount; i++) {
                 DocumentSummary.Summary summary = ds.getSummary(i);
-                summaryMap.put(summary.getDocId(), summary);
+                if (hitIds.contains(summary.getDocId()))
+                    summaryMap.put(summary.getDocId(), summary);
             }
         }
     }
 
+    /**
+     * Aborts visiting if early termination is requested, all the hits to return are collected,
+     * and the requested percentage of the buckets is visited.
+     */
+    private void terminateIfSufficient() {
+        if (minCoverage >= 100 || terminatedEarly) return;
+        synchronized (this) {
+            if (hits.size() < query.getOffset() + query.getHits()) return;
+        }
+        ProgressToken progress = params.getControlHandler().getProgress();
+        if (progress == null || progress.percentFinished() < minCoverage) return;
+
+        terminatedEarly = true;
+        session.abort();
+    }
+
     @Override
     final public List<SearchResult.Hit> getHits() {
         int fromIndex = Math.min(hits.size(), query.getOffset());
@@ -376,6 +417,13 @@ class StreamingVisitor extends VisitorDataHandler implements Visitor {
     @Override
     final public int getTotalHitCount() { return totalHitCount; }
 
+    @Override
+    public double getCoverage() {
+        if ( ! terminatedEarly) return 100;
+        ProgressToken progress = params.getControlHandler().getProgress();
+        return progress == null ? 0 : progress.percentFinished();
+    }
+
     @Override
     final public List<Grouping> getGroupings() {
         Collection<Grouping> groupings = groupingMap.values();
@@ -29,6 +29,9 @@ interface Visitor {
 
     int getTotalHitCount();
 
+    /** Returns the percentage of the buckets to visit which were visited: Less than 100 if visiting terminated early */
+    double getCoverage();
+
     List<Grouping> getGroupings();
 
     Trace getTrace();
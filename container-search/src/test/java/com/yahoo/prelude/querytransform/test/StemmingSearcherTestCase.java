@@ -1,9 +1,12 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.prelude.querytransform.test;
 
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.component.ComponentId;
 import com.yahoo.component.chain.Chain;
 import com.yahoo.config.subscription.ConfigGetter;
 import com.yahoo.container.QrSearchersConfig;
+import com.yahoo.jdisc.test.MockMetric;
 import com.yahoo.language.Linguistics;
 import com.yahoo.language.simple.SimpleLinguistics;
 import com.yahoo.prelude.IndexFacts;
@@ -19,6 +22,8 @@ import com.yahoo.search.searchchain.Execution;
 import com.yahoo.search.test.QueryTestCase;
 import org.junit.jupiter.api.Test;
 
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -148,6 +153,21 @@ public class StemmingSearcherTestCase {
         assertStemmed("WEAKAND(100) (AND " + emoji1 + " foo " + emoji2 + ")", "/search?query=" + emoji1 + "foo" + emoji2);
     }
 
+    @Test
+    void testStemsAreCachedAcrossQueries() {
+        MockMetric metric = new MockMetric();
+        StemmingSearcher searcher = new StemmingSearcher(ComponentId.fromString("stemming"), linguistics, metric);
+        for (int i = 0; i < 2; i++) {
+            Query query = new Query(QueryTestCase.httpEncode("/search?query=trees flowers&language=en&search=four&default-index=foobar"));
+            new Execution(new Chain<Searcher>(searcher), newExecutionContext()).search(query);
+            assertEquals("WEAKAND(100) WORD_ALTERNATIVES foobar:[ tree(0.7) trees(1.0) ] WORD_ALTERNATIVES foobar:[ flower(0.7) flowers(1.0) ]",
+                         query.getModel().getQueryTree().getRoot().toString());
+        }
+        Map<String, String> stemmer = Map.of("component", "stemmer");
+        assertEquals(2.0, metric.metrics().get(ContainerMetrics.LINGUISTICS_CACHE_MISSES.baseName()).get(stemmer));
+        assertEquals(2.0, metric.metrics().get(ContainerMetrics.LINGUISTICS_CACHE_HITS.baseName()).get(stemmer));
+    }
+
     private Execution.Context newExecutionContext() {
         return Execution.Context.createContextStub(indexFacts, linguistics);
     }
@@ -0,0 +1,39 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.semantics.test;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that only evaluating the rules which may match the terms of the query
+ * gives the same result as evaluating all the rules.
+ *
+ * @author bratseth
+ */
+public class IndexedRulesTestCase extends RuleBaseAbstractTestCase {
+
+    public IndexedRulesTestCase() {
+        super("indexedrules.sr");
+    }
+
+    @Test
+    void testRulesMatchingProducedTerms() {
+        assertSemantics("AND third fourth", "first");
+        assertSemantics("AND third fourth", "second");
+        assertSemantics("AND other third fourth", "other first");
+        assertSemantics("other", "other");
+    }
+
+    @Test
+    void testRulesAreEvaluatedInOrder() {
+        assertSemantics("sixth", "fifth");
+        assertSemantics("fifth", "seventh");
+    }
+
+    @Test
+    void testNamedConditions() {
+        assertSemantics("AND apple fruit", "apple");
+        assertSemantics("AND red berry fruit", "red berry");
+        assertSemantics("AND red other", "red other");
+    }
+
+}
@@ -0,0 +1,111 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.query.profile.compiled;
+
+import com.yahoo.processing.request.CompoundName;
+import com.yahoo.search.query.profile.DimensionBinding;
+import com.yahoo.search.query.profile.DimensionValues;
+import com.yahoo.search.query.profile.QueryProfile;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Verifies that lookups in flattened maps return the same as lookups in the dimensional values.
+ *
+ * @author bratseth
+ */
+public class DimensionalMapTestCase {
+
+    @Test
+    void testFlattenedLookupsMatchDimensionalLookups() {
+        QueryProfile profile = new QueryProfile("test");
+        profile.setDimensions(new String[] { "x", "y", "z" });
+        profile.set("a", "a.deflt", null);
+        profile.set("a", "a.1.*.*", new String[] { "x1", null, null }, null);
+        profile.set("a", "a.1.*.1", new String[] { "x1", null, "z1" }, null);
+        profile.set("a", "a.1.1.*", new String[] { "x1", "y1", null }, null);
+        profile.set("a", "a.1.1.1", new String[] { "x1", "y1", "z1" }, null);
+        profile.set("a", "a.2.1.1", new String[] { "x2", "y1", "z1" }, null);
+        profile.set("b.c", "b.c.*.1.*", new String[] { null, "y1" }, null);
+        profile.set("b.d", "b.d.deflt", null);
+        profile.set("b.d", "b.d.2.*.*", new String[] { "x2" }, null);
+        CompiledQueryProfile compiled = profile.compile(null);
+        DimensionalMap<ValueWithSource> entries = compiled.getEntries();
+
+        List<Map<String, String>> contexts = new ArrayList<>();
+        for (String x : new String[] { null, "x1", "x2", "x?" })
+            for (String y : new String[] { null, "y1", "y?" })
+                for (String z : new String[] { null, "z1", "z?" })
+                    contexts.add(context(x, y, z));
+        contexts.add(contextWithNull("x", "x1", "y1", "z1"));
+        contexts.add(contextWithNull("y", "x1", "y1", "z1"));
+        for (int round = 0; round < 2; round++)
+            assertLookups(contexts, entries);
+        int flattenedSize = entries.flattenedSize();
+
+        // Contexts with values no binding has match the same bindings as some context above
+        List<Map<String, String>> unmatchedContexts = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            unmatchedContexts.add(context("x" + i + "?", "y1", "z" + i + "?"));
+        assertLookups(unmatchedContexts, entries);
+        assertEquals(flattenedSize, entries.flattenedSize());
+
+        assertEquals("a.1.1.1", compiled.get("a", context("x1", "y1", "z1")));
+        assertEquals("a.1.1.*", compiled.get("a", context("x1", "y1", "z?")));
+        assertEquals("a.deflt", compiled.get("a", null));
+        assertEquals("b.c.*.1.*", compiled.get("b.c", context("x7", "y1", null)));
+        assertEquals("b.d.2.*.*", compiled.get("b.d", context("x2", "y?", "z?")));
+    }
+
+    @Test
+    void testLookupsBeyondFlattenedValuesLimit() {
+        DimensionalMap.Builder<String> builder = new DimensionalMap.Builder<>();
+        builder.put(CompoundName.from("a"), Binding.nullBinding, "a.deflt");
+        builder.put(CompoundName.from("a"), binding("x1", "y1"), "a.1.1");
+        builder.put(CompoundName.from("b"), binding("x1", null), "b.1.*");
+        DimensionalMap<String> map = builder.build(2); // room for one flat map
+
+        assertEquals("a.1.1", map.get(CompoundName.from("a"), context("x1", "y1", null)));
+        assertEquals("b.1.*", map.get(CompoundName.from("b"), context("x1", "y1", null)));
+        assertEquals("a.deflt", map.get(CompoundName.from("a"), context("x2", "y1", null)));
+        assertNull(map.get(CompoundName.from("b"), context("x2", "y1", null)));
+        assertEquals("a.deflt", map.get(CompoundName.from("a"), context("x1", "y2", null)));
+        assertEquals("b.1.*", map.get(CompoundName.from("b"), context("x1", "y2", null)));
+        assertEquals(1, map.flattenedSize());
+    }
+
+    private static void assertLookups(List<Map<String, String>> contexts, DimensionalMap<ValueWithSource> entries) {
+        for (Map<String, String> context : contexts) {
+            for (var entry : entries.entrySet())
+                assertEquals(entry.getValue().get(context), entries.get(entry.getKey(), context), "Lookup of " + entry.getKey() + " in " + context);
+            assertNull(entries.get(CompoundName.from("nonexisting"), context));
+        }
+    }
+
+    private static Binding binding(String x, String y) {
+        return Binding.createFrom(DimensionBinding.createFrom(List.of("x", "y"), DimensionValues.createFrom(new String[] { x, y })));
+    }
+
+    /** Returns a context where the given dimension is present with a null value */
+    private static Map<String, String> contextWithNull(String dimension, String x, String y, String z) {
+        Map<String, String> context = context(x, y, z);
+        context.put(dimension, null);
+        return context;
+    }
+
+    private static Map<String, String> context(String x, String y, String z) {
+        Map<String, String> context = new HashMap<>();
+        if (x != null) context.put("x", x);
+        if (y != null) context.put("y", y);
+        if (z != null) context.put("z", z);
+        context.put("query", "not a dimension");
+        return context;
+    }
+
+}
@@ -0,0 +1,82 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.query.profile.test;
+
+import com.yahoo.container.jdisc.HttpRequest;
+import com.yahoo.jdisc.http.HttpRequest.Method;
+import com.yahoo.processing.request.CompoundName;
+import com.yahoo.search.Query;
+import com.yahoo.search.query.profile.QueryProfile;
+import com.yahoo.search.query.profile.compiled.CompiledQueryProfile;
+
+/**
+ * Measures the time of getting properties set in a large query profile with many variants,
+ * as when searchers read many query profile values in each query.
+ *
+ * @author bratseth
+ */
+public class QueryProfileGetManyVariantsMicroBenchmark {
+
+    private final int propertyCount;
+    private final int variantCount;
+
+    public QueryProfileGetManyVariantsMicroBenchmark(int propertyCount, int variantCount) {
+        this.propertyCount = propertyCount;
+        this.variantCount = variantCount;
+    }
+
+    public void benchmark(int queryCount) {
+        CompiledQueryProfile profile = createProfile().compile(null);
+        CompoundName[] names = new CompoundName[propertyCount];
+        for (int i = 0; i < propertyCount; i++)
+            names[i] = CompoundName.from("a" + (i % 10) + ".property" + i);
+
+        getValues(queryCount / 10, profile, names); // warm-up
+        long startTime = System.nanoTime();
+        getValues(queryCount, profile, names);
+        long totalTime = System.nanoTime() - startTime;
+        System.out.println(this + ": Done in " + totalTime / 1000000 + " ms (" +
+                           (float)totalTime / ((long)queryCount * propertyCount) + " nanoseconds per get)");
+    }
+
+    private QueryProfile createProfile() {
+        QueryProfile profile = new QueryProfile("main");
+        profile.setDimensions(new String[] { "x", "y", "z" });
+        for (int i = 0; i < propertyCount; i++) {
+            String name = "a" + (i % 10) + ".property" + i;
+            profile.set(name, "default" + i, null);
+            for (int v = 0; v < variantCount; v++) {
+                if (i % (v + 2) != 0) continue; // vary the number of variants per property
+                profile.set(name, "x" + v + ":" + i, new String[] { "x" + v }, null);
+                profile.set(name, "x" + v + "y" + v + ":" + i, new String[] { "x" + v, "y" + v }, null);
+                profile.set(name, "x" + v + "z" + v + ":" + i, new String[] { "x" + v, null, "z" + v }, null);
+            }
+        }
+        profile.freeze();
+        return profile;
+    }
+
+    private void getValues(int queryCount, CompiledQueryProfile profile, CompoundName[] names) {
+        int v = variantCount - 1;
+        for (int q = 0; q < queryCount; q++) {
+            Query query = new Query(HttpRequest.createTestRequest("?query=test&x=x" + v + "&y=y" + v + "&z=z" + v, Method.GET),
+                                    profile);
+            for (CompoundName name : names) {
+                if (null == query.properties().get(name))
+                    throw new RuntimeException("Expected a value for " + name);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "properties: " + propertyCount + ", variants: " + variantCount;
+    }
+
+    public static void main(String[] args) {
+        new QueryProfileGetManyVariantsMicroBenchmark(100, 1).benchmark(10000);
+        new QueryProfileGetManyVariantsMicroBenchmark(1000, 1).benchmark(10000);
+        new QueryProfileGetManyVariantsMicroBenchmark(100, 10).benchmark(10000);
+        new QueryProfileGetManyVariantsMicroBenchmark(1000, 10).benchmark(10000);
+    }
+
+}
@@ -2,7 +2,9 @@
 package com.yahoo.search.yql;
 
 import com.google.common.base.Charsets;
+import ai.vespa.metrics.ContainerMetrics;
 import com.yahoo.component.chain.Chain;
+import com.yahoo.jdisc.test.MockMetric;
 import com.yahoo.language.Language;
 import com.yahoo.language.simple.SimpleLinguistics;
 import com.yahoo.processing.IllegalInputException;
@@ -27,6 +29,7 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -379,6 +382,34 @@ public class MinimalQueryInserterTestCase {
         }
     }
 
+    @Test
+    void requireThatCachedProgramsResolveParametersPerQuery() {
+        MockMetric metric = new MockMetric();
+        Execution execution = new Execution(new Chain<>(new MinimalQueryInserter(new SimpleLinguistics(), metric)),
+                                            Execution.Context.createContextStub());
+        String yql = "select * from sources * where cachetest contains @term and userInput(@input)";
+
+        URIBuilder builder = new URIBuilder();
+        builder.setPath("search/");
+        builder.setParameter("yql", yql);
+        builder.setParameter("term", "first");
+        builder.setParameter("input", "a");
+        Query first = new Query(builder.toString());
+        execution.search(first);
+
+        builder.setParameter("term", "second");
+        builder.setParameter("input", "c");
+        Query second = new Query(builder.toString());
+        execution.search(second);
+
+        assertEquals("select * from sources * where (cachetest contains \"first\" AND weakAnd(default contains \"a\"))",
+                     first.yqlRepresentation());
+        assertEquals("select * from sources * where (cachetest contains \"second\" AND weakAnd(default contains \"c\"))",
+                     second.yqlRepresentation());
+        assertEquals(1.0, metric.metrics().get(ContainerMetrics.YQL_PROGRAM_CACHE_MISSES.baseName()).get(Map.of()));
+        assertEquals(1.0, metric.metrics().get(ContainerMetrics.YQL_PROGRAM_CACHE_HITS.baseName()).get(Map.of()));
+    }
+
     @Test
     void verifyThatWarmupIsSane() {
         assertTrue(MinimalQueryInserter.warmup());
@@ -0,0 +1,54 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.yql;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author bratseth
+ */
+public class ProgramCacheTestCase {
+
+    @Test
+    void testCaching() throws Exception {
+        ProgramCache cache = new ProgramCache(2);
+        String a = "select * from sources * where title contains \"a\"";
+        String b = "select * from sources * where title contains @b";
+        String c = "select * from sources * where title contains \"c\"";
+
+        ProgramCache.Lookup first = cache.get(a);
+        assertFalse(first.cached());
+        ProgramCache.Lookup second = cache.get(a);
+        assertTrue(second.cached());
+        assertSame(first.program(), second.program());
+        assertEquals(new ProgramParser().parse("query", a), second.program());
+
+        cache.get(b);
+        cache.get(a); // a is now used more recently than b
+        cache.get(c);
+        assertEquals(2, cache.size());
+        assertTrue(cache.get(a).cached());
+        assertFalse(cache.get(b).cached());
+    }
+
+    @Test
+    void testFailuresAndLongProgramsAreNotCached() throws Exception {
+        ProgramCache cache = new ProgramCache(10);
+        assertThrows(Exception.class, () -> cache.get("select * from"));
+        assertEquals(0, cache.size());
+
+        String longProgram = "select * from sources * where title contains \"" + "a".repeat(ProgramCache.maxProgramLength) + "\"";
+        ProgramCache.Lookup first = cache.get(longProgram);
+        ProgramCache.Lookup second = cache.get(longProgram);
+        assertFalse(second.cached());
+        assertNotSame(first.program(), second.program());
+        assertEquals(0, cache.size());
+    }
+
+}
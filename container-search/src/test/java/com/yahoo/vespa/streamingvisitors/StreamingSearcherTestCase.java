@@ -55,6 +55,8 @@ public class StreamingSearcherTestCase {
         final Route route;
         final String documentType;
         int totalHitCount;
+        long documentsVisited = 0;
+        double coverage = 100;
         private final List<SearchResult.Hit> hits = new ArrayList<>();
         private final Map<String, DocumentSummary.Summary> summaryMap = new HashMap<>();
         private final List<Grouping> groupings = new ArrayList<>();
@@ -101,6 +103,10 @@ public class StreamingSearcherTestCase {
                 var matchFeatures = new MatchFeatureData(List.of("my_feature")).addHit();
                 matchFeatures.set(0, 7.0);
                 hits.get(0).setMatchFeatures(matchFeatures);
+            } else if (queryString.compareTo("partialcoverage") == 0) {
+                addResults(USERDOC_ID_PREFIX, 1, false);
+                documentsVisited = 500;
+                coverage = 50;
             }
         }
 
@@ -121,7 +127,9 @@ public class StreamingSearcherTestCase {
 
         @Override
         public VisitorStatistics getStatistics() {
-            return new VisitorStatistics();
+            VisitorStatistics statistics = new VisitorStatistics();
+            statistics.setDocumentsVisited(documentsVisited);
+            return statistics;
         }
 
         @Override
@@ -139,6 +147,11 @@ public class StreamingSearcherTestCase {
             return totalHitCount;
         }
 
+        @Override
+        public double getCoverage() {
+            return coverage;
+        }
+
         @Override
         public List<Grouping> getGroupings() {
             return groupings;
@@ -229,6 +242,21 @@ public class StreamingSearcherTestCase {
         assertEquals(7.0, ((Inspectable) mf).inspect().field("my_feature").asDouble());
     }
 
+    private static void checkCoverage(StreamingSearcher searcher) {
+        Result result = executeQuery(searcher, new Query("/?streaming.userid=1&query=oneuserhit"));
+        assertTrue(result.getCoverage(false).getFull());
+        assertFalse(result.getCoverage(false).isDegraded());
+
+        result = executeQuery(searcher, new Query("/?streaming.userid=1&query=partialcoverage"));
+        assertNull(result.hits().getError());
+        assertEquals(1, result.hits().size());
+        assertFalse(result.getCoverage(false).getFull());
+        assertTrue(result.getCoverage(false).isDegradedByMatchPhase());
+        assertEquals(500, result.getCoverage(false).getDocs());
+        assertEquals(1000, result.getCoverage(false).getActive());
+        assertEquals(50, result.getCoverage(false).getResultPercentage());
+    }
+
     @Test
     void testBasics() {
         MockVisitorFactory factory = new MockVisitorFactory();
@@ -266,6 +294,7 @@ public class StreamingSearcherTestCase {
         checkGrouping(searcher, "/?streaming.selection=true&query=onegroupinghit", 1);
 
         checkMatchFeatures(searcher);
+        checkCoverage(searcher);
     }
 
     @Test
@@ -23,6 +23,7 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -321,6 +322,44 @@ public class StreamingVisitorTest {
         verifyVisitorFails(factory, qa, route, searchCluster);
     }
 
+    @Test
+    void testEarlyTermination() throws Exception {
+        MockVisitorSessionFactory factory = new MockVisitorSessionFactory();
+        Query query = new Query("/?query=test&hits=2&streaming.mincoverage=50");
+        StreamingVisitor visitor = new StreamingVisitor(query, "searchClusterConfigId", Route.parse("storageClusterRouteSpec"), "mytype", factory, 0);
+        visitor.doSearch();
+        factory.getParams().getControlHandler().onProgress(new ProgressToken() {
+            @Override public synchronized double percentFinished() { return 40; }
+        });
+
+        visitor.onMessage(createQRM("id:ns:type::0", 0.3), null);
+        visitor.onMessage(createQRM("id:ns:type::1", 1.0), null);
+        assertFalse(factory.getSession().aborted, "Not aborted before the requested coverage is reached");
+
+        factory.getParams().getControlHandler().onProgress(new ProgressToken() {
+            @Override public synchronized double percentFinished() { return 60; }
+        });
+        visitor.onMessage(createQRM("id:ns:type::2", 0.5), null);
+        assertTrue(factory.getSession().aborted);
+        assertEquals(60, visitor.getCoverage(), 0.01);
+        assertEquals(List.of("id:ns:type::1", "id:ns:type::2"), visitor.getHits().stream().map(SearchResult.Hit::getDocId).toList());
+        assertEquals(Set.of("id:ns:type::1", "id:ns:type::2"), visitor.getSummaryMap().keySet());
+    }
+
+    @Test
+    void testNoEarlyTerminationByDefault() throws Exception {
+        MockVisitorSessionFactory factory = new MockVisitorSessionFactory();
+        StreamingVisitor visitor = new StreamingVisitor(new Query("/?query=test&hits=1"), "searchClusterConfigId",
+                                                        Route.parse("storageClusterRouteSpec"), "mytype", factory, 0);
+        visitor.doSearch();
+        factory.getParams().getControlHandler().onProgress(new ProgressToken() {
+            @Override public synchronized double percentFinished() { return 99; }
+        });
+        supplyResults(visitor);
+        assertFalse(factory.getSession().aborted);
+        assertEquals(100, visitor.getCoverage(), 0.01);
+    }
+
     private void verifyVisitorOk(MockVisitorSessionFactory factory, QueryArguments qa, Route route, String searchCluster) throws Exception {
         StreamingVisitor visitor = new StreamingVisitor(buildQuery(qa), searchCluster, route, "mytype", factory, 0);
         visitor.doSearch();
@@ -357,7 +396,7 @@ public class StreamingVisitorTest {
     private void verifyResults(QueryArguments qa, StreamingVisitor visitor) {
         assertEquals(6, visitor.getTotalHitCount());
         assertEquals(Math.min(3 - qa.offset, qa.hits), visitor.getHits().size());
-        assertEquals(3, visitor.getSummaryMap().size());
+        assertEquals(Math.min(3, qa.offset + qa.hits), visitor.getSummaryMap().size());
         assertEquals(0, visitor.getGroupings().size());
         assertNull(visitor.getStatistics());
 
@@ -386,6 +425,7 @@ public class StreamingVisitorTest {
         private final VisitorParameters params;
         private final boolean timeoutQuery;
         private final boolean failQuery;
+        private boolean aborted = false;
 
         public MockVisitorSession(VisitorParameters params, boolean timeoutQuery, boolean failQuery) {
             this.params = params;
@@ -429,6 +469,7 @@ public class StreamingVisitorTest {
 
         @Override
         public void abort() {
+            aborted = true;
         }
 
         @Override
@@ -449,6 +490,7 @@ public class StreamingVisitorTest {
     private static class MockVisitorSessionFactory implements StreamingVisitor.VisitorSessionFactory {
 
         private VisitorParameters params;
+        private MockVisitorSession session;
         private boolean timeoutQuery = false;
         private boolean failQuery = false;
 
@@ -457,12 +499,17 @@ public class StreamingVisitorTest {
         @Override
         public VisitorSession createVisitorSession(VisitorParameters params) throws ParseException {
             this.params = params;
-            return new MockVisitorSession(params, timeoutQuery, failQuery);
+            this.session = new MockVisitorSession(params, timeoutQuery, failQuery);
+            return session;
         }
 
         public VisitorParameters getParams() {
             return params;
         }
+
+        public MockVisitorSession getSession() {
+            return session;
+        }
     }
 
 }
@@ -1,12 +1,21 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.document.select;
 
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentId;
 import com.yahoo.document.DocumentOperation;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentType;
 import com.yahoo.document.select.parser.ParseException;
 import com.yahoo.document.select.parser.SelectInput;
 import com.yahoo.document.select.parser.SelectParser;
 import com.yahoo.document.select.parser.TokenMgrException;
 import com.yahoo.document.select.rule.ExpressionNode;
+import com.yahoo.document.serialization.DocumentDeserializer;
+import com.yahoo.document.serialization.DocumentReader;
+import com.yahoo.document.serialization.VespaDocumentDeserializer6;
+
+import java.util.Set;
 
 /**
  * A document selector is a filter which accepts or rejects documents
@@ -22,6 +31,9 @@ public class DocumentSelector {
 
     private final ExpressionNode expression;
 
+    /** The names of the document fields this may access, or null if it may access any field */
+    private final Set<String> referencedFields;
+
     /**
      * Creates a document selector from a Document Selection Language string
      *
@@ -41,6 +53,9 @@ public class DocumentSelector {
             throw (ParseException)t.initCause(e instanceof ParseException ?
                                               new ParseException(input.formatException(e.getMessage())) : e);
         }
+        FieldReferenceVisitor fieldReferences = new FieldReferenceVisitor();
+        expression.accept(fieldReferences);
+        referencedFields = fieldReferences.fieldNames();
     }
 
     /**
@@ -65,6 +80,25 @@ public class DocumentSelector {
         return Result.toResult(expression.evaluate(context));
     }
 
+    /**
+     * Returns whether the document serialized at the current position of the given deserializer
+     * is accepted by this selector, as if it was accepted as a document put.
+     * Only the values of the fields accessed by this selector are deserialized.
+     *
+     * @param serializedDocument a deserializer positioned at the start of a serialized document,
+     *                           which is positioned after that document on return
+     * @return true if the document is accepted
+     * @throws RuntimeException if the evaluation enters an illegal state
+     */
+    public Result accepts(DocumentDeserializer serializedDocument) {
+        Document document;
+        if (referencedFields != null && serializedDocument instanceof VespaDocumentDeserializer6 deserializer)
+            document = new Document(new FieldSubsetReader(deserializer, referencedFields));
+        else
+            document = Document.createDocument(serializedDocument);
+        return accepts(new DocumentPut(document));
+    }
+
     /**
      * Returns the list of different variables resulting in a true state for this expression
      *
@@ -98,4 +132,26 @@ public class DocumentSelector {
         expression.accept(visitor);
     }
 
+    /** Reads documents where only the values of a given set of fields are deserialized */
+    private static class FieldSubsetReader implements DocumentReader {
+
+        private final VespaDocumentDeserializer6 deserializer;
+        private final Set<String> fieldNames;
+
+        FieldSubsetReader(VespaDocumentDeserializer6 deserializer, Set<String> fieldNames) {
+            this.deserializer = deserializer;
+            this.fieldNames = fieldNames;
+        }
+
+        @Override
+        public void read(Document document) { deserializer.read(document, fieldNames); }
+
+        @Override
+        public DocumentId readDocumentId() { return deserializer.readDocumentId(); }
+
+        @Override
+        public DocumentType readDocumentType() { return deserializer.readDocumentType(); }
+
+    }
+
 }
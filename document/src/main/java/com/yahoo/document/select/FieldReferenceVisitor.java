@@ -0,0 +1,93 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.select;
+
+import com.yahoo.document.select.rule.ArithmeticNode;
+import com.yahoo.document.select.rule.AttributeNode;
+import com.yahoo.document.select.rule.ComparisonNode;
+import com.yahoo.document.select.rule.DocumentNode;
+import com.yahoo.document.select.rule.DocumentTypeNode;
+import com.yahoo.document.select.rule.EmbracedNode;
+import com.yahoo.document.select.rule.IdNode;
+import com.yahoo.document.select.rule.LiteralNode;
+import com.yahoo.document.select.rule.LogicNode;
+import com.yahoo.document.select.rule.NegationNode;
+import com.yahoo.document.select.rule.NowNode;
+import com.yahoo.document.select.rule.VariableNode;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Collects the names of the document fields an expression tree may access.
+ *
+ * @author bratseth
+ */
+class FieldReferenceVisitor implements Visitor {
+
+    private final Set<String> fieldNames = new HashSet<>();
+    private boolean allFields = false;
+
+    /** Returns the names of the top level document fields referenced, or null if any field may be referenced */
+    Set<String> fieldNames() {
+        return allFields ? null : Set.copyOf(fieldNames);
+    }
+
+    public void visit(ArithmeticNode node) {
+        for (ArithmeticNode.NodeItem item : node.getItems()) {
+            item.getNode().accept(this);
+        }
+    }
+
+    public void visit(AttributeNode node) {
+        if ( ! (node.getValue() instanceof DocumentNode)) {
+            allFields = true;
+            return;
+        }
+        if (node.getItems().isEmpty()) return;
+        AttributeNode.Item first = node.getItems().get(0);
+        if (first.getType() == AttributeNode.Item.FUNCTION) return; // not a field access
+        fieldNames.add(topLevelFieldName(first.getName()));
+    }
+
+    public void visit(ComparisonNode node) {
+        node.getLHS().accept(this);
+        node.getRHS().accept(this);
+    }
+
+    public void visit(DocumentNode node) {}
+
+    public void visit(DocumentTypeNode node) {}
+
+    public void visit(EmbracedNode node) {
+        node.getNode().accept(this);
+    }
+
+    public void visit(IdNode node) {}
+
+    public void visit(LiteralNode node) {}
+
+    public void visit(LogicNode node) {
+        for (LogicNode.NodeItem item : node.getItems()) {
+            item.getNode().accept(this);
+        }
+    }
+
+    public void visit(NegationNode node) {
+        node.getNode().accept(this);
+    }
+
+    public void visit(NowNode node) {}
+
+    public void visit(VariableNode node) {}
+
+    /** Returns the name of the field accessed by a field path, e.g "map" for "map{key}" */
+    private static String topLevelFieldName(String fieldPath) {
+        for (int i = 0; i < fieldPath.length(); i++) {
+            char c = fieldPath.charAt(i);
+            if (c == '{' || c == '[' || c == '.')
+                return fieldPath.substring(0, i);
+        }
+        return fieldPath;
+    }
+
+}
@@ -67,6 +67,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static com.yahoo.text.Utf8.calculateStringPositions;
 
@@ -95,7 +96,19 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
         read(null, document);
     }
 
+    /**
+     * Reads a document, but only deserializes the values of the fields with the given names.
+     * The values of all other fields are skipped, and will be missing from the document read.
+     */
+    public void read(Document document, Set<String> fieldNames) {
+        readDocument(document, fieldNames);
+    }
+
     public void read(FieldBase field, Document doc) {
+        readDocument(doc, null);
+    }
+
+    private void readDocument(Document doc, Set<String> fieldNames) {
         // Verify that we have correct version
         version = getShort(null);
         if (version < 8 || version > Document.SERIALIZED_VERSION) {
@@ -112,11 +125,11 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
         doc.setId(documentId);
 
         if ((content & 0x2) != 0) {
-            readStruct(doc, doc.getDataType().contentStruct());
+            readStruct(doc, doc.getDataType().contentStruct(), fieldNames);
 
         }
         if ((content & 0x4) != 0) {
-            readStruct(doc, doc.getDataType().contentStruct());
+            readStruct(doc, doc.getDataType().contentStruct(), fieldNames);
         }
 
         if (dataLength != (position() - dataPos)) {
@@ -256,10 +269,11 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
     public void read(FieldBase fieldDef, Struct s) {
         s.setVersion(version);
         s.clear();
-        readStruct(s, s.getDataType());
+        readStruct(s, s.getDataType(), null);
     }
 
-    private void readStruct(StructuredFieldValue target, StructDataType priType) {
+    /** Reads a struct, deserializing only the fields with the given names, or all if fieldNames is null */
+    private void readStruct(StructuredFieldValue target, StructDataType priType, Set<String> fieldNames) {
         if (version < 8) {
             throw new DeserializationException("Illegal document serialization version " + version);
         }
@@ -278,8 +292,8 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
         for (int i = 0; i < numberOfFields; i++) {
             int posBefore = position();
             Field structField = priType.getField(fieldIds[i]);
-            // ignoring unknown field
-            if (structField != null) {
+            // ignoring unknown field, and those not requested
+            if (structField != null && (fieldNames == null || fieldNames.contains(structField.getName()))) {
                 FieldValue value = structField.getDataType().createFieldValue();
                 value.deserialize(structField, this);
                 target.setFieldValue(structField, value);
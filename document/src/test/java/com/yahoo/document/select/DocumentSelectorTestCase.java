@@ -27,6 +27,10 @@ import com.yahoo.document.datatypes.WeightedSet;
 import com.yahoo.document.select.convert.SelectionExpressionConverter;
 import com.yahoo.document.select.parser.ParseException;
 import com.yahoo.document.select.parser.TokenMgrException;
+import com.yahoo.document.serialization.DocumentDeserializerFactory;
+import com.yahoo.document.serialization.DocumentSerializerFactory;
+import com.yahoo.document.serialization.VespaDocumentDeserializer6;
+import com.yahoo.io.GrowableByteBuffer;
 import com.yahoo.yolean.Exceptions;
 import org.junit.Before;
 import org.junit.Test;
@@ -36,6 +40,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -784,6 +789,49 @@ public class DocumentSelectorTestCase {
                      Result.TRUE, evaluate("parent.parentField = \"parentValue\"", documents.get(0)));
     }
 
+    @Test
+    public void testSerializedDocuments() throws ParseException {
+        List<String> selections = List.of("test",
+                                          "test.hint = 24",
+                                          "test.hstring == \"bar\" and test.content != \"foo\"",
+                                          "test.mymap{5} == \"b\"",
+                                          "test.structarray.key == 15",
+                                          "test.hint > 10 or id.namespace == \"myspace\"",
+                                          "parent.parentField = \"parentValue\"",
+                                          "test.content.lowercase() == \"more\"",
+                                          "test.truth",
+                                          "test.my_imported_field == null");
+        for (DocumentPut put : createDocs()) {
+            GrowableByteBuffer buffer = new GrowableByteBuffer();
+            put.getDocument().serialize(DocumentSerializerFactory.createHead(buffer));
+            buffer.flip();
+            for (String selection : selections) {
+                DocumentSelector selector = new DocumentSelector(selection);
+                buffer.position(0);
+                assertEquals(selection + " on " + put.getId(),
+                             selector.accepts(put), selector.accepts(DocumentDeserializerFactory.createHead(manager, buffer)));
+                assertEquals(buffer.limit(), buffer.position());
+            }
+        }
+    }
+
+    @Test
+    public void testDeserializingFieldSubset() {
+        Document document = createDocs().get(1).getDocument();
+        GrowableByteBuffer buffer = new GrowableByteBuffer();
+        document.serialize(DocumentSerializerFactory.createHead(buffer));
+        buffer.flip();
+
+        Document read = new Document(manager.getDocumentType("test"), new DocumentId("id:ns:test::"));
+        ((VespaDocumentDeserializer6)DocumentDeserializerFactory.create6(manager, buffer)).read(read, Set.of("hint", "mymap"));
+        assertEquals(document.getId(), read.getId());
+        assertEquals(document.getDataType(), read.getDataType());
+        assertEquals(document.getFieldValue("hint"), read.getFieldValue("hint"));
+        assertEquals(document.getFieldValue("mymap"), read.getFieldValue("mymap"));
+        assertEquals(2, read.getFieldCount());
+        assertEquals(buffer.limit(), buffer.position());
+    }
+
     @Test
     public void using_non_commutative_comparison_operator_with_field_value_is_well_defined() throws ParseException {
         var documents = createDocs();
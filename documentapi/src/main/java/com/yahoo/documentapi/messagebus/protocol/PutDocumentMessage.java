@@ -4,6 +4,8 @@ package com.yahoo.documentapi.messagebus.protocol;
 import com.yahoo.api.annotations.Beta;
 import com.yahoo.document.DocumentPut;
 import com.yahoo.document.TestAndSetCondition;
+import com.yahoo.document.select.DocumentSelector;
+import com.yahoo.document.select.Result;
 import com.yahoo.document.serialization.DocumentDeserializer;
 
 import java.nio.ByteBuffer;
@@ -60,6 +62,23 @@ public class PutDocumentMessage extends TestAndSetMessage {
         return put;
     }
 
+    /**
+     * Returns whether the document to put is accepted by the given selector. If this message is not deserialized yet,
+     * only the document fields accessed by the selector are deserialized, and this message remains serialized.
+     */
+    Result accepts(DocumentSelector selector) {
+        if (decoder == null || buffer == null)
+            return selector.accepts(put);
+
+        int position = buffer.getBuf().position();
+        try {
+            return selector.accepts(buffer);
+        }
+        finally {
+            buffer.getBuf().position(position);
+        }
+    }
+
     /** Sets the document to put */
     public void setDocumentPut(DocumentPut put) {
         buffer = null;
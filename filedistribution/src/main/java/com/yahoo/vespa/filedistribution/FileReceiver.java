@@ -12,13 +12,19 @@ import net.jpountz.xxhash.StreamingXXHash64;
 import net.jpountz.xxhash.XXHashFactory;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -46,6 +52,9 @@ public class FileReceiver {
     private final AtomicInteger nextSessionId = new AtomicInteger(1);
     private final Map<Integer, Session> sessions = new HashMap<>();
 
+    /** The time after which a session without any received parts is removed, with its in-progress file */
+    static final Duration sessionIdleTimeout = Duration.ofMinutes(10);
+
     final static class Session {
         private final StreamingXXHash64 hasher;
         private final int sessionId;
@@ -60,6 +69,8 @@ public class FileReceiver {
         private final File fileReferenceDir;
         private final File tmpDir;
         private final File inprogressFile;
+        private final FileChannel channel;
+        private Instant lastReceived;
 
         Session(File downloadDirectory,
                 int sessionId,
@@ -80,9 +91,11 @@ public class FileReceiver {
             currentHash = 0;
             fileReferenceDir = new File(downloadDirectory, reference.value());
             this.tmpDir = downloadDirectory;
+            lastReceived = Instant.now();
 
             try {
                 inprogressFile = Files.createTempFile(tmpDir.toPath(), fileName, ".inprogress").toFile();
+                channel = FileChannel.open(inprogressFile.toPath(), StandardOpenOption.WRITE);
             } catch (IOException e) {
                 String msg = "Failed creating temp file for inprogress file for " + fileName + " in '" + tmpDir.toPath() + "': ";
                 log.log(Level.SEVERE, msg + e.getMessage(), e);
@@ -90,7 +103,9 @@ public class FileReceiver {
             }
         }
 
-        void addPart(int partId, byte [] part) {
+        /** Writes a part of the file through the channel of this session. Parts must be received in order. */
+        synchronized void addPart(int partId, byte [] part) {
+            lastReceived = Instant.now();
             if (partId != currentPartId) {
                 throw new IllegalStateException("Received partid " + partId + " while expecting " + currentPartId);
             }
@@ -99,13 +114,12 @@ public class FileReceiver {
                                                 (currentFileSize + part.length) + ", but " + fileSize + " is max.");
             }
             try {
-                Files.write(inprogressFile.toPath(), part, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                ByteBuffer buffer = ByteBuffer.wrap(part);
+                while (buffer.hasRemaining())
+                    channel.write(buffer, currentFileSize + buffer.position());
             } catch (IOException e) {
                 String message = "Failed writing to file (" + inprogressFile.toPath() + "): ";
                 log.log(Level.SEVERE, message + e.getMessage(), e);
-                boolean successfulDelete = inprogressFile.delete();
-                if ( ! successfulDelete)
-                    log.log(Level.INFO, "Unable to delete " + inprogressFile.toPath());
                 throw new RuntimeException(message, e);
             }
             currentFileSize += part.length;
@@ -113,12 +127,31 @@ public class FileReceiver {
             hasher.update(part, 0, part.length);
         }
 
-        File close(long hash) {
-            verifyHash(hash);
+        private void closeChannel() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Failed closing " + inprogressFile.toPath() + ": " + e.getMessage());
+            }
+        }
 
+        /** Closes the channel of this session and deletes the in-progress file, if not already done. */
+        synchronized void abort() {
+            closeChannel();
+            deletePath(inprogressFile);
+        }
+
+        /** Returns whether this has not received any part since the given time */
+        synchronized boolean isIdleSince(Instant time) {
+            return lastReceived.isBefore(time);
+        }
+
+        synchronized File close(long hash) {
+            closeChannel();
             File file = new File(fileReferenceDir, fileName);
             File decompressedDir = null;
             try {
+                verifyHash(hash);
                 if (fileType == Type.file) {
                     try {
                         Files.createDirectories(fileReferenceDir.toPath());
@@ -144,7 +177,7 @@ public class FileReceiver {
             return file;
         }
 
-        double percentageReceived() {
+        synchronized double percentageReceived() {
             return (double)currentFileSize/(double)fileSize;
         }
 
@@ -241,6 +274,7 @@ public class FileReceiver {
         int sessionId = nextSessionId.getAndIncrement();
         int retval = 0;
         synchronized (sessions) {
+            removeIdleSessions(Instant.now().minus(sessionIdleTimeout));
             if (sessions.containsKey(sessionId)) {
                 retval = 1;
                 log.severe("Session id " + sessionId + " already exist, impossible. Request from " + req.target());
@@ -271,9 +305,11 @@ public class FileReceiver {
                 session.addPart(partId, part);
             } catch (Exception e) {
                 log.severe("Got exception " + e);
-                retval = 1;
+                removeSession(sessionId).ifPresent(Session::abort);
+                req.returnValues().add(new Int32Value(1));
+                return;
             }
-            double completeness = (double) session.currentFileSize / (double) session.fileSize;
+            double completeness = session.percentageReceived();
             log.log(Level.FINEST, () -> String.format("%.1f percent of '%s' downloaded", completeness * 100, reference.value()));
             downloads.setDownloadStatus(reference, completeness);
         }
@@ -287,10 +323,15 @@ public class FileReceiver {
         long xxhash = req.parameters().get(2).asInt64();
         Session session = getSession(sessionId);
         int retval = verifySession(session, sessionId, reference);
-        File file = session.close(xxhash);
-        downloads.completedDownloading(reference, file);
-        synchronized (sessions) {
-            sessions.remove(sessionId);
+        if (retval == 0) {
+            removeSession(sessionId);
+            try {
+                File file = session.close(xxhash);
+                downloads.completedDownloading(reference, file);
+            } catch (Exception e) {
+                log.severe("Failed completing download of " + reference.value() + ": " + e.getMessage());
+                retval = 2;
+            }
         }
         req.returnValues().add(new Int32Value(retval));
     }
@@ -301,6 +342,24 @@ public class FileReceiver {
         }
     }
 
+    private Optional<Session> removeSession(Integer sessionId) {
+        synchronized (sessions) {
+            return Optional.ofNullable(sessions.remove(sessionId));
+        }
+    }
+
+    /** Removes and aborts sessions which have not received any part since the given time. Must hold the sessions lock. */
+    private void removeIdleSessions(Instant time) {
+        for (Iterator<Session> i = sessions.values().iterator(); i.hasNext(); ) {
+            Session session = i.next();
+            if ( ! session.isIdleSince(time)) continue;
+            log.warning("Removing session " + session.sessionId + " for " + session.reference.value() +
+                        ", as no parts have been received for " + sessionIdleTimeout);
+            i.remove();
+            session.abort();
+        }
+    }
+
     private static int verifySession(Session session, int sessionId, FileReference reference) {
         if (session == null) {
             log.severe("session-id " + sessionId + " does not exist.");
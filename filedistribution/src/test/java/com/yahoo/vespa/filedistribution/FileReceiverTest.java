@@ -15,6 +15,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.time.Instant;
 
 import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType;
 import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.gzip;
@@ -23,6 +24,9 @@ import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType
 import static com.yahoo.vespa.filedistribution.FileReferenceData.Type.compressed;
 import static com.yahoo.vespa.filedistribution.FileReferenceData.Type.file;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 public class FileReceiverTest {
     private File root;
@@ -52,6 +56,37 @@ public class FileReceiverTest {
         transferPartsAndAssert(new FileReference("ref-a"), "myfile-3", all, 3);
     }
 
+    @Test
+    public void receivePartOutOfOrderFails() {
+        FileReceiver.Session session = new FileReceiver.Session(root, 1, new FileReference("ref-b"), file, gzip, "myfile", 2);
+        assertEquals("Received partid 1 while expecting 0",
+                     assertThrows(IllegalStateException.class, () -> session.addPart(1, new byte[] { 1 })).getMessage());
+        session.abort();
+        assertEquals(0, inprogressFiles());
+    }
+
+    @Test
+    public void failedTransferDeletesInprogressFile() {
+        FileReceiver.Session session = new FileReceiver.Session(root, 1, new FileReference("ref-c"), file, gzip, "myfile", 2);
+        session.addPart(0, new byte[] { 1, 2 });
+        assertEquals(1, inprogressFiles());
+        assertThrows(RuntimeException.class, () -> session.close(0));
+        assertEquals(0, inprogressFiles());
+        assertFalse(new File(root, "ref-c").exists());
+    }
+
+    @Test
+    public void sessionIsIdleWhenNoPartsAreReceived() {
+        FileReceiver.Session session = new FileReceiver.Session(root, 1, new FileReference("ref-d"), file, gzip, "myfile", 2);
+        Instant beforeLastPart = Instant.now().minusSeconds(1);
+        session.addPart(0, new byte[] { 1 });
+        assertFalse(session.isIdleSince(beforeLastPart));
+        assertTrue(session.isIdleSince(Instant.now().plus(FileReceiver.sessionIdleTimeout)));
+        session.abort();
+        session.abort();
+        assertEquals(0, inprogressFiles());
+    }
+
     @Test
     public void receiveCompressedParts() throws IOException{
         File dirWithFiles = temporaryFolder.newFolder("files");
@@ -97,6 +132,10 @@ public class FileReceiverTest {
         assertEquals(all, Utf8.toString(allReadBytes));
     }
 
+    private int inprogressFiles() {
+        return root.list((dir, name) -> name.endsWith(".inprogress")).length;
+    }
+
     private void transferCompressedData(CompressionType compressionType, FileReference ref, String fileName, byte[] data) {
         FileReceiver.Session session = new FileReceiver.Session(root, 1, ref, compressed, compressionType, fileName, data.length);
         session.addPart(0, data);
@@ -11,7 +11,6 @@ import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.CharBuffer;
-import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
 import java.util.NoSuchElementException;
@@ -329,7 +328,7 @@ public class FSA implements Closeable {
         Maps(FileInputStream file) throws IOException {
             _header = file.getChannel().map(MapMode.READ_ONLY,0,256);
             _header.order(ByteOrder.LITTLE_ENDIAN);
-            if (h_magic()!=2038637673) {
+            if (h_magic()!=MAGIC) {
                 throw new IOException("Stream does not contain an FSA: Wrong file magic number " + h_magic());
             }
             _symbol_tab = file.getChannel().map(MapMode.READ_ONLY, 256, h_size());
@@ -344,8 +343,26 @@ public class FSA implements Closeable {
             } else {
                 _phash = null;
             }
+            _mapped = true;
             _ok = true;
         }
+
+        /** Reads the tables from an FSA image in the file format, which must not be modified after this */
+        Maps(ByteBuffer image) {
+            _header = slice(image, 0, 256);
+            if (h_magic()!=MAGIC) {
+                throw new IllegalArgumentException("Buffer does not contain an FSA: Wrong magic number " + h_magic());
+            }
+            _symbol_tab = slice(image, 256, h_size());
+            _state_tab = slice(image, 256+h_size(), 4*h_size());
+            _data = slice(image, 256+5*h_size(), h_data_size());
+            _phash = h_has_phash()>0 ? slice(image, 256+5*h_size()+h_data_size(), 4*h_size()) : null;
+            _mapped = false;
+            _ok = true;
+        }
+        private static ByteBuffer slice(ByteBuffer image, int offset, int length) {
+            return image.slice(image.position() + offset, length).order(ByteOrder.LITTLE_ENDIAN);
+        }
         private int h_magic(){
             return _header.getInt(0);
         }
@@ -411,7 +428,7 @@ public class FSA implements Closeable {
         private boolean isFinal(int state){
             return _ok && (getSymbol(state+255)==255);
         }
-        private static void clean(MappedByteBuffer mmap) {
+        private static void clean(ByteBuffer mmap) {
             if ((mmap == null) || !mmap.isDirect()) return;
 
             try {
@@ -435,6 +452,7 @@ public class FSA implements Closeable {
         }
         @Override
         public void close() {
+            if ( ! _mapped) return; // in-memory buffers are freed by gc
             clean(_header);
             clean(_data);
             clean(_phash);
@@ -442,13 +460,17 @@ public class FSA implements Closeable {
             clean(_symbol_tab);
         }
 
-        private final MappedByteBuffer _header;
-        private final MappedByteBuffer _symbol_tab;
-        private final MappedByteBuffer _state_tab;
-        private final MappedByteBuffer _data;
-        private final MappedByteBuffer _phash;
+        private final ByteBuffer _header;
+        private final ByteBuffer _symbol_tab;
+        private final ByteBuffer _state_tab;
+        private final ByteBuffer _data;
+        private final ByteBuffer _phash;
+        private final boolean _mapped;
         private final boolean _ok;
     }
+
+    /** The magic number identifying the FSA file format */
+    static final int MAGIC = 2038637673;
     private final boolean _ok;
     private final Charset _charset;
     private final AtomicReference<Maps> maps = new AtomicReference<>();
@@ -531,6 +553,28 @@ public class FSA implements Closeable {
         }
     }
 
+    /**
+     * Creates an FSA from an image in the FSA file format, using utf-8 encoding.
+     * The buffer may be on or off heap, and must not be modified while this is in use.
+     *
+     * @throws IllegalArgumentException if the buffer does not contain an FSA
+     */
+    public FSA(ByteBuffer image) {
+        this(image, "utf-8");
+    }
+
+    /**
+     * Creates an FSA from an image in the FSA file format, using the specified character encoding.
+     * The buffer may be on or off heap, and must not be modified while this is in use.
+     *
+     * @throws IllegalArgumentException if the buffer does not contain an FSA
+     */
+    public FSA(ByteBuffer image, String charsetname) {
+        _charset = Charset.forName(charsetname);
+        maps.set(new Maps(image));
+        _ok = true;
+    }
+
     @Override
     public void close() throws IOException {
         Maps m = map();
@@ -0,0 +1,399 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.fsa;
+
+import com.yahoo.text.Utf8;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a minimal acyclic finite-state automaton from keys added in sorted order,
+ * without the native tools. The result is in the same format as FSA files produced
+ * by makefsa, and can be written to a file or used directly as an in-memory FSA.
+ * <p>
+ * Keys must be added in increasing order of their UTF-8 bytes (which is code point order),
+ * without duplicates. Each key may have data, which is returned when the key is looked up.
+ * As with makefsa, string data is stored zero terminated, and keys without data have
+ * the empty string as data.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author bratseth
+ */
+public class FSABuilder {
+
+    /** The version of the FSA format written */
+    private static final int version = 2000001;
+
+    private static final int headerSize = 256;
+    private static final int emptySymbol = 0x00;
+    private static final int finalSymbol = 0xff;
+    private static final int dataVariable = 0, dataFixed = 1;
+
+    /** Cells before the last packed state which are searched for free space when packing the next state */
+    private static final int backcheck = 255;
+
+    /** The states which are not on the path of the last key, by their content */
+    private final Map<State, State> register = new HashMap<>();
+
+    /** The states in register, in the order they were added, such that a state is after all its descendants */
+    private final List<State> registered = new ArrayList<>();
+
+    /** The states along the last key added, starting at the start state */
+    private final List<State> path = new ArrayList<>();
+
+    /** The distinct data items added, by their content */
+    private final Map<ByteBuffer, Integer> dataIndexes = new HashMap<>();
+    private final List<byte[]> data = new ArrayList<>();
+
+    private boolean perfectHash = true;
+    private int serial = 0;
+    private byte[] previousKey = null;
+    private int keyCount = 0;
+
+    /** The FSA image, once built */
+    private byte[] image = null;
+
+    public FSABuilder() {
+        path.add(new State());
+    }
+
+    /** Sets whether to add a perfect hash to the automaton. Default is true. */
+    public FSABuilder perfectHash(boolean perfectHash) {
+        requireNotBuilt();
+        this.perfectHash = perfectHash;
+        return this;
+    }
+
+    /** Sets the serial number stored in the automaton. Default is 0. */
+    public FSABuilder serial(int serial) {
+        requireNotBuilt();
+        this.serial = serial;
+        return this;
+    }
+
+    /** Adds a key with the empty string as data */
+    public FSABuilder add(String key) {
+        return add(key, "");
+    }
+
+    /** Adds a key with the given string as data, stored zero terminated */
+    public FSABuilder add(String key, String data) {
+        byte[] bytes = Utf8.toBytes(data);
+        return add(key, Arrays.copyOf(bytes, bytes.length + 1));
+    }
+
+    /**
+     * Adds a key with the given data.
+     *
+     * @throws IllegalArgumentException if the key is not after the previously added key in UTF-8 byte order,
+     *         or contains the character 0
+     */
+    public FSABuilder add(String key, byte[] data) {
+        requireNotBuilt();
+        byte[] bytes = Utf8.toBytes(key);
+        for (byte b : bytes)
+            if (b == emptySymbol)
+                throw new IllegalArgumentException("Key '" + key + "' contains the character 0, which is not allowed in an FSA");
+        if (previousKey != null && Arrays.compareUnsigned(previousKey, bytes) >= 0)
+            throw new IllegalArgumentException("Keys must be added in increasing UTF-8 byte order without duplicates, " +
+                                               "but '" + key + "' was added after '" + Utf8.toString(previousKey) + "'");
+
+        int prefixLength = previousKey == null ? 0 : Arrays.mismatch(previousKey, bytes);
+        registerPathBelow(prefixLength);
+
+        State state = path.get(prefixLength);
+        for (int i = prefixLength; i < bytes.length; i++) {
+            State next = new State();
+            state.add(bytes[i] & 0xff, next);
+            path.add(next);
+            state = next;
+        }
+        state.data = dataIndexOf(data);
+        previousKey = bytes;
+        keyCount++;
+        return this;
+    }
+
+    /** Returns the number of keys added */
+    public int size() { return keyCount; }
+
+    /** Builds an FSA from the keys added, on the heap. No more keys can be added after this. */
+    public FSA build() {
+        return new FSA(ByteBuffer.wrap(toBytes()).asReadOnlyBuffer());
+    }
+
+    /** Builds an FSA from the keys added, in memory outside the heap. No more keys can be added after this. */
+    public FSA buildOffHeap() {
+        byte[] bytes = toBytes();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return new FSA(buffer.asReadOnlyBuffer());
+    }
+
+    /** Writes an FSA file of the keys added to the given path. No more keys can be added after this. */
+    public void write(Path file) throws IOException {
+        Files.write(file, toBytes());
+    }
+
+    /**
+     * Returns the FSA of the keys added, in the FSA file format. No more keys can be added after this.
+     * The returned array is owned by this and must not be modified.
+     */
+    public byte[] toBytes() {
+        if (image == null) {
+            registerPathBelow(0);
+            image = new Packer().pack(path.get(0));
+        }
+        return image;
+    }
+
+    private void requireNotBuilt() {
+        if (image != null)
+            throw new IllegalStateException("This FSA is already built");
+    }
+
+    private int dataIndexOf(byte[] item) {
+        byte[] copy = item.clone();
+        return dataIndexes.computeIfAbsent(ByteBuffer.wrap(copy), __ -> {
+            data.add(copy);
+            return data.size() - 1;
+        });
+    }
+
+    /**
+     * Replaces the states on the path of the previous key below the given depth by an equivalent registered
+     * state if there is one, and registers them otherwise. Registered states are never changed.
+     */
+    private void registerPathBelow(int depth) {
+        for (int i = path.size() - 1; i > depth; i--) {
+            State state = path.remove(i);
+            State registeredState = register.putIfAbsent(state, state);
+            if (registeredState != null) {
+                path.get(i - 1).replaceLastTarget(registeredState);
+            }
+            else {
+                registered.add(state);
+            }
+        }
+    }
+
+    /** A state under construction */
+    private static class State {
+
+        private int[] symbols = new int[1];
+        private State[] targets = new State[1];
+        private int size = 0;
+
+        /** The index of the data of this if it is final, -1 otherwise */
+        private int data = -1;
+
+        /** The first cell of this in the packed automaton, or 0 if not packed */
+        private int cell = 0;
+
+        /** The number of keys accepted from this state, once computed */
+        private int keyCount = 0;
+
+        void add(int symbol, State target) {
+            if (size == symbols.length) {
+                symbols = Arrays.copyOf(symbols, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+            }
+            symbols[size] = symbol;
+            targets[size] = target;
+            size++;
+        }
+
+        void replaceLastTarget(State target) {
+            targets[size - 1] = target;
+        }
+
+        boolean isFinal() { return data >= 0; }
+
+        /** Two states are equal if they have the same data and transitions to the same states */
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof State other)) return false;
+            if (data != other.data || size != other.size) return false;
+            for (int i = 0; i < size; i++) {
+                if (symbols[i] != other.symbols[i] || targets[i] != other.targets[i]) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = data;
+            for (int i = 0; i < size; i++)
+                hash = 31 * (31 * hash + symbols[i]) + System.identityHashCode(targets[i]);
+            return hash;
+        }
+
+    }
+
+    /**
+     * Packs the states into overlapping cells of a symbol and a state table, such that each state
+     * starts at a distinct cell c, and its transition on symbol s is in cell c + s.
+     */
+    private class Packer {
+
+        private byte[] symbolTable = new byte[1 << 16];
+        private int[] stateTable = new int[1 << 16];
+        private boolean[] usedCells = new boolean[1 << 16];
+        private int lastPacked = 0;
+
+        byte[] pack(State start) {
+            int[] dataOffsets = new int[data.size()];
+            int dataType = dataType();
+            int fixedDataSize = dataType == dataFixed ? data.get(0).length : 0;
+            int dataSize = 0;
+            for (int i = 0; i < data.size(); i++) {
+                dataOffsets[i] = dataSize;
+                dataSize += data.get(i).length + (dataType == dataVariable ? 4 : 0);
+            }
+
+            for (State state : registered)
+                place(state);
+            place(start);
+
+            int size = lastPacked + 256;
+            for (State state : registered)
+                fill(state, dataOffsets);
+            fill(start, dataOffsets);
+
+            long imageSize = headerSize + 5L * size + dataSize + (perfectHash ? 4L * size : 0);
+            if (imageSize > Integer.MAX_VALUE)
+                throw new IllegalStateException("The FSA is too large: " + imageSize + " bytes");
+            ByteBuffer buffer = ByteBuffer.allocate((int) imageSize).order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.position(headerSize);
+            buffer.put(symbolTable, 0, size);
+            for (int i = 0; i < size; i++)
+                buffer.putInt(stateTable[i]);
+            for (byte[] item : data) {
+                if (dataType == dataVariable)
+                    buffer.putInt(item.length);
+                buffer.put(item);
+            }
+            if (perfectHash) {
+                int[] hashes = perfectHashes(start, size);
+                for (int i = 0; i < size; i++)
+                    buffer.putInt(hashes[i]);
+            }
+
+            int checksum = checksum(buffer, headerSize, size) + checksum(buffer, headerSize + size, 4 * size) +
+                           checksum(buffer, headerSize + 5 * size, dataSize);
+            if (perfectHash)
+                checksum += checksum(buffer, headerSize + 5 * size + dataSize, 4 * size);
+
+            buffer.putInt(0, FSA.MAGIC);
+            buffer.putInt(4, version);
+            buffer.putInt(8, checksum);
+            buffer.putInt(12, size);
+            buffer.putInt(16, start.cell);
+            buffer.putInt(20, dataSize);
+            buffer.putInt(24, dataType);
+            buffer.putInt(28, fixedDataSize);
+            buffer.putInt(32, perfectHash ? 1 : 0);
+            buffer.putInt(36, serial);
+            return buffer.array();
+        }
+
+        /** Data is stored without sizes if all items have the same size */
+        private int dataType() {
+            if (data.isEmpty()) return dataVariable;
+            for (byte[] item : data)
+                if (item.length != data.get(0).length) return dataVariable;
+            return dataFixed;
+        }
+
+        /** Finds the first free cell from shortly before the last packed cell which fits the given state */
+        private void place(State state) {
+            int cell = Math.max(1, lastPacked - backcheck);
+            while ( ! fits(state, cell))
+                cell++;
+
+            usedCells[cell] = true;
+            for (int i = 0; i < state.size; i++)
+                symbolTable[cell + state.symbols[i]] = (byte) state.symbols[i];
+            if (state.isFinal())
+                symbolTable[cell + finalSymbol] = (byte) finalSymbol;
+            state.cell = cell;
+            lastPacked = Math.max(lastPacked, cell);
+        }
+
+        private boolean fits(State state, int cell) {
+            ensureCapacity(cell + 256);
+            if (usedCells[cell]) return false;
+            for (int i = 0; i < state.size; i++)
+                if (symbolTable[cell + state.symbols[i]] != emptySymbol) return false;
+            return ! state.isFinal() || symbolTable[cell + finalSymbol] == emptySymbol;
+        }
+
+        private void ensureCapacity(int cells) {
+            if (cells <= symbolTable.length) return;
+            int length = Math.max(cells, symbolTable.length * 2);
+            symbolTable = Arrays.copyOf(symbolTable, length);
+            stateTable = Arrays.copyOf(stateTable, length);
+            usedCells = Arrays.copyOf(usedCells, length);
+        }
+
+        /** Sets the state table entries of the given state: Target states, and the data offset if final */
+        private void fill(State state, int[] dataOffsets) {
+            for (int i = 0; i < state.size; i++)
+                stateTable[state.cell + state.symbols[i]] = state.targets[i].cell;
+            if (state.isFinal())
+                stateTable[state.cell + finalSymbol] = dataOffsets[state.data];
+        }
+
+        /**
+         * Returns the perfect hash table, where the cell of each transition holds the number of keys
+         * accepted from the state before that transition, such that the sum along a key is its index.
+         */
+        private int[] perfectHashes(State start, int size) {
+            int[] hashes = new int[size];
+            for (State state : registered)
+                countKeys(state, hashes);
+            countKeys(start, hashes);
+            return hashes;
+        }
+
+        private void countKeys(State state, int[] hashes) {
+            int count = state.isFinal() ? 1 : 0;
+            for (int i = 0; i < state.size; i++) { // transitions are in symbol order
+                hashes[state.cell + state.symbols[i]] = count;
+                count += state.targets[i].keyCount;
+            }
+            state.keyCount = count;
+        }
+
+        /**
+         * Returns the checksum of a region as computed by the native FSA library: The sum of its little endian ints,
+         * plus the remaining bytes if the length is odd.
+         */
+        private static int checksum(ByteBuffer buffer, int offset, int length) {
+            int checksum = 0;
+            int i = 0;
+            for (; i < length / 4; i++)
+                checksum += buffer.getInt(offset + 4 * i);
+            if ((length & 1) != 0) { // sic: the native library skips the rest when length % 4 == 2
+                int rest = 0;
+                for (int j = 0; j < (length & 3); j++)
+                    rest |= (buffer.get(offset + 4 * i + j) & 0xff) << (8 * j);
+                checksum += rest;
+            }
+            return checksum;
+        }
+
+    }
+
+}
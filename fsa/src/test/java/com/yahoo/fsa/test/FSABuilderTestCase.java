@@ -0,0 +1,199 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.fsa.test;
+
+import com.yahoo.fsa.FSA;
+import com.yahoo.fsa.FSABuilder;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author bratseth
+ */
+public class FSABuilderTestCase {
+
+    private static final int headerSize = 256;
+
+    @Test
+    public void testSameContentAsNativeBuilder() throws IOException {
+        for (String name : List.of("test-data", "test-iterator")) {
+            FSABuilder builder = new FSABuilder();
+            for (String line : Files.readAllLines(Path.of("src/test/input/" + name + "-input.txt"))) {
+                String[] keyAndData = line.split("\t");
+                builder.add(keyAndData[0], keyAndData[1]);
+            }
+            assertSameContent(new FSA("src/test/fsa/" + name + ".fsa"), builder.build());
+        }
+
+        FSABuilder builder = new FSABuilder();
+        Files.readAllLines(Path.of("src/test/input/test-fsa-input.txt")).forEach(builder::add);
+        FSA fsa = builder.build();
+        assertSameContent(new FSA("src/test/fsa/test-fsa.fsa"), fsa);
+        assertTrue(fsa.getState().tryDeltaWord("this"));
+        assertFalse(fsa.getState().tryDeltaWord("thi"));
+    }
+
+    @Test
+    public void testDataAndPerfectHash() {
+        List<String> keys = randomSortedKeys(5000);
+        FSABuilder builder = new FSABuilder().serial(17);
+        for (int i = 0; i < keys.size(); i++)
+            builder.add(keys.get(i), "data" + (i % 100));
+        FSA fsa = builder.build();
+
+        assertTrue(fsa.hasPerfectHash());
+        assertEquals(17, fsa.serial());
+        FSA.State state = fsa.getState();
+        for (int i = 0; i < keys.size(); i++) {
+            state.start();
+            state.delta(keys.get(i));
+            assertTrue(state.isFinal());
+            assertEquals("data" + (i % 100), state.dataString());
+            assertEquals(i, state.hash());
+        }
+        assertNull(fsa.lookup("not a key"));
+        assertNull(fsa.lookup(keys.get(0).substring(0, keys.get(0).length() - 1)));
+
+        List<String> iterated = new ArrayList<>();
+        fsa.iterator().forEachRemaining(item -> iterated.add(item.getString()));
+        assertEquals(keys, iterated);
+    }
+
+    @Test
+    public void testBinaryData() {
+        FSA fsa = new FSABuilder().perfectHash(false)
+                                  .add("a", new byte[] { 1, 0, 0, 0 })
+                                  .add("b", new byte[] { 2, 0, 0, 0 })
+                                  .add("c", new byte[] { 1, 0, 0, 0 })
+                                  .buildOffHeap();
+        assertFalse(fsa.hasPerfectHash());
+        assertEquals(2, fsa.getState().lookup("b").getInt());
+        assertEquals(1, fsa.getState().lookup("c").getInt());
+    }
+
+    @Test
+    public void testUnicodeKeys() {
+        FSA fsa = new FSABuilder().add("abc").add("blåbær", "berry").add("हिन्दी").add("😀").build();
+        assertEquals("berry", fsa.lookup("blåbær"));
+        assertEquals("", fsa.lookup("हिन्दी"));
+        assertEquals("", fsa.lookup("😀"));
+        assertNull(fsa.lookup("blå"));
+    }
+
+    @Test
+    public void testEmpty() {
+        FSA fsa = new FSABuilder().build();
+        assertNull(fsa.lookup("a"));
+        assertFalse(fsa.iterator().hasNext());
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        FSABuilder builder = new FSABuilder();
+        randomSortedKeys(1000).forEach(key -> builder.add(key, key.toUpperCase()));
+        Path file = Files.createTempFile("fsa", ".fsa");
+        try {
+            builder.write(file);
+            try (FSA fsa = new FSA(file.toString())) {
+                assertSameContent(builder.build(), fsa);
+            }
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Verifies that the checksum and tables written are the same as in files built by makefsa
+     * (without perfect hash) from the same input. test-iterator.fsa is built by an older makefsa
+     * with a different state packing, and is not included.
+     */
+    @Test
+    public void testSameFileAsNativeBuilder() throws IOException {
+        assertSameFile("test-data", "test-data-input.txt");
+        assertSameFile("test-fsa", "test-fsa-input.txt");
+        assertSameFile("utf8", "utf8.txt");
+    }
+
+    private static void assertSameFile(String name, String input) throws IOException {
+        FSABuilder builder = new FSABuilder().perfectHash(false);
+        for (String line : Files.readAllLines(Path.of("src/test/input/" + input))) {
+            String[] keyAndData = line.split("\t");
+            if (keyAndData.length > 1)
+                builder.add(keyAndData[0], keyAndData[1]);
+            else
+                builder.add(keyAndData[0]);
+        }
+        Path file = Files.createTempFile("fsa", ".fsa");
+        try {
+            builder.write(file);
+            byte[] expected = Files.readAllBytes(Path.of("src/test/fsa/" + name + ".fsa"));
+            byte[] actual = Files.readAllBytes(file);
+            assertEquals("Checksum of " + name, checksumOf(expected), checksumOf(actual));
+            assertArrayEquals("Tables of " + name,
+                              Arrays.copyOfRange(expected, headerSize, expected.length),
+                              Arrays.copyOfRange(actual, headerSize, actual.length));
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    /** Returns the checksum stored in the header of an automaton file */
+    private static int checksumOf(byte[] file) {
+        return ByteBuffer.wrap(file).order(ByteOrder.LITTLE_ENDIAN).getInt(8);
+    }
+
+    @Test
+    public void testIllegalKeys() {
+        FSABuilder builder = new FSABuilder().add("b");
+        assertThrows(IllegalArgumentException.class, () -> builder.add("a"));
+        assertThrows(IllegalArgumentException.class, () -> builder.add("b"));
+        assertThrows(IllegalArgumentException.class, () -> builder.add("c\0"));
+        builder.add("c");
+        builder.build();
+        assertThrows(IllegalStateException.class, () -> builder.add("d"));
+    }
+
+    private static void assertSameContent(FSA expected, FSA actual) {
+        FSA.Iterator expectedItems = expected.iterator();
+        FSA.Iterator actualItems = actual.iterator();
+        while (expectedItems.hasNext()) {
+            assertTrue(actualItems.hasNext());
+            FSA.Iterator.Item expectedItem = expectedItems.next();
+            FSA.Iterator.Item actualItem = actualItems.next();
+            assertEquals(expectedItem.getString(), actualItem.getString());
+            assertEquals(expectedItem.getData(), actualItem.getData());
+        }
+        assertFalse(actualItems.hasNext());
+    }
+
+    private static List<String> randomSortedKeys(int count) {
+        Random random = new Random(0);
+        TreeSet<String> keys = new TreeSet<>();
+        while (keys.size() < count) {
+            StringBuilder key = new StringBuilder();
+            for (int i = 1 + random.nextInt(12); i > 0; i--)
+                key.append((char) ('a' + random.nextInt(6)));
+            keys.add(key.toString());
+        }
+        return new ArrayList<>(keys);
+    }
+
+}
@@ -3,6 +3,7 @@ package com.yahoo.language.sentencepiece;
 
 import com.yahoo.io.IOUtils;
 import com.yahoo.language.Language;
+import com.yahoo.language.tools.DoubleArrayTrie;
 import sentencepiece.SentencepieceModel;
 
 import java.io.IOException;
@@ -21,26 +22,33 @@ final class Model {
     final Language language;
     final float minScore;
     final float maxScore;
-    final Trie tokens = new Trie();
+    final DoubleArrayTrie tokens;
+    final TokenType[] tokenTypes;
+    final float[] tokenScores;
     final Map<Integer, Token> tokenId2Token = new HashMap<>();
 
-
     Model(Language language, Path path) {
         try {
             this.source = path;
             this.language = language;
             var sp = SentencepieceModel.ModelProto.parseFrom(IOUtils.readFileBytes(path.toFile()));
+            var tokensBuilder = new DoubleArrayTrie.Builder();
+            this.tokenTypes = new TokenType[sp.getPiecesCount()];
+            this.tokenScores = new float[sp.getPiecesCount()];
             float minScore = Float.MAX_VALUE;
             float maxScore = Float.MIN_VALUE;
             for (int i = 0; i < sp.getPiecesCount(); i++) {
                 var piece = sp.getPieces(i);
                 var type = toTokenType(piece.getType());
                 var word = piece.getPiece();
-                tokens.add(type, i, word, piece.getScore());
+                tokensBuilder.add(word, i);
+                tokenTypes[i] = type;
+                tokenScores[i] = piece.getScore();
                 tokenId2Token.put(i, new Token(word, type));
                 minScore = Math.min(piece.getScore(), minScore);
                 maxScore = Math.max(piece.getScore(), maxScore);
             }
+            this.tokens = tokensBuilder.build();
             this.minScore = minScore;
             this.maxScore = maxScore;
         } catch (IOException e) {
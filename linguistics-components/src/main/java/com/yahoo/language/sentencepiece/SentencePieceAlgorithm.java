@@ -1,6 +1,8 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.language.sentencepiece;
 
+import com.yahoo.language.tools.DoubleArrayTrie;
+
 /**
  * SentencePiece algorithm implementation
  *
@@ -25,14 +27,15 @@ class SentencePieceAlgorithm {
         segmentEnds[0] = new SegmentEnd(TokenType.unknown, 0, 0, 0, 0);
         int start = 0;
         while (start < input.length()) { // segment from this position to the end of the text
-            Trie.Node node = model.tokens.root;
+            int state = DoubleArrayTrie.root;
             int characterPosition = start;
-            while (node != null && characterPosition < input.length()) { // traverse the trie one character at the time from this position
-                node = node.children.get(input.charAt(characterPosition++));
+            while (state != DoubleArrayTrie.noState && characterPosition < input.length()) { // traverse the trie one character at the time from this position
+                state = model.tokens.next(state, input.charAt(characterPosition++));
                 int length = characterPosition - start;
-                if (node != null && node.isToken() && node.type != TokenType.unused) {
-                    float score = node.type == TokenType.userDefined ? (length * model.maxScore - 0.1f) : node.score;
-                    addSegment(TokenType.text, node.id, start, characterPosition, score, segmentEnds);
+                int id = state == DoubleArrayTrie.noState ? DoubleArrayTrie.noValue : model.tokens.value(state);
+                if (id != DoubleArrayTrie.noValue && model.tokenTypes[id] != TokenType.unused) {
+                    float score = model.tokenTypes[id] == TokenType.userDefined ? (length * model.maxScore - 0.1f) : model.tokenScores[id];
+                    addSegment(TokenType.text, id, start, characterPosition, score, segmentEnds);
                 }
                 else if (length == 1) { // add an 'unknown' length 1 token to make the next position reachable
                     addSegment(TokenType.unknown, 0, start, start + 1, model.minScore - 10.0f, segmentEnds);
@@ -0,0 +1,228 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.tools;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable double-array trie from strings to non-negative int values, used for tokenizer vocabularies.
+ * All state is kept in a few primitive arrays, so lookups do not allocate or chase pointers.
+ *
+ * Traversal is done one character at the time from the root:
+ * <pre>
+ *     int state = DoubleArrayTrie.root;
+ *     for (int i = 0; i &lt; text.length() &amp;&amp; state != DoubleArrayTrie.noState; i++) {
+ *         state = trie.next(state, text.charAt(i));
+ *         if (state != DoubleArrayTrie.noState &amp;&amp; trie.value(state) != DoubleArrayTrie.noValue)
+ *             ... text.substring(0, i + 1) is a key
+ *     }
+ * </pre>
+ *
+ * @author bratseth
+ */
+public final class DoubleArrayTrie {
+
+    /** The state traversal starts from */
+    public static final int root = 0;
+
+    /** Returned from {@link #next} when there is no transition on the given character */
+    public static final int noState = -1;
+
+    /** Returned from {@link #value} and {@link #get} for states and strings which are not keys */
+    public static final int noValue = -1;
+
+    /** Maps a character to its code in the transition arrays, where 0 means the character is not used by any key */
+    private final char[] codes;
+
+    /** The offset of the children of each state */
+    private final int[] base;
+
+    /** The parent of each state, or -1 if the position is not in use */
+    private final int[] check;
+
+    /** The value of each state, or noValue if the state is not the end of a key */
+    private final int[] values;
+
+    private final int size;
+
+    private DoubleArrayTrie(char[] codes, int[] base, int[] check, int[] values, int size) {
+        this.codes = codes;
+        this.base = base;
+        this.check = check;
+        this.values = values;
+        this.size = size;
+    }
+
+    /** Returns the state reached from the given state by the given character, or noState if none */
+    public int next(int state, char c) {
+        if (c >= codes.length) return noState;
+        int code = codes[c];
+        if (code == 0) return noState;
+        int target = base[state] + code;
+        if (target >= check.length || check[target] != state) return noState;
+        return target;
+    }
+
+    /** Returns the value of the key ending in the given state, or noValue if this state does not end a key */
+    public int value(int state) { return values[state]; }
+
+    /** Returns the value of the given key, or noValue if it is not present */
+    public int get(CharSequence key) {
+        int state = root;
+        for (int i = 0; i < key.length() && state != noState; i++)
+            state = next(state, key.charAt(i));
+        return state == noState ? noValue : values[state];
+    }
+
+    /** Returns the number of keys in this */
+    public int size() { return size; }
+
+    /** Returns the approximate number of bytes of heap used by the arrays of this */
+    public long sizeInBytes() {
+        return (long)codes.length * Character.BYTES + ((long)base.length + check.length + values.length) * Integer.BYTES;
+    }
+
+    public static class Builder {
+
+        private final Map<String, Integer> entries = new TreeMap<>();
+
+        /** Adds a key with a non-negative value. If the key is already added, the previous value is replaced. */
+        public Builder add(String key, int value) {
+            if (value < 0) throw new IllegalArgumentException("Values must be non-negative, got " + value + " for '" + key + "'");
+            entries.put(key, value);
+            return this;
+        }
+
+        public DoubleArrayTrie build() {
+            return new Construction(entries).build();
+        }
+
+    }
+
+    /** Holds the state needed while constructing the arrays of a trie */
+    private static class Construction {
+
+        private final String[] keys;
+        private final int[] keyValues;
+        private final char[] codes;
+
+        private int[] base;
+        private int[] check;
+        private int[] values;
+        private int maxState = 0;
+
+        /** All positions before this are known to be in use */
+        private int nextCheckPosition = 1;
+
+        Construction(Map<String, Integer> entries) {
+            keys = new String[entries.size()];
+            keyValues = new int[entries.size()];
+            int i = 0;
+            char maxChar = 0;
+            for (var entry : entries.entrySet()) {
+                keys[i] = entry.getKey();
+                keyValues[i++] = entry.getValue();
+                for (int j = 0; j < entry.getKey().length(); j++)
+                    maxChar = (char)Math.max(maxChar, entry.getKey().charAt(j));
+            }
+
+            codes = new char[keys.length == 0 ? 0 : maxChar + 1];
+            char nextCode = 1;
+            for (String key : keys)
+                for (int j = 0; j < key.length(); j++)
+                    if (codes[key.charAt(j)] == 0)
+                        codes[key.charAt(j)] = nextCode++;
+
+            int initialCapacity = Math.max(1024, keys.length * 2);
+            base = new int[initialCapacity];
+            check = new int[initialCapacity];
+            values = new int[initialCapacity];
+            Arrays.fill(check, -1);
+            Arrays.fill(values, noValue);
+            check[root] = root;
+        }
+
+        DoubleArrayTrie build() {
+            if (keys.length > 0)
+                insert(root, 0, keys.length, 0);
+            int length = maxState + 1;
+            return new DoubleArrayTrie(codes,
+                                       Arrays.copyOf(base, length),
+                                       Arrays.copyOf(check, length),
+                                       Arrays.copyOf(values, length),
+                                       keys.length);
+        }
+
+        /** Inserts the keys in the given range, which all share the first depth characters and end at state */
+        private void insert(int state, int from, int to, int depth) {
+            if (keys[from].length() == depth) // keys are sorted, so a key ending here comes first
+                values[state] = keyValues[from++];
+            if (from == to) return;
+
+            int childCount = 0;
+            char[] childCodes = new char[to - from];
+            int[] childStarts = new int[to - from + 1];
+            for (int i = from; i < to; i++) {
+                char code = codes[keys[i].charAt(depth)];
+                if (childCount == 0 || childCodes[childCount - 1] != code) {
+                    childCodes[childCount] = code;
+                    childStarts[childCount++] = i;
+                }
+            }
+            childStarts[childCount] = to;
+
+            int childBase = findBase(childCodes, childCount);
+            base[state] = childBase;
+            for (int i = 0; i < childCount; i++) { // claim all positions before descending
+                int child = childBase + childCodes[i];
+                check[child] = state;
+                maxState = Math.max(maxState, child);
+            }
+            for (int i = 0; i < childCount; i++)
+                insert(childBase + childCodes[i], childStarts[i], childStarts[i + 1], depth + 1);
+        }
+
+        /** Returns the lowest base where all the given child codes map to free positions */
+        private int findBase(char[] childCodes, int childCount) {
+            char minCode = childCodes[0];
+            char maxCode = childCodes[0];
+            for (int i = 1; i < childCount; i++) {
+                minCode = (char)Math.min(minCode, childCodes[i]);
+                maxCode = (char)Math.max(maxCode, childCodes[i]);
+            }
+
+            boolean atFirstFree = minCode <= nextCheckPosition;
+            for (int position = Math.max(nextCheckPosition, minCode); ; position++) {
+                ensureCapacity(position + maxCode - minCode + 1);
+                if (check[position] != -1) continue;
+                if (atFirstFree) { // skip the prefix of used positions next time
+                    nextCheckPosition = position;
+                    atFirstFree = false;
+                }
+                int candidate = position - minCode;
+                if (allFree(candidate, childCodes, childCount))
+                    return candidate;
+            }
+        }
+
+        private boolean allFree(int candidateBase, char[] childCodes, int childCount) {
+            for (int i = 0; i < childCount; i++)
+                if (check[candidateBase + childCodes[i]] != -1) return false;
+            return true;
+        }
+
+        private void ensureCapacity(int size) {
+            if (size <= check.length) return;
+            int newSize = Math.max(size, check.length + check.length / 2);
+            int oldSize = check.length;
+            base = Arrays.copyOf(base, newSize);
+            check = Arrays.copyOf(check, newSize);
+            values = Arrays.copyOf(values, newSize);
+            Arrays.fill(check, oldSize, newSize, -1);
+            Arrays.fill(values, oldSize, newSize, noValue);
+        }
+
+    }
+
+}
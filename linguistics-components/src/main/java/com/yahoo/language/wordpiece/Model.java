@@ -1,11 +1,11 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.language.wordpiece;
 
-import com.yahoo.collections.Tuple2;
 import com.yahoo.language.Language;
 import com.yahoo.language.process.StemMode;
 import com.yahoo.language.process.Token;
 import com.yahoo.language.process.Tokenizer;
+import com.yahoo.language.tools.DoubleArrayTrie;
 
 import java.io.BufferedReader;
 import java.io.FileInputStream;
@@ -14,12 +14,7 @@ import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.NavigableMap;
-import java.util.TreeMap;
 
 /**
  * A WordPiece embedder "model" - just a vocabulary of strings with a fixed id (index).
@@ -36,30 +31,29 @@ class Model {
     private final String subwordPrefix;
     private final Path source;
     private final Language language;
-    private final NavigableMap<String, Integer> vocabulary;
-    private final Map<Integer, String> tokenId2Token;
+    private final DoubleArrayTrie vocabulary;
+    private final String[] tokenId2Token;
 
     Model(String subwordPrefix, Language language, Path path) {
         this.subwordPrefix = subwordPrefix;
         this.source = path;
         this.language = language;
 
-        this.vocabulary = new TreeMap<>(Collections.reverseOrder());
-        this.tokenId2Token = new HashMap<>();
+        var vocabularyBuilder = new DoubleArrayTrie.Builder();
+        var tokens = new ArrayList<String>();
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(path.toFile()),
                                                                               StandardCharsets.UTF_8))) {
             String token;
-            int i = 0;
             while ((token = reader.readLine()) != null) {
-                this.vocabulary.put(token, i);
-                this.tokenId2Token.put(i, token);
-                i++;
+                vocabularyBuilder.add(token, tokens.size());
+                tokens.add(token);
             }
         }
         catch (IOException e) {
             throw new IllegalArgumentException("Could not read a WordPiece model from " + path, e);
         }
-
+        this.vocabulary = vocabularyBuilder.build();
+        this.tokenId2Token = tokens.toArray(new String[0]);
     }
 
     Language language() { return language; }
@@ -72,10 +66,20 @@ class Model {
             String candidate = originalToken;
             int count = 0;
             while (candidate.length() > 0 && !candidate.equals(subwordPrefix)) {
-                Tuple2<String, Integer> entry = findLongestSubstring(candidate);
-                if (entry == null) break;
-                ids.add(entry.second);
-                candidate = subwordPrefix + candidate.substring(entry.first.length());
+                int id = DoubleArrayTrie.noValue;
+                int length = 0;
+                int state = DoubleArrayTrie.root;
+                for (int i = 0; i < candidate.length(); i++) { // find the longest vocabulary entry prefixing candidate
+                    state = vocabulary.next(state, candidate.charAt(i));
+                    if (state == DoubleArrayTrie.noState) break;
+                    if (vocabulary.value(state) != DoubleArrayTrie.noValue) {
+                        id = vocabulary.value(state);
+                        length = i + 1;
+                    }
+                }
+                if (id == DoubleArrayTrie.noValue) break;
+                ids.add(id);
+                candidate = subwordPrefix + candidate.substring(length);
                 if (count++ > originalToken.length()) break;
             }
         }
@@ -84,25 +88,7 @@ class Model {
     }
 
     List<String> segment(String text, Tokenizer tokenizer) {
-        return embed(text, tokenizer).stream().map(tokenId -> tokenId2Token.get(tokenId)).toList();
-    }
-
-    private Tuple2<String, Integer> findLongestSubstring(String candidate) {
-        NavigableMap<String, Integer> tailMap = this.vocabulary.tailMap(candidate, true);
-        if (tailMap.isEmpty())
-            return null;
-        String longestSubstring = tailMap.firstKey();
-        Integer id = tailMap.firstEntry().getValue();
-        int subStringLength = Math.min(candidate.length(), longestSubstring.length());
-        while (!candidate.startsWith(longestSubstring)) {
-            subStringLength--;
-            tailMap = tailMap.tailMap(candidate.substring(0, subStringLength), true);
-            if (tailMap.isEmpty())
-                return null;
-            longestSubstring = tailMap.firstKey();
-            id = tailMap.firstEntry().getValue();
-        }
-        return new Tuple2<>(longestSubstring, id);
+        return embed(text, tokenizer).stream().map(tokenId -> tokenId2Token[tokenId]).toList();
     }
 
     @Override
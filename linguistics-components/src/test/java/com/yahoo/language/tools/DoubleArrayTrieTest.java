@@ -0,0 +1,84 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.tools;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author bratseth
+ */
+public class DoubleArrayTrieTest {
+
+    @Test
+    public void testLookup() {
+        var trie = new DoubleArrayTrie.Builder().add("a", 1)
+                                                .add("ab", 2)
+                                                .add("abc", 3)
+                                                .add("b", 4)
+                                                .add("##ing", 5)
+                                                .add("▁hel", 6)
+                                                .add("ab", 7) // replaces
+                                                .build();
+        assertEquals(6, trie.size());
+        assertEquals(1, trie.get("a"));
+        assertEquals(7, trie.get("ab"));
+        assertEquals(3, trie.get("abc"));
+        assertEquals(4, trie.get("b"));
+        assertEquals(5, trie.get("##ing"));
+        assertEquals(6, trie.get("▁hel"));
+        assertEquals(DoubleArrayTrie.noValue, trie.get("abcd"));
+        assertEquals(DoubleArrayTrie.noValue, trie.get("##"));
+        assertEquals(DoubleArrayTrie.noValue, trie.get("c"));
+        assertEquals(DoubleArrayTrie.noValue, trie.get("x"));
+        assertEquals(DoubleArrayTrie.noValue, trie.get("▁"));
+    }
+
+    @Test
+    public void testTraversal() {
+        var trie = new DoubleArrayTrie.Builder().add("he", 0).add("hello", 1).add("help", 2).build();
+        int state = DoubleArrayTrie.root;
+        state = trie.next(state, 'h');
+        assertEquals(DoubleArrayTrie.noValue, trie.value(state));
+        state = trie.next(state, 'e');
+        assertEquals(0, trie.value(state));
+        assertEquals(DoubleArrayTrie.noState, trie.next(state, 'x'));
+        assertEquals(DoubleArrayTrie.noState, trie.next(state, '\uffff'));
+        state = trie.next(state, 'l');
+        assertEquals(2, trie.value(trie.next(state, 'p')));
+    }
+
+    @Test
+    public void testEmpty() {
+        var trie = new DoubleArrayTrie.Builder().build();
+        assertEquals(0, trie.size());
+        assertEquals(DoubleArrayTrie.noValue, trie.get("a"));
+    }
+
+    @Test
+    public void testManyKeys() {
+        Random random = new Random(1);
+        Map<String, Integer> keys = new HashMap<>();
+        var builder = new DoubleArrayTrie.Builder();
+        for (int i = 0; i < 10000; i++) {
+            StringBuilder key = new StringBuilder();
+            int length = 1 + random.nextInt(8);
+            for (int j = 0; j < length; j++)
+                key.append((char)(random.nextBoolean() ? 'a' + random.nextInt(26) : 0x3040 + random.nextInt(96)));
+            keys.put(key.toString(), i);
+            builder.add(key.toString(), i);
+        }
+        var trie = builder.build();
+        assertEquals(keys.size(), trie.size());
+        for (var entry : keys.entrySet()) {
+            assertEquals((int)entry.getValue(), trie.get(entry.getKey()));
+            if ( ! keys.containsKey(entry.getKey() + "z"))
+                assertEquals(DoubleArrayTrie.noValue, trie.get(entry.getKey() + "z"));
+        }
+    }
+
+}
@@ -0,0 +1,38 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.wordpiece;
+
+import com.yahoo.language.Language;
+import com.yahoo.language.simple.SimpleTokenizer;
+
+import java.nio.file.Path;
+
+/**
+ * Measures WordPiece segmentation throughput.
+ *
+ * @author bratseth
+ */
+public class WordPieceMicroBenchmark {
+
+    private static final String text = "what was the impact of the manhattan project on overcommunication " +
+                                       "and hyperparameterization in contemporary transformer architectures";
+
+    public static void main(String[] args) {
+        var model = new Model("##", Language.UNKNOWN, Path.of("src/test/models/wordpiece/bert-base-uncased-vocab.txt"));
+        var tokenizer = new SimpleTokenizer();
+        run(100000, model, tokenizer); // warm-up
+        int count = 1000000;
+        long startTime = System.nanoTime();
+        long tokens = run(count, model, tokenizer);
+        long totalTime = System.nanoTime() - startTime;
+        System.out.println("Segmented " + count + " texts into " + tokens + " tokens in " + totalTime / 1_000_000 + " ms (" +
+                           (long)(tokens / (totalTime / 1e9)) + " tokens/s)");
+    }
+
+    private static long run(int count, Model model, SimpleTokenizer tokenizer) {
+        long tokens = 0;
+        for (int i = 0; i < count; i++)
+            tokens += model.embed(text, tokenizer).size();
+        return tokens;
+    }
+
+}
@@ -0,0 +1,192 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language;
+
+import com.yahoo.language.detect.Detector;
+import com.yahoo.language.process.CharacterClasses;
+import com.yahoo.language.process.GramSplitter;
+import com.yahoo.language.process.Normalizer;
+import com.yahoo.language.process.Segmenter;
+import com.yahoo.language.process.StemList;
+import com.yahoo.language.process.StemMode;
+import com.yahoo.language.process.Stemmer;
+import com.yahoo.language.process.Tokenizer;
+import com.yahoo.language.process.Transformer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A linguistics decorator which memoizes the results of the stemmer, normalizer and transformer
+ * of the wrapped linguistics. This is useful at query time, where the same terms are processed over and over.
+ * The other processors are returned unchanged from the wrapped instance.
+ *
+ * Each cache is keyed on all the arguments of the cached operation, i.e language and stem mode in addition
+ * to the term where applicable. A cache is emptied when it reaches the given max number of entries,
+ * which keeps lookups lock free while bounding memory.
+ *
+ * @author bratseth
+ */
+public class CachingLinguistics implements Linguistics {
+
+    private final Linguistics linguistics;
+
+    private final BoundedCache<StemKey, List<StemList>> stems;
+    private final BoundedCache<String, String> normalized;
+    private final BoundedCache<TransformKey, String> accentDropped;
+
+    /**
+     * Creates a caching linguistics
+     *
+     * @param linguistics the linguistics to wrap
+     * @param maxEntries the max number of entries to keep in each cache
+     */
+    public CachingLinguistics(Linguistics linguistics, int maxEntries) {
+        if (maxEntries < 0) throw new IllegalArgumentException("maxEntries cannot be negative, got " + maxEntries);
+        this.linguistics = Objects.requireNonNull(linguistics);
+        this.stems = new BoundedCache<>(maxEntries);
+        this.normalized = new BoundedCache<>(maxEntries);
+        this.accentDropped = new BoundedCache<>(maxEntries);
+    }
+
+    /** Returns the linguistics wrapped by this */
+    public Linguistics wrapped() { return linguistics; }
+
+    @Override
+    public Stemmer getStemmer() { return this::stem; }
+
+    @Override
+    public Tokenizer getTokenizer() { return linguistics.getTokenizer(); }
+
+    @Override
+    public Normalizer getNormalizer() { return this::normalize; }
+
+    @Override
+    public Transformer getTransformer() { return this::accentDrop; }
+
+    @Override
+    public Segmenter getSegmenter() { return linguistics.getSegmenter(); }
+
+    @Override
+    public Detector getDetector() { return linguistics.getDetector(); }
+
+    @Override
+    public GramSplitter getGramSplitter() { return linguistics.getGramSplitter(); }
+
+    @Override
+    public CharacterClasses getCharacterClasses() { return linguistics.getCharacterClasses(); }
+
+    /**
+     * Returns the statistics of the cache used for the given component.
+     *
+     * @throws IllegalArgumentException if the given component is not cached by this
+     */
+    public CacheStats cacheStats(Component component) {
+        switch (component) {
+            case STEMMER: return stems.stats();
+            case NORMALIZER: return normalized.stats();
+            case TRANSFORMER: return accentDropped.stats();
+            default: throw new IllegalArgumentException(component + " is not cached");
+        }
+    }
+
+    @Override
+    public boolean equals(Linguistics other) {
+        if (other instanceof CachingLinguistics caching)
+            other = caching.linguistics;
+        return linguistics.equals(other);
+    }
+
+    @Override
+    public String toString() { return "caching " + linguistics; }
+
+    private List<StemList> stem(String input, StemMode stemMode, Language language) {
+        StemKey key = new StemKey(input, stemMode, language);
+        List<StemList> result = stems.get(key);
+        if (result == null) {
+            result = linguistics.getStemmer().stem(input, stemMode, language);
+            stems.put(key, copy(result));
+            return result;
+        }
+        return copy(result); // StemList is mutable
+    }
+
+    private String normalize(String input) {
+        String result = normalized.get(input);
+        if (result == null) {
+            result = linguistics.getNormalizer().normalize(input);
+            normalized.put(input, result);
+        }
+        return result;
+    }
+
+    private String accentDrop(String input, Language language) {
+        TransformKey key = new TransformKey(input, language);
+        String result = accentDropped.get(key);
+        if (result == null) {
+            result = linguistics.getTransformer().accentDrop(input, language);
+            accentDropped.put(key, result);
+        }
+        return result;
+    }
+
+    private static List<StemList> copy(List<StemList> stemLists) {
+        List<StemList> copy = new ArrayList<>(stemLists.size());
+        for (StemList stemList : stemLists)
+            copy.add(new StemList(stemList.toArray(new String[0])));
+        return copy;
+    }
+
+    private record StemKey(String input, StemMode stemMode, Language language) { }
+
+    private record TransformKey(String input, Language language) { }
+
+    /** A concurrent map which is emptied when it reaches its max size, counting the outcome of lookups */
+    private static final class BoundedCache<KEY, VALUE> {
+
+        private final int maxEntries;
+        private final Map<KEY, VALUE> entries = new ConcurrentHashMap<>();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        BoundedCache(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        /** Returns the value of the given key, or null if it is not cached */
+        VALUE get(KEY key) {
+            VALUE value = entries.get(key);
+            if (value != null)
+                hits.increment();
+            else
+                misses.increment();
+            return value;
+        }
+
+        void put(KEY key, VALUE value) {
+            if (value == null || maxEntries == 0) return;
+            if (entries.size() >= maxEntries) {
+                evictions.add(entries.size());
+                entries.clear();
+            }
+            entries.put(key, value);
+        }
+
+        CacheStats stats() {
+            long hitCount = hits.sum();
+            long missCount = misses.sum();
+            long lookups = hitCount + missCount;
+            return new CacheStats(lookups == 0 ? 1.0 : (double) hitCount / lookups,
+                                  hitCount, missCount, evictions.sum(), entries.size());
+        }
+
+    }
+
+    /** Statistics of a linguistics cache */
+    public record CacheStats(double hitRate, long hitCount, long missCount, long evictionCount, long size) { }
+
+}
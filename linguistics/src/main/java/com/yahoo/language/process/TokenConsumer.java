@@ -0,0 +1,23 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.process;
+
+/**
+ * Receives the tokens produced by {@link Tokenizer#tokenize(String, com.yahoo.language.Language, StemMode, boolean, TokenConsumer)}
+ * one at the time, without a Token instance being created for each.
+ *
+ * @author bratseth
+ */
+public interface TokenConsumer {
+
+    /**
+     * Accepts the next token of the input.
+     *
+     * @param type the type of the token
+     * @param offset the start of the token in the input
+     * @param length the length of the token in the input
+     * @param tokenString the processed token string. This may be a view of a buffer which is reused,
+     *                    so it is only valid during this call. Use toString() to retain it.
+     */
+    void accept(TokenType type, int offset, int length, CharSequence tokenString);
+
+}
@@ -22,4 +22,24 @@ public interface Tokenizer {
      */
     Iterable<Token> tokenize(String input, Language language, StemMode stemMode, boolean removeAccents);
 
+    /**
+     * Tokenizes the input in the same way as {@link #tokenize(String, Language, StemMode, boolean)},
+     * but passes each token to the given consumer instead of returning them. Implementations can override
+     * this to avoid creating garbage proportional to the input size.
+     *
+     * @param input the string to tokenize. May be arbitrarily large.
+     * @param language the language of the input string.
+     * @param stemMode the stem mode applied on the returned tokens
+     * @param removeAccents if true accents and similar are removed from the returned tokens
+     * @param consumer the receiver of each token, in input order
+     * @throws ProcessingException If the underlying library throws an Exception.
+     */
+    default void tokenize(String input, Language language, StemMode stemMode, boolean removeAccents, TokenConsumer consumer) {
+        for (Token token : tokenize(input, language, stemMode, removeAccents))
+            consumer.accept(token.getType(),
+                            (int)token.getOffset(),
+                            token.getOrig() == null ? 0 : token.getOrig().length(),
+                            token.getTokenString());
+    }
+
 }
@@ -5,6 +5,7 @@ import com.yahoo.language.Language;
 import com.yahoo.language.LinguisticsCase;
 import com.yahoo.language.process.*;
 import com.yahoo.language.simple.kstem.KStemmer;
+import com.yahoo.language.simple.kstem.OpenStringBuilder;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -31,6 +32,9 @@ public class SimpleTokenizer implements Tokenizer {
     private final KStemmer stemmer = new KStemmer();
     private final SpecialTokenRegistry specialTokenRegistry;
 
+    /** Reused for the token strings passed to token consumers */
+    private final OpenStringBuilder tokenBuffer = new OpenStringBuilder();
+
     public SimpleTokenizer() {
         this(new SimpleNormalizer(), new SimpleTransformer());
     }
@@ -84,6 +88,39 @@ public class SimpleTokenizer implements Tokenizer {
         return tokens;
     }
 
+    /**
+     * Tokenize the input, passing each token to the given consumer without creating Token instances.
+     * Tokens consisting of ASCII characters only are processed in buffers reused across tokens
+     * when the default normalizer and transformer are used.
+     */
+    @Override
+    public void tokenize(String input, Language language, StemMode stemMode, boolean removeAccents, TokenConsumer consumer) {
+        if (input.isEmpty()) return;
+
+        boolean canProcessInBuffer = normalizer.getClass() == SimpleNormalizer.class &&
+                                     transformer.getClass() == SimpleTransformer.class;
+        int nextCode = input.codePointAt(0);
+        TokenType prevType = SimpleTokenType.valueOf(nextCode);
+        TokenType tokenType = prevType;
+        for (int prev = 0, next = Character.charCount(nextCode); next <= input.length(); ) {
+            nextCode = next < input.length() ? input.codePointAt(next) : SPACE_CODE;
+            TokenType nextType = SimpleTokenType.valueOf(nextCode);
+            if (isAtTokenBoundary(prevType, nextType)) {
+                CharSequence tokenString = canProcessInBuffer && isAscii(input, prev, next)
+                                           ? processAsciiToken(input, prev, next, stemMode)
+                                           : processToken(input.substring(prev, next), language, stemMode, removeAccents);
+                consumer.accept(tokenType, prev, next - prev, tokenString);
+                prev = next;
+                prevType = nextType;
+                tokenType = prevType;
+            }
+            else {
+                tokenType = determineType(tokenType, nextType);
+            }
+            next += Character.charCount(nextCode);
+        }
+    }
+
     private boolean isAtTokenBoundary(TokenType prevType, TokenType nextType) {
         // Always index each symbol as a token
         if (prevType == TokenType.INDEXABLE_SYMBOL || nextType == TokenType.INDEXABLE_SYMBOL) return true;
@@ -95,6 +132,29 @@ public class SimpleTokenizer implements Tokenizer {
         return tokenType;
     }
 
+    private static boolean isAscii(String input, int start, int end) {
+        for (int i = start; i < end; i++)
+            if (input.charAt(i) >= 128) return false;
+        return true;
+    }
+
+    /**
+     * Processes an ASCII token in the same way as processToken, without allocating:
+     * Normalization and accent removal are no-ops on ASCII, so only lowercasing and stemming remains.
+     */
+    private CharSequence processAsciiToken(String input, int start, int end, StemMode stemMode) {
+        int length = end - start;
+        tokenBuffer.reset();
+        tokenBuffer.reserve(length);
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            tokenBuffer.unsafeWrite(c >= 'A' && c <= 'Z' ? (char)(c + ('a' - 'A')) : c);
+        }
+        if (stemMode != StemMode.NONE)
+            return stemmer.stem(tokenBuffer.getArray(), 0, length);
+        return tokenBuffer;
+    }
+
     private String processToken(String token, Language language, StemMode stemMode, boolean removeAccents) {
         String original = token;
         log.log(Level.FINEST, () -> "processToken '" + original + "'");
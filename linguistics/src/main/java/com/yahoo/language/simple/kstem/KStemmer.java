@@ -179,6 +179,8 @@ public class KStemmer {
 
 
   private final OpenStringBuilder word = new OpenStringBuilder();
+  private final OpenStringBuilder termBuffer = new OpenStringBuilder();
+  private final OpenStringBuilder unchangedTerm = new OpenStringBuilder(0);
   private int j; /* index of final letter in stem (within word) */
   private int k; /*
                   * INDEX of final letter in word. You must add 1 to k to get
@@ -1279,6 +1281,25 @@ public class KStemmer {
     if (!changed) return term;
     return asString();
   }
+
+  /**
+   * Stems the first length characters of the given array, which must already be lowercased.
+   * Unlike stem(String) this does not allocate: The returned sequence is a view of either the given
+   * array or a buffer of this, so it is only valid until the next call to this stemmer.
+   */
+  public CharSequence stem(char[] term, int offset, int length) {
+    if (offset != 0) {
+      termBuffer.reset();
+      termBuffer.reserve(length);
+      termBuffer.unsafeWrite(term, offset, length);
+      term = termBuffer.getArray();
+    }
+    if ( ! stem(term, length)) {
+      unchangedTerm.set(term, length);
+      return unchangedTerm;
+    }
+    return asCharSequence();
+  }
   
   /**
    * Returns the result of the stem (assuming the word was changed) as a String.
@@ -65,7 +65,7 @@ public class OpenStringBuilder implements Appendable, CharSequence {
 
   @Override
   public CharSequence subSequence(int start, int end) {
-    throw new UnsupportedOperationException(); // todo
+    return new String(buf, start, end - start);
   }
 
   public void unsafeWrite(char b) {
@@ -0,0 +1,62 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language;
+
+import com.yahoo.language.process.StemList;
+import com.yahoo.language.process.StemMode;
+import com.yahoo.language.simple.SimpleLinguistics;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author bratseth
+ */
+public class CachingLinguisticsTestCase {
+
+    @Test
+    public void testCachedResultsAreEqualToUncached() {
+        var simple = new SimpleLinguistics();
+        var caching = new CachingLinguistics(simple, 100);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(simple.getStemmer().stem("Running dogs", StemMode.ALL, Language.ENGLISH),
+                         caching.getStemmer().stem("Running dogs", StemMode.ALL, Language.ENGLISH));
+            assertEquals(simple.getStemmer().stem("Running dogs", StemMode.NONE, Language.ENGLISH),
+                         caching.getStemmer().stem("Running dogs", StemMode.NONE, Language.ENGLISH));
+            assertEquals(simple.getNormalizer().normalize("ﬁne"), caching.getNormalizer().normalize("ﬁne"));
+            assertEquals(simple.getTransformer().accentDrop("café", Language.FRENCH),
+                         caching.getTransformer().accentDrop("café", Language.FRENCH));
+        }
+
+        var stemmerStats = caching.cacheStats(Linguistics.Component.STEMMER);
+        assertEquals(2, stemmerStats.missCount());
+        assertEquals(4, stemmerStats.hitCount());
+        assertEquals(2, stemmerStats.size());
+        assertEquals(2 / 3.0, stemmerStats.hitRate(), 0.000001);
+        assertEquals(1, caching.cacheStats(Linguistics.Component.NORMALIZER).missCount());
+        assertEquals(2, caching.cacheStats(Linguistics.Component.TRANSFORMER).hitCount());
+        assertTrue(caching.equals(simple));
+    }
+
+    @Test
+    public void testCachedStemsCannotBeModifiedByCallers() {
+        var simple = new SimpleLinguistics();
+        var caching = new CachingLinguistics(simple, 100);
+        List<StemList> stems = caching.getStemmer().stem("running", StemMode.ALL, Language.ENGLISH);
+        stems.get(0).set(0, "walking");
+        stems.clear();
+        assertEquals(simple.getStemmer().stem("running", StemMode.ALL, Language.ENGLISH),
+                     caching.getStemmer().stem("running", StemMode.ALL, Language.ENGLISH));
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        var caching = new CachingLinguistics(new SimpleLinguistics(), 10);
+        for (int i = 0; i < 100; i++)
+            caching.getNormalizer().normalize("term" + i);
+        assertTrue(caching.cacheStats(Linguistics.Component.NORMALIZER).size() <= 10);
+    }
+
+}
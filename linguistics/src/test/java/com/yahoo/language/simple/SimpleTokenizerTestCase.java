@@ -7,7 +7,9 @@ import com.yahoo.language.process.StemMode;
 import com.yahoo.language.process.Token;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -52,4 +54,25 @@ public class SimpleTokenizerTestCase extends AbstractTokenizerTestCase {
         tester.assertTokens(emoji1 + emoji2, emoji1, emoji2);
     }
 
+    @Test
+    public void testStreamingTokenizationIsEqualToTokenList() {
+        String input = "a\u030a tralalala n4lle. \uD800\uDFC8 (old Persian sign Auramazda, sorry if " +
+                       "anyone 1s offended by ancien7 gods.Running) Café RUNNING \uD83D\uDD2Afoo";
+        for (StemMode stemMode : List.of(StemMode.NONE, StemMode.ALL)) {
+            for (boolean removeAccents : List.of(false, true)) {
+                var tokenizer = new SimpleTokenizer();
+                List<String> expected = new ArrayList<>();
+                for (Token token : tokenizer.tokenize(input, Language.ENGLISH, stemMode, removeAccents))
+                    expected.add(token.getType() + "@" + token.getOffset() + ":" + token.getOrig() + "=" + token.getTokenString());
+
+                List<String> streamed = new ArrayList<>();
+                tokenizer.tokenize(input, Language.ENGLISH, stemMode, removeAccents,
+                                   (type, offset, length, tokenString) ->
+                                           streamed.add(type + "@" + offset + ":" + input.substring(offset, offset + length) +
+                                                        "=" + tokenString));
+                assertEquals(expected, streamed);
+            }
+        }
+    }
+
 }
@@ -1,7 +1,7 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.logserver.handlers;
 
-import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.List;
 
 import com.yahoo.log.LogMessage;
@@ -40,13 +40,26 @@ public abstract class AbstractLogHandler implements LogHandler {
     }
 
     /**
-     * Handle a list of LogMessage instances
+     * Handle a list of LogMessage instances.  Messages rejected by
+     * the filter are removed before the rest are passed to
+     * doHandle(List) as one batch.
      *
      * @param messages List of LogMessage instances.
      */
     public final void handle(List<LogMessage> messages) {
-        for (LogMessage l : messages) {
-            handle(l);
+        List<LogMessage> accepted = messages;
+        if (filter != null) {
+            accepted = new ArrayList<>(messages.size());
+            for (LogMessage l : messages) {
+                if (filter.isLoggable(l)) {
+                    accepted.add(l);
+                } else {
+                    filtered++;
+                }
+            }
+        }
+        if ( ! accepted.isEmpty()) {
+            doHandle(accepted);
         }
     }
 
@@ -111,6 +124,31 @@ public abstract class AbstractLogHandler implements LogHandler {
      */
     public abstract boolean doHandle(LogMessage msg);
 
+    /**
+     * Handles a batch of messages which have passed the filter.
+     * The default implementation calls doHandle(LogMessage) for
+     * each message.  Override this if the handler can do the work
+     * for many messages at once more cheaply, and call countHandled()
+     * as each message is handled, so the count is right also when
+     * handling fails partway through the batch.
+     *
+     * @param messages The LogMessages we are about to handle
+     */
+    protected void doHandle(List<LogMessage> messages) {
+        for (LogMessage l : messages) {
+            if (doHandle(l)) {
+                count++;
+            }
+        }
+    }
+
+    /**
+     * Counts a message handled by an overriding doHandle(List).
+     */
+    protected final void countHandled() {
+        count++;
+    }
+
     /**
      * Flush LogMessages.
      */
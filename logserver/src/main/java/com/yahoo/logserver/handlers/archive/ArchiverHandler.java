@@ -3,6 +3,7 @@ package com.yahoo.logserver.handlers.archive;
 
 import com.yahoo.log.LogMessage;
 import com.yahoo.logserver.handlers.AbstractLogHandler;
+import com.yahoo.text.Utf8;
 
 import java.io.File;
 import java.io.IOException;
@@ -10,6 +11,7 @@ import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.Iterator;
+import java.util.List;
 import java.util.TimeZone;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -156,16 +158,35 @@ public class ArchiverHandler extends AbstractLogHandler {
         return result.toString();
     }
 
-    public boolean doHandle(LogMessage msg) {
+    public synchronized boolean doHandle(LogMessage msg) {
         try {
-            LogWriter logWriter = getLogWriter(msg);
-            logWriter.write(msg.toString());
+            write(msg);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
         return true;
     }
 
+    /**
+     * Archives a batch of messages while holding the lock once,
+     * encoding each message to bytes only once.
+     */
+    @Override
+    protected synchronized void doHandle(List<LogMessage> messages) {
+        try {
+            for (LogMessage msg : messages) {
+                write(msg);
+                countHandled();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void write(LogMessage msg) throws IOException {
+        getLogWriter(msg).write(Utf8.toBytes(msg.toString()));
+    }
+
     public synchronized void flush() {
         for (LogWriter l : logWriterLRUCache.values()) {
             try {
@@ -1,15 +1,23 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.logserver.handlers.archive;
 
+import com.yahoo.text.Utf8;
+
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.Writer;
+import java.io.OutputStream;
 import java.util.logging.Logger;
 
 import java.util.logging.Level;
 
 /**
+ * Writes log messages to a sequence of files with the given prefix,
+ * rotating to the next file when the current one reaches the max size.
+ * Output is buffered in large blocks; call flush() to make it visible
+ * in the file.
+ * <p>
  * This class is not thread-safe.
  *
  * @author Bjorn Borud
@@ -17,13 +25,16 @@ import java.util.logging.Level;
 public class LogWriter {
     private static final Logger log = Logger.getLogger(LogWriter.class.getName());
 
+    /** The size of the block buffered before it is written to the file */
+    private static final int bufferSize = 64 * 1024;
+
     private long bytesWritten = 0;
     private int generation;
     private int maxSize = 20 * (1024 * 1024);
     private final int resumeLimit = 95;
     private final int resumeLimitSize = (maxSize * resumeLimit / 100);
     private File currentFile;
-    private Writer writer;
+    private OutputStream writer;
     private final String prefix;
     private final FilesArchived archive;
 
@@ -45,7 +56,7 @@ public class LogWriter {
      * <LI> when we have filled the file and want to rotate it
      * </UL>
      */
-    private Writer nextWriter() throws IOException {
+    private OutputStream nextWriter() throws IOException {
         close();
         int maxAttempts = 1000;
         while (maxAttempts-- > 0) {
@@ -69,7 +80,7 @@ public class LogWriter {
                 log.log(Level.FINE, () -> "nextWriter, new file: " + name);
                 currentFile = f;
                 bytesWritten = 0;
-                return new FileWriter(f, true);
+                return open(f);
             }
 
             // just skip over directories for now
@@ -83,7 +94,7 @@ public class LogWriter {
                 log.fine("nextWriter, resuming " + name + ", length was " + f.length());
                 currentFile = f;
                 bytesWritten = f.length();
-                return new FileWriter(f, true);
+                return open(f);
             } else {
 
                 log.fine("nextWriter, not resuming " + name
@@ -96,14 +107,23 @@ public class LogWriter {
         throw new RuntimeException("Unable to create next log file");
     }
 
+    private static OutputStream open(File f) throws IOException {
+        return new BufferedOutputStream(new FileOutputStream(f, true), bufferSize);
+    }
+
     public void write(String str) throws IOException {
+        write(Utf8.toBytes(str));
+    }
+
+    /** Writes the given UTF-8 encoded log data */
+    public void write(byte[] utf8) throws IOException {
         if (writer == null) {
             writer = nextWriter();
             archive.triggerMaintenance();
         }
 
-        bytesWritten += str.length();
-        writer.write(str, 0, str.length());
+        bytesWritten += utf8.length;
+        writer.write(utf8);
 
         if (bytesWritten >= maxSize) {
             log.fine("logfile '"
@@ -12,12 +12,15 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -202,6 +205,42 @@ public class ArchiverHandlerTestCase {
 
     }
 
+    /**
+     * Log a batch of messages and verify they are all archived and counted.
+     */
+    @Test
+    public void testBatchLogging() throws IOException {
+        File tmpDir = temporaryFolder.newFolder();
+
+        ArchiverHandler a = new ArchiverHandler(tmpDir.getAbsolutePath(), 1024, "gzip");
+        a.handle(List.of(msg));
+        a.close();
+        assertEquals(msg.length, a.getCount());
+
+        Set<String> lines = new HashSet<>();
+        for (LogMessage m : msg) {
+            lines.addAll(Files.readAllLines(new File(a.getPrefix(m) + "-0").toPath()));
+        }
+        assertEquals(Set.of(mStrings), lines);
+    }
+
+    /**
+     * Fail archiving partway through a batch, and verify that the
+     * messages archived before the failure are counted.
+     */
+    @Test
+    public void testBatchLoggingFailingPartway() throws IOException {
+        File tmpDir = temporaryFolder.newFolder();
+
+        ArchiverHandler a = new ArchiverHandler(tmpDir.getAbsolutePath(), 1024, "gzip");
+        File dayDir = new File(a.getPrefix(msg[2])).getParentFile();
+        assertTrue(dayDir.getParentFile().mkdirs());
+        assertTrue(dayDir.createNewFile()); // a file where the directory of the third message should be
+        assertThrows(RuntimeException.class, () -> a.handle(List.of(msg)));
+        a.close();
+        assertEquals(2, a.getCount());
+    }
+
     @Test
     public void testCacheEldestEntry() throws IOException {
         LogWriterLRUCache cache = new LogWriterLRUCache(5, (float) 0.75);
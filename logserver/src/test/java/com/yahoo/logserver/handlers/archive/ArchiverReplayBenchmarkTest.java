@@ -0,0 +1,95 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.logserver.handlers.archive;
+
+import com.yahoo.log.InvalidLogFormatException;
+import com.yahoo.log.LogMessage;
+import com.yahoo.text.Utf8;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Replays log traffic through an ArchiverHandler in batches, as the handler
+ * threads do, and reports the archiving throughput.
+ * Set the system property "replay.file" to replay a file of recorded log
+ * messages in native format; otherwise similar traffic is generated.
+ *
+ * @author Bjorn Borud
+ */
+public class ArchiverReplayBenchmarkTest {
+
+    private static final int batchSize = 1000;
+    private static final int generatedMessageCount = 2_000_000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Ignore
+    @Test
+    public void testReplay() throws IOException, InvalidLogFormatException {
+        List<LogMessage> messages = messages();
+        File root = temporaryFolder.newFolder();
+
+        replay(messages, temporaryFolder.newFolder()); // warmup
+        long startNanos = System.nanoTime();
+        ArchiverHandler handler = replay(messages, root);
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+        long bytes = 0;
+        for (LogMessage message : messages)
+            bytes += Utf8.byteCount(message.toString());
+        System.out.printf("Archived %d messages (%d bytes) in %.2f s: %.0f messages/s, %.1f MB/s%n",
+                          handler.getCount(), bytes, seconds, handler.getCount() / seconds, bytes / seconds / 1e6);
+        assertEquals(messages.size(), handler.getCount());
+    }
+
+    private static ArchiverHandler replay(List<LogMessage> messages, File root) {
+        ArchiverHandler handler = new ArchiverHandler(root.getAbsolutePath(), 20 * 1024 * 1024, "zstd");
+        for (int i = 0; i < messages.size(); i += batchSize) {
+            handler.handle(messages.subList(i, Math.min(i + batchSize, messages.size())));
+        }
+        handler.close();
+        return handler;
+    }
+
+    private static List<LogMessage> messages() throws IOException, InvalidLogFormatException {
+        List<LogMessage> messages = new ArrayList<>();
+        String file = System.getProperty("replay.file");
+        if (file != null) {
+            for (String line : Files.readAllLines(Path.of(file))) {
+                if ( ! line.isEmpty()) {
+                    messages.add(LogMessage.parseNativeFormat(line));
+                }
+            }
+            return messages;
+        }
+
+        Random random = new Random(0);
+        String[] levels = { "info", "info", "info", "debug", "warning", "error" };
+        String[] components = { "container", "searchnode", "distributor", "configproxy", "logd" };
+        double time = 1700000000.0;
+        for (int i = 0; i < generatedMessageCount; i++) {
+            time += random.nextDouble() * 0.01;
+            int component = random.nextInt(components.length);
+            messages.add(LogMessage.parseNativeFormat(String.format(Locale.ENGLISH, "%.6f\thost%d.example.com\t%d/%d\t%s\t%s.component%d\t%s\t%s",
+                                                                    time, random.nextInt(10), 1000 + component, random.nextInt(100),
+                                                                    components[component], components[component], random.nextInt(20),
+                                                                    levels[random.nextInt(levels.length)],
+                                                                    "Message " + i + " with some payload " + "x".repeat(random.nextInt(200)))));
+        }
+        return messages;
+    }
+
+}
@@ -19,6 +19,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -121,13 +122,19 @@ public class VespaMetrics {
     private static abstract class ServiceMetricsCollectorBase implements MetricsParser.Collector {
         protected final MetricAggregator aggregator;
 
+        /**
+         * Metric dimensions with configured dimensions added, by configured dimensions and (the identity of)
+         * the metric dimensions, which are shared by all metrics with the same dimensions in a response.
+         */
+        private final Map<List<Dimension>, Map<Map<DimensionId, String>, Map<DimensionId, String>>> extendedDimensions = new HashMap<>();
+
         ServiceMetricsCollectorBase(MetricAggregator aggregator) {
             this.aggregator = aggregator;
         }
 
-        protected static Metric metricWithConfigProperties(Metric candidate,
-                                                         ConfiguredMetric configuredMetric,
-                                                         Set<ConsumerId> consumers) {
+        protected Metric metricWithConfigProperties(Metric candidate,
+                                                    ConfiguredMetric configuredMetric,
+                                                    Set<ConsumerId> consumers) {
             Metric metric = candidate.clone();
             metric.setDimensions(extractDimensions(candidate.getDimensions(), configuredMetric.dimension()));
             metric.setConsumers(extractConsumers(consumers));
@@ -136,13 +143,14 @@ public class VespaMetrics {
                 metric.setName(configuredMetric.outputname());
             return metric;
         }
-        private static Map<DimensionId, String> extractDimensions(Map<DimensionId, String> dimensions, List<Dimension> configuredDimensions) {
-            if ( ! configuredDimensions.isEmpty()) {
-                Map<DimensionId, String> dims = new HashMap<>(dimensions);
-                configuredDimensions.forEach(d -> dims.put(d.key(), d.value()));
-                dimensions = Collections.unmodifiableMap(dims);
-            }
-            return dimensions;
+        private Map<DimensionId, String> extractDimensions(Map<DimensionId, String> dimensions, List<Dimension> configuredDimensions) {
+            if (configuredDimensions.isEmpty()) return dimensions;
+            return extendedDimensions.computeIfAbsent(configuredDimensions, __ -> new IdentityHashMap<>())
+                                     .computeIfAbsent(dimensions, __ -> {
+                                         Map<DimensionId, String> dims = new HashMap<>(dimensions);
+                                         configuredDimensions.forEach(d -> dims.put(d.key(), d.value()));
+                                         return Map.copyOf(dims);
+                                     });
         }
 
         private static Set<ConsumerId> extractConsumers(Set<ConsumerId> configuredConsumers) {
@@ -207,17 +215,26 @@ public class VespaMetrics {
 
     private static class MetricAggregator {
         private final Map<AggregationKey, List<Metric>> aggregated = new HashMap<>();
+        /**
+         * The aggregated lists by (the identity of) metric dimensions and consumers. As these are shared
+         * by many metrics, this avoids creating and hashing an aggregation key for each metric.
+         */
+        private final Map<Map<DimensionId, String>, Map<Set<ConsumerId>, List<Metric>>> aggregatedByIdentity = new IdentityHashMap<>();
         private final Map<DimensionId, String> serviceDimensions;
         MetricAggregator(Map<DimensionId, String> serviceDimensions) {
             this.serviceDimensions = serviceDimensions;
         }
         Map<AggregationKey, List<Metric>> getAggregated() { return aggregated; }
         void aggregate(Metric metric) {
+            aggregatedByIdentity.computeIfAbsent(metric.getDimensions(), __ -> new IdentityHashMap<>())
+                                .computeIfAbsent(metric.getConsumers(), consumers -> aggregatedList(metric.getDimensions(), consumers))
+                                .add(metric);
+        }
+        private List<Metric> aggregatedList(Map<DimensionId, String> dimensions, Set<ConsumerId> consumers) {
             Map<DimensionId, String> mergedDimensions = new LinkedHashMap<>();
-            mergedDimensions.putAll(metric.getDimensions());
+            mergedDimensions.putAll(dimensions);
             mergedDimensions.putAll(serviceDimensions);
-            AggregationKey aggregationKey = new AggregationKey(mergedDimensions, metric.getConsumers());
-            aggregated.computeIfAbsent(aggregationKey, key -> new ArrayList<>()).add(metric);
+            return aggregated.computeIfAbsent(new AggregationKey(mergedDimensions, consumers), key -> new ArrayList<>());
         }
     }
 
@@ -0,0 +1,61 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.metricsproxy.http;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Caches a value per key until the end of the current poll interval, so that requests for the same key
+ * in the same interval, e.g. from multiple scrapers of the same node, share the work of producing it.
+ * Concurrent requests for the same key wait for the value to be produced once.
+ *
+ * @author gjoranv
+ */
+public class IntervalCache<KEY, VALUE> {
+
+    private final Clock clock;
+    private final long intervalMillis;
+    private final Map<KEY, Entry<VALUE>> entries = new ConcurrentHashMap<>();
+
+    public IntervalCache(Duration interval, Clock clock) {
+        this.intervalMillis = interval.toMillis();
+        this.clock = clock;
+    }
+
+    /** Returns the value cached for the given key in the current interval, or the value produced by the given supplier */
+    public VALUE get(KEY key, Supplier<VALUE> supplier) {
+        long interval = clock.millis() / intervalMillis;
+        Entry<VALUE> entry = entries.compute(key, (__, cached) -> cached != null && cached.interval == interval
+                                                                  ? cached
+                                                                  : new Entry<>(interval));
+        entries.values().removeIf(cached -> cached.interval < interval);
+        return entry.value(supplier); // produced outside the map, to not block access to other keys
+    }
+
+    /** Returns the number of keys cached */
+    int size() { return entries.size(); }
+
+    /** The value of a key in an interval, which is produced by the first request for it */
+    private static class Entry<VALUE> {
+
+        private final long interval;
+
+        /** The value of this, or null if not produced yet. Guarded by this. */
+        private VALUE value = null;
+
+        Entry(long interval) {
+            this.interval = interval;
+        }
+
+        synchronized VALUE value(Supplier<VALUE> supplier) {
+            if (value == null)
+                value = supplier.get();
+            return value;
+        }
+
+    }
+
+}
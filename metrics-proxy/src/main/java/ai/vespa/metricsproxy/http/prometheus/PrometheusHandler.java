@@ -3,10 +3,12 @@ package ai.vespa.metricsproxy.http.prometheus;
 
 import ai.vespa.metricsproxy.core.MetricsConsumers;
 import ai.vespa.metricsproxy.core.MetricsManager;
+import ai.vespa.metricsproxy.http.IntervalCache;
 import ai.vespa.metricsproxy.http.TextResponse;
 import ai.vespa.metricsproxy.http.ValuesFetcher;
 import ai.vespa.metricsproxy.metric.dimensions.ApplicationDimensions;
 import ai.vespa.metricsproxy.metric.dimensions.NodeDimensions;
+import ai.vespa.metricsproxy.metric.model.ConsumerId;
 import ai.vespa.metricsproxy.metric.model.MetricsPacket;
 import ai.vespa.metricsproxy.node.NodeMetricGatherer;
 import ai.vespa.metricsproxy.service.VespaServices;
@@ -16,12 +18,15 @@ import com.yahoo.container.jdisc.HttpResponse;
 import com.yahoo.restapi.Path;
 
 import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Executor;
 import java.util.logging.Level;
 
+import static ai.vespa.metricsproxy.http.ValuesFetcher.getConsumerOrDefault;
 import static ai.vespa.metricsproxy.metric.model.prometheus.PrometheusUtil.toPrometheusModel;
 import static com.yahoo.jdisc.Response.Status.INTERNAL_SERVER_ERROR;
 import static com.yahoo.jdisc.Response.Status.OK;
@@ -34,8 +39,13 @@ public class PrometheusHandler extends HttpHandlerBase {
     public static final String V1_PATH = "/prometheus/v1";
     static final String VALUES_PATH = V1_PATH + "/values";
 
+    /** The interval during which the same rendered values are returned for a consumer */
+    private static final Duration cacheInterval = Duration.ofSeconds(10);
+
     private final ValuesFetcher valuesFetcher;
     private final NodeMetricGatherer nodeMetricGatherer;
+    private final MetricsConsumers metricsConsumers;
+    private final IntervalCache<ConsumerId, String> renderedValues;
 
     @Inject
     public PrometheusHandler(Executor executor,
@@ -47,6 +57,8 @@ public class PrometheusHandler extends HttpHandlerBase {
         super(executor);
         valuesFetcher = new ValuesFetcher(metricsManager, vespaServices, metricsConsumers);
         this.nodeMetricGatherer = new NodeMetricGatherer(metricsManager, applicationDimensions, nodeDimensions);
+        this.metricsConsumers = metricsConsumers;
+        this.renderedValues = new IntervalCache<>(cacheInterval, Clock.systemUTC());
     }
 
     @Override
@@ -58,13 +70,18 @@ public class PrometheusHandler extends HttpHandlerBase {
 
     private TextResponse valuesResponse(String consumer) {
         try {
-            List<MetricsPacket> metrics =  new ArrayList<>(valuesFetcher.fetch(consumer));
-            metrics.addAll(nodeMetricGatherer.gatherMetrics());
-            return new TextResponse(OK, toPrometheusModel(metrics).serialize());
+            ConsumerId consumerId = getConsumerOrDefault(consumer, metricsConsumers);
+            return new TextResponse(OK, renderedValues.get(consumerId, () -> renderValues(consumerId)));
         } catch (Exception e) {
             log.log(Level.WARNING, "Got exception when rendering metrics:", e);
             return new TextResponse(INTERNAL_SERVER_ERROR, e.getMessage());
         }
     }
 
+    private String renderValues(ConsumerId consumer) {
+        List<MetricsPacket> metrics =  new ArrayList<>(valuesFetcher.fetch(consumer.id));
+        metrics.addAll(nodeMetricGatherer.gatherMetrics());
+        return toPrometheusModel(metrics).serialize();
+    }
+
 }
@@ -0,0 +1,57 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.metricsproxy.http;
+
+import com.yahoo.test.ManualClock;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * @author gjoranv
+ */
+public class IntervalCacheTest {
+
+    @Test
+    public void values_are_cached_per_key_until_the_end_of_the_interval() {
+        ManualClock clock = new ManualClock(Instant.ofEpochSecond(100));
+        IntervalCache<String, String> cache = new IntervalCache<>(Duration.ofSeconds(10), clock);
+        AtomicInteger count = new AtomicInteger();
+
+        assertEquals("a1", cache.get("a", () -> "a" + count.incrementAndGet()));
+        assertEquals("a1", cache.get("a", () -> "a" + count.incrementAndGet()));
+        assertEquals("b2", cache.get("b", () -> "b" + count.incrementAndGet()));
+
+        clock.advance(Duration.ofSeconds(9));
+        assertEquals("a1", cache.get("a", () -> "a" + count.incrementAndGet()));
+
+        clock.advance(Duration.ofSeconds(1));
+        assertEquals("a3", cache.get("a", () -> "a" + count.incrementAndGet()));
+        assertEquals("b4", cache.get("b", () -> "b" + count.incrementAndGet()));
+    }
+
+    @Test
+    public void keys_from_earlier_intervals_are_removed() {
+        ManualClock clock = new ManualClock(Instant.ofEpochSecond(100));
+        IntervalCache<String, String> cache = new IntervalCache<>(Duration.ofSeconds(10), clock);
+        cache.get("a", () -> "a");
+        cache.get("b", () -> "b");
+        assertEquals(2, cache.size());
+
+        clock.advance(Duration.ofSeconds(10));
+        cache.get("c", () -> "c");
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void failures_are_not_cached() {
+        IntervalCache<String, String> cache = new IntervalCache<>(Duration.ofSeconds(10), new ManualClock());
+        assertThrows(IllegalStateException.class, () -> cache.get("a", () -> { throw new IllegalStateException(); }));
+        assertEquals("a", cache.get("a", () -> "a"));
+    }
+
+}
@@ -25,10 +25,14 @@ public enum ContainerMetrics implements VespaMetrics {
     JDISC_THREAD_POOL_UNHANDLED_EXCEPTIONS("jdisc.thread_pool.unhandled_exceptions", Unit.THREAD, "Number of exceptions thrown by tasks"),
     JDISC_THREAD_POOL_WORK_QUEUE_CAPACITY("jdisc.thread_pool.work_queue.capacity", Unit.THREAD, "Capacity of the task queue"),
     JDISC_THREAD_POOL_WORK_QUEUE_SIZE("jdisc.thread_pool.work_queue.size", Unit.THREAD, "Size of the task queue"),
+    JDISC_THREAD_POOL_WORK_QUEUE_WAIT_TIME("jdisc.thread_pool.work_queue.wait_time", Unit.MILLISECOND, "Time a sample of the tasks wait in the queue before they start running"),
     JDISC_THREAD_POOL_REJECTED_TASKS("jdisc.thread_pool.rejected_tasks", Unit.THREAD, "Number of tasks rejected by the thread pool"),
     JDISC_THREAD_POOL_SIZE("jdisc.thread_pool.size", Unit.THREAD, "Size of the thread pool"),
     JDISC_THREAD_POOL_MAX_ALLOWED_SIZE("jdisc.thread_pool.max_allowed_size", Unit.THREAD, "The maximum allowed number of threads in the pool"),
     JDISC_THREAD_POOL_ACTIVE_THREADS("jdisc.thread_pool.active_threads", Unit.THREAD, "Number of threads that are active"),
+
+    JDISC_ACCESS_LOG_QUEUE_SIZE("jdisc.access_log.queue.size", Unit.ITEM, "Number of access log entries waiting to be written"),
+    JDISC_ACCESS_LOG_DROPPED_ENTRIES("jdisc.access_log.dropped_entries", Unit.ITEM, "Number of access log entries dropped because the queue was full"),
     
     JDISC_DEACTIVATED_CONTAINERS_TOTAL("jdisc.deactivated_containers.total", Unit.ITEM, "JDISC Deactivated container instances"),
     JDISC_DEACTIVATED_CONTAINERS_WITH_RETAINED_REFS("jdisc.deactivated_containers.with_retained_refs.last", Unit.ITEM, "JDISC Deactivated container nodes with retained refs"),
@@ -137,6 +141,10 @@ public enum ContainerMetrics implements VespaMetrics {
     DOCUMENTS_TARGET_TOTAL("documents_target_total", Unit.DOCUMENT, "The target number of total documents to be evaluated when when all data is in sync"),
     JDISC_RENDER_LATENCY("jdisc.render.latency", Unit.NANOSECOND, "The time used by the container to render responses"),
     QUERY_ITEM_COUNT("query_item_count", Unit.ITEM, "The number of query items (terms, phrases, etc)"),
+    YQL_PROGRAM_CACHE_HITS("yql.program_cache.hits", Unit.QUERY, "The number of YQL queries whose parsed program was found in the program cache"),
+    YQL_PROGRAM_CACHE_MISSES("yql.program_cache.misses", Unit.QUERY, "The number of YQL queries whose program had to be parsed"),
+    LINGUISTICS_CACHE_HITS("linguistics.cache.hits", Unit.OPERATION, "The number of query time stemming and normalization results found in the linguistics cache"),
+    LINGUISTICS_CACHE_MISSES("linguistics.cache.misses", Unit.OPERATION, "The number of query time stemming and normalization results which had to be computed"),
     DOCPROC_PROC_TIME("docproc.proctime", Unit.MILLISECOND, "Time spent processing document"),
     DOCPROC_DOCUMENTS("docproc.documents", Unit.DOCUMENT, "Number of processed documents"),
     
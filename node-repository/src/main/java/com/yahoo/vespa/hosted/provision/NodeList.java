@@ -8,6 +8,7 @@ import com.yahoo.config.provision.ClusterResources;
 import com.yahoo.config.provision.ClusterSpec;
 import com.yahoo.config.provision.NodeResources;
 import com.yahoo.config.provision.NodeType;
+import com.yahoo.vespa.hosted.provision.node.Allocation;
 import com.yahoo.vespa.hosted.provision.node.ClusterId;
 
 import java.util.ArrayList;
@@ -18,6 +19,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -35,6 +37,9 @@ public class NodeList extends AbstractFilteringList<Node, NodeList> {
 
     private static final NodeList EMPTY = new NodeList(List.of(), false);
 
+    /** The smallest list where filtering on an indexed attribute uses an index rather than a scan */
+    private static final int minIndexedSize = 100;
+
     /**
      * A lazily populated cache of parent-child relationships. This exists to improve the speed of parent<->child
      * lookup which is a frequent operation
@@ -42,6 +47,12 @@ public class NodeList extends AbstractFilteringList<Node, NodeList> {
     private final AtomicReference<Map<String, NodeFamily>> nodeCache = new AtomicReference<>(null);
     private final AtomicReference<Set<String>> ipCache = new AtomicReference<>(null);
 
+    /**
+     * Lazily populated indexes of the positions of the nodes in this by the value of frequently filtered attributes.
+     * This makes repeated filtering of large shared lists, such as the list of all nodes, proportional to the result size.
+     */
+    private final Map<Attribute, Map<Object, List<Integer>>> indexes = new ConcurrentHashMap<>();
+
     protected NodeList(List<Node> nodes, boolean negate) {
         super(nodes, negate, NodeList::new);
     }
@@ -164,12 +175,12 @@ public class NodeList extends AbstractFilteringList<Node, NodeList> {
 
     /** Returns the subset of nodes assigned to the given cluster */
     public NodeList cluster(ClusterSpec.Id cluster) {
-        return matching(node -> node.allocation().isPresent() && node.allocation().get().membership().cluster().id().equals(cluster));
+        return matching(Attribute.cluster, Set.of(cluster));
     }
 
     /** Returns the subset of nodes owned by the given application */
     public NodeList owner(ApplicationId application) {
-        return matching(node -> node.allocation().map(a -> a.owner().equals(application)).orElse(false));
+        return matching(Attribute.owner, Set.of(application));
     }
 
     /** Returns the subset of nodes allocated to a tester instance */
@@ -179,11 +190,7 @@ public class NodeList extends AbstractFilteringList<Node, NodeList> {
 
     /** Returns the subset of nodes matching any of the given node type(s) */
     public NodeList nodeType(NodeType first, NodeType... rest) {
-        if (rest.length == 0) {
-            return matching(node -> node.type() == first);
-        }
-        EnumSet<NodeType> nodeTypes = EnumSet.of(first, rest);
-        return matching(node -> nodeTypes.contains(node.type()));
+        return matching(Attribute.type, rest.length == 0 ? Set.of(first) : EnumSet.of(first, rest));
     }
 
     /** Returns the subset of nodes of the host type */
@@ -209,15 +216,12 @@ public class NodeList extends AbstractFilteringList<Node, NodeList> {
 
     /** Returns the subset of nodes that are in any of the given state(s) */
     public NodeList state(Node.State first, Node.State... rest) {
-        if (rest.length == 0) {
-            return matching(node -> node.state() == first);
-        }
-        return state(EnumSet.of(first, rest));
+        return state(rest.length == 0 ? Set.of(first) : EnumSet.of(first, rest));
     }
 
     /** Returns the subset of nodes that are in any of the given state(s) */
     public NodeList state(Set<Node.State> nodeStates) {
-        return matching(node -> nodeStates.contains(node.state()));
+        return matching(Attribute.state, nodeStates);
     }
 
     /** Returns the subset of nodes which have a record of being down */
@@ -385,6 +389,30 @@ public class NodeList extends AbstractFilteringList<Node, NodeList> {
         return this.asList().equals(((NodeList) other).asList());
     }
 
+    /** Returns the subset of nodes where the given attribute has any of the given values */
+    private NodeList matching(Attribute attribute, Set<?> values) {
+        if (isNegated() || size() < minIndexedSize)
+            return matching(node -> attribute.valueOf(node) != null && values.contains(attribute.valueOf(node)));
+
+        Map<Object, List<Integer>> index = indexes.computeIfAbsent(attribute, this::index);
+        List<Integer> positions = values.size() == 1
+                                  ? index.getOrDefault(values.iterator().next(), List.of())
+                                  : values.stream().flatMap(value -> index.getOrDefault(value, List.of()).stream()).sorted().toList();
+        List<Node> nodes = asList();
+        return copyOf(positions.stream().map(nodes::get).toList());
+    }
+
+    private Map<Object, List<Integer>> index(Attribute attribute) {
+        Map<Object, List<Integer>> index = new HashMap<>();
+        List<Node> nodes = asList();
+        for (int i = 0; i < nodes.size(); i++) {
+            Object value = attribute.valueOf(nodes.get(i));
+            if (value != null)
+                index.computeIfAbsent(value, __ -> new ArrayList<>()).add(i);
+        }
+        return index;
+    }
+
     /** Get node family, by given hostname */
     private Optional<NodeFamily> get(String hostname) {
         return Optional.ofNullable(cache().get(hostname));
@@ -410,4 +438,21 @@ public class NodeList extends AbstractFilteringList<Node, NodeList> {
     /** A node and its children, if any */
     private record NodeFamily(Node node, List<Node> children) {}
 
+    /** Node attributes which may be indexed */
+    private enum Attribute {
+
+        state(Node::state),
+        type(Node::type),
+        owner(node -> node.allocation().map(Allocation::owner).orElse(null)),
+        cluster(node -> node.allocation().map(allocation -> allocation.membership().cluster().id()).orElse(null));
+
+        private final Function<Node, Object> value;
+
+        Attribute(Function<Node, Object> value) { this.value = value; }
+
+        /** Returns the value of this attribute for the given node, or null if it has none */
+        Object valueOf(Node node) { return value.apply(node); }
+
+    }
+
 }
@@ -26,8 +26,8 @@ public class MemoryMetricsDb implements MetricsDb {
 
     private final Clock clock;
 
-    /** Metric time series by node (hostname). Each list of metric snapshots is sorted by increasing timestamp */
-    private final Map<String, NodeTimeseries> nodeTimeseries = new HashMap<>();
+    /** Metric snapshots by node (hostname) */
+    private final Map<String, NodeMetricColumns> nodeMetrics = new HashMap<>();
 
     private final Map<Pair<ApplicationId, ClusterSpec.Id>, ClusterTimeseries> clusterTimeseries = new HashMap<>();
 
@@ -70,10 +70,10 @@ public class MemoryMetricsDb implements MetricsDb {
         Instant startTime = clock().instant().minus(period);
         synchronized (lock) {
             if (hostnames.isEmpty())
-                return nodeTimeseries.values().stream().map(ns -> ns.keepAfter(startTime)).toList();
+                return nodeMetrics.values().stream().map(metrics -> metrics.keepAfter(startTime)).toList();
             else
                 return hostnames.stream()
-                                .map(hostname -> nodeTimeseries.getOrDefault(hostname, new NodeTimeseries(hostname, List.of())).keepAfter(startTime))
+                                .map(hostname -> nodeMetrics.getOrDefault(hostname, new NodeMetricColumns(hostname)).keepAfter(startTime))
                                 .toList();
         }
     }
@@ -87,16 +87,12 @@ public class MemoryMetricsDb implements MetricsDb {
     @Override
     public void gc() {
         synchronized (lock) {
-            // Each measurement is Object + long + float = 16 + 8 + 4 = 28 bytes
-            // 12 hours with 1k nodes and 3 resources and 1 measurement/sec is about 5Gb
-            for (String hostname : nodeTimeseries.keySet()) {
-                var timeseries = nodeTimeseries.get(hostname);
-                timeseries = timeseries.keepAfter(clock().instant().minus(Autoscaler.maxScalingWindow()));
-                if (timeseries.isEmpty())
-                    nodeTimeseries.remove(hostname);
-                else
-                    nodeTimeseries.put(hostname, timeseries);
-            }
+            // Each snapshot is stored compressed, typically as a few bytes per value
+            Instant oldestTime = clock().instant().minus(Autoscaler.maxScalingWindow());
+            nodeMetrics.values().removeIf(metrics -> {
+                metrics.removeBefore(oldestTime);
+                return metrics.isEmpty();
+            });
         }
     }
 
@@ -104,12 +100,7 @@ public class MemoryMetricsDb implements MetricsDb {
     public void close() {}
 
     private void add(String hostname, NodeMetricSnapshot snapshot) {
-        NodeTimeseries timeseries = nodeTimeseries.get(hostname);
-        if (timeseries == null) { // new node
-            timeseries = new NodeTimeseries(hostname, new ArrayList<>());
-            nodeTimeseries.put(hostname, timeseries);
-        }
-        nodeTimeseries.put(hostname, timeseries.add(snapshot));
+        nodeMetrics.computeIfAbsent(hostname, NodeMetricColumns::new).add(snapshot);
     }
 
     private void add(ApplicationId application, ClusterSpec.Id cluster, ClusterMetricSnapshot snapshot) {
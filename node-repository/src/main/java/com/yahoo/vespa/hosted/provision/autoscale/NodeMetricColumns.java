@@ -0,0 +1,269 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.hosted.provision.autoscale;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The metric snapshots of a node, stored compactly as compressed columns, to make it cheap to
+ * keep many snapshots of many nodes in memory.
+ *
+ * Snapshots are stored in chunks covering a fixed time bucket, which are removed as a whole when they
+ * become older than the retention period. Within a chunk each value is stored as a separate bit column:
+ * Times (at millisecond resolution) and generations are delta-of-delta and delta encoded, and the
+ * floating point values are XOR encoded with the previous value, as in Facebook's Gorilla.
+ * Values are stored losslessly.
+ *
+ * Not thread safe.
+ *
+ * @author bratseth
+ */
+class NodeMetricColumns {
+
+    /** The time span of snapshots stored in each chunk */
+    private static final Duration chunkDuration = Duration.ofHours(1);
+
+    private final String hostname;
+
+    /** Chunks in the order they were created, newest last */
+    private final Deque<Chunk> chunks = new ArrayDeque<>();
+
+    /** Snapshots before this (epoch milliseconds) are removed */
+    private long retainedFromMillis = Long.MIN_VALUE;
+
+    NodeMetricColumns(String hostname) {
+        this.hostname = hostname;
+    }
+
+    public String hostname() { return hostname; }
+
+    public void add(NodeMetricSnapshot snapshot) {
+        long atMillis = snapshot.at().toEpochMilli();
+        Chunk last = chunks.peekLast();
+        if (last == null || atMillis >= last.startMillis + chunkDuration.toMillis()) {
+            if (last != null)
+                last.trim();
+            last = new Chunk(atMillis);
+            chunks.addLast(last);
+        }
+        last.add(atMillis, snapshot);
+    }
+
+    /** Returns whether there are no retained snapshots in this */
+    public boolean isEmpty() { return chunks.isEmpty(); }
+
+    /** Removes all snapshots before the given instant */
+    public void removeBefore(Instant oldestTime) {
+        retainedFromMillis = Math.max(retainedFromMillis, oldestTime.toEpochMilli());
+        chunks.removeIf(chunk -> chunk.maxMillis < retainedFromMillis);
+    }
+
+    /** Returns the retained snapshots of this at or after the given instant */
+    public NodeTimeseries keepAfter(Instant oldestTime) {
+        long fromMillis = Math.max(retainedFromMillis, oldestTime.toEpochMilli());
+        List<NodeMetricSnapshot> snapshots = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            if (chunk.maxMillis < fromMillis) continue;
+            chunk.addTo(snapshots, fromMillis);
+        }
+        return new NodeTimeseries(hostname, snapshots);
+    }
+
+    /** The snapshots of a time bucket */
+    private static class Chunk {
+
+        private static final int cpu = 0, memory = 1, disk = 2, queryRate = 3;
+
+        final long startMillis;
+        long maxMillis = Long.MIN_VALUE;
+        private int size = 0;
+
+        private final Bits times = new Bits();
+        private final Bits generations = new Bits();
+        private final Bits flags = new Bits();
+        private final Bits[] values = { new Bits(), new Bits(), new Bits(), new Bits() };
+
+        // The previously added values, which the next value is encoded relative to
+        private long lastMillis, lastMillisDelta, lastGeneration;
+        private final long[] lastValueBits = new long[values.length];
+
+        Chunk(long startMillis) {
+            this.startMillis = startMillis;
+            this.lastMillis = startMillis;
+        }
+
+        void add(long atMillis, NodeMetricSnapshot snapshot) {
+            long millisDelta = atMillis - lastMillis;
+            times.writeLong(millisDelta - lastMillisDelta);
+            lastMillis = atMillis;
+            lastMillisDelta = millisDelta;
+            maxMillis = Math.max(maxMillis, atMillis);
+
+            generations.writeLong(snapshot.generation() - lastGeneration);
+            lastGeneration = snapshot.generation();
+
+            flags.write((snapshot.inService() ? 2 : 0) | (snapshot.stable() ? 1 : 0), 2);
+
+            writeValue(cpu, snapshot.load().cpu());
+            writeValue(memory, snapshot.load().memory());
+            writeValue(disk, snapshot.load().disk());
+            writeValue(queryRate, snapshot.queryRate());
+            size++;
+        }
+
+        private void writeValue(int column, double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            values[column].writeXor(bits ^ lastValueBits[column]);
+            lastValueBits[column] = bits;
+        }
+
+        /** Adds the snapshots in this at or after the given time to the given list */
+        void addTo(List<NodeMetricSnapshot> snapshots, long fromMillis) {
+            Bits.Reader timeReader = times.reader(), generationReader = generations.reader(), flagReader = flags.reader();
+            Bits.Reader[] valueReaders = Arrays.stream(values).map(Bits::reader).toArray(Bits.Reader[]::new);
+            long atMillis = startMillis, millisDelta = 0, generation = 0;
+            long[] valueBits = new long[values.length];
+            for (int i = 0; i < size; i++) {
+                millisDelta += timeReader.readLong();
+                atMillis += millisDelta;
+                generation += generationReader.readLong();
+                int flag = (int) flagReader.read(2);
+                for (int column = 0; column < values.length; column++)
+                    valueBits[column] ^= valueReaders[column].readXor();
+                if (atMillis < fromMillis) continue;
+
+                snapshots.add(new NodeMetricSnapshot(Instant.ofEpochMilli(atMillis),
+                                                     new Load(Double.longBitsToDouble(valueBits[cpu]),
+                                                              Double.longBitsToDouble(valueBits[memory]),
+                                                              Double.longBitsToDouble(valueBits[disk])),
+                                                     generation,
+                                                     (flag & 2) != 0,
+                                                     (flag & 1) != 0,
+                                                     Double.longBitsToDouble(valueBits[queryRate])));
+            }
+        }
+
+        /** Releases unused memory in this. Call when no more snapshots will be added. */
+        void trim() {
+            times.trim();
+            generations.trim();
+            flags.trim();
+            for (Bits column : values)
+                column.trim();
+        }
+
+    }
+
+    /** An append-only sequence of bits */
+    private static class Bits {
+
+        private long[] words = new long[1];
+        private int size = 0;
+
+        /** Writes the given number of lowest bits in the given value, most significant first */
+        void write(long value, int bitCount) {
+            if (bitCount == 0) return;
+            if (bitCount < 64)
+                value &= (1L << bitCount) - 1;
+            int index = size >>> 6;
+            int free = 64 - (size & 63);
+            if (index + 1 >= words.length)
+                words = Arrays.copyOf(words, words.length * 2);
+            if (bitCount <= free) {
+                words[index] |= value << (free - bitCount);
+            }
+            else {
+                words[index] |= value >>> (bitCount - free);
+                words[index + 1] |= value << (64 - (bitCount - free));
+            }
+            size += bitCount;
+        }
+
+        /** Writes a signed value, using fewer bits the closer it is to 0 */
+        void writeLong(long value) {
+            long zigZag = (value << 1) ^ (value >> 63);
+            if (zigZag == 0) {
+                write(0b0, 1);
+            }
+            else if (zigZag >>> 7 == 0) {
+                write(0b10, 2);
+                write(zigZag, 7);
+            }
+            else if (zigZag >>> 12 == 0) {
+                write(0b110, 3);
+                write(zigZag, 12);
+            }
+            else if (zigZag >>> 20 == 0) {
+                write(0b1110, 4);
+                write(zigZag, 20);
+            }
+            else {
+                write(0b1111, 4);
+                write(zigZag, 64);
+            }
+        }
+
+        /** Writes the XOR of two values, storing only the bits between the leading and trailing zeroes */
+        void writeXor(long xor) {
+            if (xor == 0) {
+                write(0b0, 1);
+                return;
+            }
+            int leadingZeros = Long.numberOfLeadingZeros(xor);
+            int significantBits = 64 - leadingZeros - Long.numberOfTrailingZeros(xor);
+            write(0b1, 1);
+            write(leadingZeros, 6);
+            write(significantBits - 1, 6);
+            write(xor >>> (64 - leadingZeros - significantBits), significantBits);
+        }
+
+        void trim() {
+            words = Arrays.copyOf(words, (size + 63) >>> 6);
+        }
+
+        Reader reader() { return new Reader(); }
+
+        class Reader {
+
+            private int position = 0;
+
+            long read(int bitCount) {
+                if (bitCount == 0) return 0;
+                int index = position >>> 6;
+                int free = 64 - (position & 63);
+                long value;
+                if (bitCount <= free)
+                    value = words[index] >>> (free - bitCount);
+                else
+                    value = (words[index] << (bitCount - free)) | (words[index + 1] >>> (64 - (bitCount - free)));
+                position += bitCount;
+                return bitCount < 64 ? value & ((1L << bitCount) - 1) : value;
+            }
+
+            long readLong() {
+                long zigZag;
+                if (read(1) == 0) return 0;
+                else if (read(1) == 0) zigZag = read(7);
+                else if (read(1) == 0) zigZag = read(12);
+                else if (read(1) == 0) zigZag = read(20);
+                else zigZag = read(64);
+                return (zigZag >>> 1) ^ -(zigZag & 1);
+            }
+
+            long readXor() {
+                if (read(1) == 0) return 0;
+                int leadingZeros = (int) read(6);
+                int significantBits = (int) read(6) + 1;
+                return read(significantBits) << (64 - leadingZeros - significantBits);
+            }
+
+        }
+
+    }
+
+}
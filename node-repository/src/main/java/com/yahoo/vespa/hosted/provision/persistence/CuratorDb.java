@@ -23,6 +23,7 @@ import com.yahoo.vespa.curator.transaction.CuratorOperations;
 import com.yahoo.vespa.curator.transaction.CuratorTransaction;
 import com.yahoo.vespa.hosted.provision.LockedNodeList;
 import com.yahoo.vespa.hosted.provision.Node;
+import com.yahoo.vespa.hosted.provision.NodeList;
 import com.yahoo.vespa.hosted.provision.applications.Application;
 import com.yahoo.vespa.hosted.provision.archive.ArchiveUris;
 import com.yahoo.vespa.hosted.provision.lb.LoadBalancer;
@@ -41,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.logging.Level;
@@ -89,9 +91,14 @@ public class CuratorDb {
     /** Simple cache for deserialized node objects, based on their ZK node version. */
     private final Cache<Path, Pair<Integer, Node>> cachedNodes = CacheBuilder.newBuilder().recordStats().build();
 
+    /** All nodes, as read in the current cache session, or null if not read or not caching. */
+    private final AtomicReference<NodeSnapshot> nodeSnapshot = new AtomicReference<>();
+    private final boolean useCache;
+
     public CuratorDb(NodeFlavors flavors, Curator curator, Clock clock, boolean useCache) {
         this.nodeSerializer = new NodeSerializer(flavors);
         this.db = new CachingCurator(curator, root, useCache);
+        this.useCache = useCache;
         this.clock = clock;
         this.provisionIndexCounter = new CuratorCounter(curator, root.append("provisionIndexCounter"));
         this.loadBalancerPoolHead = new CuratorCounter(curator, root.append("loadBalancerPoolHead"));
@@ -251,10 +258,24 @@ public class CuratorDb {
 
     /** Returns all existing nodes */
     public List<Node> readNodes() {
+        return readNodeList().asList();
+    }
+
+    /**
+     * Returns all existing nodes. The same list is returned to all readers until any change is made to
+     * the database, such that indexes built by filtering it are shared between them.
+     */
+    public NodeList readNodeList() {
         CachingCurator.Session session = db.getSession();
-        return session.getChildren(nodesPath).stream()
-                      .flatMap(hostname -> readNode(session, hostname).stream())
-                      .toList();
+        NodeSnapshot snapshot = nodeSnapshot.get();
+        if (snapshot != null && snapshot.session() == session) return snapshot.nodes();
+
+        NodeList nodes = NodeList.copyOf(session.getChildren(nodesPath).stream()
+                                                .flatMap(hostname -> readNode(session, hostname).stream())
+                                                .toList());
+        if (useCache)
+            nodeSnapshot.set(new NodeSnapshot(session, nodes));
+        return nodes;
     }
 
     private Optional<Node> readNode(CachingCurator.Session session, String hostname) {
@@ -544,4 +565,6 @@ public class CuratorDb {
                                             : CuratorOperations.create(path.getAbsolute(), data);
     }
 
+    private record NodeSnapshot(CachingCurator.Session session, NodeList nodes) { }
+
 }
@@ -8,15 +8,18 @@ import com.yahoo.vespa.hosted.provision.NodeList;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
  * Capacity calculation for hosts.
  *
  * The calculations are based on an immutable copy of nodes that represents
- * all capacities in the system - i.e. all nodes in the node repo.
+ * all capacities in the system - i.e. all nodes in the node repo. The capacity of each host is therefore
+ * computed only once for each instance, which is safe to use from multiple threads.
  *
  * @author smorgrav
  */
@@ -24,6 +27,7 @@ public class HostCapacity {
 
     private final NodeList allNodes;
     private final HostResourcesCalculator hostResourcesCalculator;
+    private final Map<CapacityKey, NodeResources> capacities = new ConcurrentHashMap<>();
 
     public HostCapacity(NodeList allNodes, HostResourcesCalculator hostResourcesCalculator) {
         this.allNodes = Objects.requireNonNull(allNodes, "allNodes must be non-null");
@@ -119,6 +123,11 @@ public class HostCapacity {
     private NodeResources availableCapacityOf(Node host, boolean excludeInactive, boolean requireIps) {
         // Only hosts have free capacity
         if ( ! host.type().canRun(NodeType.tenant)) return NodeResources.zero();
+        return capacities.computeIfAbsent(new CapacityKey(host.hostname(), excludeInactive, requireIps),
+                                          __ -> computeAvailableCapacityOf(host, excludeInactive, requireIps));
+    }
+
+    private NodeResources computeAvailableCapacityOf(Node host, boolean excludeInactive, boolean requireIps) {
         if (   requireIps && freeIps(host) == 0) return NodeResources.zero();
 
         NodeResources hostResources = hostResourcesCalculator.advertisedResourcesOf(host.flavor());
@@ -137,4 +146,6 @@ public class HostCapacity {
         return false;
     }
 
+    private record CapacityKey(String hostname, boolean excludeInactive, boolean requireIps) { }
+
 }
@@ -66,6 +66,9 @@ public abstract class NodeCandidate implements Nodelike, Comparable<NodeCandidat
     /** The parent host must become exclusive to the implied application */
     final boolean exclusiveParent;
 
+    /** The change in allocation skew of the parent from adding this node to it, or NaN if not yet computed */
+    private double skewChange = Double.NaN;
+
     private NodeCandidate(NodeResources freeParentCapacity, Optional<Node> parent, boolean violatesSpares, boolean exclusiveSwitch,
                           boolean exclusiveParent, boolean isSurplus, boolean isNew, boolean isResizeable) {
         if (isResizeable && isNew)
@@ -247,8 +250,14 @@ public abstract class NodeCandidate implements Nodelike, Comparable<NodeCandidat
 
     /** Returns the host priority, based on allocation skew, of this compared to other */
     private int hostPriority(NodeCandidate other) {
-        return Double.compare(this.skewWithThis() - this.skewWithoutThis(),
-                              other.skewWithThis() - other.skewWithoutThis());
+        return Double.compare(this.skewChange(), other.skewChange());
+    }
+
+    /** Returns the change in allocation skew of the parent from adding this, which is computed once as it is used in every comparison */
+    private double skewChange() {
+        if (Double.isNaN(skewChange))
+            skewChange = skewWithThis() - skewWithoutThis();
+        return skewChange;
     }
 
     private boolean lessThanHalfTheHost(NodeCandidate node) {
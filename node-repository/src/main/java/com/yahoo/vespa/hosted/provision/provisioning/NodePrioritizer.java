@@ -121,18 +121,8 @@ public class NodePrioritizer {
         if (requested.resources().isEmpty()) return;
 
         for (Node host : allNodes) {
-            if ( ! nodes.canAllocateTenantNodeTo(host, dynamicProvisioning)) continue;
+            if ( ! canHaveNewNode(host)) continue;
             if (nodes.suspended(host)) continue; // Hosts that are suspended may be down for some time, e.g. for OS upgrade
-            if (host.reservedTo().isPresent() && !host.reservedTo().get().equals(application.tenant())) continue;
-            if (host.reservedTo().isPresent() && application.instance().isTester()) continue;
-            if ( ! allowHostSharing && exclusiveAllocation && ! fitsPerfectly(host)) continue;
-            if ( ! host.provisionedForApplicationId().map(application::equals).orElse(true)) continue;
-            if ( ! host.exclusiveToApplicationId().map(application::equals).orElse(true)) continue;
-            if ( ! host.exclusiveToClusterType().map(clusterSpec.type()::equals).orElse(true)) continue;
-            if (spareHosts.contains(host) && !canAllocateToSpareHosts) continue;
-            if ( ! capacity.hasCapacity(host, requested.resources().get())) continue;
-            if ( ! allNodes.childrenOf(host).owner(application).cluster(clusterSpec.id()).isEmpty()) continue;
-            if ( ! requested.cloudAccount().isUnspecified() && ! requested.cloudAccount().equals(host.cloudAccount())) continue;
 
             candidates.add(NodeCandidate.createNewChild(requested.resources().get(),
                                                         capacity.availableCapacityOf(host),
@@ -143,6 +133,22 @@ public class NodePrioritizer {
         }
     }
 
+    /** Returns whether a new node for this may be allocated to the given host, disregarding whether it is suspended */
+    private boolean canHaveNewNode(Node host) {
+        if ( ! nodes.canAllocateTenantNodeTo(host, dynamicProvisioning)) return false;
+        if (host.reservedTo().isPresent() && !host.reservedTo().get().equals(application.tenant())) return false;
+        if (host.reservedTo().isPresent() && application.instance().isTester()) return false;
+        if ( ! allowHostSharing && exclusiveAllocation && ! fitsPerfectly(host)) return false;
+        if ( ! host.provisionedForApplicationId().map(application::equals).orElse(true)) return false;
+        if ( ! host.exclusiveToApplicationId().map(application::equals).orElse(true)) return false;
+        if ( ! host.exclusiveToClusterType().map(clusterSpec.type()::equals).orElse(true)) return false;
+        if (spareHosts.contains(host) && !canAllocateToSpareHosts) return false;
+        if ( ! capacity.hasCapacity(host, requested.resources().get())) return false;
+        if ( ! allNodes.childrenOf(host).owner(application).cluster(clusterSpec.id()).isEmpty()) return false;
+        if ( ! requested.cloudAccount().isUnspecified() && ! requested.cloudAccount().equals(host.cloudAccount())) return false;
+        return true;
+    }
+
     private boolean fitsPerfectly(Node host) {
         return calculator.advertisedResourcesOf(host.flavor()).compatibleWith(requested.resources().get());
     }
@@ -0,0 +1,79 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.hosted.provision;
+
+import com.yahoo.component.Version;
+import com.yahoo.config.provision.ApplicationId;
+import com.yahoo.config.provision.ClusterMembership;
+import com.yahoo.config.provision.ClusterSpec;
+import com.yahoo.config.provision.Flavor;
+import com.yahoo.config.provision.NodeResources;
+import com.yahoo.config.provision.NodeType;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author bratseth
+ */
+public class NodeListTest {
+
+    private static final NodeResources resources = new NodeResources(1, 4, 10, 1);
+    private static final List<ApplicationId> applications = List.of(ApplicationId.from("t1", "a1", "default"),
+                                                                    ApplicationId.from("t2", "a2", "default"));
+
+    @Test
+    public void indexed_filters_give_same_result_as_scanning() {
+        NodeList large = NodeList.copyOf(nodes(500));
+        NodeList small = NodeList.copyOf(nodes(20));
+        for (NodeList nodes : List.of(large, small)) {
+            assertFilter(nodes.asList(), node -> node.state() == Node.State.active, nodes.state(Node.State.active));
+            assertFilter(nodes.asList(), node -> node.state() == Node.State.active || node.state() == Node.State.failed,
+                         nodes.state(Node.State.failed, Node.State.active));
+            assertFilter(nodes.asList(), node -> node.state() != Node.State.ready, nodes.not().state(Node.State.ready));
+            assertFilter(nodes.asList(), node -> node.type() == NodeType.host, nodes.nodeType(NodeType.host));
+            assertFilter(nodes.asList(), node -> node.type() != NodeType.host, nodes.not().hosts());
+            assertFilter(nodes.asList(), node -> node.allocation().isPresent() && node.allocation().get().owner().equals(applications.get(1)),
+                         nodes.owner(applications.get(1)));
+            assertFilter(nodes.asList(), node -> node.allocation().isEmpty() || ! node.allocation().get().owner().equals(applications.get(1)),
+                         nodes.not().owner(applications.get(1)));
+            assertFilter(nodes.asList(), node -> node.allocation().isPresent() && node.allocation().get().membership().cluster().id().value().equals("c2"),
+                         nodes.cluster(ClusterSpec.Id.from("c2")));
+            assertFilter(nodes.asList(), node -> node.allocation().isPresent() && node.allocation().get().owner().equals(applications.get(0)) &&
+                                                 node.state() == Node.State.active,
+                         nodes.owner(applications.get(0)).state(Node.State.active));
+        }
+        assertTrue(large.owner(ApplicationId.from("t3", "a3", "default")).isEmpty());
+        assertTrue(large.state(Set.of()).isEmpty());
+    }
+
+    private static void assertFilter(List<Node> nodes, Predicate<Node> condition, NodeList filtered) {
+        List<Node> expected = nodes.stream().filter(condition).toList();
+        assertTrue(expected.size() > 0);
+        assertEquals(expected, filtered.asList());
+    }
+
+    private static List<Node> nodes(int count) {
+        List<Node> nodes = new ArrayList<>();
+        Node.State[] states = { Node.State.active, Node.State.ready, Node.State.failed, Node.State.active };
+        for (int i = 0; i < count; i++) {
+            NodeType type = i % 5 == 0 ? NodeType.host : NodeType.tenant;
+            Node node = Node.create("id" + i, "node" + i, new Flavor(resources), states[i % states.length], type).build();
+            if (type == NodeType.tenant && i % 3 != 0)
+                node = node.allocate(applications.get(i % 2),
+                                     ClusterMembership.from("container/c" + (i % 3) + "/0/" + i, Version.fromString("8.1"), Optional.empty()),
+                                     resources,
+                                     Instant.EPOCH);
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+}
@@ -0,0 +1,81 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.hosted.provision.autoscale;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author bratseth
+ */
+public class NodeMetricColumnsTest {
+
+    @Test
+    public void snapshots_are_stored_losslessly() {
+        Random random = new Random(0);
+        NodeMetricColumns columns = new NodeMetricColumns("host1");
+        List<NodeMetricSnapshot> added = new ArrayList<>();
+        Instant at = Instant.ofEpochMilli(1700000000000L);
+        long generation = -1;
+        for (int i = 0; i < 1000; i++) {
+            at = at.plusMillis(i % 10 == 0 ? random.nextInt(1000000) : 60000); // mostly regular
+            if (i % 100 == 0) generation += random.nextInt(3);
+            Load load = i % 7 == 0 ? new Load(0.5, 0.5, 0.5) : new Load(random.nextDouble(), random.nextDouble(), 0.25);
+            NodeMetricSnapshot snapshot = new NodeMetricSnapshot(at, load, generation, i % 3 != 0, i % 5 != 0,
+                                                                 i % 11 == 0 ? 0 : random.nextDouble() * 1000);
+            columns.add(snapshot);
+            added.add(snapshot);
+        }
+        NodeMetricSnapshot outOfOrder = new NodeMetricSnapshot(Instant.ofEpochMilli(1700000000000L), new Load(0.1, 0.2, 0.3),
+                                                               Long.MAX_VALUE, true, true, Double.NaN);
+        columns.add(outOfOrder);
+        added.add(0, outOfOrder);
+
+        assertEqual(added, columns.keepAfter(Instant.EPOCH));
+        Instant middle = added.get(500).at();
+        assertEqual(added.subList(500, added.size()), columns.keepAfter(middle));
+    }
+
+    @Test
+    public void old_snapshots_are_removed() {
+        NodeMetricColumns columns = new NodeMetricColumns("host1");
+        List<NodeMetricSnapshot> added = new ArrayList<>();
+        Instant at = Instant.ofEpochMilli(0);
+        for (int i = 0; i < 100; i++) {
+            at = at.plus(Duration.ofMinutes(7));
+            NodeMetricSnapshot snapshot = new NodeMetricSnapshot(at, new Load(0.5, 0.6, 0.7), 3, true, true, i);
+            columns.add(snapshot);
+            added.add(snapshot);
+        }
+        columns.removeBefore(added.get(40).at());
+        assertEqual(added.subList(40, added.size()), columns.keepAfter(Instant.EPOCH));
+        assertEqual(added.subList(60, added.size()), columns.keepAfter(added.get(60).at()));
+
+        columns.removeBefore(at.plusMillis(1));
+        assertTrue(columns.isEmpty());
+        assertTrue(columns.keepAfter(Instant.EPOCH).isEmpty());
+    }
+
+    private static void assertEqual(List<NodeMetricSnapshot> expected, NodeTimeseries timeseries) {
+        assertEquals(expected.size(), timeseries.size());
+        for (int i = 0; i < expected.size(); i++) {
+            NodeMetricSnapshot snapshot = timeseries.get(i);
+            assertEquals(expected.get(i).at(), snapshot.at());
+            assertEquals(expected.get(i).load().cpu(), snapshot.load().cpu(), 0);
+            assertEquals(expected.get(i).load().memory(), snapshot.load().memory(), 0);
+            assertEquals(expected.get(i).load().disk(), snapshot.load().disk(), 0);
+            assertEquals(expected.get(i).generation(), snapshot.generation());
+            assertEquals(expected.get(i).inService(), snapshot.inService());
+            assertEquals(expected.get(i).stable(), snapshot.stable());
+            assertEquals(expected.get(i).queryRate(), snapshot.queryRate(), 0);
+        }
+    }
+
+}
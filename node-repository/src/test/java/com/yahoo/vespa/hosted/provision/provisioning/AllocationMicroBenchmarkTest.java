@@ -0,0 +1,51 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.hosted.provision.provisioning;
+
+import com.yahoo.config.provision.Capacity;
+import com.yahoo.config.provision.ClusterResources;
+import com.yahoo.config.provision.NodeResources;
+import com.yahoo.config.provision.NodeType;
+import com.yahoo.vespa.hosted.provision.Node;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures the time spent allocating nodes to many applications in a large zone.
+ *
+ * @author bratseth
+ */
+public class AllocationMicroBenchmarkTest {
+
+    private static final int hostCount = 5000;
+    private static final int applicationCount = 1000;
+    private static final NodeResources hostResources = new NodeResources(32, 128, 2000, 10);
+    private static final NodeResources nodeResources = new NodeResources(2, 8, 50, 1);
+
+    @Ignore
+    @Test
+    public void testAllocation() {
+        ProvisioningTester tester = new ProvisioningTester.Builder().build();
+        tester.makeReadyHosts(hostCount, hostResources).activateTenantHosts();
+        Capacity capacity = Capacity.from(new ClusterResources(2, 1, nodeResources));
+
+        // Warmup for stable results.
+        for (int i = 0; i < applicationCount / 10; i++)
+            tester.deploy(ProvisioningTester.applicationId("warmup" + i), capacity);
+
+        Instant start = Instant.now();
+        for (int i = 0; i < applicationCount; i++)
+            tester.deploy(ProvisioningTester.applicationId("app" + i), capacity);
+        Duration duration = Duration.between(start, Instant.now());
+        System.out.println("Allocating nodes to " + applicationCount + " applications on " + hostCount + " hosts took " +
+                           duration + " (" + duration.toMillis() / applicationCount + " ms per application)");
+
+        assertEquals((applicationCount + applicationCount / 10) * 2,
+                     tester.nodeRepository().nodes().list(Node.State.active).nodeType(NodeType.tenant).size());
+    }
+
+}
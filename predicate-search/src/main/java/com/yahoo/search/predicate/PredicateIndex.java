@@ -8,12 +8,21 @@ import com.yahoo.search.predicate.index.conjunction.ConjunctionHit;
 import com.yahoo.search.predicate.index.conjunction.ConjunctionIndex;
 import com.yahoo.search.predicate.serialization.SerializationHelper;
 
+import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /**
@@ -50,7 +59,7 @@ public class PredicateIndex {
     private final SimpleIndex conjunctionIntervalIndex;
     private final PredicateIntervalStore intervalStore;
     private final ConjunctionIndex conjunctionIndex;
-    private final int[] zeroConstraintDocuments;
+    private final IntBuffer zeroConstraintDocuments;
     private final Config config;
     private final AtomicReference<CachedPostingListCounter> postingListCounter;
 
@@ -79,7 +88,7 @@ public class PredicateIndex {
         this.conjunctionIntervalIndex = conjunctionIntervalIndex;
         this.intervalStore = intervalStore;
         this.conjunctionIndex = conjunctionIndex;
-        this.zeroConstraintDocuments = zeroConstraintDocuments;
+        this.zeroConstraintDocuments = IntBuffer.wrap(zeroConstraintDocuments); // a single instance, as the posting list counter uses identity
         this.expander = new PredicateRangeTermExpander(config.arity, config.lowerBound, config.upperBound);
         this.config = config;
         this.postingListCounter = new AtomicReference<>(new CachedPostingListCounter(internalToExternalIdMapping.length));
@@ -143,6 +152,64 @@ public class PredicateIndex {
         );
     }
 
+    /**
+     * Reads an index written by {@link #writeToOutputStream} from the given buffer, starting at its current position.
+     * <p>
+     * The posting lists and interval lists, which make up the bulk of an index, are not copied:
+     * Searches read them directly from the buffer, which must therefore not be modified while the index is in use.
+     * The posting list dictionaries, interval list offsets, per-document arrays and the conjunction index
+     * are read onto the heap.
+     */
+    public static PredicateIndex fromBuffer(ByteBuffer buffer) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer)); // unbuffered, so positions stay in sync
+        int version = in.readInt();
+        if (version != SERIALIZATION_FORMAT_VERSION) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid serialization format version. Expected %d, was %d.", SERIALIZATION_FORMAT_VERSION, version));
+        }
+        Config config = Config.fromInputStream(in);
+        int[] internalToExternalIdMapping = SerializationHelper.readIntArray(in);
+        byte[] minFeatureIndex = SerializationHelper.readByteArray(in);
+        short[] intervalEnds = SerializationHelper.readShortArray(in);
+        int highestIntervalEnd = in.readInt();
+        int[] zeroConstraintDocuments = SerializationHelper.readIntArray(in);
+        SimpleIndex intervalIndex = SimpleIndex.fromBuffer(buffer);
+        SimpleIndex boundsIndex = SimpleIndex.fromBuffer(buffer);
+        SimpleIndex conjunctionIntervalIndex = SimpleIndex.fromBuffer(buffer);
+        PredicateIntervalStore intervalStore = PredicateIntervalStore.fromBuffer(buffer);
+        ConjunctionIndex conjunctionIndex = ConjunctionIndex.fromInputStream(in);
+        return new PredicateIndex(
+                config,
+                internalToExternalIdMapping,
+                minFeatureIndex,
+                intervalEnds,
+                highestIntervalEnd,
+                intervalIndex,
+                boundsIndex,
+                conjunctionIntervalIndex,
+                intervalStore,
+                conjunctionIndex,
+                zeroConstraintDocuments
+        );
+    }
+
+    /**
+     * Reads an index written by {@link #writeToOutputStream} from the given file.
+     * The file is memory-mapped and searched in place, as described in {@link #fromBuffer}.
+     * The mapping is kept for as long as the returned index is referenced.
+     * Files larger than 2Gb are read onto the heap.
+     */
+    public static PredicateIndex fromFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) { // Too large to map as a single buffer
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                    return fromInputStream(in);
+                }
+            }
+            return fromBuffer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
     @Beta
     public class Searcher {
         private final byte[] nPostingListsForDocument;
@@ -155,73 +222,107 @@ public class PredicateIndex {
 
         /**
          * Retrieves a stream of hits for the given query.
+         * The stream may be made parallel, in which case it is evaluated over disjoint document id ranges
+         * in the common fork-join pool.
          *
          * @param query Specifies the boolean variables that are true.
          * @return A stream of hits.
          */
         public Stream<Hit> search(PredicateQuery query) {
-            ArrayList<PostingList> postingLists = new ArrayList<>();
+            List<Supplier<PostingList>> postingListFactories = new ArrayList<>();
             for (PredicateQuery.Feature feature : query.getFeatures()) {
-                addIntervalPostingList(feature.featureHash, feature.subqueryBitmap, postingLists);
+                addIntervalPostingList(feature.featureHash, feature.subqueryBitmap, postingListFactories);
             }
             for (PredicateQuery.RangeFeature feature : query.getRangeFeatures()) {
                 expander.expand(
                         feature.key,
                         feature.value,
-                        featureHash -> addIntervalPostingList(featureHash, feature.subqueryBitmap, postingLists),
-                        (featureHash, value) -> addBoundsPostingList(featureHash, value, feature.subqueryBitmap, postingLists));
+                        featureHash -> addIntervalPostingList(featureHash, feature.subqueryBitmap, postingListFactories),
+                        (featureHash, value) -> addBoundsPostingList(featureHash, value, feature.subqueryBitmap, postingListFactories));
             }
-            addCompressedZStarPostingList(postingLists);
-            addConjunctionPostingLists(query, postingLists);
-            addZeroConstraintPostingList(postingLists);
+            addCompressedZStarPostingList(postingListFactories);
+            addConjunctionPostingLists(query, postingListFactories);
+            addZeroConstraintPostingList(postingListFactories);
 
+            Supplier<List<PostingList>> postingListSupplier = () -> postingListFactories.stream().map(Supplier::get).toList();
+            List<PostingList> postingLists = postingListSupplier.get();
             CachedPostingListCounter counter = postingListCounter.get();
             counter.registerUsage(postingLists);
             counter.countPostingListsPerDocument(postingLists, nPostingListsForDocument);
             return new PredicateSearch(
-                    postingLists, nPostingListsForDocument, minFeatureIndex, intervalEnds, highestIntervalEnd).stream()
+                    postingLists, postingListSupplier,
+                    nPostingListsForDocument, minFeatureIndex, intervalEnds, highestIntervalEnd).stream()
                     // Map to external id. Note that internal id for first document is 1.
                     .map(hit -> new Hit(internalToExternalIdMapping[hit.getDocId()], hit.getSubquery()));
         }
 
-        private void addCompressedZStarPostingList(List<PostingList> postingLists) {
+        private void addCompressedZStarPostingList(List<Supplier<PostingList>> postingLists) {
             SimpleIndex.Entry e = intervalIndex.getPostingList(Feature.Z_STAR_COMPRESSED_ATTRIBUTE_HASH);
             if (e != null) {
-                postingLists.add(new ZstarCompressedPostingList(intervalStore, e.docIds, e.dataRefs));
+                postingLists.add(() -> new ZstarCompressedPostingList(intervalStore, e.docIds, e.dataRefs));
             }
         }
 
         private void addBoundsPostingList(
-                long featureHash, int value, long subqueryBitMap, List<PostingList> postingLists) {
+                long featureHash, int value, long subqueryBitMap, List<Supplier<PostingList>> postingLists) {
             SimpleIndex.Entry e = boundsIndex.getPostingList(featureHash);
             if (e != null) {
-                postingLists.add(new BoundsPostingList(intervalStore, e.docIds, e.dataRefs, subqueryBitMap, value));
+                postingLists.add(() -> new BoundsPostingList(intervalStore, e.docIds, e.dataRefs, subqueryBitMap, value));
             }
         }
 
-        private void addIntervalPostingList(long featureHash, long subqueryBitMap, List<PostingList> postingLists) {
+        private void addIntervalPostingList(long featureHash, long subqueryBitMap, List<Supplier<PostingList>> postingLists) {
             SimpleIndex.Entry e = intervalIndex.getPostingList(featureHash);
             if (e != null) {
-                postingLists.add(new IntervalPostingList(intervalStore, e.docIds, e.dataRefs, subqueryBitMap));
+                postingLists.add(() -> new IntervalPostingList(intervalStore, e.docIds, e.dataRefs, subqueryBitMap));
             }
         }
 
-        private void addConjunctionPostingLists(PredicateQuery query, List<PostingList> postingLists) {
+        private void addConjunctionPostingLists(PredicateQuery query, List<Supplier<PostingList>> postingLists) {
             List<ConjunctionHit> hits = conjunctionIndexSearcher.search(query);
             for (ConjunctionHit hit : hits) {
                 SimpleIndex.Entry e = conjunctionIntervalIndex.getPostingList(hit.conjunctionId);
                 if (e != null) {
-                    postingLists.add(new IntervalPostingList(intervalStore, e.docIds, e.dataRefs, hit.subqueryBitmap));
+                    postingLists.add(() -> new IntervalPostingList(intervalStore, e.docIds, e.dataRefs, hit.subqueryBitmap));
                 }
             }
         }
 
-        private void addZeroConstraintPostingList(ArrayList<PostingList> postingLists) {
-            if (zeroConstraintDocuments.length > 0) {
-                postingLists.add(new ZeroConstraintPostingList(zeroConstraintDocuments));
+        private void addZeroConstraintPostingList(List<Supplier<PostingList>> postingLists) {
+            if (zeroConstraintDocuments.limit() > 0) {
+                postingLists.add(() -> new ZeroConstraintPostingList(zeroConstraintDocuments));
             }
         }
 
     }
 
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) return 0;
+            if ( ! buffer.hasRemaining()) return -1;
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+            return length;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+    }
+
 }
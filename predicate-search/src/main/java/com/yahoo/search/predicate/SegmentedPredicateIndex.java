@@ -0,0 +1,277 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.predicate;
+
+import com.yahoo.api.annotations.Beta;
+import com.yahoo.document.predicate.BinaryFormat;
+import com.yahoo.document.predicate.Predicate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+/**
+ * A {@link PredicateIndex} which can be updated after it is created.
+ * <p>
+ * Documents are added with {@link #indexDocument(int, Predicate)} and removed with {@link #removeDocument(int)}.
+ * Added documents are buffered until {@link #flush()} is called, or the max number of pending documents is reached,
+ * at which point they are built into a new immutable segment and become searchable. Removals take effect immediately.
+ * Indexing a document id which is already present replaces the previous predicate of that document.
+ * </p><p>
+ * When the number of segments exceeds the given max, segments are merged into one in the given executor.
+ * Searches are not blocked while merging.
+ * </p><p>
+ * Each segment keeps its posting lists, interval lists and the binary encoding of its predicates in direct buffers
+ * outside the heap. Dictionaries, per-document arrays and the conjunction index of each segment are on the heap.
+ * </p><p>
+ * As with {@link PredicateIndex}, this is thread-safe, but a {@link Searcher} is not.
+ * Each thread <strong>must</strong> use its own searcher.
+ * </p>
+ * @author bjorncs
+ */
+@Beta
+public class SegmentedPredicateIndex {
+
+    private final Config config;
+    private final int maxPendingDocuments;
+    private final int maxSegments;
+    private final Executor mergeExecutor;
+
+    /** Documents not yet built into a segment. Guarded by this. */
+    private final Map<Integer, Predicate> pending = new LinkedHashMap<>();
+
+    /** The current segments. Replaced, never modified. */
+    private volatile List<Segment> segments = List.of();
+
+    /** Whether a merge is scheduled or running. Guarded by this. */
+    private boolean merging = false;
+
+    /**
+     * Creates an empty index.
+     *
+     * @param config the config used when building each segment
+     * @param maxPendingDocuments the number of added documents which causes a new segment to be built
+     * @param maxSegments the number of segments above which segments are merged
+     * @param mergeExecutor the executor running segment merges
+     */
+    public SegmentedPredicateIndex(Config config, int maxPendingDocuments, int maxSegments, Executor mergeExecutor) {
+        if (maxPendingDocuments < 1) throw new IllegalArgumentException("maxPendingDocuments must be positive, got " + maxPendingDocuments);
+        if (maxSegments < 1) throw new IllegalArgumentException("maxSegments must be positive, got " + maxSegments);
+        this.config = config;
+        this.maxPendingDocuments = maxPendingDocuments;
+        this.maxSegments = maxSegments;
+        this.mergeExecutor = mergeExecutor;
+    }
+
+    /**
+     * Indexes a predicate with the given id, replacing any previous predicate with that id.
+     * The document becomes searchable at the next flush.
+     *
+     * @param docId     a 32-bit document id, returned in the Hit objects when the predicate matches
+     * @param predicate the predicate to index
+     */
+    public synchronized void indexDocument(int docId, Predicate predicate) {
+        removeDocument(docId);
+        pending.put(docId, predicate);
+        if (pending.size() >= maxPendingDocuments)
+            flush();
+    }
+
+    /** Removes the document with the given id, if present. This takes effect immediately. */
+    public synchronized void removeDocument(int docId) {
+        if (pending.remove(docId) != null) return;
+        for (Segment segment : segments) {
+            if (segment.remove(docId)) return;
+        }
+    }
+
+    /** Builds all pending documents into a new segment, making them searchable. */
+    public synchronized void flush() {
+        if (pending.isEmpty()) return;
+        Segment segment = Segment.build(config, pending);
+        pending.clear();
+        List<Segment> newSegments = new ArrayList<>(segments);
+        newSegments.add(segment);
+        segments = List.copyOf(newSegments);
+        scheduleMergeIfNeeded();
+    }
+
+    /** Returns the number of segments currently searched */
+    public int segmentCount() { return segments.size(); }
+
+    /** Returns the number of documents currently searchable */
+    public int documentCount() {
+        return segments.stream().mapToInt(Segment::documentCount).sum();
+    }
+
+    /**
+     * Create a new searcher.
+     */
+    public Searcher searcher() {
+        return new Searcher();
+    }
+
+    private void scheduleMergeIfNeeded() {
+        if (merging || segments.size() <= maxSegments) return;
+        merging = true;
+        mergeExecutor.execute(this::merge);
+    }
+
+    /** Merges the current segments into one. Runs in the merge executor. */
+    private void merge() {
+        try {
+            List<Segment> sources = segments;
+            List<Set<Integer>> removedBefore = new ArrayList<>(sources.size());
+            Map<Integer, Predicate> documents = new LinkedHashMap<>();
+            for (Segment segment : sources) {
+                Set<Integer> removed = Set.copyOf(segment.removed);
+                removedBefore.add(removed);
+                segment.addDocumentsTo(documents, removed);
+            }
+            Segment merged = Segment.build(config, documents);
+            synchronized (this) {
+                // Apply removals done while building the merged segment
+                for (int i = 0; i < sources.size(); i++)
+                    for (int docId : sources.get(i).removed)
+                        if ( ! removedBefore.get(i).contains(docId))
+                            merged.remove(docId);
+                List<Segment> newSegments = new ArrayList<>();
+                newSegments.add(merged);
+                for (Segment segment : segments)
+                    if ( ! sources.contains(segment))
+                        newSegments.add(segment);
+                segments = List.copyOf(newSegments);
+                merging = false;
+                scheduleMergeIfNeeded();
+            }
+        }
+        catch (RuntimeException e) {
+            synchronized (this) { merging = false; }
+            throw e;
+        }
+    }
+
+    @Beta
+    public class Searcher {
+
+        private Map<PredicateIndex, PredicateIndex.Searcher> searchers = new IdentityHashMap<>();
+
+        private Searcher() { }
+
+        /**
+         * Retrieves a stream of hits for the given query in all segments.
+         * The order of the hits is unspecified.
+         *
+         * @param query Specifies the boolean variables that are true.
+         * @return A stream of hits.
+         */
+        public Stream<Hit> search(PredicateQuery query) {
+            List<Segment> current = segments;
+            Map<PredicateIndex, PredicateIndex.Searcher> currentSearchers = new IdentityHashMap<>();
+            Stream<Hit> hits = Stream.empty();
+            for (Segment segment : current) {
+                PredicateIndex.Searcher searcher = searchers.get(segment.index);
+                if (searcher == null)
+                    searcher = segment.index.searcher();
+                currentSearchers.put(segment.index, searcher);
+                hits = Stream.concat(hits, searcher.search(query).filter(hit -> segment.isLive(hit.getDocId())));
+            }
+            searchers = currentSearchers; // Drop searchers of merged segments
+            return hits;
+        }
+
+    }
+
+    /**
+     * An immutable predicate index and the documents it contains, with a mutable set of removed documents.
+     * The predicates are only needed when merging, and are kept binary encoded in a direct buffer.
+     */
+    private static class Segment {
+
+        private final PredicateIndex index;
+        /** The ids of the documents in this, sorted */
+        private final int[] docIds;
+        /** The offset of the encoded predicate of each document in predicates, followed by the end offset */
+        private final int[] offsets;
+        private final ByteBuffer predicates;
+        private final Set<Integer> removed = ConcurrentHashMap.newKeySet();
+
+        private Segment(PredicateIndex index, int[] docIds, int[] offsets, ByteBuffer predicates) {
+            this.index = index;
+            this.docIds = docIds;
+            this.offsets = offsets;
+            this.predicates = predicates;
+        }
+
+        static Segment build(Config config, Map<Integer, Predicate> documents) {
+            PredicateIndexBuilder builder = new PredicateIndexBuilder(config);
+            documents.forEach(builder::indexDocument);
+
+            int[] docIds = documents.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            byte[][] encoded = new byte[docIds.length][];
+            int[] offsets = new int[docIds.length + 1];
+            for (int i = 0; i < docIds.length; i++) {
+                encoded[i] = BinaryFormat.encode(documents.get(docIds[i]));
+                offsets[i + 1] = Math.addExact(offsets[i], encoded[i].length);
+            }
+            ByteBuffer predicates = ByteBuffer.allocateDirect(offsets[docIds.length]);
+            for (byte[] predicate : encoded)
+                predicates.put(predicate);
+            return new Segment(toDirectBuffer(builder.build()), docIds, offsets, predicates);
+        }
+
+        /** Returns the given index as searched in place in a direct buffer */
+        private static PredicateIndex toDirectBuffer(PredicateIndex index) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (DataOutputStream out = new DataOutputStream(bytes)) {
+                    index.writeToOutputStream(out);
+                }
+                ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.size());
+                buffer.put(bytes.toByteArray()).flip();
+                return PredicateIndex.fromBuffer(buffer);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        boolean isLive(int docId) {
+            return contains(docId) && ! removed.contains(docId);
+        }
+
+        /** Removes the given document from this, and returns whether it was live in this */
+        boolean remove(int docId) {
+            return contains(docId) && removed.add(docId);
+        }
+
+        int documentCount() { return docIds.length - removed.size(); }
+
+        /** Adds the documents of this which are not in the given set of removed documents to the given map */
+        void addDocumentsTo(Map<Integer, Predicate> target, Set<Integer> removed) {
+            for (int i = 0; i < docIds.length; i++) {
+                if (removed.contains(docIds[i])) continue;
+                byte[] encoded = new byte[offsets[i + 1] - offsets[i]];
+                predicates.get(offsets[i], encoded);
+                target.put(docIds[i], BinaryFormat.decode(encoded));
+            }
+        }
+
+        private boolean contains(int docId) {
+            return Arrays.binarySearch(docIds, docId) >= 0;
+        }
+
+    }
+
+}
@@ -37,6 +37,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -127,6 +128,8 @@ public class PredicateIndexBenchmark {
         output.put("Max documents", args.maxDocuments);
         output.put("Max queries", args.maxQueries);
         output.put("Threads", args.nThreads);
+        output.put("Parallelism per query", args.parallelism);
+        output.put("Available processors", Runtime.getRuntime().availableProcessors());
         output.put("Runtime", args.runtime);
         output.put("Algorithm", args.algorithm);
         output.put("Serialized index output file", args.indexOutputFile);
@@ -139,12 +142,14 @@ public class PredicateIndexBenchmark {
 
     private static void runQueries(BenchmarkArguments args, PredicateIndex index) throws IOException {
         List<PredicateQuery> queries = parseQueries(args.queryFile, args.maxQueries, args.format);
-        long warmup1 = warmup(queries, index, args.nThreads, args.warmup / 2);
+        ForkJoinPool pool = args.parallelism > 0 ? new ForkJoinPool(args.parallelism) : null;
+        long warmup1 = warmup(queries, index, args.nThreads, args.warmup / 2, pool);
         output.put("Time warmup before building posting cache", warmup1);
         rebuildPostingListCache(index);
-        long warmup2 = warmup(queries, index, args.nThreads, args.warmup / 2);
+        long warmup2 = warmup(queries, index, args.nThreads, args.warmup / 2, pool);
         output.put("Time warmup after building posting cache", warmup2);
-        searchIndex(queries, index, args.nThreads, args.runtime);
+        searchIndex(queries, index, args.nThreads, args.runtime, pool);
+        if (pool != null) pool.shutdown();
     }
 
     private static void rebuildPostingListCache(PredicateIndex index) {
@@ -163,27 +168,27 @@ public class PredicateIndexBenchmark {
         return queries;
     }
 
-    private static long warmup(List<PredicateQuery> queries, PredicateIndex index, int nThreads, int warmup) {
+    private static long warmup(List<PredicateQuery> queries, PredicateIndex index, int nThreads, int warmup, ForkJoinPool pool) {
         ExecutorService executor = Executors.newFixedThreadPool(nThreads);
         Random random = new Random(42);
         for (int i = 0; i < nThreads; i++) {
             List<PredicateQuery> shuffledQueries = new ArrayList<>(queries);
             Collections.shuffle(shuffledQueries, random);
-            executor.submit(new QueryRunner(shuffledQueries, index.searcher()));
+            executor.submit(new QueryRunner(shuffledQueries, index.searcher(), pool));
         }
         long start = System.currentTimeMillis();
         waitAndShutdown(warmup, executor);
         return System.currentTimeMillis() - start;
     }
 
-    private static void searchIndex(List<PredicateQuery> queries, PredicateIndex index, int nThreads, int runtime) {
+    private static void searchIndex(List<PredicateQuery> queries, PredicateIndex index, int nThreads, int runtime, ForkJoinPool pool) {
         ExecutorService executor = Executors.newFixedThreadPool(nThreads);
         Random random = new Random(42);
         List<QueryRunner> runners = new ArrayList<>();
         for (int i = 0; i < nThreads; i++) {
             List<PredicateQuery> shuffledQueries = new ArrayList<>(queries);
             Collections.shuffle(shuffledQueries, random);
-            runners.add(new QueryRunner(shuffledQueries, index.searcher()));
+            runners.add(new QueryRunner(shuffledQueries, index.searcher(), pool));
         }
         long start = System.currentTimeMillis();
         List<Future<ResultMetrics>> futureResults = runners.stream().map(executor::submit).toList();
@@ -217,10 +222,16 @@ public class PredicateIndexBenchmark {
     private static class QueryRunner implements Callable<ResultMetrics> {
         private final List<PredicateQuery> queries;
         private final PredicateIndex.Searcher searcher;
+        private final ForkJoinPool pool;
 
-        public QueryRunner(List<PredicateQuery> queries, PredicateIndex.Searcher seacher) {
+        /**
+         * @param pool the pool to evaluate each query in parallel in, or null to evaluate each query sequentially
+         *             in the calling thread
+         */
+        public QueryRunner(List<PredicateQuery> queries, PredicateIndex.Searcher seacher, ForkJoinPool pool) {
             this.queries = queries;
             this.searcher = seacher;
+            this.pool = pool;
         }
 
         @Override
@@ -229,7 +240,9 @@ public class PredicateIndexBenchmark {
             ResultMetrics result = new ResultMetrics();
             while (!Thread.interrupted()) {
                 long start = System.nanoTime();
-                long hits = searcher.search(iterator.next()).count();
+                PredicateQuery query = iterator.next();
+                long hits = pool == null ? searcher.search(query).count()
+                                         : pool.submit(() -> searcher.search(query).parallel().count()).get();
                 double latencyMilliseconds = (System.nanoTime() - start) / 1_000_000d;
                 result.registerResult(hits, latencyMilliseconds);
             }
@@ -255,6 +268,10 @@ public class PredicateIndexBenchmark {
         @Option(name = {"-t", "--threads"}, description = "Number of search threads")
         public int nThreads = 1;
 
+        @Option(name = {"-p", "--parallelism"},
+                description = "Number of fork-join threads evaluating each query, or 0 to evaluate sequentially")
+        public int parallelism = 0;
+
         @Option(name = {"-a", "--arity"}, description = "Arity")
         public int arity = 2;
 
@@ -1,6 +1,8 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.predicate.index;
 
+import java.nio.IntBuffer;
+
 /**
  * Wraps a posting stream of IntervalWithBounds objects (for collapsed
  * fixed tree leaf nodes) into a PostingList.
@@ -10,14 +12,15 @@ package com.yahoo.search.predicate.index;
  */
 public class BoundsPostingList extends MultiIntervalPostingList {
     private final int valueDiff;
-    private final IntervalWithBounds intervalWithBounds = new IntervalWithBounds();
     private final PredicateIntervalStore store;
+    private int currentIntervalIndex;
+    private int currentIntervalsEnd;
     private int currentInterval;
 
     /**
      * @param valueDiff Difference from the collapsed leaf node's actual value.
      */
-    public BoundsPostingList(PredicateIntervalStore store, int[] docIds, int[] dataRefs, long subquery, int valueDiff) {
+    public BoundsPostingList(PredicateIntervalStore store, IntBuffer docIds, IntBuffer dataRefs, long subquery, int valueDiff) {
         super(docIds, dataRefs, subquery);
         this.valueDiff = valueDiff;
         this.store = store;
@@ -25,19 +28,22 @@ public class BoundsPostingList extends MultiIntervalPostingList {
 
     @Override
     protected boolean prepareIntervals(int dataRef) {
-        intervalWithBounds.setIntervalArray(store.get(dataRef), 0);
+        currentIntervalIndex = store.begin(dataRef);
+        currentIntervalsEnd = store.end(dataRef);
         return nextInterval();
     }
 
     @Override
     public boolean nextInterval() {
-        while (intervalWithBounds.hasValue()) {
-            if (intervalWithBounds.contains(valueDiff)) {
-                this.currentInterval = intervalWithBounds.getInterval();
-                intervalWithBounds.nextValue();
+        // Intervals are stored as pairs of interval and bounds
+        while (currentIntervalIndex < currentIntervalsEnd - 1) {
+            int interval = store.interval(currentIntervalIndex);
+            int bounds = store.interval(currentIntervalIndex + 1);
+            currentIntervalIndex += 2;
+            if (IntervalWithBounds.contains(bounds, valueDiff)) {
+                this.currentInterval = interval;
                 return true;
             }
-            intervalWithBounds.nextValue();
         }
         return false;
     }
@@ -2,17 +2,18 @@
 package com.yahoo.search.predicate.index;
 
 import com.google.common.collect.MinMaxPriorityQueue;
-import org.eclipse.collections.api.tuple.primitive.ObjectLongPair;
-import org.eclipse.collections.impl.map.mutable.primitive.ObjectIntHashMap;
-import org.eclipse.collections.impl.map.mutable.primitive.ObjectLongHashMap;
 
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Counts the number of posting lists per document id.
  * Caches the most expensive posting list in a bit vector.
+ * Posting lists are identified by their document id buffer instance, as comparing their content would be too expensive.
  *
  * @author bjorncs
  */
@@ -22,17 +23,17 @@ public class CachedPostingListCounter {
     private static final double THRESHOLD_USE_BIT_VECTOR = 1;
 
     private final int nDocuments;
-    private final ObjectLongHashMap<int[]> frequency = new ObjectLongHashMap<>();
-    private final ObjectIntHashMap<int[]> postingListMapping;
+    private final Map<IntBuffer, Long> frequency = new IdentityHashMap<>();
+    private final Map<IntBuffer, Integer> postingListMapping;
     private final int[] bitVector;
 
     public CachedPostingListCounter(int nDocuments) {
         this.nDocuments = nDocuments;
-        this.postingListMapping = new ObjectIntHashMap<>();
+        this.postingListMapping = Map.of();
         this.bitVector = new int[0];
     }
 
-    private CachedPostingListCounter(ObjectIntHashMap<int[]> postingListMapping, int[] bitVector) {
+    private CachedPostingListCounter(Map<IntBuffer, Integer> postingListMapping, int[] bitVector) {
         this.nDocuments = bitVector.length;
         this.postingListMapping = postingListMapping;
         this.bitVector = bitVector;
@@ -40,23 +41,23 @@ public class CachedPostingListCounter {
 
     public synchronized void registerUsage(List<PostingList> postingLists) {
         for (PostingList postingList : postingLists) {
-            frequency.updateValue(postingList.getDocIds(), 0, v -> v + 1);
+            frequency.merge(postingList.getDocIds(), 1L, Long::sum);
         }
     }
 
     public void countPostingListsPerDocument(List<PostingList> postingLists, byte[] nPostingListsForDocument) {
         Arrays.fill(nPostingListsForDocument, (byte) 0);
-        List<int[]> nonCachedPostingLists = new ArrayList<>(postingLists.size());
-        List<int[]> cachedPostingLists = new ArrayList<>(postingLists.size());
+        List<IntBuffer> nonCachedPostingLists = new ArrayList<>(postingLists.size());
+        List<IntBuffer> cachedPostingLists = new ArrayList<>(postingLists.size());
         long nDocumentsCachedPostingLists = 0;
         int postingListBitmap = 0;
         for (PostingList postingList : postingLists) {
-            int[] docIds = postingList.getDocIds();
-            int index = postingListMapping.getIfAbsent(docIds, -1);
-            if (index >= 0) {
+            IntBuffer docIds = postingList.getDocIds();
+            Integer index = postingListMapping.get(docIds);
+            if (index != null) {
                 cachedPostingLists.add(docIds);
                 postingListBitmap |= (1 << index);
-                nDocumentsCachedPostingLists += docIds.length;
+                nDocumentsCachedPostingLists += docIds.limit();
             } else {
                 nonCachedPostingLists.add(docIds);
             }
@@ -79,10 +80,10 @@ public class CachedPostingListCounter {
         }
     }
 
-    private static void countUsingDocIdIteration(byte[] nPostingListsForDocument, List<int[]> nonCachedPostingLists) {
-        for (int[] docIds : nonCachedPostingLists) {
-            for (int docId : docIds) {
-                ++nPostingListsForDocument[docId];
+    private static void countUsingDocIdIteration(byte[] nPostingListsForDocument, List<IntBuffer> nonCachedPostingLists) {
+        for (IntBuffer docIds : nonCachedPostingLists) {
+            for (int i = 0, length = docIds.limit(); i < length; i++) {
+                ++nPostingListsForDocument[docIds.get(i)];
             }
         }
     }
@@ -90,19 +91,19 @@ public class CachedPostingListCounter {
     public CachedPostingListCounter rebuildCache() {
         MinMaxPriorityQueue<Entry> mostExpensive = MinMaxPriorityQueue.maximumSize(32).expectedSize(32).create();
         synchronized (this) {
-            for (ObjectLongPair<int[]> p : frequency.keyValuesView()) {
-                mostExpensive.add(new Entry(p.getOne(), p.getTwo()));
+            for (Map.Entry<IntBuffer, Long> p : frequency.entrySet()) {
+                mostExpensive.add(new Entry(p.getKey(), p.getValue()));
             }
         }
-        ObjectIntHashMap<int[]> postingListMapping = new ObjectIntHashMap<>();
+        Map<IntBuffer, Integer> postingListMapping = new IdentityHashMap<>();
         int[] bitVector = new int[nDocuments];
         int length = mostExpensive.size();
         for (int i = 0; i < length; i++) {
             Entry e = mostExpensive.removeFirst();
-            int[] docIds = e.docIds;
+            IntBuffer docIds = e.docIds;
             postingListMapping.put(docIds, i);
-            for (int docId : docIds) {
-                bitVector[docId] |= (1 << i);
+            for (int j = 0, size = docIds.limit(); j < size; j++) {
+                bitVector[docIds.get(j)] |= (1 << i);
             }
         }
         return new CachedPostingListCounter(postingListMapping, bitVector);
@@ -112,17 +113,17 @@ public class CachedPostingListCounter {
         return bitVector;
     }
 
-    ObjectIntHashMap<int[]> getPostingListMapping() {
+    Map<IntBuffer, Integer> getPostingListMapping() {
         return postingListMapping;
     }
 
     private static class Entry implements Comparable<Entry> {
-        public final int[] docIds;
+        public final IntBuffer docIds;
         final double cost;
 
-        private Entry(int[] docIds, long frequency) {
+        private Entry(IntBuffer docIds, long frequency) {
             this.docIds = docIds;
-            this.cost = docIds.length * (double) frequency;
+            this.cost = docIds.limit() * (double) frequency;
             assert cost > 0;
         }
 
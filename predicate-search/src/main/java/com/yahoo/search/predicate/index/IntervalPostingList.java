@@ -1,6 +1,8 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.predicate.index;
 
+import java.nio.IntBuffer;
+
 /**
  * Implementation of PostingList for regular features that store
  * their intervals and nothing else.
@@ -11,27 +13,27 @@ package com.yahoo.search.predicate.index;
 public class IntervalPostingList extends MultiIntervalPostingList {
 
     private final PredicateIntervalStore store;
-    private int[] currentIntervals;
     private int currentIntervalIndex;
+    private int currentIntervalsEnd;
     private int currentInterval;
 
-    public IntervalPostingList(PredicateIntervalStore store, int[] docIds, int[] dataRefs, long subquery) {
+    public IntervalPostingList(PredicateIntervalStore store, IntBuffer docIds, IntBuffer dataRefs, long subquery) {
         super(docIds, dataRefs, subquery);
         this.store = store;
     }
 
     @Override
     protected boolean prepareIntervals(int dataRef) {
-        currentIntervals = store.get(dataRef);
-        currentIntervalIndex = 1;
-        currentInterval = currentIntervals[0];
+        currentIntervalIndex = store.begin(dataRef);
+        currentIntervalsEnd = store.end(dataRef);
+        currentInterval = store.interval(currentIntervalIndex++);
         return true;
     }
 
     @Override
     public boolean nextInterval() {
-        if (currentIntervalIndex < currentIntervals.length) {
-            this.currentInterval = currentIntervals[currentIntervalIndex++];
+        if (currentIntervalIndex < currentIntervalsEnd) {
+            this.currentInterval = store.interval(currentIntervalIndex++);
             return true;
         }
         return false;
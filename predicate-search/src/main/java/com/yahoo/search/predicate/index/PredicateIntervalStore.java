@@ -7,6 +7,8 @@ import com.yahoo.search.predicate.serialization.SerializationHelper;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -14,25 +16,47 @@ import java.util.List;
 import java.util.Map;
 
 /**
+ * Stores the interval lists of an index. All lists are stored length-prefixed in a single int buffer,
+ * which is either on the heap or a view into a serialized index, e.g. in a memory-mapped file.
+ * Only the offset of each list is kept on the heap.
+ *
  * @author bjorncs
  */
 public class PredicateIntervalStore {
 
-    private final int[][] intervalsList;
+    private final IntBuffer data;
+    private final int[] offsets;
+
+    private PredicateIntervalStore(IntBuffer data, int[] offsets) {
+        this.data = data;
+        this.offsets = offsets;
+    }
 
     public PredicateIntervalStore(int[][] intervalsList) {
-        this.intervalsList = intervalsList;
+        this(toBuffer(intervalsList), offsets(intervalsList));
     }
 
-    public int[] get(int intervalRef) {
-        assert intervalRef < intervalsList.length;
-        return intervalsList[intervalRef];
+    /** Returns the index of the first interval of the given interval list */
+    public int begin(int intervalRef) {
+        assert intervalRef < offsets.length;
+        return offsets[intervalRef] + 1;
+    }
+
+    /** Returns the index after the last interval of the given interval list */
+    public int end(int intervalRef) {
+        assert intervalRef < offsets.length;
+        return begin(intervalRef) + data.get(offsets[intervalRef]);
+    }
+
+    /** Returns the interval at the given index, which must be in the range of some interval list */
+    public int interval(int index) {
+        return data.get(index);
     }
 
     public void writeToOutputStream(DataOutputStream out) throws IOException {
-        out.writeInt(intervalsList.length);
-        for (int[] intervals : intervalsList) {
-            SerializationHelper.writeIntArray(intervals, out);
+        out.writeInt(offsets.length);
+        for (int i = 0; i < data.limit(); i++) {
+            out.writeInt(data.get(i));
         }
     }
 
@@ -45,6 +69,48 @@ public class PredicateIntervalStore {
         return new PredicateIntervalStore(intervalsList);
     }
 
+    /**
+     * Reads a store written by {@link #writeToOutputStream} at the current position of the given buffer
+     * without copying the intervals, and advances the buffer position past it.
+     */
+    public static PredicateIntervalStore fromBuffer(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        int start = buffer.position();
+        IntBuffer data = buffer.slice(start, buffer.limit() - start).asIntBuffer();
+        int[] offsets = new int[length];
+        int position = 0;
+        for (int i = 0; i < length; i++) {
+            offsets[i] = position;
+            position += data.get(position) + 1;
+        }
+        buffer.position(start + position * Integer.BYTES);
+        return new PredicateIntervalStore(data.slice(0, position), offsets);
+    }
+
+    private static IntBuffer toBuffer(int[][] intervalsList) {
+        long size = 0;
+        for (int[] intervals : intervalsList)
+            size += intervals.length + 1;
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Interval store of " + size + " entries is too large");
+        IntBuffer data = IntBuffer.allocate((int)size);
+        for (int[] intervals : intervalsList) {
+            data.put(intervals.length);
+            data.put(intervals);
+        }
+        return data.flip();
+    }
+
+    private static int[] offsets(int[][] intervalsList) {
+        int[] offsets = new int[intervalsList.length];
+        int position = 0;
+        for (int i = 0; i < intervalsList.length; i++) {
+            offsets[i] = position;
+            position += intervalsList[i].length + 1;
+        }
+        return offsets;
+    }
+
     public static class Builder {
         private final List<int[]> intervalsListBuilder = new ArrayList<>();
         private final Map<Entry, Integer> intervalsListIndexes = new HashMap<>();
@@ -11,6 +11,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Spliterator;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -22,6 +23,10 @@ import java.util.stream.StreamSupport;
  */
 public class PredicateSearch {
 
+    /** Ranges of document ids smaller than twice this are not split further */
+    static final int minimumSplitSize = 1 << 12;
+
+    private final Supplier<List<PostingList>> postingListSupplier;
     private final PostingList[] postingLists;
     private final byte[] nPostingListsForDocument;
     private final byte[] minFeatureIndex;
@@ -31,6 +36,10 @@ public class PredicateSearch {
     private final long[] subqueryMarkers;
     private final boolean[] visited;
     private final short[] intervalEnds;
+    private final int highestIntervalEnd;
+
+    /** The document id (exclusive) where this search ends */
+    private final int endDocId;
 
     private short[] sortedIndexes;
     private short[] sortedIndexesMergeBuffer;
@@ -48,7 +57,36 @@ public class PredicateSearch {
     public PredicateSearch(
             List<PostingList> postingLists, byte[] nPostingListsForDocument,
             byte[] minFeatureIndex, short[] intervalEnds, int  highestIntervalEnd) {
+        this(postingLists, null, nPostingListsForDocument, minFeatureIndex, intervalEnds, highestIntervalEnd,
+             nPostingListsForDocument.length);
+    }
+
+    /**
+     * Creates a search which can be split into searches over disjoint document id ranges,
+     * such that its stream can be evaluated in parallel.
+     *
+     * @param postingLists Posting lists, positioned at their start, for the boolean variables that evaluate to true
+     * @param postingListSupplier Supplies new posting lists equal to postingLists. This is invoked once for each split.
+     * @param nPostingListsForDocument The number of posting list for each docId
+     * @param minFeatureIndex Index from docId to min-feature value.
+     * @param intervalEnds The interval end for each document.
+     * @param highestIntervalEnd The highest end value.
+     */
+    public PredicateSearch(
+            List<PostingList> postingLists, Supplier<List<PostingList>> postingListSupplier,
+            byte[] nPostingListsForDocument, byte[] minFeatureIndex, short[] intervalEnds, int  highestIntervalEnd) {
+        this(postingLists, postingListSupplier, nPostingListsForDocument, minFeatureIndex, intervalEnds, highestIntervalEnd,
+             nPostingListsForDocument.length);
+    }
+
+    private PredicateSearch(
+            List<PostingList> postingLists, Supplier<List<PostingList>> postingListSupplier,
+            byte[] nPostingListsForDocument, byte[] minFeatureIndex, short[] intervalEnds, int highestIntervalEnd,
+            int endDocId) {
         int size = postingLists.size();
+        this.postingListSupplier = postingListSupplier;
+        this.highestIntervalEnd = highestIntervalEnd;
+        this.endDocId = endDocId;
         this.nPostingListsForDocument = nPostingListsForDocument;
         this.minFeatureIndex = minFeatureIndex;
         this.nPostingLists = size;
@@ -76,19 +114,25 @@ public class PredicateSearch {
 
     /**
      * @return A stream of Hit-objects from a lazy evaluation of the boolean search algorithm.
+     *         If this search was created with a posting list supplier, the stream can be made parallel.
      */
     public Stream<Hit> stream() {
         if (nPostingLists == 0) {
             return Stream.empty();
         }
-        return StreamSupport.stream(new PredicateSpliterator(), false);
+        return StreamSupport.stream(new PredicateSpliterator(0), false);
     }
 
     private class PredicateSpliterator implements java.util.Spliterator<Hit> {
-        private int lastHit = -1;
+        private int lastHit;
+
+        PredicateSpliterator(int beginDocId) {
+            this.lastHit = beginDocId - 1;
+        }
 
         @Override
         public boolean tryAdvance(Consumer<? super Hit> action) {
+            if (lastHit + 1 >= endDocId) return false;
             Optional<Hit> optionalHit = seek(lastHit + 1);
             optionalHit.ifPresent(hit -> {
                 lastHit = hit.getDocId();
@@ -97,14 +141,26 @@ public class PredicateSearch {
             return optionalHit.isPresent();
         }
 
+        /**
+         * Splits off the first half of the remaining document id range to a search with its own posting lists.
+         * This keeps searching the second half.
+         */
         @Override
         public Spliterator<Hit> trySplit() {
-            return null;
+            if (postingListSupplier == null) return null;
+            int beginDocId = lastHit + 1;
+            if (endDocId - beginDocId < 2 * minimumSplitSize) return null;
+            int middleDocId = beginDocId + (endDocId - beginDocId) / 2;
+            PredicateSearch prefix = new PredicateSearch(postingListSupplier.get(), postingListSupplier,
+                                                         nPostingListsForDocument, minFeatureIndex, intervalEnds,
+                                                         highestIntervalEnd, middleDocId);
+            lastHit = middleDocId - 1;
+            return prefix.new PredicateSpliterator(beginDocId);
         }
 
         @Override
         public long estimateSize() {
-            return Long.MAX_VALUE;
+            return Math.max(0, endDocId - (lastHit + 1));
         }
 
         @Override
@@ -122,6 +178,7 @@ public class PredicateSearch {
         boolean skippedToEnd = skipMinFeature(docId);
         while (nPostingLists > 0 && !skippedToEnd) {
             int docId0 = docIds[sortedIndexes[0]];
+            if (docId0 >= endDocId) break;
             int minFeature = minFeatureIndex[docId0];
             int k = minFeature > 0 ? minFeature - 1 : 0;
             int intervalEnd = Short.toUnsignedInt(intervalEnds[docId0]);
@@ -139,11 +196,10 @@ public class PredicateSearch {
     }
 
     private boolean skipMinFeature(int docId) {
-        int nDocuments = nPostingListsForDocument.length;
-        while (docId < nDocuments && minFeatureIndex[docId] > nPostingListsForDocument[docId]) {
+        while (docId < endDocId && minFeatureIndex[docId] > nPostingListsForDocument[docId]) {
             ++docId;
         }
-        if (docId < nDocuments) {
+        if (docId < endDocId) {
             advanceAllTo(docId);
             return false;
         }
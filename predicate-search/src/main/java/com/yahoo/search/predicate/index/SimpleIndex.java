@@ -9,6 +9,8 @@ import org.eclipse.collections.impl.map.mutable.primitive.LongObjectHashMap;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -17,6 +19,9 @@ import java.util.Map;
 
 /**
  * An index mapping keys of type Long to lists of postings of generic data.
+ * <p>
+ * The postings of all keys are stored in a single int buffer, which is either on the heap
+ * or a view into a serialized index, e.g. in a memory-mapped file. Only the dictionary is kept on the heap.
  *
  * @author Magnar Nedland
  * @author bjorncs
@@ -51,25 +56,73 @@ public class SimpleIndex {
 
     public static SimpleIndex fromInputStream(DataInputStream in) throws IOException {
         int nEntries = in.readInt();
-        LongObjectHashMap<Entry> dictionary = new LongObjectHashMap<>(nEntries);
+        long[] keys = new long[nEntries];
+        List<int[]> arrays = new ArrayList<>(nEntries * 2);
+        long totalSize = 0;
         for (int i = 0; i < nEntries; i++) {
-            long key = in.readLong();
+            keys[i] = in.readLong();
             int[] docIds = SerializationHelper.readIntArray(in);
             int[] dataRefs = SerializationHelper.readIntArray(in);
-            dictionary.put(key, new Entry(docIds, dataRefs));
+            arrays.add(docIds);
+            arrays.add(dataRefs);
+            totalSize += docIds.length + dataRefs.length;
+        }
+        if (totalSize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Index of " + totalSize + " postings is too large to read into memory");
+
+        IntBuffer data = IntBuffer.allocate((int)totalSize);
+        LongObjectHashMap<Entry> dictionary = new LongObjectHashMap<>(nEntries);
+        for (int i = 0; i < nEntries; i++) {
+            int[] docIds = arrays.get(2 * i);
+            int[] dataRefs = arrays.get(2 * i + 1);
+            int docIdsOffset = data.position();
+            data.put(docIds);
+            int dataRefsOffset = data.position();
+            data.put(dataRefs);
+            dictionary.put(keys[i], new Entry(data, docIdsOffset, dataRefsOffset, docIds.length));
+        }
+        dictionary.compact();
+        return new SimpleIndex(dictionary);
+    }
+
+    /**
+     * Reads an index written by {@link #writeToOutputStream} at the current position of the given buffer
+     * without copying the postings, and advances the buffer position past it.
+     */
+    public static SimpleIndex fromBuffer(ByteBuffer buffer) {
+        int nEntries = buffer.getInt();
+        int start = buffer.position();
+        IntBuffer data = buffer.slice(start, buffer.limit() - start).asIntBuffer();
+        LongObjectHashMap<Entry> dictionary = new LongObjectHashMap<>(nEntries);
+        int position = 0;
+        for (int i = 0; i < nEntries; i++) {
+            long key = ((long)data.get(position) << 32) | (data.get(position + 1) & 0xffffffffL);
+            int size = data.get(position + 2);
+            int docIdsOffset = position + 3;
+            int dataRefsSize = data.get(docIdsOffset + size);
+            if (dataRefsSize != size)
+                throw new IllegalArgumentException("Expected " + size + " data references for key " + key + ", got " + dataRefsSize);
+            int dataRefsOffset = docIdsOffset + size + 1;
+            dictionary.put(key, new Entry(data, docIdsOffset, dataRefsOffset, size));
+            position = dataRefsOffset + size;
         }
+        buffer.position(start + position * Integer.BYTES);
         dictionary.compact();
         return new SimpleIndex(dictionary);
     }
 
+    /** The postings of a key, as views into the buffer holding all postings of an index */
     public static class Entry {
-        public final int[] docIds;
-        public final int[] dataRefs;
 
-        private Entry(int[] docIds, int[] dataRefs) {
-            this.docIds = docIds;
-            this.dataRefs = dataRefs;
+        /** The document ids of this. This is the same instance in all lookups of this entry. */
+        public final IntBuffer docIds;
+        public final IntBuffer dataRefs;
+
+        private Entry(IntBuffer data, int docIdsOffset, int dataRefsOffset, int size) {
+            this.docIds = data.slice(docIdsOffset, size);
+            this.dataRefs = data.slice(dataRefsOffset, size);
         }
+
     }
 
     public static class Builder {
@@ -87,19 +140,19 @@ public class SimpleIndex {
         }
 
         public SimpleIndex build() {
+            IntBuffer data = IntBuffer.allocate(2 * entryCount);
             LongObjectHashMap<Entry> dictionary = new LongObjectHashMap<>();
             for (Map.Entry<Long, List<Posting>> entry : dictionaryBuilder.entrySet()) {
                 List<Posting> postings = entry.getValue();
                 Collections.sort(postings);
                 int size = postings.size();
-                int[] docIds = new int[size];
-                int[] dataRefs = new int[size];
-                for (int i = 0; i < size; i++) {
-                    Posting posting = postings.get(i);
-                    docIds[i] = posting.getId();
-                    dataRefs[i] = posting.getDataRef();
-                }
-                dictionary.put(entry.getKey(), new Entry(docIds, dataRefs));
+                int docIdsOffset = data.position();
+                for (Posting posting : postings)
+                    data.put(posting.getId());
+                int dataRefsOffset = data.position();
+                for (Posting posting : postings)
+                    data.put(posting.getDataRef());
+                dictionary.put(entry.getKey(), new Entry(data, docIdsOffset, dataRefsOffset, size));
             }
             dictionary.compact();
             return new SimpleIndex(dictionary);
@@ -3,6 +3,8 @@ package com.yahoo.search.predicate.index;
 
 import com.yahoo.search.predicate.SubqueryBitmap;
 
+import java.nio.IntBuffer;
+
 /**
  * Wraps an int stream of document ids into a PostingList.
  * All documents in the stream are considered matches.
@@ -12,23 +14,23 @@ import com.yahoo.search.predicate.SubqueryBitmap;
  */
 public class ZeroConstraintPostingList implements PostingList {
 
-    private final int[] docIds;
+    private final IntBuffer docIds;
     private final int length;
     private int currentIndex;
     private int currentDocId;
 
-    public ZeroConstraintPostingList(int[] docIds) {
+    public ZeroConstraintPostingList(IntBuffer docIds) {
         this.docIds = docIds;
         this.currentIndex = 0;
         this.currentDocId = -1;
-        this.length = docIds.length;
+        this.length = docIds.limit();
     }
 
     @Override
     public boolean nextDocument(int docId) {
         int currentDocId = this.currentDocId;
         while (currentIndex < length && currentDocId <= docId) {
-            currentDocId = docIds[currentIndex++];
+            currentDocId = docIds.get(currentIndex++);
         }
         if (currentDocId <= docId) {
             return false;
@@ -68,7 +70,7 @@ public class ZeroConstraintPostingList implements PostingList {
     }
 
     @Override
-    public int[] getDocIds() {
+    public IntBuffer getDocIds() {
         return docIds;
     }
 
@@ -6,6 +6,8 @@ import com.yahoo.search.predicate.PredicateIndex;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 
 /**
  * Misc utility functions to help serialization of {@link PredicateIndex}.
@@ -14,6 +16,9 @@ import java.io.IOException;
  */
 public class SerializationHelper {
 
+    /** The max number of bytes copied at the time when reading arrays in bulk */
+    private static final int CHUNK_SIZE = 1 << 16;
+
     public static void writeIntArray(int[] array, DataOutputStream out) throws IOException {
         out.writeInt(array.length);
         for (int v : array) {
@@ -21,11 +26,23 @@ public class SerializationHelper {
         }
     }
 
+    public static void writeIntArray(IntBuffer buffer, DataOutputStream out) throws IOException {
+        int length = buffer.limit();
+        out.writeInt(length);
+        for (int i = 0; i < length; i++) {
+            out.writeInt(buffer.get(i));
+        }
+    }
+
     public static int[] readIntArray(DataInputStream in) throws IOException {
         int length = in.readInt();
         int[] array = new int[length];
-        for (int i = 0; i < length; i++) {
-            array[i] = in.readInt();
+        byte[] chunk = new byte[chunkSize(length, Integer.BYTES)];
+        for (int i = 0; i < length; ) {
+            int count = Math.min(length - i, chunk.length / Integer.BYTES);
+            in.readFully(chunk, 0, count * Integer.BYTES);
+            ByteBuffer.wrap(chunk, 0, count * Integer.BYTES).asIntBuffer().get(array, i, count);
+            i += count;
         }
         return array;
     }
@@ -40,9 +57,7 @@ public class SerializationHelper {
     public static byte[] readByteArray(DataInputStream in) throws IOException {
         int length = in.readInt();
         byte[] array = new byte[length];
-        for (int i = 0; i < length; i++) {
-            array[i] = in.readByte();
-        }
+        in.readFully(array);
         return array;
     }
 
@@ -56,8 +71,12 @@ public class SerializationHelper {
     public static long[] readLongArray(DataInputStream in) throws IOException {
         int length = in.readInt();
         long[] array = new long[length];
-        for (int i = 0; i < length; i++) {
-            array[i] = in.readLong();
+        byte[] chunk = new byte[chunkSize(length, Long.BYTES)];
+        for (int i = 0; i < length; ) {
+            int count = Math.min(length - i, chunk.length / Long.BYTES);
+            in.readFully(chunk, 0, count * Long.BYTES);
+            ByteBuffer.wrap(chunk, 0, count * Long.BYTES).asLongBuffer().get(array, i, count);
+            i += count;
         }
         return array;
     }
@@ -72,10 +91,19 @@ public class SerializationHelper {
     public static short[] readShortArray(DataInputStream in) throws IOException {
         int length = in.readInt();
         short[] array = new short[length];
-        for (int i = 0; i < length; i++) {
-            array[i] = in.readShort();
+        byte[] chunk = new byte[chunkSize(length, Short.BYTES)];
+        for (int i = 0; i < length; ) {
+            int count = Math.min(length - i, chunk.length / Short.BYTES);
+            in.readFully(chunk, 0, count * Short.BYTES);
+            ByteBuffer.wrap(chunk, 0, count * Short.BYTES).asShortBuffer().get(array, i, count);
+            i += count;
         }
         return array;
     }
 
+    /** Returns the size of the buffer to use for reading an array of the given length and element size */
+    private static int chunkSize(int length, int elementSize) {
+        return (int)Math.min((long)length * elementSize, CHUNK_SIZE);
+    }
+
 }
@@ -3,10 +3,17 @@ package com.yahoo.search.predicate;
 
 import com.yahoo.document.predicate.Predicate;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 import static com.yahoo.search.predicate.serialization.SerializationTestHelper.assertSerializationDeserializationMatches;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
@@ -75,6 +82,30 @@ public class PredicateIndexTest {
         }
     }
 
+    @Test
+    void requireThatParallelSearchReturnsSameHitsAsSequential() {
+        PredicateIndexBuilder builder = new PredicateIndexBuilder(10);
+        for (int i = 0; i < 50000; i++) {
+            String predicate = switch (i % 4) {
+                case 0 -> "country in ['no', 'se'] and gender in ['male']";
+                case 1 -> "country in ['no'] and gender not in ['female']";
+                case 2 -> "country not in ['se']";
+                default -> "age in [" + (i % 60) + ".." + (i % 60 + 10) + "]";
+            };
+            builder.indexDocument(i, Predicate.fromString(predicate));
+        }
+        PredicateIndex index = builder.build();
+        PredicateIndex.Searcher searcher = index.searcher();
+        PredicateQuery query = new PredicateQuery();
+        query.addFeature("country", "no");
+        query.addFeature("gender", "male");
+        query.addRangeFeature("age", 42);
+        var sequential = searcher.search(query).toList();
+        var parallel = searcher.search(query).parallel().toList();
+        assertEquals(sequential, parallel);
+        assertEquals(sequential.size(), searcher.search(query).parallel().count());
+    }
+
     @Test
     void requireThatSearchesCanUseSubqueries() {
         PredicateIndexBuilder builder = new PredicateIndexBuilder(10);
@@ -137,4 +168,37 @@ public class PredicateIndexTest {
         assertSerializationDeserializationMatches(
                 index, PredicateIndex::writeToOutputStream, PredicateIndex::fromInputStream);
     }
+
+    @Test
+    void require_that_index_can_be_read_from_memory_mapped_file(@TempDir Path tempDir) throws IOException {
+        PredicateIndexBuilder builder = new PredicateIndexBuilder(10);
+        builder.indexDocument(1, Predicate.fromString("country in ['no', 'se'] and gender in ['male']"));
+        builder.indexDocument(0x3fffffe, Predicate.fromString("country in ['no'] and gender in ['female']"));
+        builder.indexDocument(3, Predicate.fromString("country not in ['no']"));
+        builder.indexDocument(4, Predicate.fromString("age in [20..40] and gender in ['female']"));
+        builder.indexDocument(5, Predicate.fromString("age in [35..] or country in ['se']"));
+        builder.indexDocument(6, Predicate.fromString("true"));
+        PredicateIndex heapIndex = builder.build();
+        Path file = tempDir.resolve("index");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            heapIndex.writeToOutputStream(out);
+        }
+        PredicateIndex index = PredicateIndex.fromFile(file);
+
+        PredicateQuery query = new PredicateQuery();
+        query.addFeature("country", "no");
+        query.addFeature("gender", "female");
+        assertEquals("[6, 67108862]", index.searcher().search(query).sorted().toList().toString());
+        query.addRangeFeature("age", 36);
+        assertEquals("[4, 5, 6, 67108862]", index.searcher().search(query).sorted().toList().toString());
+        for (PredicateQuery q : List.of(new PredicateQuery(), query))
+            assertEquals(heapIndex.searcher().search(q).sorted().toList(), index.searcher().search(q).sorted().toList());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            index.writeToOutputStream(out);
+        }
+        assertArrayEquals(Files.readAllBytes(file), bytes.toByteArray());
+    }
+
 }
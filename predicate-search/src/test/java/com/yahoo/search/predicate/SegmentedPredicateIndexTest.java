@@ -0,0 +1,126 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.predicate;
+
+import com.yahoo.document.predicate.Predicate;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author bjorncs
+ */
+public class SegmentedPredicateIndexTest {
+
+    private static final Config config = new Config.Builder().setArity(10).build();
+
+    @Test
+    void requireThatDocumentsAreSearchableAfterFlush() {
+        SegmentedPredicateIndex index = new SegmentedPredicateIndex(config, 100, 4, Runnable::run);
+        SegmentedPredicateIndex.Searcher searcher = index.searcher();
+        index.indexDocument(1, Predicate.fromString("country in ['no', 'se'] and gender in ['male']"));
+        index.indexDocument(2, Predicate.fromString("country in ['no'] and gender in ['female']"));
+        assertEquals("[]", search(searcher, "no", "male"));
+        index.flush();
+        assertEquals(1, index.segmentCount());
+        assertEquals("[1]", search(searcher, "no", "male"));
+        assertEquals("[2]", search(searcher, "no", "female"));
+    }
+
+    @Test
+    void requireThatDocumentsCanBeRemovedAndReplaced() {
+        SegmentedPredicateIndex index = new SegmentedPredicateIndex(config, 100, 4, Runnable::run);
+        SegmentedPredicateIndex.Searcher searcher = index.searcher();
+        index.indexDocument(1, Predicate.fromString("country in ['no']"));
+        index.indexDocument(2, Predicate.fromString("country in ['no']"));
+        index.flush();
+        assertEquals("[1, 2]", search(searcher, "no", "male"));
+
+        index.removeDocument(1);
+        assertEquals("[2]", search(searcher, "no", "male"));
+
+        index.indexDocument(2, Predicate.fromString("country in ['se']"));
+        assertEquals("[]", search(searcher, "no", "male"));
+        index.flush();
+        assertEquals("[]", search(searcher, "no", "male"));
+        assertEquals("[2]", search(searcher, "se", "male"));
+        assertEquals(1, index.documentCount());
+    }
+
+    @Test
+    void requireThatSegmentsAreMerged() {
+        SegmentedPredicateIndex index = new SegmentedPredicateIndex(config, 2, 2, Runnable::run);
+        SegmentedPredicateIndex.Searcher searcher = index.searcher();
+        for (int i = 0; i < 10; i++)
+            index.indexDocument(i, Predicate.fromString("country in ['no']"));
+        index.removeDocument(3);
+        index.indexDocument(5, Predicate.fromString("country in ['se']"));
+        index.flush();
+        assertEquals(2, index.segmentCount());
+        assertEquals("[0, 1, 2, 4, 6, 7, 8, 9]", search(searcher, "no", "male"));
+        assertEquals("[5]", search(searcher, "se", "male"));
+        assertEquals(9, index.documentCount());
+    }
+
+    @Test
+    void requireThatRemovalsDuringMergeAreKept() {
+        List<Runnable> merges = new ArrayList<>();
+        SegmentedPredicateIndex index = new SegmentedPredicateIndex(config, 100, 1, merges::add);
+        SegmentedPredicateIndex.Searcher searcher = index.searcher();
+        index.indexDocument(1, Predicate.fromString("country in ['no']"));
+        index.flush();
+        index.indexDocument(2, Predicate.fromString("country in ['no']"));
+        index.flush();
+        assertEquals(1, merges.size());
+        assertEquals(2, index.segmentCount());
+        assertEquals("[1, 2]", search(searcher, "no", "male"));
+
+        index.removeDocument(1);
+        merges.get(0).run();
+        assertEquals(1, index.segmentCount());
+        assertEquals("[2]", search(searcher, "no", "male"));
+    }
+
+    @Test
+    void requireThatDocumentsReindexedInLaterSegmentsAreKeptWhenMerged() {
+        SegmentedPredicateIndex index = new SegmentedPredicateIndex(config, 100, 1, Runnable::run);
+        SegmentedPredicateIndex.Searcher searcher = index.searcher();
+        index.indexDocument(1, Predicate.fromString("country in ['no']"));
+        index.flush();
+        index.indexDocument(1, Predicate.fromString("country in ['se']"));
+        index.flush();
+        assertEquals(1, index.segmentCount());
+        assertEquals("[]", search(searcher, "no", "male"));
+        assertEquals("[1]", search(searcher, "se", "male"));
+        assertEquals(1, index.documentCount());
+    }
+
+    @Test
+    void requireThatDocumentsReindexedDuringMergeAreReplaced() {
+        List<Runnable> merges = new ArrayList<>();
+        SegmentedPredicateIndex index = new SegmentedPredicateIndex(config, 100, 1, merges::add);
+        SegmentedPredicateIndex.Searcher searcher = index.searcher();
+        index.indexDocument(1, Predicate.fromString("country in ['no']"));
+        index.flush();
+        index.indexDocument(2, Predicate.fromString("country in ['no']"));
+        index.flush();
+        assertEquals(1, merges.size());
+
+        index.indexDocument(2, Predicate.fromString("country in ['se']"));
+        index.flush();
+        merges.get(0).run();
+        assertEquals("[1]", search(searcher, "no", "male"));
+        assertEquals("[2]", search(searcher, "se", "male"));
+        assertEquals(2, index.documentCount());
+    }
+
+    private static String search(SegmentedPredicateIndex.Searcher searcher, String country, String gender) {
+        PredicateQuery query = new PredicateQuery();
+        query.addFeature("country", country);
+        query.addFeature("gender", gender);
+        return searcher.search(query).map(Hit::getDocId).sorted().toList().toString();
+    }
+
+}
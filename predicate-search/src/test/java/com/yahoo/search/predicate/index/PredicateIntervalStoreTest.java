@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import static com.yahoo.search.predicate.serialization.SerializationTestHelper.assertBufferDeserializationMatches;
 import static com.yahoo.search.predicate.serialization.SerializationTestHelper.assertSerializationDeserializationMatches;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -55,6 +56,8 @@ public class PredicateIntervalStoreTest {
         PredicateIntervalStore store = builder.build();
         assertSerializationDeserializationMatches(
                 store, PredicateIntervalStore::writeToOutputStream, PredicateIntervalStore::fromInputStream);
+        assertBufferDeserializationMatches(
+                store, PredicateIntervalStore::writeToOutputStream, PredicateIntervalStore::fromBuffer);
     }
 
     @Test
@@ -65,9 +68,8 @@ public class PredicateIntervalStoreTest {
         int ref1 = builder.insert(intervals1);
         int ref2 = builder.insert(intervals2);
         PredicateIntervalStore store = builder.build();
-        int[] a1 = store.get(ref1);
-        int[] a2 = store.get(ref2);
-        assertEquals(a1, a2);
+        assertEquals(ref1, ref2);
+        assertEquals(store.begin(ref1), store.begin(ref2));
     }
 
     private static void testInsertAndRetrieve(int... intervals) {
@@ -75,8 +77,15 @@ public class PredicateIntervalStoreTest {
         int ref = builder.insert(Ints.asList(intervals));
         PredicateIntervalStore store = builder.build();
 
-        int retrieved[] = store.get(ref);
-        assertArrayEquals(intervals, retrieved);
+        assertArrayEquals(intervals, intervals(store, ref));
+    }
+
+    private static int[] intervals(PredicateIntervalStore store, int ref) {
+        int[] intervals = new int[store.end(ref) - store.begin(ref)];
+        for (int i = 0; i < intervals.length; i++) {
+            intervals[i] = store.interval(store.begin(ref) + i);
+        }
+        return intervals;
     }
 
 }
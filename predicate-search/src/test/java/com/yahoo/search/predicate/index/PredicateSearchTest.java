@@ -5,11 +5,14 @@ import com.yahoo.search.predicate.Hit;
 import com.yahoo.search.predicate.SubqueryBitmap;
 import org.junit.jupiter.api.Test;
 
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 /**
  * @author <a href="mailto:magnarn@yahoo-inc.com">Magnar Nedland</a>
@@ -205,19 +208,63 @@ public class PredicateSearchTest {
         assertEquals(Arrays.asList(new Hit(0)).toString(), search.stream().toList().toString());
     }
 
+    @Test
+    void requireThatSplitSearchesReturnSameHitsAsUnsplit() {
+        int nDocuments = PredicateSearch.minimumSplitSize * 10;
+        byte[] minFeatures = new byte[nDocuments];
+        List<SimplePostingList.Entry> first = new ArrayList<>();
+        List<SimplePostingList.Entry> second = new ArrayList<>();
+        for (int docId = 0; docId < nDocuments; docId++) {
+            minFeatures[docId] = (byte)(docId % 3 == 0 ? 2 : 1);
+            if (docId % 2 == 0)
+                first.add(entry(docId, docId % 3 == 0 ? 0x00010001 : 0x000100ff));
+            if (docId % 3 == 0 || docId % 5 == 0)
+                second.add(entry(docId, docId % 3 == 0 ? 0x000200ff : 0x00010001));
+        }
+        var firstEntries = first.toArray(new SimplePostingList.Entry[0]);
+        var secondEntries = second.toArray(new SimplePostingList.Entry[0]);
+        Supplier<List<PostingList>> postingLists = () -> List.of(postingList(SubqueryBitmap.ALL_SUBQUERIES, firstEntries),
+                                                                 postingList(SubqueryBitmap.ALL_SUBQUERIES, secondEntries));
+        byte[] nPostingListsForDocument = new byte[nDocuments];
+        for (PostingList postingList : postingLists.get())
+            countDocuments(postingList, nPostingListsForDocument);
+        short[] intervalEnds = new short[nDocuments];
+        Arrays.fill(intervalEnds, (short) 0xFF);
+
+        List<Hit> expected = new PredicateSearch(postingLists.get(), nPostingListsForDocument, minFeatures, intervalEnds, 0xFF)
+                                     .stream().toList();
+        assertEquals(nDocuments / 2, expected.size());
+        var splittable = new PredicateSearch(postingLists.get(), postingLists, nPostingListsForDocument, minFeatures, intervalEnds, 0xFF);
+        assertEquals(expected, splittable.stream().parallel().toList());
+
+        var spliterator = new PredicateSearch(postingLists.get(), postingLists, nPostingListsForDocument, minFeatures, intervalEnds, 0xFF)
+                                  .stream().spliterator();
+        var prefix = spliterator.trySplit();
+        assertNotNull(prefix);
+        List<Hit> hits = new ArrayList<>();
+        prefix.forEachRemaining(hits::add);
+        spliterator.forEachRemaining(hits::add);
+        assertEquals(expected, hits);
+    }
+
     private static PredicateSearch createPredicateSearch(byte[] minFeatures, PostingList... postingLists) {
         byte[] nPostingListsForDocument = new byte[minFeatures.length];
         short[] intervalEnds = new short[minFeatures.length];
         Arrays.fill(intervalEnds, (short) 0xFF);
         List<PostingList> list = Arrays.asList(postingLists);
         for (PostingList postingList : postingLists) {
-            for (int id : postingList.getDocIds()) {
-                nPostingListsForDocument[id]++;
-            }
+            countDocuments(postingList, nPostingListsForDocument);
         }
         return new PredicateSearch(list, nPostingListsForDocument, minFeatures, intervalEnds, 0xFF);
     }
 
+    private static void countDocuments(PostingList postingList, byte[] nPostingListsForDocument) {
+        IntBuffer docIds = postingList.getDocIds();
+        for (int i = 0; i < docIds.limit(); i++) {
+            nPostingListsForDocument[docIds.get(i)]++;
+        }
+    }
+
     private static class SimplePostingList implements PostingList {
         private final long subquery;
         private final Entry[] entries;
@@ -279,8 +326,8 @@ public class PredicateSearchTest {
         }
 
         @Override
-        public int[] getDocIds() {
-            return Arrays.stream(entries).mapToInt(e -> e.docId).toArray();
+        public IntBuffer getDocIds() {
+            return IntBuffer.wrap(Arrays.stream(entries).mapToInt(e -> e.docId).toArray());
         }
 
         public static class Entry {
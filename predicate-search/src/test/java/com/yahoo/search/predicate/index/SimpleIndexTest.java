@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 
+import static com.yahoo.search.predicate.serialization.SerializationTestHelper.assertBufferDeserializationMatches;
 import static com.yahoo.search.predicate.serialization.SerializationTestHelper.assertSerializationDeserializationMatches;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -25,16 +26,16 @@ public class SimpleIndexTest {
         SimpleIndex index = builder.build();
         SimpleIndex.Entry e = index.getPostingList(KEY);
         assertNotNull(e);
-        assertEquals(1, e.docIds.length);
+        assertEquals(1, e.docIds.limit());
 
         builder = new SimpleIndex.Builder();
         builder.insert(KEY, new Posting(DOC_ID, 10));
         builder.insert(KEY, new Posting(DOC_ID + 1, 20));
         index = builder.build();
         e = index.getPostingList(KEY);
-        assertEquals(2, e.docIds.length);
-        assertEquals(10, e.dataRefs[0]);
-        assertEquals(20, e.dataRefs[1]);
+        assertEquals(2, e.docIds.limit());
+        assertEquals(10, e.dataRefs.get(0));
+        assertEquals(20, e.dataRefs.get(1));
     }
 
     @Test
@@ -45,10 +46,10 @@ public class SimpleIndexTest {
         builder.insert(KEY, new Posting(DOC_ID + 1, 30));
         SimpleIndex index = builder.build();
         SimpleIndex.Entry entry = index.getPostingList(KEY);
-        assertEquals(3, entry.docIds.length);
-        assertEquals(DOC_ID - 1, entry.docIds[0]);
-        assertEquals(DOC_ID, entry.docIds[1]);
-        assertEquals(DOC_ID + 1, entry.docIds[2]);
+        assertEquals(3, entry.docIds.limit());
+        assertEquals(DOC_ID - 1, entry.docIds.get(0));
+        assertEquals(DOC_ID, entry.docIds.get(1));
+        assertEquals(DOC_ID + 1, entry.docIds.get(2));
     }
 
     @Test
@@ -61,5 +62,6 @@ public class SimpleIndexTest {
         builder.insert(KEY + 0xFFFFFF, new Posting(DOC_ID + 1, 200));
         SimpleIndex index = builder.build();
         assertSerializationDeserializationMatches(index, SimpleIndex::writeToOutputStream, SimpleIndex::fromInputStream);
+        assertBufferDeserializationMatches(index, SimpleIndex::writeToOutputStream, SimpleIndex::fromBuffer);
     }
 }
@@ -3,6 +3,8 @@ package com.yahoo.search.predicate.index;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.IntBuffer;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -13,7 +15,7 @@ public class ZeroConstraintPostingListTest {
     @Test
     void requireThatPostingListCanIterate() {
         ZeroConstraintPostingList postingList =
-                new ZeroConstraintPostingList(new int[]{2, 4, 6, 8});
+                new ZeroConstraintPostingList(IntBuffer.wrap(new int[]{2, 4, 6, 8}));
         assertEquals(-1, postingList.getDocId());
         assertEquals(Interval.fromBoundaries(1, Interval.ZERO_CONSTRAINT_RANGE), postingList.getInterval());
         assertEquals(0xffffffffffffffffL, postingList.getSubquery());
@@ -40,5 +40,27 @@ public class SerializationHelperTest {
                 shorts, SerializationHelper::writeShortArray, SerializationHelper::readShortArray);
     }
 
+    @Test
+    void require_that_arrays_larger_than_the_read_chunk_size_are_serialized() throws IOException {
+        int length = 100_000;
+        int[] ints = new int[length];
+        long[] longs = new long[length];
+        short[] shorts = new short[length];
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            ints[i] = i * 31;
+            longs[i] = (long)i << 33 | i;
+            shorts[i] = (short)i;
+            bytes[i] = (byte)i;
+        }
+        assertSerializationDeserializationMatches(
+                ints, SerializationHelper::writeIntArray, SerializationHelper::readIntArray);
+        assertSerializationDeserializationMatches(
+                longs, SerializationHelper::writeLongArray, SerializationHelper::readLongArray);
+        assertSerializationDeserializationMatches(
+                shorts, SerializationHelper::writeShortArray, SerializationHelper::readShortArray);
+        assertSerializationDeserializationMatches(
+                bytes, SerializationHelper::writeByteArray, SerializationHelper::readByteArray);
+    }
 
 }
@@ -6,8 +6,10 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
  * @author bjorncs
@@ -35,6 +37,31 @@ public class SerializationTestHelper {
         assertArrayEquals(bytes, newBytes);
     }
 
+    /** Asserts that an object read in place from a buffer, at an offset, serializes to the same bytes */
+    public static <T> void assertBufferDeserializationMatches
+            (T object, Serializer<T> serializer, BufferDeserializer<T> deserializer) throws IOException {
+
+        ByteArrayOutputStream byteArrayOut = new ByteArrayOutputStream(4096);
+        DataOutputStream out = new DataOutputStream(byteArrayOut);
+        out.writeByte(0x7f); // Unaligned start
+        serializer.serialize(object, out);
+        out.writeInt(0xdeadbeef);
+        out.flush();
+
+        byte[] bytes = byteArrayOut.toByteArray();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        buffer.get();
+        T newObject = deserializer.deserialize(buffer);
+        assertEquals(0xdeadbeef, buffer.getInt());
+
+        byteArrayOut = new ByteArrayOutputStream(4096);
+        out = new DataOutputStream(byteArrayOut);
+        out.writeByte(0x7f);
+        serializer.serialize(newObject, out);
+        out.writeInt(0xdeadbeef);
+        assertArrayEquals(bytes, byteArrayOut.toByteArray());
+    }
+
     @FunctionalInterface
     public interface Serializer<T> {
         void serialize(T object, DataOutputStream out) throws IOException;
@@ -45,4 +72,9 @@ public class SerializationTestHelper {
         T deserialize(DataInputStream in) throws IOException;
     }
 
+    @FunctionalInterface
+    public interface BufferDeserializer<T> {
+        T deserialize(ByteBuffer buffer) throws IOException;
+    }
+
 }
@@ -0,0 +1,64 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+
+import java.util.Optional;
+
+/**
+ * A scalar ranking expression compiled to a JVM class, which evaluates directly on the double values
+ * of an array context instead of walking the expression tree. Clients using compiled expressions
+ * will do
+ *
+ * <code>
+ * // Set up once
+ * RankingExpression expression = new RankingExpression(myExpressionString);
+ * DoubleOnlyArrayContext context = new DoubleOnlyArrayContext(expression);
+ * new ExpressionOptimizer().optimize(expression, context); // optional
+ * Optional&lt;CompiledExpression&gt; compiled = CompiledExpression.compile(expression, context);
+ *
+ * // Execute repeatedly
+ * context.put("featureName1", value1);
+ * ...
+ * double result = compiled.isPresent() ? compiled.get().evaluate(context) : expression.evaluate(context).asDouble();
+ * </code>
+ * <p>
+ * Compiled expressions are stateless and may be used by multiple threads at the same time.
+ *
+ * @author bratseth
+ */
+public abstract class CompiledExpression {
+
+    protected CompiledExpression() {}
+
+    /**
+     * Evaluates this.
+     *
+     * @param values the values of the features referenced by this, at the indexes they have
+     *               in the context this was compiled with
+     */
+    public abstract double evaluate(double[] values);
+
+    /**
+     * Evaluates this with the values set in the given context, which must be the context this was compiled with,
+     * or a clone of it.
+     */
+    public final double evaluate(DoubleOnlyArrayContext context) {
+        return evaluate(context.doubleValues());
+    }
+
+    /**
+     * Compiles an expression. Only expressions consisting of scalar operations, functions, conditions and
+     * (optimized) decision trees over features without arguments can be compiled.
+     *
+     * @param expression the expression to compile. If it is optimized, it must be optimized with the given context.
+     * @param context the context deciding the index of each feature in the compiled expression.
+     *                This only holds doubles, which are the only inputs compiled expressions can read.
+     * @return the compiled expression, or empty if this expression cannot be compiled or is faster to interpret,
+     *         in which case it should be evaluated by {@link RankingExpression#evaluate} instead
+     */
+    public static Optional<CompiledExpression> compile(RankingExpression expression, DoubleOnlyArrayContext context) {
+        return new ExpressionCompiler(context.nameToIndex()).compile(expression.getRoot());
+    }
+
+}
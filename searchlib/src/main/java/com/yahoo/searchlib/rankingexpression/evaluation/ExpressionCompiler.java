@@ -0,0 +1,759 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestNode;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTNode;
+import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
+import com.yahoo.searchlib.rankingexpression.rule.ConstantNode;
+import com.yahoo.searchlib.rankingexpression.rule.EmbracedNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.Function;
+import com.yahoo.searchlib.rankingexpression.rule.FunctionNode;
+import com.yahoo.searchlib.rankingexpression.rule.IfNode;
+import com.yahoo.searchlib.rankingexpression.rule.NegativeNode;
+import com.yahoo.searchlib.rankingexpression.rule.NotNode;
+import com.yahoo.searchlib.rankingexpression.rule.OperationNode;
+import com.yahoo.searchlib.rankingexpression.rule.Operator;
+import com.yahoo.searchlib.rankingexpression.rule.ReferenceNode;
+import com.yahoo.searchlib.rankingexpression.rule.SetMembershipNode;
+
+import org.objectweb.asm.ClassTooLargeException;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodTooLargeException;
+import org.objectweb.asm.MethodVisitor;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTNode.MAX_LEAF_VALUE;
+import static com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTNode.MAX_VARIABLES;
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Compiles a scalar expression to a class file, which is defined as a hidden class extending {@link CompiledExpression}.
+ * <p>
+ * Each expression becomes a set of static methods taking the double values array and returning a double.
+ * Subexpressions and subtrees which do not fit in the method being generated are outlined into methods of their own,
+ * such that each method stays below the size the JIT is willing to compile. Long chains of operations,
+ * such as the sum of trees in a forest, are split into continuation methods which take the value accumulated
+ * so far as an argument, such that the operations are done in exactly the same order as when interpreted.
+ * <p>
+ * Instances of this are for single use.
+ *
+ * @author bratseth
+ */
+final class ExpressionCompiler {
+
+    /** The max number of nodes, or tree values, to generate in a single method, to stay below the JIT's limit */
+    private static final int maxMethodSize = 500;
+
+    /**
+     * The max number of values in an optimized forest to compile. Larger forests are faster to evaluate
+     * by the optimized interpreter, as the generated code becomes much larger than the forest array.
+     */
+    private static final int maxForestSize = 30000;
+
+    private static final String className = "com/yahoo/searchlib/rankingexpression/evaluation/GeneratedExpression";
+    private static final String superClassName = "com/yahoo/searchlib/rankingexpression/evaluation/CompiledExpression";
+    private static final String doubleValueClassName = "com/yahoo/searchlib/rankingexpression/evaluation/DoubleCompatibleValue";
+    private static final String functionClassName = "com/yahoo/searchlib/rankingexpression/rule/Function";
+    private static final String valuesDescriptor = "([D)D";
+    private static final String continuationDescriptor = "(D[D)D";
+
+    private final Map<String, Integer> nameToIndex;
+    private final ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    private int methodCount = 0;
+    private final Map<ExpressionNode, Integer> sizes = new IdentityHashMap<>();
+
+    ExpressionCompiler(Map<String, Integer> nameToIndex) {
+        this.nameToIndex = nameToIndex;
+    }
+
+    Optional<CompiledExpression> compile(ExpressionNode root) {
+        byte[] classFile;
+        try {
+            ExpressionNode prepared = prepare(root);
+            classWriter.visit(V17, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className, null, superClassName, null);
+            Method rootMethod = new Method(false);
+            rootMethod.emitValue(prepared, true);
+            rootMethod.returnValue();
+            rootMethod.end();
+            writeConstructorAndEvaluate(rootMethod);
+            classWriter.visitEnd();
+            classFile = classWriter.toByteArray();
+        }
+        catch (NotCompilableException | ClassTooLargeException | MethodTooLargeException e) {
+            return Optional.empty();
+        }
+
+        try {
+            Class<?> generated = MethodHandles.lookup().defineHiddenClass(classFile, true).lookupClass();
+            return Optional.of((CompiledExpression)generated.getDeclaredConstructor().newInstance());
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not instantiate compiled expression", e);
+        }
+    }
+
+    /**
+     * Returns the given expression with embraced nodes removed and operations converted to nested
+     * operations on two children, in the order they are evaluated by the interpreter.
+     *
+     * @throws NotCompilableException if the expression contains nodes which cannot be compiled
+     */
+    private ExpressionNode prepare(ExpressionNode node) {
+        if (node instanceof ConstantNode constant) {
+            if ( ! (constant.getValue() instanceof DoubleCompatibleValue))
+                throw new NotCompilableException(node + " is not a number");
+            return node;
+        }
+        if (node instanceof ReferenceNode reference) {
+            if ( ! reference.getArguments().isEmpty() || ! nameToIndex.containsKey(reference.toString()))
+                throw new NotCompilableException(node + " is not bound in the context");
+            return node;
+        }
+        if (node instanceof EmbracedNode embraced)
+            return prepare(embraced.getValue());
+        if (node instanceof OperationNode operation)
+            return binary(operation);
+        if (node instanceof SetMembershipNode set) {
+            ExpressionNode testValue = prepare(set.getTestValue());
+            if (producesBoolean(testValue)) // booleans are compared by truth value
+                throw new NotCompilableException("Set membership of a boolean in " + node);
+            List<ExpressionNode> setValues = new ArrayList<>();
+            for (ExpressionNode setValue : set.getSetValues()) {
+                if (setValue instanceof ConstantNode constant && constant.getValue() instanceof StringValue)
+                    setValues.add(new ConstantNode(new DoubleValue(constant.getValue().asDouble())));
+                else
+                    setValues.add(prepare(setValue));
+            }
+            return new SetMembershipNode(testValue, setValues);
+        }
+        if (node instanceof IfNode || node instanceof NotNode || node instanceof NegativeNode || node instanceof FunctionNode)
+            return ((CompositeNode)node).setChildren(prepareAll(((CompositeNode)node).children()));
+        if (node instanceof GBDTForestNode forest && forest.values().length > maxForestSize)
+            throw new NotCompilableException("Forest of " + forest.values().length + " values is faster to interpret");
+        if (node instanceof GBDTNode || node instanceof GBDTForestNode)
+            return node;
+        throw new NotCompilableException(node + " is not a scalar operation");
+    }
+
+    private List<ExpressionNode> prepareAll(List<ExpressionNode> nodes) {
+        List<ExpressionNode> prepared = new ArrayList<>(nodes.size());
+        for (ExpressionNode node : nodes)
+            prepared.add(prepare(node));
+        return prepared;
+    }
+
+    /** Converts an operation into nested binary operations using the precedence rules of {@link OperationNode#evaluate} */
+    private ExpressionNode binary(OperationNode operation) {
+        Deque<OperationItem> stack = new ArrayDeque<>();
+        stack.push(new OperationItem(null, prepare(operation.children().get(0))));
+        for (int i = 0; i < operation.operators().size(); i++) {
+            Operator op = operation.operators().get(i);
+            while (stack.size() > 1 && ! op.hasPrecedenceOver(stack.peek().op))
+                popStack(stack);
+            stack.push(new OperationItem(op, prepare(operation.children().get(i + 1))));
+        }
+        while (stack.size() > 1)
+            popStack(stack);
+        return stack.getFirst().node;
+    }
+
+    private void popStack(Deque<OperationItem> stack) {
+        OperationItem rhs = stack.pop();
+        OperationItem lhs = stack.peek();
+        lhs.node = new OperationNode(lhs.node, rhs.op, rhs.node);
+    }
+
+    private static boolean producesBoolean(ExpressionNode node) {
+        if (node instanceof OperationNode operation)
+            return isBoolean(operation.operators().get(0));
+        if (node instanceof IfNode ifNode)
+            return producesBoolean(ifNode.getTrueExpression()) || producesBoolean(ifNode.getFalseExpression());
+        if (node instanceof ConstantNode constant)
+            return constant.getValue() instanceof BooleanValue;
+        return node instanceof NotNode || node instanceof SetMembershipNode;
+    }
+
+    private static boolean isBoolean(Operator operator) {
+        return switch (operator) {
+            case or, and, largerOrEqual, larger, smallerOrEqual, smaller, approxEqual, notEqual, equal -> true;
+            default -> false;
+        };
+    }
+
+    /** Returns the number of nodes in the given prepared expression, counting each tree value as a node */
+    private int size(ExpressionNode node) {
+        Integer size = sizes.get(node);
+        if (size != null) return size;
+
+        if (node instanceof GBDTNode tree)
+            size = tree.values().length;
+        else if (node instanceof GBDTForestNode forest)
+            size = forest.values().length;
+        else if (node instanceof CompositeNode composite) {
+            size = 1;
+            for (ExpressionNode child : composite.children())
+                size += size(child);
+        }
+        else {
+            size = 1;
+        }
+        sizes.put(node, size);
+        return size;
+    }
+
+    private void writeConstructorAndEvaluate(Method rootMethod) {
+        MethodVisitor constructor = classWriter.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(ALOAD, 0);
+        constructor.visitMethodInsn(INVOKESPECIAL, superClassName, "<init>", "()V", false);
+        constructor.visitInsn(RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        MethodVisitor evaluate = classWriter.visitMethod(ACC_PUBLIC, "evaluate", valuesDescriptor, null, null);
+        evaluate.visitCode();
+        evaluate.visitVarInsn(ALOAD, 1);
+        evaluate.visitMethodInsn(INVOKESTATIC, className, rootMethod.name, valuesDescriptor, false);
+        evaluate.visitInsn(DRETURN);
+        evaluate.visitMaxs(0, 0);
+        evaluate.visitEnd();
+    }
+
+    /** A value to combine with the value on top of the stack in a chain of operations */
+    private interface Operand {
+
+        int size();
+
+        void emitValue(Method method);
+
+    }
+
+    private class NodeOperand implements Operand {
+
+        private final ExpressionNode node;
+
+        NodeOperand(ExpressionNode node) { this.node = node; }
+
+        @Override
+        public int size() { return ExpressionCompiler.this.size(node); }
+
+        @Override
+        public void emitValue(Method method) { method.emitValue(node, false); }
+
+    }
+
+    private static class TreeOperand implements Operand {
+
+        private final double[] values;
+        private final int start, end;
+
+        TreeOperand(double[] values, int start, int end) {
+            this.values = values;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int size() { return end - start; }
+
+        @Override
+        public void emitValue(Method method) { method.emitTreeValue(values, start, end); }
+
+    }
+
+    /** A static method of the generated class */
+    private class Method {
+
+        private final String name;
+        private final String descriptor;
+        private final int valuesSlot;
+        private final MethodVisitor code;
+
+        private int nextLocal;
+        private int remaining = maxMethodSize;
+
+        /**
+         * Creates a method
+         *
+         * @param continuation whether this is a continuation taking the accumulated value as its first argument
+         */
+        Method(boolean continuation) {
+            this.name = "e" + methodCount++;
+            this.descriptor = continuation ? continuationDescriptor : valuesDescriptor;
+            this.valuesSlot = continuation ? 2 : 0;
+            this.nextLocal = continuation ? 3 : 1;
+            this.code = classWriter.visitMethod(ACC_PRIVATE | ACC_STATIC, name, descriptor, null, null);
+            code.visitCode();
+        }
+
+        /**
+         * Emits code leaving the value of the given node on the stack
+         *
+         * @param root whether this is the root node of this method, which must not be outlined
+         */
+        void emitValue(ExpressionNode node, boolean root) {
+            if ( ! root && size(node) > 1 && size(node) > remaining) {
+                Method outlined = new Method(false);
+                outlined.emitValue(node, true);
+                outlined.returnValue();
+                outlined.end();
+                invoke(outlined);
+                return;
+            }
+
+            remaining--;
+            if (node instanceof ConstantNode constant) {
+                pushDouble(constant.getValue().asDouble());
+            }
+            else if (node instanceof ReferenceNode) {
+                loadValue(nameToIndex.get(node.toString()));
+            }
+            else if (node instanceof NegativeNode negative) {
+                emitValue(negative.getValue(), false);
+                code.visitInsn(DNEG);
+            }
+            else if (node instanceof FunctionNode function) {
+                emitFunction(function);
+            }
+            else if (node instanceof IfNode ifNode) {
+                Label falseBranch = new Label();
+                Label end = new Label();
+                emitBranch(ifNode.getCondition(), false, falseBranch);
+                emitValue(ifNode.getTrueExpression(), false);
+                code.visitJumpInsn(GOTO, end);
+                code.visitLabel(falseBranch);
+                emitValue(ifNode.getFalseExpression(), false);
+                code.visitLabel(end);
+            }
+            else if (node instanceof NotNode || node instanceof SetMembershipNode) {
+                Label falseBranch = new Label();
+                emitBranch(node, false, falseBranch);
+                pushBooleanResult(falseBranch);
+            }
+            else if (node instanceof OperationNode operation) {
+                emitOperation(operation);
+            }
+            else if (node instanceof GBDTNode tree) {
+                emitTreeValue(tree.values(), 0, tree.values().length);
+            }
+            else if (node instanceof GBDTForestNode forest) {
+                emitForest(forest.values());
+            }
+            else {
+                throw new IllegalStateException("Unexpected node " + node);
+            }
+        }
+
+        /** Emits the chain of operations along the left side of this operation, splitting it if it is too large */
+        private void emitOperation(OperationNode operation) {
+            List<Operator> operators = new ArrayList<>();
+            List<Operand> operands = new ArrayList<>();
+            ExpressionNode leftmost = operation;
+            while (leftmost instanceof OperationNode leftOperation) {
+                operators.add(leftOperation.operators().get(0));
+                operands.add(new NodeOperand(leftOperation.children().get(1)));
+                leftmost = leftOperation.children().get(0);
+            }
+            emitValue(leftmost, false);
+            emitChain(reversed(operators), reversed(operands));
+        }
+
+        private void emitForest(double[] values) {
+            List<Operator> operators = new ArrayList<>();
+            List<Operand> trees = new ArrayList<>();
+            for (int pc = 0; pc < values.length; ) {
+                int treeSize = (int)values[pc++];
+                operators.add(Operator.plus);
+                trees.add(new TreeOperand(values, pc, pc + treeSize));
+                pc += treeSize;
+            }
+            pushDouble(0);
+            emitChain(operators, trees);
+        }
+
+        /** Combines the value on top of the stack with each of the given operands in order */
+        private void emitChain(List<Operator> operators, List<Operand> operands) {
+            for (int i = 0; i < operands.size(); ) {
+                int size = operands.get(i).size();
+                if (size <= remaining || size > maxMethodSize) {
+                    operands.get(i).emitValue(this);
+                    apply(operators.get(i++));
+                }
+                else {
+                    Method continuation = new Method(true);
+                    i = continuation.emitChainContinuation(operators, operands, i);
+                    loadValues();
+                    code.visitMethodInsn(INVOKESTATIC, className, continuation.name, continuation.descriptor, false);
+                }
+                remaining--;
+            }
+        }
+
+        /** Emits as many of the given operations as fits in this continuation, and returns the index of the next */
+        private int emitChainContinuation(List<Operator> operators, List<Operand> operands, int from) {
+            code.visitVarInsn(DLOAD, 0);
+            int i = from;
+            do {
+                operands.get(i).emitValue(this);
+                apply(operators.get(i++));
+                remaining--;
+            } while (i < operands.size() && operands.get(i).size() <= remaining);
+            returnValue();
+            end();
+            return i;
+        }
+
+        /** Applies the given operator to the two values on top of the stack */
+        private void apply(Operator operator) {
+            switch (operator) {
+                case plus -> code.visitInsn(DADD);
+                case minus -> code.visitInsn(DSUB);
+                case multiply -> code.visitInsn(DMUL);
+                case divide -> code.visitInsn(DDIV);
+                case modulo -> code.visitInsn(DREM);
+                case power -> code.visitMethodInsn(INVOKESTATIC, "java/lang/Math", "pow", "(DD)D", false);
+                case approxEqual -> {
+                    code.visitMethodInsn(INVOKESTATIC, doubleValueClassName, "approxEqual", "(DD)Z", false);
+                    Label falseBranch = new Label();
+                    code.visitJumpInsn(IFEQ, falseBranch);
+                    pushBooleanResult(falseBranch);
+                }
+                case and, or -> {
+                    pushDouble(0);
+                    code.visitInsn(DCMPL); // right side is now 0 if false
+                    code.visitInsn(DUP_X2);
+                    code.visitInsn(POP); // the int is now below the left side
+                    pushDouble(0);
+                    code.visitInsn(DCMPL);
+                    code.visitInsn(operator == Operator.and ? IAND : IOR); // -1 and 1 have common bits
+                    Label falseBranch = new Label();
+                    code.visitJumpInsn(IFEQ, falseBranch);
+                    pushBooleanResult(falseBranch);
+                }
+                default -> {
+                    compare(operator);
+                    Label falseBranch = new Label();
+                    code.visitJumpInsn(negated(comparisonJump(operator)), falseBranch);
+                    pushBooleanResult(falseBranch);
+                }
+            }
+        }
+
+        /**
+         * Emits code which jumps to the given label if the truth value of the given node
+         * is equal to the given value, and continues otherwise.
+         */
+        private void emitBranch(ExpressionNode node, boolean jumpIf, Label target) {
+            if (size(node) > remaining) {
+                emitBranchOnValue(node, jumpIf, target);
+            }
+            else if (node instanceof NotNode not) {
+                remaining--;
+                emitBranch(not.getValue(), ! jumpIf, target);
+            }
+            else if (node instanceof SetMembershipNode set) {
+                remaining--;
+                emitValue(set.getTestValue(), false);
+                int local = allocateLocal();
+                code.visitVarInsn(DSTORE, local);
+                Label member = jumpIf ? target : new Label();
+                for (ExpressionNode setValue : set.getSetValues()) {
+                    code.visitVarInsn(DLOAD, local);
+                    emitValue(setValue, false);
+                    code.visitInsn(DCMPL);
+                    code.visitJumpInsn(IFEQ, member);
+                }
+                nextLocal -= 2;
+                if ( ! jumpIf) {
+                    code.visitJumpInsn(GOTO, target);
+                    code.visitLabel(member);
+                }
+            }
+            else if (node instanceof OperationNode operation && isBoolean(operation.operators().get(0))) {
+                remaining--;
+                Operator operator = operation.operators().get(0);
+                ExpressionNode left = operation.children().get(0);
+                ExpressionNode right = operation.children().get(1);
+                if (operator == Operator.and || operator == Operator.or) {
+                    if (jumpIf == (operator == Operator.or)) { // either side decides
+                        emitBranch(left, jumpIf, target);
+                        emitBranch(right, jumpIf, target);
+                    }
+                    else { // both sides are needed
+                        Label decided = new Label();
+                        emitBranch(left, ! jumpIf, decided);
+                        emitBranch(right, jumpIf, target);
+                        code.visitLabel(decided);
+                    }
+                }
+                else if (operator == Operator.approxEqual) {
+                    emitValue(left, false);
+                    emitValue(right, false);
+                    code.visitMethodInsn(INVOKESTATIC, doubleValueClassName, "approxEqual", "(DD)Z", false);
+                    code.visitJumpInsn(jumpIf ? IFNE : IFEQ, target);
+                }
+                else {
+                    emitValue(left, false);
+                    emitValue(right, false);
+                    compare(operator);
+                    int jump = comparisonJump(operator);
+                    code.visitJumpInsn(jumpIf ? jump : negated(jump), target);
+                }
+            }
+            else {
+                emitBranchOnValue(node, jumpIf, target);
+            }
+        }
+
+        /** Branches on the value of the given node being different from zero */
+        private void emitBranchOnValue(ExpressionNode node, boolean jumpIf, Label target) {
+            emitValue(node, false);
+            pushDouble(0);
+            code.visitInsn(DCMPL); // NaN is true
+            code.visitJumpInsn(jumpIf ? IFNE : IFEQ, target);
+        }
+
+        /** Emits the comparison instruction of the given operator, such that NaN causes the comparison to be false */
+        private void compare(Operator operator) {
+            if (operator == Operator.smaller || operator == Operator.smallerOrEqual)
+                code.visitInsn(DCMPG);
+            else
+                code.visitInsn(DCMPL);
+        }
+
+        /** Returns the jump instruction which jumps if the result of the comparison is true */
+        private int comparisonJump(Operator operator) {
+            return switch (operator) {
+                case equal -> IFEQ;
+                case notEqual -> IFNE;
+                case smaller -> IFLT;
+                case largerOrEqual -> IFGE;
+                case larger -> IFGT;
+                case smallerOrEqual -> IFLE;
+                default -> throw new IllegalArgumentException(operator + " is not a comparison");
+            };
+        }
+
+        /** Returns the jump instruction with the opposite condition of the given one */
+        private int negated(int jump) {
+            return switch (jump) {
+                case IFEQ -> IFNE;
+                case IFNE -> IFEQ;
+                case IFLT -> IFGE;
+                case IFGE -> IFLT;
+                case IFGT -> IFLE;
+                case IFLE -> IFGT;
+                default -> throw new IllegalArgumentException("Unexpected jump instruction " + jump);
+            };
+        }
+
+        private void emitFunction(FunctionNode node) {
+            Function function = node.getFunction();
+            code.visitFieldInsn(GETSTATIC, functionClassName, function.name(), "L" + functionClassName + ";");
+            List<ExpressionNode> arguments = node.children();
+            for (int i = 0; i < 2; i++) {
+                if (i < arguments.size())
+                    emitValue(arguments.get(i), false);
+                else
+                    pushDouble(0);
+            }
+            code.visitMethodInsn(INVOKEVIRTUAL, functionClassName, "evaluate", "(DD)D", false);
+        }
+
+        /** Emits code leaving the value of a tree in the given range of the given values on the stack */
+        private void emitTreeValue(double[] values, int start, int end) {
+            if (end - start > remaining) {
+                Method outlined = new Method(false);
+                outlined.emitTree(values, start, end, null, true);
+                outlined.end();
+                invoke(outlined);
+            }
+            else {
+                Label exit = new Label();
+                emitTree(values, start, end, exit, false);
+                code.visitLabel(exit);
+            }
+        }
+
+        /**
+         * Emits a tree encoded as described in {@link GBDTNode}.
+         *
+         * @param exit the label to jump to with the value of the tree on the stack, or null to return it
+         * @param root whether this is the root of this method, which must not be outlined
+         */
+        private void emitTree(double[] values, int pc, int end, Label exit, boolean root) {
+            if ( ! root && end - pc > remaining) {
+                Method outlined = new Method(false);
+                outlined.emitTree(values, pc, end, null, true);
+                outlined.end();
+                invoke(outlined);
+                exitTree(exit);
+                return;
+            }
+
+            remaining--;
+            double value = values[pc++];
+            if (value < MAX_LEAF_VALUE) {
+                pushDouble(value);
+                exitTree(exit);
+                return;
+            }
+
+            int offset = (int)value - MAX_LEAF_VALUE;
+            Label falseBranch = new Label();
+            if (offset < MAX_VARIABLES) {
+                loadValue(variable(offset));
+                pushDouble(values[pc++]);
+                code.visitInsn(DCMPG);
+                code.visitJumpInsn(IFGE, falseBranch);
+            }
+            else if (offset < MAX_VARIABLES * 2) {
+                loadValue(variable(offset - MAX_VARIABLES));
+                pushDouble(values[pc++]);
+                code.visitInsn(DCMPL);
+                code.visitJumpInsn(IFNE, falseBranch);
+            }
+            else if (offset < MAX_VARIABLES * 3) {
+                loadValue(variable(offset - MAX_VARIABLES * 2));
+                int local = allocateLocal();
+                code.visitVarInsn(DSTORE, local);
+                int setSize = (int)values[pc++];
+                Label member = new Label();
+                for (int i = 0; i < setSize; i++) {
+                    code.visitVarInsn(DLOAD, local);
+                    pushDouble(values[pc++]);
+                    code.visitInsn(DCMPL);
+                    code.visitJumpInsn(IFEQ, member);
+                }
+                nextLocal -= 2;
+                code.visitJumpInsn(GOTO, falseBranch);
+                code.visitLabel(member);
+            }
+            else {
+                loadValue(variable(offset - MAX_VARIABLES * 3));
+                pushDouble(values[pc++]);
+                code.visitInsn(DCMPL); // NaN is not >=
+                code.visitJumpInsn(IFGE, falseBranch);
+            }
+            int falseStart = pc + (int)values[pc];
+            emitTree(values, pc + 1, falseStart, exit, false);
+            code.visitLabel(falseBranch);
+            emitTree(values, falseStart, end, exit, false);
+        }
+
+        private void exitTree(Label exit) {
+            if (exit == null)
+                returnValue();
+            else
+                code.visitJumpInsn(GOTO, exit);
+        }
+
+        private int variable(int index) {
+            if (index >= nameToIndex.size())
+                throw new NotCompilableException("Tree variable " + index + " is not in the context");
+            return index;
+        }
+
+        /** Pushes 1.0 if execution falls through to here, and 0.0 if it jumps to the given label */
+        private void pushBooleanResult(Label falseBranch) {
+            Label end = new Label();
+            pushDouble(1);
+            code.visitJumpInsn(GOTO, end);
+            code.visitLabel(falseBranch);
+            pushDouble(0);
+            code.visitLabel(end);
+        }
+
+        private void loadValues() {
+            code.visitVarInsn(ALOAD, valuesSlot);
+        }
+
+        private void loadValue(int index) {
+            loadValues();
+            pushInt(index);
+            code.visitInsn(DALOAD);
+        }
+
+        private void pushInt(int value) {
+            if (value <= 5)
+                code.visitInsn(ICONST_0 + value);
+            else if (value <= Byte.MAX_VALUE)
+                code.visitIntInsn(BIPUSH, value);
+            else if (value <= Short.MAX_VALUE)
+                code.visitIntInsn(SIPUSH, value);
+            else
+                code.visitLdcInsn(value);
+        }
+
+        private void pushDouble(double value) {
+            if (Double.doubleToRawLongBits(value) == 0L)
+                code.visitInsn(DCONST_0);
+            else if (value == 1.0)
+                code.visitInsn(DCONST_1);
+            else
+                code.visitLdcInsn(value);
+        }
+
+        private int allocateLocal() {
+            int local = nextLocal;
+            nextLocal += 2;
+            return local;
+        }
+
+        /** Emits a call to the given method with the values array */
+        private void invoke(Method method) {
+            loadValues();
+            code.visitMethodInsn(INVOKESTATIC, className, method.name, method.descriptor, false);
+        }
+
+        private void returnValue() {
+            code.visitInsn(DRETURN);
+        }
+
+        /** Completes this method. This must be called when all code is emitted. */
+        private void end() {
+            code.visitMaxs(0, 0); // computed by the class writer
+            code.visitEnd();
+        }
+
+    }
+
+    private static class OperationItem {
+
+        final Operator op;
+        ExpressionNode node;
+
+        OperationItem(Operator op, ExpressionNode node) {
+            this.op = op;
+            this.node = node;
+        }
+
+    }
+
+    private static <T> List<T> reversed(List<T> list) {
+        List<T> reversed = new ArrayList<>(list);
+        Collections.reverse(reversed);
+        return reversed;
+    }
+
+    /** Thrown when an expression cannot be compiled */
+    private static class NotCompilableException extends RuntimeException {
+
+        NotCompilableException(String message) {
+            super(message, null, false, false);
+        }
+
+    }
+
+}
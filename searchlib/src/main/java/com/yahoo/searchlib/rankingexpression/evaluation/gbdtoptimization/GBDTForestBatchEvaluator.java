@@ -0,0 +1,305 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTNode.MAX_LEAF_VALUE;
+import static com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTNode.MAX_VARIABLES;
+
+/**
+ * Evaluates an optimized forest for many feature vectors at once, as when reranking a list of hits.
+ * <p>
+ * Instead of walking each tree from the root, this uses the QuickScorer algorithm: The leaves of each tree
+ * are numbered left (true branch) to right, and every condition in the forest is represented by a bit mask
+ * of the leaves which cannot be reached if it is false. For each feature, the "smaller than" conditions
+ * of all trees are sorted by their threshold, such that all the false conditions for a feature value
+ * are found by one sequential scan which stops at the first threshold larger than the value.
+ * The leaf reached in each tree is then the leftmost leaf which is not masked out.
+ * <p>
+ * Hits are processed in blocks, scanning the conditions of each feature once for all the hits in the block.
+ * Equality and set membership conditions are tested directly, and trees with more than 64 leaves
+ * are evaluated by traversing them as in {@link GBDTNode}.
+ * Trees are summed in the same order as by {@link GBDTForestNode}, such that the results are identical.
+ * <p>
+ * This is a standalone building block: Expressions are still evaluated one context at a time, so neither
+ * the function evaluators of model-evaluation nor the global-phase ranker use this yet.
+ * <p>
+ * Instances of this are immutable and multithread safe.
+ *
+ * @author bratseth
+ */
+public final class GBDTForestBatchEvaluator {
+
+    /** The number of hits evaluated together */
+    private static final int blockSize = 64;
+
+    private final double[] forest;
+
+    /** The offset of each tree in the forest */
+    private final int[] treeOffsets;
+
+    /** The leaf values of each tree, or null if the tree has too many leaves and must be traversed */
+    private final double[][] leafValues;
+
+    /** The features having "smaller than" conditions, in the order of their ranges in the arrays below */
+    private final int[] features;
+
+    /** The start of the range of conditions of each feature in the arrays below, with a final end element */
+    private final int[] featureStarts;
+
+    /** The thresholds of all "smaller than" conditions, increasing within the range of each feature */
+    private final double[] thresholds;
+    private final int[] thresholdTrees;
+    private final long[] thresholdMasks;
+
+    /** Whether each condition is false when the feature value is NaN */
+    private final boolean[] thresholdFalseOnNaN;
+
+    /** The equality and set membership conditions */
+    private final MembershipCondition[] membershipConditions;
+
+    public GBDTForestBatchEvaluator(GBDTForestNode forestNode) {
+        this.forest = forestNode.values();
+        List<Integer> offsets = new ArrayList<>();
+        for (int pc = 0; pc < forest.length; ) {
+            int treeSize = (int)forest[pc++];
+            offsets.add(pc);
+            pc += treeSize;
+        }
+        treeOffsets = offsets.stream().mapToInt(Integer::intValue).toArray();
+
+        leafValues = new double[treeOffsets.length][];
+        List<ThresholdCondition> thresholdConditions = new ArrayList<>();
+        List<MembershipCondition> membershipConditions = new ArrayList<>();
+        for (int tree = 0; tree < treeOffsets.length; tree++) {
+            TreeConditions conditions = new TreeConditions(tree);
+            conditions.add(treeOffsets[tree]);
+            if (conditions.leaves.size() > Long.SIZE || conditions.hasNaNThreshold) continue; // traverse this tree
+            leafValues[tree] = conditions.leaves.stream().mapToDouble(Double::doubleValue).toArray();
+            thresholdConditions.addAll(conditions.thresholdConditions);
+            membershipConditions.addAll(conditions.membershipConditions);
+        }
+        this.membershipConditions = membershipConditions.toArray(new MembershipCondition[0]);
+
+        thresholdConditions.sort(Comparator.comparingInt(ThresholdCondition::feature)
+                                           .thenComparingDouble(ThresholdCondition::threshold));
+        thresholds = new double[thresholdConditions.size()];
+        thresholdTrees = new int[thresholdConditions.size()];
+        thresholdMasks = new long[thresholdConditions.size()];
+        thresholdFalseOnNaN = new boolean[thresholdConditions.size()];
+        List<Integer> features = new ArrayList<>();
+        List<Integer> featureStarts = new ArrayList<>();
+        for (int i = 0; i < thresholdConditions.size(); i++) {
+            ThresholdCondition condition = thresholdConditions.get(i);
+            if (i == 0 || condition.feature() != thresholdConditions.get(i - 1).feature()) {
+                features.add(condition.feature());
+                featureStarts.add(i);
+            }
+            thresholds[i] = condition.threshold();
+            thresholdTrees[i] = condition.tree();
+            thresholdMasks[i] = condition.mask();
+            thresholdFalseOnNaN[i] = condition.falseOnNaN();
+        }
+        featureStarts.add(thresholdConditions.size());
+        this.features = features.stream().mapToInt(Integer::intValue).toArray();
+        this.featureStarts = featureStarts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /** Returns the number of trees in this forest */
+    public int treeCount() { return treeOffsets.length; }
+
+    /**
+     * Evaluates this forest for a set of hits.
+     *
+     * @param featureValues the feature values of each hit, at the indexes of the context the forest was optimized with
+     * @param scores the array receiving the score of each hit, at the same index as its feature values
+     */
+    public void evaluate(double[][] featureValues, double[] scores) {
+        if (scores.length < featureValues.length)
+            throw new IllegalArgumentException("Scores must have room for " + featureValues.length + " hits, " +
+                                               "but has length " + scores.length);
+        long[] leafMasks = new long[Math.min(blockSize, featureValues.length) * treeOffsets.length];
+        for (int start = 0; start < featureValues.length; start += blockSize)
+            evaluateBlock(featureValues, start, Math.min(start + blockSize, featureValues.length), scores, leafMasks);
+    }
+
+    /** Evaluates this forest for a single hit */
+    public double evaluate(double[] featureValues) {
+        double[] score = new double[1];
+        evaluate(new double[][] { featureValues }, score);
+        return score[0];
+    }
+
+    private void evaluateBlock(double[][] featureValues, int start, int end, double[] scores, long[] leafMasks) {
+        int trees = treeOffsets.length;
+        Arrays.fill(leafMasks, 0, (end - start) * trees, -1L);
+
+        for (int f = 0; f < features.length; f++) {
+            int feature = features[f];
+            int conditionsEnd = featureStarts[f + 1];
+            for (int hit = start; hit < end; hit++) {
+                double value = featureValues[hit][feature];
+                int maskOffset = (hit - start) * trees;
+                int i = featureStarts[f];
+                for (; i < conditionsEnd && thresholds[i] <= value; i++) // the condition value < threshold is false
+                    leafMasks[maskOffset + thresholdTrees[i]] &= thresholdMasks[i];
+                if (Double.isNaN(value)) {
+                    for (; i < conditionsEnd; i++) {
+                        if (thresholdFalseOnNaN[i])
+                            leafMasks[maskOffset + thresholdTrees[i]] &= thresholdMasks[i];
+                    }
+                }
+            }
+        }
+
+        for (MembershipCondition condition : membershipConditions) {
+            for (int hit = start; hit < end; hit++) {
+                if ( ! condition.isTrue(featureValues[hit][condition.feature]))
+                    leafMasks[(hit - start) * trees + condition.tree] &= condition.mask;
+            }
+        }
+
+        for (int hit = start; hit < end; hit++)
+            scores[hit] = 0;
+        for (int tree = 0; tree < trees; tree++) {
+            double[] leaves = leafValues[tree];
+            for (int hit = start; hit < end; hit++) {
+                if (leaves != null)
+                    scores[hit] += leaves[Long.numberOfTrailingZeros(leafMasks[(hit - start) * trees + tree])];
+                else
+                    scores[hit] += traverse(treeOffsets[tree], featureValues[hit]);
+            }
+        }
+    }
+
+    /** Evaluates the tree at the given offset in the same way as {@link GBDTNode#evaluate} */
+    private double traverse(int pc, double[] featureValues) {
+        while (true) {
+            double nextValue = forest[pc++];
+            if (nextValue < MAX_LEAF_VALUE) return nextValue;
+
+            int offset = (int)nextValue - MAX_LEAF_VALUE;
+            boolean comparisonIsTrue = false;
+            if (offset < MAX_VARIABLES) {
+                comparisonIsTrue = featureValues[offset] < forest[pc++];
+            }
+            else if (offset < MAX_VARIABLES * 2) {
+                comparisonIsTrue = featureValues[offset - MAX_VARIABLES] == forest[pc++];
+            }
+            else if (offset < MAX_VARIABLES * 3) {
+                double testValue = featureValues[offset - MAX_VARIABLES * 2];
+                int setValuesLeft = (int)forest[pc++];
+                while (setValuesLeft > 0) {
+                    setValuesLeft--;
+                    if (testValue == forest[pc++]) {
+                        comparisonIsTrue = true;
+                        break;
+                    }
+                }
+                pc += setValuesLeft;
+            }
+            else {
+                comparisonIsTrue = ! (featureValues[offset - MAX_VARIABLES * 3] >= forest[pc++]);
+            }
+
+            if (comparisonIsTrue)
+                pc++;
+            else
+                pc += (int)forest[pc];
+        }
+    }
+
+    /** Collects the leaves and conditions of a tree */
+    private class TreeConditions {
+
+        private final int tree;
+        private final List<Double> leaves = new ArrayList<>();
+        private final List<ThresholdCondition> thresholdConditions = new ArrayList<>();
+        private final List<MembershipCondition> membershipConditions = new ArrayList<>();
+        private boolean hasNaNThreshold = false;
+
+        TreeConditions(int tree) {
+            this.tree = tree;
+        }
+
+        /** Adds the subtree starting at the given position */
+        void add(int pc) {
+            double value = forest[pc++];
+            if (value < MAX_LEAF_VALUE) {
+                leaves.add(value);
+                return;
+            }
+
+            int offset = (int)value - MAX_LEAF_VALUE;
+            double threshold = 0;
+            double[] setValues = null;
+            if (offset < MAX_VARIABLES * 2 || offset >= MAX_VARIABLES * 3) {
+                threshold = forest[pc++];
+            }
+            else {
+                int setSize = (int)forest[pc++];
+                setValues = Arrays.copyOfRange(forest, pc, pc + setSize);
+                pc += setSize;
+            }
+
+            int firstTrueLeaf = leaves.size();
+            add(pc + 1);
+            int trueLeaves = leaves.size() - firstTrueLeaf;
+            add(pc + (int)forest[pc]);
+            if (leaves.size() > Long.SIZE) return; // this tree will be traversed
+
+            long mask = ~leafBits(firstTrueLeaf, trueLeaves); // if the condition is false, the true branch cannot be reached
+            if (offset < MAX_VARIABLES)
+                addThresholdCondition(offset, threshold, mask, true);
+            else if (offset < MAX_VARIABLES * 2)
+                membershipConditions.add(new MembershipCondition(offset - MAX_VARIABLES, new double[] { threshold }, tree, mask));
+            else if (offset < MAX_VARIABLES * 3)
+                membershipConditions.add(new MembershipCondition(offset - MAX_VARIABLES * 2, setValues, tree, mask));
+            else
+                addThresholdCondition(offset - MAX_VARIABLES * 3, threshold, mask, false);
+        }
+
+        private void addThresholdCondition(int feature, double threshold, long mask, boolean falseOnNaN) {
+            if (Double.isNaN(threshold))
+                hasNaNThreshold = true;
+            thresholdConditions.add(new ThresholdCondition(feature, threshold, tree, mask, falseOnNaN));
+        }
+
+        /** Returns a mask with the given number of bits set, starting at the given bit */
+        private static long leafBits(int first, int count) {
+            return count == Long.SIZE ? -1L : ((1L << count) - 1) << first;
+        }
+
+    }
+
+    /** A condition which is false when the feature value is larger than or equal to the threshold */
+    private record ThresholdCondition(int feature, double threshold, int tree, long mask, boolean falseOnNaN) { }
+
+    /** A condition which is true when the feature value is equal to one of the given values */
+    private static class MembershipCondition {
+
+        private final int feature;
+        private final double[] values;
+        private final int tree;
+        private final long mask;
+
+        MembershipCondition(int feature, double[] values, int tree, long mask) {
+            this.feature = feature;
+            this.values = values;
+            this.tree = tree;
+            this.mask = mask;
+        }
+
+        boolean isTrue(double featureValue) {
+            for (double value : values) {
+                if (featureValue == value) return true;
+            }
+            return false;
+        }
+
+    }
+
+}
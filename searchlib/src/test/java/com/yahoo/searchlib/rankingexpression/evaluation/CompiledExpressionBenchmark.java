@@ -0,0 +1,83 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+import com.yahoo.io.IOUtils;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Compares evaluation of compiled expressions with interpreted evaluation of the same expression,
+ * optimized or not, in a DoubleOnlyArrayContext.
+ *
+ * Usage: CompiledExpressionBenchmark [expression-file] [iterations] [optimize]
+ *
+ * @author bratseth
+ */
+public class CompiledExpressionBenchmark {
+
+    public static void main(String[] args) throws ParseException, IOException {
+        String file = args.length > 0 ? args[0] : "src/test/files/s-expression.vre";
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 100 * 1000;
+        boolean optimize = args.length <= 2 || Boolean.parseBoolean(args[2]);
+        String expressionString = IOUtils.readFile(new File(file)).replace("attribute(catid)", "catid");
+
+        RankingExpression expression = new RankingExpression(expressionString);
+        DoubleOnlyArrayContext context = new DoubleOnlyArrayContext(expression, true);
+        if (optimize)
+            System.out.println(new ExpressionOptimizer().optimize(expression, context));
+        Optional<CompiledExpression> maybeCompiled = CompiledExpression.compile(expression, context);
+        if (maybeCompiled.isEmpty()) {
+            System.out.println("Not compiled: " + file + " is evaluated by the interpreter");
+            return;
+        }
+        CompiledExpression compiled = maybeCompiled.get();
+
+        List<double[]> inputs = new ArrayList<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            double[] input = new double[context.size()];
+            for (int j = 0; j < input.length; j++)
+                input[j] = random.nextDouble() * 3;
+            inputs.add(input);
+        }
+
+        for (int round = 0; round < 3; round++) { // the first rounds are warmup
+            long startTime = System.nanoTime();
+            double interpretedTotal = 0;
+            for (int i = 0; i < iterations; i++) {
+                setValues(inputs.get(i % inputs.size()), context);
+                interpretedTotal += expression.evaluate(context).asDouble();
+            }
+            long interpretedTime = System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            double compiledTotal = 0;
+            for (int i = 0; i < iterations; i++) {
+                setValues(inputs.get(i % inputs.size()), context);
+                compiledTotal += compiled.evaluate(context);
+            }
+            long compiledTime = System.nanoTime() - startTime;
+
+            if (interpretedTotal != compiledTotal)
+                throw new IllegalStateException("Interpreted total " + interpretedTotal + " != compiled total " + compiledTotal);
+            System.out.format("Round %d: interpreted %.1f ns/evaluation, compiled %.1f ns/evaluation (%.1fx)%n",
+                              round,
+                              (double)interpretedTime / iterations,
+                              (double)compiledTime / iterations,
+                              (double)interpretedTime / compiledTime);
+        }
+    }
+
+    private static void setValues(double[] values, DoubleOnlyArrayContext context) {
+        for (int i = 0; i < values.length; i++)
+            context.put(i, values[i]);
+    }
+
+}
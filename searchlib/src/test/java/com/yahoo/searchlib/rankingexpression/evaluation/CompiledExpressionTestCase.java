@@ -0,0 +1,191 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+import com.yahoo.io.IOUtils;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that compiled expressions produce exactly the same values as the interpreter.
+ *
+ * @author bratseth
+ */
+public class CompiledExpressionTestCase {
+
+    private static final double[] interestingValues = { 0, 1, -1, 0.5, 2, 3, 100, Double.NaN, Double.POSITIVE_INFINITY };
+    private static final double[] catids = { 0, 100200171, 100300011, 100200068, 100300019, 100200176, 1 };
+
+    @Test
+    public void testArithmetic() {
+        assertCompiled("1 + 2 * 3 - 4 / 5 % 3");
+        assertCompiled("a + b * c - d / a % b");
+        assertCompiled("a - b - c - d");
+        assertCompiled("a / b / c");
+        assertCompiled("a ^ b ^ c");
+        assertCompiled("-a * -(b + c)");
+        assertCompiled("(a + b) * (c - d) + 1.5e3");
+        assertCompiled("a + b * c ^ d - a");
+    }
+
+    @Test
+    public void testComparisonsAndBooleans() {
+        assertCompiled("a < b");
+        assertCompiled("a <= b");
+        assertCompiled("a > b");
+        assertCompiled("a >= b");
+        assertCompiled("a == b");
+        assertCompiled("a != b");
+        assertCompiled("a ~= b");
+        assertCompiled("a && b");
+        assertCompiled("a || b");
+        assertCompiled("!a");
+        assertCompiled("!(a < b)");
+        assertCompiled("a < b && c > d || a == c");
+        assertCompiled("a + b < c * d");
+        assertCompiled("(a < b) + (c >= d) * 2");
+        assertCompiled("a < b == c");
+        assertCompiled("true + false");
+    }
+
+    @Test
+    public void testConditions() {
+        assertCompiled("if (a < b, c, d)");
+        assertCompiled("if (a, b, c)");
+        assertCompiled("if (!(a >= b) || c == d, a + 1, if (c != d && a ~= b, 2, 3))");
+        assertCompiled("if (a in [0, 1, 2], b, c)");
+        assertCompiled("if (!(a in [0.5, 3]), b, c)");
+        assertCompiled("a in [b, c + 1, -1]");
+        assertCompiled("if (a in [\"foo\", 1], 1, 2)");
+    }
+
+    @Test
+    public void testFunctions() {
+        assertCompiled("max(a, b) + min(c, d)");
+        assertCompiled("exp(a) + log(b) + sqrt(c) + relu(d) + sigmoid(a)");
+        assertCompiled("pow(a, b) + atan2(c, d) + fmod(a, b) + ldexp(a, c)");
+        assertCompiled("isNan(a) + sign(b) + round(c) + floor(d) + ceil(a)");
+        assertCompiled("bit(a, b) + hamming(c, d)");
+    }
+
+    @Test
+    public void testFeaturesWithOutputs() {
+        assertCompiled("foo.out + bar.out * foo");
+    }
+
+    @Test
+    public void testLongChainsAreSplit() {
+        StringBuilder b = new StringBuilder("a");
+        for (int i = 0; i < 3000; i++)
+            b.append(i % 3 == 0 ? " + " : " - ").append(i % 2 == 0 ? "b * " + i : "if (c < " + i + ", d, " + (i * 0.1) + ")");
+        assertCompiled(b.toString());
+    }
+
+    @Test
+    public void testDeepConditionsAreOutlined() {
+        assertCompiled(deepTree(12, 0));
+        assertCompiled("if (" + deepTree(11, 0) + " < 0.1, " + deepTree(11, 1) + ", 1)");
+    }
+
+    @Test
+    public void testGBDT() {
+        assertCompiled(readFile("src/test/files/gbdt.expression"));
+        assertCompiled(readFile("src/test/files/s-expression.vre"));
+        assertCompiled(readFile("src/test/files/ranking07.expression").replace("attribute(catid)", "catid"));
+    }
+
+    @Test
+    public void testLargeForest() {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            if (i > 0) b.append(" + ");
+            b.append(deepTree(i % 5 + 1, i));
+        }
+        assertCompiled(b.toString());
+    }
+
+    @Test
+    public void testNotCompilable() throws ParseException {
+        assertNotCompilable("a + \"foo\"");
+        assertNotCompilable("if (a == \"foo\", 1, 2)");
+        assertNotCompilable("(a < b) in [1, 0]");
+    }
+
+    @Test
+    public void testCompiledExpressionIsReusable() throws ParseException {
+        RankingExpression expression = new RankingExpression("a * 2 + b");
+        DoubleOnlyArrayContext context = new DoubleOnlyArrayContext(expression);
+        CompiledExpression compiled = CompiledExpression.compile(expression, context).get();
+        context.put("a", 3);
+        context.put("b", 1);
+        assertEquals(7, compiled.evaluate(context), 0);
+        DoubleOnlyArrayContext clone = context.clone();
+        clone.put("a", 1);
+        assertEquals(2, compiled.evaluate(clone), 0);
+        assertEquals(7, compiled.evaluate(context), 0);
+    }
+
+    /** Returns a balanced decision tree of the given depth over features a, b, c and d */
+    private static String deepTree(int depth, int leaf) {
+        if (depth == 0) return String.valueOf((leaf % 7 - 3) / 10.0);
+        String variable = String.valueOf((char)('a' + depth % 4));
+        return "if (" + variable + " < " + (depth % 3) + ", " + deepTree(depth - 1, leaf * 2) + ", " + deepTree(depth - 1, leaf * 2 + 1) + ")";
+    }
+
+    private void assertCompiled(String expressionString) {
+        try {
+            assertCompiled(new RankingExpression(expressionString), false);
+            assertCompiled(new RankingExpression(expressionString), true);
+        }
+        catch (ParseException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private void assertCompiled(RankingExpression expression, boolean optimize) {
+        DoubleOnlyArrayContext context = new DoubleOnlyArrayContext(expression);
+        if (optimize)
+            new ExpressionOptimizer().optimize(expression, context);
+        Optional<CompiledExpression> compiled = CompiledExpression.compile(expression, context);
+        assertTrue(compiled.isPresent());
+
+        Random random = new Random(context.names().hashCode());
+        for (int i = 0; i < 200; i++) {
+            for (String name : context.names())
+                context.put(name, randomValue(name, random));
+            double expected = expression.evaluate(context).asDouble();
+            assertEquals(expected, compiled.get().evaluate(context), 0);
+        }
+    }
+
+    private double randomValue(String name, Random random) {
+        if (name.equals("catid")) // set membership tests in ranking07.expression
+            return catids[random.nextInt(catids.length)];
+        if (random.nextBoolean())
+            return interestingValues[random.nextInt(interestingValues.length)];
+        return random.nextDouble() * 4 - 1;
+    }
+
+    private void assertNotCompilable(String expressionString) throws ParseException {
+        RankingExpression expression = new RankingExpression(expressionString);
+        assertFalse(CompiledExpression.compile(expression, new DoubleOnlyArrayContext(expression)).isPresent());
+    }
+
+    private String readFile(String file) {
+        try {
+            return IOUtils.readFile(new File(file));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization;
+
+import com.yahoo.io.IOUtils;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleOnlyArrayContext;
+import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Compares scoring a list of hits with a batch evaluator with evaluating the forest node once per hit.
+ *
+ * Usage: GBDTForestBatchEvaluatorBenchmark [expression-file] [hits] [iterations]
+ *
+ * @author bratseth
+ */
+public class GBDTForestBatchEvaluatorBenchmark {
+
+    public static void main(String[] args) throws ParseException, IOException {
+        String file = args.length > 0 ? args[0] : "src/test/files/s-expression.vre";
+        int hitCount = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        RankingExpression expression = new RankingExpression(IOUtils.readFile(new File(file)));
+        DoubleOnlyArrayContext context = new DoubleOnlyArrayContext(expression, true);
+        System.out.println(new ExpressionOptimizer().optimize(expression, context));
+        GBDTForestNode forest = (GBDTForestNode)expression.getRoot();
+        GBDTForestBatchEvaluator batchEvaluator = new GBDTForestBatchEvaluator(forest);
+
+        Random random = new Random(1);
+        double[][] hits = new double[hitCount][context.size()];
+        for (double[] hit : hits)
+            for (int i = 0; i < hit.length; i++)
+                hit[i] = random.nextDouble() * 3;
+        double[] scores = new double[hitCount];
+
+        for (int round = 0; round < 3; round++) { // the first rounds are warmup
+            long startTime = System.nanoTime();
+            double nodeTotal = 0;
+            for (int i = 0; i < iterations; i++) {
+                for (double[] hit : hits) {
+                    for (int j = 0; j < hit.length; j++)
+                        context.put(j, hit[j]);
+                    nodeTotal += forest.evaluate(context).asDouble();
+                }
+            }
+            long nodeTime = System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            double batchTotal = 0;
+            for (int i = 0; i < iterations; i++) {
+                batchEvaluator.evaluate(hits, scores);
+                for (double score : scores)
+                    batchTotal += score;
+            }
+            long batchTime = System.nanoTime() - startTime;
+
+            if (nodeTotal != batchTotal)
+                throw new IllegalStateException("Forest node total " + nodeTotal + " != batch total " + batchTotal);
+            long evaluations = (long)iterations * hitCount;
+            System.out.format("Round %d: forest node %.1f ns/hit, batch %.1f ns/hit (%.1fx)%n",
+                              round,
+                              (double)nodeTime / evaluations,
+                              (double)batchTime / evaluations,
+                              (double)nodeTime / batchTime);
+        }
+    }
+
+}
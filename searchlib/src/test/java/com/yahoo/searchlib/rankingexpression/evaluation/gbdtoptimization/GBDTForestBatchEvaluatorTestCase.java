@@ -0,0 +1,99 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization;
+
+import com.yahoo.io.IOUtils;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleOnlyArrayContext;
+import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that batch evaluation of forests produce exactly the same values as evaluating the forest node.
+ *
+ * @author bratseth
+ */
+public class GBDTForestBatchEvaluatorTestCase {
+
+    private static final double[] interestingValues = { 0, 1, 2, 3, 0.5, -1, Double.NaN, Double.POSITIVE_INFINITY };
+
+    @Test
+    public void testConditionTypes() {
+        assertBatchEvaluation("if (a < 2, if (b < 2, 5, 6), 4) + if (a < 3, 7, 8)");
+        assertBatchEvaluation("if (a == 2, if (!(b >= 1), 5, 6), 4) + if (a in [0, 3], 7, if (b < 0.5, 8, 9))");
+        assertBatchEvaluation("if (!(a >= 1), if (!(a >= 0.5), 1.5, 2.5), 3.5) + if (b < 1, -1, if (a < 1, 0, 1))");
+    }
+
+    @Test
+    public void testLargeTreesAreTraversed() {
+        assertBatchEvaluation(tree(7, 0) + " + " + tree(3, 1) + " + " + tree(6, 2));
+    }
+
+    @Test
+    public void testFiles() {
+        assertBatchEvaluation(readFile("src/test/files/gbdt.expression"));
+        assertBatchEvaluation(readFile("src/test/files/s-expression.vre"));
+        assertBatchEvaluation(readFile("src/test/files/ranking07.expression").replace("attribute(catid)", "catid"));
+    }
+
+    /** Returns a balanced tree of the given depth over features a, b, c and d */
+    private static String tree(int depth, int leaf) {
+        if (depth == 0) return String.valueOf((leaf % 7 - 3) / 10.0);
+        String feature = String.valueOf((char)('a' + depth % 4));
+        return "if (" + feature + " < " + (depth % 3) + ", " + tree(depth - 1, leaf * 2) + ", " + tree(depth - 1, leaf * 2 + 1) + ")";
+    }
+
+    private void assertBatchEvaluation(String expressionString) {
+        RankingExpression expression;
+        try {
+            expression = new RankingExpression(expressionString);
+        }
+        catch (ParseException e) {
+            throw new IllegalArgumentException(e);
+        }
+        DoubleOnlyArrayContext context = new DoubleOnlyArrayContext(expression);
+        new ExpressionOptimizer().optimize(expression, context);
+        GBDTForestBatchEvaluator evaluator = new GBDTForestBatchEvaluator((GBDTForestNode)expression.getRoot());
+
+        Random random = new Random(context.names().hashCode());
+        String[] names = context.names().toArray(new String[0]);
+        double[][] hits = new double[150][context.size()];
+        for (double[] hit : hits) {
+            for (int i = 0; i < hit.length; i++)
+                hit[i] = randomValue(random, names[i]);
+        }
+        double[] scores = new double[hits.length];
+        evaluator.evaluate(hits, scores);
+
+        for (int hit = 0; hit < hits.length; hit++) {
+            for (int i = 0; i < hits[hit].length; i++)
+                context.put(i, hits[hit][i]);
+            double expected = expression.evaluate(context).asDouble();
+            assertEquals(expected, scores[hit], 0);
+            assertEquals(expected, evaluator.evaluate(hits[hit]), 0);
+        }
+    }
+
+    private double randomValue(Random random, String name) {
+        if (name.equals("catid")) // set membership tests in ranking07.expression
+            return new double[] { 0, 100200171, 100300011, 100200068, 100300019, 1 }[random.nextInt(6)];
+        if (random.nextBoolean())
+            return interestingValues[random.nextInt(interestingValues.length)];
+        return random.nextDouble() * 4 - 1;
+    }
+
+    private String readFile(String file) {
+        try {
+            return IOUtils.readFile(new File(file));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+}
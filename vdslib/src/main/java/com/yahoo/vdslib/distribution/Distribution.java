@@ -15,6 +15,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -29,8 +30,25 @@ public class Distribution {
     private record Config(Group nodeGraph, int redundancy) {
     }
 
+    /** The largest distribution bit count for which ideal distributors are cached in a table */
+    private static final int maxDistributorTableBits = 16;
+
+    /** The max number of distributor tables to keep, such that alternating between a few states reuses their tables */
+    private static final int maxDistributorTables = 4;
+
+    private static final int noDistributorGroup = -1;
+    private static final int noDistributorInUpStates = -2;
+
     private ConfigSubscriber configSub;
     private final AtomicReference<Config> config = new AtomicReference<>(new Config(null, 1));
+    private final AtomicReference<LastDistributorTable> lastDistributorTable = new AtomicReference<>();
+    /** The distributor tables of the last cluster states used, least recently used first. Guarded by itself. */
+    private final Map<DistributorTable.Key, DistributorTable> distributorTables = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<DistributorTable.Key, DistributorTable> eldest) {
+            return size() > maxDistributorTables;
+        }
+    };
 
     public Group getRootGroup() {
         return config.getAcquire().nodeGraph;
@@ -232,13 +250,13 @@ public class Distribution {
         return true;
     }
 
-    private Group getIdealDistributorGroup(BucketId bucket, ClusterState clusterState, Group parent, int redundancy) {
+    private Group getIdealDistributorGroup(int superbucket, ClusterState clusterState, Group parent, int redundancy) {
         if (parent.isLeafGroup()) {
             return parent;
         }
         int[] redundancyArray = parent.getDistribution().getRedundancyArray(redundancy);
         TreeSet<ScoredGroup> results = new TreeSet<>();
-        int seed = getGroupSeed(bucket, clusterState, parent);
+        int seed = superbucket ^ parent.getDistributionHash();
         RandomGen random = new RandomGen(seed);
         int currentIndex = 0;
         for(Group g : parent.getSubgroups().values()) {
@@ -255,7 +273,7 @@ public class Distribution {
         if (results.isEmpty()) {
             return null;
         }
-        return getIdealDistributorGroup(bucket, clusterState, results.first().group, redundancyArray[0]);
+        return getIdealDistributorGroup(superbucket, clusterState, results.first().group, redundancyArray[0]);
     }
 
     private static class ResultGroup implements Comparable<ResultGroup> {
@@ -415,6 +433,19 @@ public class Distribution {
         }
     }
 
+    /**
+     * Returns the index of the ideal distributor of the given bucket in the given cluster state.
+     * <p>
+     * The result depends only on the distribution bits of the bucket, so results are cached in a table
+     * over all superbuckets, filled in as they are looked up. Tables are kept for the last few distinct
+     * distributor states, distribution bit counts and up states used with the current config, such that states
+     * which are equal in these respects share a table, also when they are different instances.
+     * <p>
+     * The table of the last cluster state instance used is found without looking at the node states.
+     * A state instance must therefore not have its node states modified after use without also changing
+     * its version, as is the case for states received from the cluster controller, where each version is
+     * a new instance.
+     */
     public int getIdealDistributorNode(ClusterState state, BucketId bucket, String upStates) throws TooFewBucketBitsInUseException, NoDistributorsAvailableException {
         if (bucket.getUsedBits() < state.getDistributionBitCount()) {
             throw new TooFewBucketBitsInUseException("Cannot get ideal state for bucket " + bucket + " using " + bucket.getUsedBits()
@@ -422,11 +453,46 @@ public class Distribution {
         }
 
         Config cfg = config.getAcquire();
-        Group idealGroup = getIdealDistributorGroup(bucket, state, cfg.nodeGraph, cfg.redundancy);
-        if (idealGroup == null) {
+        int superbucket = getDistributorSeed(bucket, state);
+        int node;
+        if (state.getDistributionBitCount() > maxDistributorTableBits) {
+            node = computeIdealDistributorNode(state, superbucket, cfg, upStates);
+        }
+        else {
+            LastDistributorTable last = lastDistributorTable.getAcquire();
+            if (last == null || ! last.isFor(state, upStates, cfg)) {
+                last = new LastDistributorTable(state, upStates, cfg, distributorTable(state, upStates, cfg));
+                lastDistributorTable.setRelease(last);
+            }
+            DistributorTable table = last.table();
+            node = table.get(superbucket);
+            if (node == DistributorTable.unknown) {
+                node = computeIdealDistributorNode(state, superbucket, cfg, upStates);
+                table.set(superbucket, node);
+            }
+        }
+
+        if (node == noDistributorGroup) {
             throw new NoDistributorsAvailableException("No distributors available in cluster state version " + state.getVersion());
         }
-        int seed = getDistributorSeed(bucket, state);
+        if (node == noDistributorInUpStates) {
+            throw new NoDistributorsAvailableException(
+                    "No available distributors in any of the given upstates '"
+                    + upStates + "'.");
+        }
+        return node;
+    }
+
+    /**
+     * Returns the ideal distributor of the given superbucket, or one of the negative codes
+     * noDistributorGroup or noDistributorInUpStates if there is none.
+     */
+    private int computeIdealDistributorNode(ClusterState state, int superbucket, Config cfg, String upStates) {
+        Group idealGroup = getIdealDistributorGroup(superbucket, state, cfg.nodeGraph, cfg.redundancy);
+        if (idealGroup == null) {
+            return noDistributorGroup;
+        }
+        int seed = superbucket;
         RandomGen random = new RandomGen(seed);
         int randomIndex = 0;
         List<ConfiguredNode> configuredNodes = idealGroup.getNodes();
@@ -454,13 +520,89 @@ public class Distribution {
             }
         }
         if (!node.valid()) {
-            throw new NoDistributorsAvailableException(
-                    "No available distributors in any of the given upstates '"
-                    + upStates + "'.");
+            return noDistributorInUpStates;
         }
         return node.index;
     }
 
+    /** Returns the table of ideal distributors for the given state, which is shared by all states with the same content */
+    private DistributorTable distributorTable(ClusterState state, String upStates, Config config) {
+        List<NodeState> distributorStates = new ArrayList<>();
+        addDistributorStates(config.nodeGraph, state, distributorStates);
+        DistributorTable.Key key = new DistributorTable.Key(upStates, state.getDistributionBitCount(), distributorStates);
+        synchronized (distributorTables) {
+            DistributorTable table = distributorTables.get(key);
+            if (table == null || table.config != config) {
+                table = new DistributorTable(config, state.getDistributionBitCount());
+                distributorTables.put(key, table);
+            }
+            return table;
+        }
+    }
+
+    /** Adds copies of the states of the configured distributors in the given group to the given list, in group order */
+    private static void addDistributorStates(Group group, ClusterState state, List<NodeState> distributorStates) {
+        if (group.isLeafGroup()) {
+            for (ConfiguredNode node : group.getNodes())
+                distributorStates.add(state.getNodeState(new Node(NodeType.DISTRIBUTOR, node.index())).clone());
+        }
+        else {
+            for (Group subgroup : group.getSubgroups().values())
+                addDistributorStates(subgroup, state, distributorStates);
+        }
+    }
+
+    /** The distributor table of the last cluster state instance used, and the values it was looked up with */
+    private record LastDistributorTable(ClusterState state, int version, int distributionBits, String upStates,
+                                        Config config, DistributorTable table) {
+
+        LastDistributorTable(ClusterState state, String upStates, Config config, DistributorTable table) {
+            this(state, state.getVersion(), state.getDistributionBitCount(), upStates, config, table);
+        }
+
+        boolean isFor(ClusterState state, String upStates, Config config) {
+            return this.state == state
+                   && this.version == state.getVersion()
+                   && this.distributionBits == state.getDistributionBitCount()
+                   && this.config == config
+                   && this.upStates.equals(upStates);
+        }
+
+    }
+
+    /**
+     * The ideal distributors of all the superbuckets of a cluster state. Concurrent lookups of the same
+     * superbucket may both compute it, but will store the same value.
+     */
+    private static class DistributorTable {
+
+        static final int unknown = Integer.MIN_VALUE;
+
+        /** The config this is computed with */
+        final Config config;
+        /** Distributor indexes plus one, the negative no-distributor codes, or zero if not looked up yet */
+        private final int[] nodes;
+
+        DistributorTable(Config config, int distributionBits) {
+            this.config = config;
+            this.nodes = new int[1 << distributionBits];
+        }
+
+        int get(int superbucket) {
+            int value = nodes[superbucket];
+            if (value == 0) return unknown;
+            return value > 0 ? value - 1 : value;
+        }
+
+        void set(int superbucket, int node) {
+            nodes[superbucket] = node >= 0 ? node + 1 : node;
+        }
+
+        /** The content of a cluster state deciding its ideal distributors with a given config */
+        record Key(String upStates, int distributionBits, List<NodeState> distributorStates) {}
+
+    }
+
     private boolean visitGroups(GroupVisitor visitor, Map<Integer, Group> groups) {
         for (Group g : groups.values()) {
             if (!visitor.visitGroup(g)) return false;
@@ -4,7 +4,10 @@ package com.yahoo.vdslib.distribution;
 import com.yahoo.vespa.config.content.StorDistributionConfig;
 import com.yahoo.vdslib.state.ClusterState;
 import com.yahoo.document.BucketId;
+import com.yahoo.vdslib.state.Node;
+import com.yahoo.vdslib.state.NodeState;
 import com.yahoo.vdslib.state.NodeType;
+import com.yahoo.vdslib.state.State;
 import org.junit.After;
 import org.junit.Test;
 
@@ -27,7 +30,9 @@ import java.util.Set;
 import java.util.Stack;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class DistributionTestCase {
 
@@ -384,6 +389,102 @@ public class DistributionTestCase {
         assertTrue(Arrays.toString(counts) + ": Too small diff" + diff, diff > 2.9);
     }
 
+    private static StorDistributionConfig flatConfig(int nodeCount) {
+        StorDistributionConfig.Group.Builder group = new StorDistributionConfig.Group.Builder().name("invalid").index("invalid");
+        for (int i = 0; i < nodeCount; ++i)
+            group.nodes(new StorDistributionConfig.Group.Nodes.Builder().index(i));
+        return new StorDistributionConfig(new StorDistributionConfig.Builder().redundancy(2).group(group));
+    }
+
+    @Test
+    public void testCachedDistributorsAreTheSameAsComputed() throws Exception {
+        StorDistributionConfig config = new StorDistributionConfig(buildHierarchicalConfig(6, 3, 2, "1|2|*", 3));
+        Distribution distribution = new Distribution(config);
+        for (String stateString : List.of("distributor:27", "distributor:27 .4.s:d .13.s:m", "bits:12 distributor:27 .1.s:d")) {
+            ClusterState state = new ClusterState(stateString);
+            for (int round = 0; round < 2; ++round) { // the second round reads from the table
+                for (BucketId bucket : getTestBuckets()) {
+                    if (bucket.getUsedBits() < state.getDistributionBitCount()) continue;
+                    assertEquals(stateString + ", " + bucket,
+                                 new Distribution(config).getIdealDistributorNode(state, bucket, "uim"),
+                                 distribution.getIdealDistributorNode(state, bucket, "uim"));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCachedDistributorsFollowClusterStateChanges() throws Exception {
+        Distribution distribution = new Distribution(flatConfig(10));
+        ClusterState state = new ClusterState("version:1 distributor:10");
+        BucketId bucket = new BucketId(16, 1234);
+        int node = distribution.getIdealDistributorNode(state, bucket, "uim");
+
+        state.setNodeState(new Node(NodeType.DISTRIBUTOR, node), new NodeState(NodeType.DISTRIBUTOR, State.DOWN));
+        state.setVersion(2);
+        int newNode = distribution.getIdealDistributorNode(state, bucket, "uim");
+        assertNotEquals(node, newNode);
+        assertEquals(node, distribution.getIdealDistributorNode(new ClusterState("version:2 distributor:10"), bucket, "uim"));
+        assertEquals(node, distribution.getIdealDistributorNode(state, bucket, "uimd"));
+        assertEquals(newNode, distribution.getIdealDistributorNode(state, bucket, "uim"));
+
+        state.setDistributionBits(8);
+        assertEquals(new Distribution(flatConfig(10)).getIdealDistributorNode(state, bucket, "uim"),
+                     distribution.getIdealDistributorNode(state, bucket, "uim"));
+    }
+
+    @Test
+    public void testCachedDistributorsWhenAlternatingBetweenStates() throws Exception {
+        StorDistributionConfig config = new StorDistributionConfig(buildHierarchicalConfig(6, 3, 2, "1|2|*", 3));
+        Distribution distribution = new Distribution(config);
+        // Different instances with the same version and different content, and different instances with equal content
+        List<String> states = List.of("version:7 distributor:27",
+                                      "version:7 distributor:27 .4.s:d .13.s:m",
+                                      "version:7 distributor:27 .4.s:d .13.s:m .20.c:0.5",
+                                      "version:8 distributor:27 .4.s:d .13.s:m",
+                                      "version:7 distributor:27",
+                                      "version:7 bits:12 distributor:27");
+        for (int round = 0; round < 3; ++round) {
+            for (String stateString : states) {
+                ClusterState state = new ClusterState(stateString);
+                for (BucketId bucket : getTestBuckets()) {
+                    if (bucket.getUsedBits() < state.getDistributionBitCount()) continue;
+                    assertEquals(stateString + ", " + bucket,
+                                 new Distribution(config).getIdealDistributorNode(state, bucket, "uim"),
+                                 distribution.getIdealDistributorNode(state, bucket, "uim"));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCachedDistributorsAssumeStatesAreNotModifiedWithoutChangingVersion() throws Exception {
+        Distribution distribution = new Distribution(flatConfig(10));
+        ClusterState state = new ClusterState("version:1 distributor:10");
+        BucketId bucket = new BucketId(16, 1234);
+        int node = distribution.getIdealDistributorNode(state, bucket, "uim");
+
+        state.setNodeState(new Node(NodeType.DISTRIBUTOR, node), new NodeState(NodeType.DISTRIBUTOR, State.DOWN));
+        assertEquals("The table of this instance and version is used", node, distribution.getIdealDistributorNode(state, bucket, "uim"));
+        assertNotEquals("An equal state instance is looked up by content", node,
+                        distribution.getIdealDistributorNode(state.clone(), bucket, "uim"));
+    }
+
+    @Test
+    public void testNoDistributorsAvailableIsCached() throws Exception {
+        Distribution distribution = new Distribution(flatConfig(3));
+        ClusterState state = new ClusterState("distributor:3 .0.s:d .1.s:d .2.s:d");
+        for (int i = 0; i < 2; ++i) {
+            try {
+                distribution.getIdealDistributorNode(state, new BucketId(16, 7), "uim");
+                fail("Expected NoDistributorsAvailableException");
+            }
+            catch (Distribution.NoDistributorsAvailableException e) {
+                assertEquals("No available distributors in any of the given upstates 'uim'.", e.getMessage());
+            }
+        }
+    }
+
     @Test(expected = Distribution.NoDistributorsAvailableException.class)
     public void clusterDownInHierarchicSetupThrowsNoDistributorsAvailableException() throws Exception {
         ClusterState clusterState = new ClusterState("cluster:d");
@@ -0,0 +1,58 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vdslib.distribution;
+
+import com.yahoo.document.BucketId;
+import com.yahoo.vdslib.state.ClusterState;
+import com.yahoo.vespa.config.content.StorDistributionConfig;
+
+import java.util.Random;
+
+/**
+ * Measures the rate of ideal distributor lookups for routing messages, both for the first lookups
+ * in a new cluster state version, and for later lookups which are served from the distributor table.
+ *
+ * Usage: IdealDistributorBenchmark [nodes] [distribution-bits] [messages]
+ */
+public class IdealDistributorBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int nodeCount = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int distributionBits = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int messages = args.length > 2 ? Integer.parseInt(args[2]) : 2_000_000;
+
+        StorDistributionConfig.Group.Builder group = new StorDistributionConfig.Group.Builder().name("invalid").index("invalid");
+        for (int i = 0; i < nodeCount; ++i)
+            group.nodes(new StorDistributionConfig.Group.Nodes.Builder().index(i));
+        Distribution distribution = new Distribution(new StorDistributionConfig(new StorDistributionConfig.Builder().redundancy(2).group(group)));
+
+        Random random = new Random(1);
+        BucketId[] buckets = new BucketId[1 << 16];
+        for (int i = 0; i < buckets.length; ++i)
+            buckets[i] = new BucketId(32, random.nextLong());
+
+        for (int round = 0; round < 5; ++round) { // the first rounds are warmup
+            ClusterState state = new ClusterState("version:" + (round + 1) + " bits:" + distributionBits +
+                                                  " distributor:" + nodeCount + " storage:" + nodeCount + " .3.s:d");
+            long checksum = 0;
+            long startTime = System.nanoTime();
+            for (long superbucket = 0; superbucket < 1L << distributionBits; ++superbucket)
+                checksum += distribution.getIdealDistributorNode(state, new BucketId(distributionBits, superbucket), "uim");
+            long coldTime = System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            for (int i = 0; i < messages; ++i)
+                checksum += distribution.getIdealDistributorNode(state, buckets[i & (buckets.length - 1)], "uim");
+            long warmTime = System.nanoTime() - startTime;
+
+            System.out.format("Round %d: first lookup of %d superbuckets %.0f messages/s, " +
+                              "table lookups %.0f messages/s (%.1fx) [%d]%n",
+                              round,
+                              1L << distributionBits,
+                              (1L << distributionBits) * 1e9 / coldTime,
+                              messages * 1e9 / warmTime,
+                              ((double)coldTime / (1L << distributionBits)) / ((double)warmTime / messages),
+                              checksum);
+        }
+    }
+
+}
@@ -48,6 +48,9 @@ public abstract class AbstractFilteringList<Type, ListType extends AbstractFilte
         return constructor.apply(items, ! negate);
     }
 
+    /** Returns whether the next filter operation is negated. */
+    protected final boolean isNegated() { return negate; }
+
     /** Returns a new list which is the result of filtering with the -- possibly negated -- condition. */
     public final ListType matching(Predicate<Type> condition) {
         return constructor.apply(items.stream().filter(negate ? condition.negate() : condition).toList(), false);